@@ -0,0 +1,98 @@
+package com.campus.exchange.config;
+
+import com.baomidou.mybatisplus.core.metadata.TableFieldInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.campus.exchange.mapper.BatchBaseMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 多行写入分批执行
+ * 按单条语句的行数上限与估算字节数上限切分，避免语句超过 MySQL max_allowed_packet。
+ * 字节数按字段值估算：字符串按 UTF-8 每字符 3 字节，其他类型按固定长度计。
+ */
+@Component
+public class BatchInsertSupport {
+
+    private static final int FIXED_VALUE_BYTES = 24;
+    private static final int ROW_OVERHEAD_BYTES = 8;
+
+    private final int maxRows;
+    private final long maxBytes;
+
+    public BatchInsertSupport(@Value("${mybatis-batch.max-rows:1000}") int maxRows,
+                              @Value("${mybatis-batch.max-bytes:1048576}") long maxBytes) {
+        this.maxRows = Math.max(1, maxRows);
+        this.maxBytes = Math.max(1, maxBytes);
+    }
+
+    /**
+     * 分批多行插入，返回影响行数
+     */
+    public <T> int insertBatch(BatchBaseMapper<T> mapper, List<T> entities) {
+        return execute(entities, mapper::insertBatchSomeColumn);
+    }
+
+    /**
+     * 分批多行插入或更新，返回 MySQL 影响行数（更新的行计为 2）
+     */
+    public <T> int upsertBatch(BatchBaseMapper<T> mapper, List<T> entities) {
+        return execute(entities, mapper::upsertBatch);
+    }
+
+    /**
+     * 分批多行插入，跳过唯一键冲突的行，返回实际插入的行数
+     */
+    public <T> int insertIgnoreBatch(BatchBaseMapper<T> mapper, List<T> entities) {
+        return execute(entities, mapper::insertIgnoreBatch);
+    }
+
+    /**
+     * 按行数与估算字节数切分，单行超过字节上限时单独成批
+     */
+    public <T> List<List<T>> split(List<T> entities) {
+        List<List<T>> batches = new ArrayList<>();
+        if (entities == null || entities.isEmpty()) {
+            return batches;
+        }
+        TableInfo tableInfo = TableInfoHelper.getTableInfo(entities.get(0).getClass());
+        int start = 0;
+        long bytes = 0;
+        for (int i = 0; i < entities.size(); i++) {
+            long rowBytes = estimateBytes(tableInfo, entities.get(i));
+            if (i > start && (i - start >= maxRows || bytes + rowBytes > maxBytes)) {
+                batches.add(entities.subList(start, i));
+                start = i;
+                bytes = 0;
+            }
+            bytes += rowBytes;
+        }
+        batches.add(entities.subList(start, entities.size()));
+        return batches;
+    }
+
+    private <T> int execute(List<T> entities, Function<List<T>, Integer> statement) {
+        int affected = 0;
+        for (List<T> batch : split(entities)) {
+            affected += statement.apply(batch);
+        }
+        return affected;
+    }
+
+    private long estimateBytes(TableInfo tableInfo, Object entity) {
+        if (tableInfo == null) {
+            return ROW_OVERHEAD_BYTES;
+        }
+        long bytes = ROW_OVERHEAD_BYTES;
+        for (TableFieldInfo field : tableInfo.getFieldList()) {
+            Object value = tableInfo.getPropertyValue(entity, field.getProperty());
+            bytes += value instanceof CharSequence ? ((CharSequence) value).length() * 3L + 2 : FIXED_VALUE_BYTES;
+        }
+        return bytes;
+    }
+}
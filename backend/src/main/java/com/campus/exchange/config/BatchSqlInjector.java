@@ -0,0 +1,25 @@
+package com.campus.exchange.config;
+
+import com.baomidou.mybatisplus.annotation.FieldFill;
+import com.baomidou.mybatisplus.core.injector.AbstractMethod;
+import com.baomidou.mybatisplus.core.injector.DefaultSqlInjector;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.extension.injector.methods.InsertBatchSomeColumn;
+import org.apache.ibatis.session.Configuration;
+
+import java.util.List;
+
+/**
+ * 在默认方法之外为 BatchBaseMapper 注入多行插入、多行插入或更新、多行插入并跳过冲突
+ */
+public class BatchSqlInjector extends DefaultSqlInjector {
+
+    @Override
+    public List<AbstractMethod> getMethodList(Configuration configuration, Class<?> mapperClass, TableInfo tableInfo) {
+        List<AbstractMethod> methods = super.getMethodList(configuration, mapperClass, tableInfo);
+        methods.add(new InsertBatchSomeColumn(field -> field.getFieldFill() != FieldFill.UPDATE));
+        methods.add(new UpsertBatch());
+        methods.add(new InsertIgnoreBatch());
+        return methods;
+    }
+}
@@ -0,0 +1,140 @@
+package com.campus.exchange.config;
+
+import com.campus.exchange.mapper.WsBusFrameMapper;
+import com.campus.exchange.model.WsBusFrame;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 数据库轮询总线：各节点把批次写入 ws_bus_frame 表，并轮询其他节点写入的新批次。
+ * 只依赖共享的 MySQL，适合少量节点；本地可用同一个库启动两个服务端验证。
+ */
+@Component
+@ConditionalOnProperty(name = "websocket.bus", havingValue = "db")
+public class DbPollingPushBusTransport implements PushBusTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(DbPollingPushBusTransport.class);
+
+    private static final int POLL_BATCH_SIZE = 200;
+    /** 自增ID可能晚于更大的ID提交，每次回看一小段，已处理的批次按ID去重 */
+    private static final int ID_OVERLAP = 50;
+    private static final int RECENT_IDS = 1000;
+    private static final long RETENTION_SECONDS = 60;
+    private static final int PURGE_BATCH_SIZE = 1000;
+
+    private final WsBusFrameMapper wsBusFrameMapper;
+    private final ObjectMapper objectMapper;
+    private final long pollIntervalMs;
+
+    private final Set<Long> recentIds = new LinkedHashSet<>();
+    private final AtomicLong publishedBatches = new AtomicLong();
+    private final AtomicLong receivedBatches = new AtomicLong();
+
+    private ScheduledExecutorService scheduler;
+    private String nodeId;
+    private Consumer<List<PushFrame>> receiver;
+    private long watermark;
+
+    public DbPollingPushBusTransport(WsBusFrameMapper wsBusFrameMapper, ObjectMapper objectMapper,
+                                     @Value("${websocket.bus-poll-interval:200}") long pollIntervalMs) {
+        this.wsBusFrameMapper = wsBusFrameMapper;
+        this.objectMapper = objectMapper;
+        this.pollIntervalMs = pollIntervalMs;
+    }
+
+    @Override
+    public void start(String nodeId, Consumer<List<PushFrame>> receiver) {
+        this.nodeId = nodeId;
+        this.receiver = receiver;
+        // 只接收启动之后发布的批次
+        this.watermark = wsBusFrameMapper.findMaxId();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ws-bus-poller");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::poll, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::purge, RETENTION_SECONDS, RETENTION_SECONDS / 2, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void publish(String nodeId, List<PushFrame> frames) {
+        try {
+            WsBusFrame row = new WsBusFrame();
+            row.setOriginNode(nodeId);
+            row.setFrames(objectMapper.writeValueAsString(frames));
+            row.setFrameCount(frames.size());
+            wsBusFrameMapper.insert(row);
+            publishedBatches.incrementAndGet();
+        } catch (Exception e) {
+            logger.error("发布推送批次失败: frames={}, error={}", frames.size(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("transport", "db");
+        stats.put("watermark", watermark);
+        stats.put("publishedBatches", publishedBatches.get());
+        stats.put("receivedBatches", receivedBatches.get());
+        return stats;
+    }
+
+    private void poll() {
+        try {
+            List<WsBusFrame> rows = wsBusFrameMapper.findAfter(Math.max(0, watermark - ID_OVERLAP), POLL_BATCH_SIZE);
+            for (WsBusFrame row : rows) {
+                if (!recentIds.add(row.getId())) {
+                    continue;
+                }
+                if (recentIds.size() > RECENT_IDS) {
+                    recentIds.remove(recentIds.iterator().next());
+                }
+                watermark = Math.max(watermark, row.getId());
+                if (nodeId.equals(row.getOriginNode())) {
+                    continue;
+                }
+                receivedBatches.incrementAndGet();
+                receiver.accept(objectMapper.readValue(row.getFrames(), new TypeReference<List<PushFrame>>() {}));
+            }
+        } catch (Exception e) {
+            logger.error("轮询推送总线失败: {}", e.getMessage());
+        }
+    }
+
+    private void purge() {
+        try {
+            LocalDateTime before = LocalDateTime.now().minusSeconds(RETENTION_SECONDS);
+            while (wsBusFrameMapper.deleteBefore(before, PURGE_BATCH_SIZE) == PURGE_BATCH_SIZE) {
+                // 继续删除下一批
+            }
+        } catch (Exception e) {
+            logger.error("清理推送总线数据失败: {}", e.getMessage());
+        }
+    }
+}
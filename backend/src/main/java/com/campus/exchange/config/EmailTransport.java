@@ -0,0 +1,24 @@
+package com.campus.exchange.config;
+
+import org.springframework.mail.SimpleMailMessage;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 邮件发送方式 SPI，通过 email-queue.transport 配置选择实现
+ */
+public interface EmailTransport {
+
+    /**
+     * 在同一连接上发送一批邮件
+     *
+     * @return 发送失败的邮件（键为在列表中的下标）及原因，全部成功时为空
+     */
+    Map<Integer, Exception> send(List<SimpleMailMessage> messages);
+
+    /**
+     * 实现相关的运行指标
+     */
+    Map<String, Object> getStats();
+}
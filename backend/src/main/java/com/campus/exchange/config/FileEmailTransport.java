@@ -0,0 +1,63 @@
+package com.campus.exchange.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地文件发送：每封邮件写为目录下的一个文本文件，开发环境无需 SMTP 服务器即可查看发送结果
+ */
+@Component
+@ConditionalOnProperty(name = "email-queue.transport", havingValue = "file", matchIfMissing = true)
+public class FileEmailTransport implements EmailTransport {
+
+    private final Path dir;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong sentMessages = new AtomicLong();
+
+    public FileEmailTransport(@Value("${email-queue.file-dir:./data/mail}") String dir) {
+        this.dir = Paths.get(dir);
+    }
+
+    @Override
+    public Map<Integer, Exception> send(List<SimpleMailMessage> messages) {
+        Map<Integer, Exception> failures = new HashMap<>();
+        for (int i = 0; i < messages.size(); i++) {
+            SimpleMailMessage message = messages.get(i);
+            try {
+                Files.createDirectories(dir);
+                String name = System.currentTimeMillis() + "-" + sequence.incrementAndGet() + ".eml";
+                String text = "From: " + message.getFrom() + "\n"
+                        + "To: " + String.join(", ", message.getTo()) + "\n"
+                        + "Subject: " + message.getSubject() + "\n\n"
+                        + message.getText() + "\n";
+                Files.write(dir.resolve(name), text.getBytes(StandardCharsets.UTF_8));
+                sentMessages.incrementAndGet();
+            } catch (IOException e) {
+                failures.put(i, e);
+            }
+        }
+        return failures;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("transport", "file");
+        stats.put("dir", dir.toAbsolutePath().toString());
+        stats.put("sentMessages", sentMessages.get());
+        return stats;
+    }
+}
@@ -0,0 +1,41 @@
+package com.campus.exchange.config;
+
+import com.baomidou.mybatisplus.core.injector.AbstractMethod;
+import com.baomidou.mybatisplus.core.metadata.TableFieldInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import org.apache.ibatis.executor.keygen.NoKeyGenerator;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlSource;
+
+import java.util.List;
+
+/**
+ * 多行插入并跳过唯一键冲突的行（MySQL）
+ * INSERT IGNORE INTO t (...) VALUES (...),(...)，冲突行不插入也不报错，影响行数只计实际插入的行。
+ * 被跳过的行无法与自增主键对应，因此不回填主键；IGNORE 同时会把超长截断等错误降为警告，调用方需先校验字段。
+ */
+public class InsertIgnoreBatch extends AbstractMethod {
+
+    private static final long serialVersionUID = 1L;
+
+    public InsertIgnoreBatch() {
+        super("insertIgnoreBatch");
+    }
+
+    @Override
+    public MappedStatement injectMappedStatement(Class<?> mapperClass, Class<?> modelClass, TableInfo tableInfo) {
+        List<TableFieldInfo> fieldList = tableInfo.getFieldList();
+        String columns = tableInfo.getKeyInsertSqlColumn(true, null, false)
+                + filterTableFieldInfo(fieldList, UpsertBatch.INSERTABLE, TableFieldInfo::getInsertSqlColumn, EMPTY);
+        String values = tableInfo.getKeyInsertSqlProperty(true, ENTITY_DOT, false)
+                + filterTableFieldInfo(fieldList, UpsertBatch.INSERTABLE,
+                field -> field.getInsertSqlProperty(ENTITY_DOT), EMPTY);
+
+        String sql = "<script>INSERT IGNORE INTO " + tableInfo.getTableName()
+                + " (" + UpsertBatch.trimComma(columns) + ") VALUES "
+                + "<foreach collection=\"" + LIST + "\" item=\"" + ENTITY + "\" separator=\",\">"
+                + "(" + UpsertBatch.trimComma(values) + ")</foreach></script>";
+        SqlSource sqlSource = createSqlSource(configuration, sql, modelClass);
+        return addInsertMappedStatement(mapperClass, modelClass, methodName, sqlSource, NoKeyGenerator.INSTANCE, null, null);
+    }
+}
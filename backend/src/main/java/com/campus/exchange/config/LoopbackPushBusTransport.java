@@ -0,0 +1,59 @@
+package com.campus.exchange.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 进程内总线：同一个 JVM 中的多个应用实例（如本地启动的两个内嵌服务器）互相投递。
+ * 单节点部署时即为空操作，是默认实现。
+ */
+@Component
+@ConditionalOnProperty(name = "websocket.bus", havingValue = "loopback", matchIfMissing = true)
+public class LoopbackPushBusTransport implements PushBusTransport {
+
+    /** 同一 JVM 内所有节点共享 */
+    private static final Map<String, Consumer<List<PushFrame>>> NODES = new ConcurrentHashMap<>();
+
+    private final AtomicLong publishedBatches = new AtomicLong();
+
+    private String nodeId;
+
+    @Override
+    public void start(String nodeId, Consumer<List<PushFrame>> receiver) {
+        this.nodeId = nodeId;
+        NODES.put(nodeId, receiver);
+    }
+
+    @Override
+    public void publish(String nodeId, List<PushFrame> frames) {
+        publishedBatches.incrementAndGet();
+        for (Map.Entry<String, Consumer<List<PushFrame>>> node : NODES.entrySet()) {
+            if (!node.getKey().equals(nodeId)) {
+                node.getValue().accept(frames);
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (nodeId != null) {
+            NODES.remove(nodeId);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("transport", "loopback");
+        stats.put("nodes", NODES.size());
+        stats.put("publishedBatches", publishedBatches.get());
+        return stats;
+    }
+}
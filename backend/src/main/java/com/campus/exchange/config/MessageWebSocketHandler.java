@@ -1,25 +1,39 @@
 package com.campus.exchange.config;
 
+import com.campus.exchange.dto.DeliveryReplay;
+import com.campus.exchange.security.JwtHandshakeInterceptor;
+import com.campus.exchange.service.MessageService;
+import com.campus.exchange.service.PresenceService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
-import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class MessageWebSocketHandler extends TextWebSocketHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(MessageWebSocketHandler.class);
 
-    private static final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    /** 由 WebSocketConfig 创建处理器时设置，静态方法供业务代码推送消息 */
+    private static volatile WebSocketSessionRegistry registry;
+    private static volatile PushRouter router;
+    private static volatile PresenceService presence;
+    private static volatile MessageService messages;
     private static final ObjectMapper objectMapper = new ObjectMapper();
 
+    public MessageWebSocketHandler(WebSocketSessionRegistry sessionRegistry, PushRouter pushRouter,
+                                   PresenceService presenceService, MessageService messageService) {
+        registry = sessionRegistry;
+        router = pushRouter;
+        presence = presenceService;
+        messages = messageService;
+    }
+
     /**
      * 客户端连接时调用
      */
@@ -27,7 +41,8 @@ public class MessageWebSocketHandler extends TextWebSocketHandler {
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         String userId = getUserIdFromSession(session);
         if (userId != null) {
-            sessions.put(userId, session);
+            registry.register(userId, session);
+            presence.onConnect(Long.valueOf(userId), session);
             logger.info("WebSocket连接建立: userId={}, sessionId={}", userId, session.getId());
         }
     }
@@ -38,19 +53,49 @@ public class MessageWebSocketHandler extends TextWebSocketHandler {
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
         logger.info("收到WebSocket消息: {}", message.getPayload());
+        presence.touch(session);
         try {
             Map<String, Object> msgMap = objectMapper.readValue(message.getPayload(), Map.class);
             String type = (String) msgMap.get("type");
 
             if ("HEARTBEAT".equals(type)) {
-                // 心跳消息，直接回复
-                session.sendMessage(new TextMessage("{\"type\":\"HEARTBEAT_ACK\"}"));
+                // 心跳消息，经发送队列回复，避免与推送并发写同一会话
+                String userId = getUserIdFromSession(session);
+                if (userId != null) {
+                    registry.sendToSession(userId, session, "{\"type\":\"HEARTBEAT_ACK\"}");
+                }
+            } else if ("RESUME".equals(type)) {
+                // 重连后补发上次确认的序号之后的私信，只发给当前连接
+                String userId = getUserIdFromSession(session);
+                Number lastSeq = (Number) msgMap.get("lastSeq");
+                if (userId != null && lastSeq != null) {
+                    resume(userId, session, lastSeq.longValue());
+                }
+            } else if ("ACK".equals(type)) {
+                String userId = getUserIdFromSession(session);
+                Number seq = (Number) msgMap.get("seq");
+                if (userId != null && seq != null) {
+                    messages.ackDelivery(Long.valueOf(userId), seq.longValue());
+                }
             }
         } catch (Exception e) {
             logger.error("解析消息失败: {}", e.getMessage());
         }
     }
 
+    private void resume(String userId, WebSocketSession session, long lastSeq) throws Exception {
+        DeliveryReplay replay = messages.getMissedMessages(Long.valueOf(userId), lastSeq);
+        for (String frame : replay.getFrames()) {
+            registry.sendToSession(userId, session, frame);
+        }
+        Map<String, Object> done = new LinkedHashMap<>();
+        done.put("type", "RESUME_DONE");
+        done.put("lastSeq", replay.getLastSeq());
+        done.put("replayed", replay.getFrames().size());
+        done.put("truncated", replay.getTruncated());
+        registry.sendToSession(userId, session, objectMapper.writeValueAsString(done));
+    }
+
     /**
      * 连接关闭时调用
      */
@@ -58,7 +103,8 @@ public class MessageWebSocketHandler extends TextWebSocketHandler {
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
         String userId = getUserIdFromSession(session);
         if (userId != null) {
-            sessions.remove(userId);
+            registry.unregister(userId, session);
+            presence.onDisconnect(session);
             logger.info("WebSocket连接关闭: userId={}", userId);
         }
     }
@@ -72,47 +118,34 @@ public class MessageWebSocketHandler extends TextWebSocketHandler {
     }
 
     /**
-     * 发送消息给指定用户
+     * 发送消息给指定用户的所有连接（包括连接在其他节点上的）
+     * 只负责入队，由写线程异步发送
      */
     public static void sendMessageToUser(String userId, String message) {
-        WebSocketSession session = sessions.get(userId);
-        if (session != null && session.isOpen()) {
-            try {
-                session.sendMessage(new TextMessage(message));
-                logger.info("发送消息给用户: userId={}", userId);
-            } catch (IOException e) {
-                logger.error("发送消息失败: {}", e.getMessage());
-            }
+        sendMessageToUser(userId, message, null);
+    }
+
+    /**
+     * 发送可合并的消息：跨节点转发时，同一批次内相同合并键只保留最新一条（如未读数）
+     */
+    public static void sendMessageToUser(String userId, String message, String coalesceKey) {
+        if (router != null) {
+            router.sendToUser(userId, message, coalesceKey);
         }
     }
 
     /**
-     * 从Session中获取用户ID（通过查询参数）
+     * 从Session中获取用户ID，由 JwtHandshakeInterceptor 握手时按 Token 写入
      */
     private String getUserIdFromSession(WebSocketSession session) {
-        Map<String, Object> attributes = session.getAttributes();
-        Object userId = attributes.get("userId");
-        if (userId != null) {
-            return userId.toString();
-        }
-        // 尝试从URI参数获取
-        String query = session.getUri().getQuery();
-        if (query != null && query.contains("userId=")) {
-            String[] params = query.split("&");
-            for (String param : params) {
-                if (param.startsWith("userId=")) {
-                    return param.substring(7);
-                }
-            }
-        }
-        return null;
+        Object userId = session.getAttributes().get(JwtHandshakeInterceptor.ATTR_USER_ID);
+        return userId != null ? userId.toString() : null;
     }
 
     /**
      * 检查用户是否在线
      */
     public static boolean isUserOnline(String userId) {
-        WebSocketSession session = sessions.get(userId);
-        return session != null && session.isOpen();
+        return registry != null && registry.isOnline(userId);
     }
 }
@@ -20,6 +20,14 @@ public class MyBatisPlusConfig {
         return interceptor;
     }
 
+    /**
+     * 为继承 BatchBaseMapper 的 Mapper 注入多行插入/插入或更新方法
+     */
+    @Bean
+    public BatchSqlInjector batchSqlInjector() {
+        return new BatchSqlInjector();
+    }
+
     @Bean
     public MetaObjectHandler metaObjectHandler() {
         return new MetaObjectHandler() {
@@ -0,0 +1,33 @@
+package com.campus.exchange.config;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 跨节点推送总线 SPI
+ * 节点把本机无法直接送达的推送帧成批发布出去，其他节点收到后投递给各自连接的用户。
+ * 通过 websocket.bus 配置选择实现。
+ */
+public interface PushBusTransport {
+
+    /**
+     * 开始接收其他节点发布的帧
+     *
+     * @param nodeId   本节点ID，实现需过滤掉本节点发布的批次
+     * @param receiver 收到一批帧时回调
+     */
+    void start(String nodeId, Consumer<List<PushFrame>> receiver);
+
+    /**
+     * 发布一批帧
+     */
+    void publish(String nodeId, List<PushFrame> frames);
+
+    void stop();
+
+    /**
+     * 实现相关的运行指标
+     */
+    Map<String, Object> getStats();
+}
@@ -0,0 +1,28 @@
+package com.campus.exchange.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 推送帧：发给某个用户的一条 WebSocket 消息，或节点之间的一条事件（topic 非空）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PushFrame {
+
+    private String userId;
+
+    private String payload;
+
+    /** 合并键：同一批次中同一用户相同合并键的帧只保留最新一条（如未读数），为空则不合并 */
+    private String coalesceKey;
+
+    /** 事件主题：非空时不投递给用户，交给接收节点上该主题的订阅者处理 */
+    private String topic;
+
+    public PushFrame(String userId, String payload, String coalesceKey) {
+        this(userId, payload, coalesceKey, null);
+    }
+}
@@ -0,0 +1,214 @@
+package com.campus.exchange.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * WebSocket 推送路由
+ * 本机连接的用户直接投递；同时把帧放入缓冲区，按固定间隔合并成批次经 PushBusTransport 发给其他节点，
+ * 其他节点只投递给自己连接的用户。同一批次内同一用户相同合并键的帧只保留最新一条。
+ * 同一条总线也用于节点之间的事件（如缓存失效）：按主题发布，其他节点交给该主题的订阅者处理。
+ */
+@Component
+public class PushRouter {
+
+    private static final Logger logger = LoggerFactory.getLogger(PushRouter.class);
+
+    private static final int MAX_BATCH_SIZE = 500;
+    private static final int MAX_BUFFERED = 10000;
+
+    private final WebSocketSessionRegistry sessionRegistry;
+    private final PushBusTransport transport;
+    private final String nodeId;
+    private final long flushIntervalMs;
+
+    private final Map<String, Consumer<String>> listeners = new ConcurrentHashMap<>();
+    private final Queue<PushFrame> buffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger buffered = new AtomicInteger();
+    private ScheduledExecutorService flusher;
+
+    private final AtomicLong localFrames = new AtomicLong();
+    private final AtomicLong publishedFrames = new AtomicLong();
+    private final AtomicLong publishedBatches = new AtomicLong();
+    private final AtomicLong coalescedFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong receivedFrames = new AtomicLong();
+    private final AtomicLong remoteDelivered = new AtomicLong();
+    private final AtomicLong publishedEvents = new AtomicLong();
+    private final AtomicLong receivedEvents = new AtomicLong();
+
+    public PushRouter(WebSocketSessionRegistry sessionRegistry, PushBusTransport transport,
+                      @Value("${websocket.node-id:}") String nodeId,
+                      @Value("${websocket.bus-flush-interval:50}") long flushIntervalMs) {
+        this.sessionRegistry = sessionRegistry;
+        this.transport = transport;
+        this.nodeId = nodeId == null || nodeId.isEmpty() ? UUID.randomUUID().toString() : nodeId;
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        transport.start(nodeId, this::deliverRemote);
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ws-bus-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        logger.info("WebSocket推送路由已启动: nodeId={}, transport={}", nodeId, transport.getClass().getSimpleName());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        flush();
+        transport.stop();
+    }
+
+    /**
+     * 推送给用户：本机连接立即入队，其他节点经总线批量转发
+     */
+    public void sendToUser(String userId, String payload, String coalesceKey) {
+        if (sessionRegistry.sendToUser(userId, payload) > 0) {
+            localFrames.incrementAndGet();
+        }
+        if (buffered.incrementAndGet() > MAX_BUFFERED) {
+            buffered.decrementAndGet();
+            droppedFrames.incrementAndGet();
+            return;
+        }
+        buffer.offer(new PushFrame(userId, payload, coalesceKey));
+    }
+
+    /**
+     * 向其他节点广播事件；本节点的处理由调用方自行完成，不会回调
+     * 事件不受缓冲上限限制，不会被丢弃
+     */
+    public void publishEvent(String topic, String payload) {
+        buffered.incrementAndGet();
+        buffer.offer(new PushFrame(null, payload, null, topic));
+        publishedEvents.incrementAndGet();
+    }
+
+    /**
+     * 订阅其他节点发布的事件，每个主题一个订阅者，在总线接收线程上回调，应当快速返回
+     */
+    public void subscribe(String topic, Consumer<String> listener) {
+        listeners.put(topic, listener);
+    }
+
+    /**
+     * 用户是否有连接在本节点
+     */
+    public boolean isConnectedHere(String userId) {
+        return sessionRegistry.isOnline(userId);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("nodeId", nodeId);
+        stats.put("buffered", buffered.get());
+        stats.put("localFrames", localFrames.get());
+        stats.put("publishedFrames", publishedFrames.get());
+        stats.put("publishedBatches", publishedBatches.get());
+        stats.put("coalescedFrames", coalescedFrames.get());
+        stats.put("droppedFrames", droppedFrames.get());
+        stats.put("receivedFrames", receivedFrames.get());
+        stats.put("remoteDelivered", remoteDelivered.get());
+        stats.put("publishedEvents", publishedEvents.get());
+        stats.put("receivedEvents", receivedEvents.get());
+        stats.put("transport", transport.getStats());
+        stats.put("sessions", sessionRegistry.getStats());
+        return stats;
+    }
+
+    /**
+     * 取出缓冲区中的帧，合并后分批发布
+     */
+    private void flush() {
+        try {
+            Map<String, PushFrame> merged = new LinkedHashMap<>();
+            int drained = 0;
+            PushFrame frame;
+            while ((frame = buffer.poll()) != null) {
+                buffered.decrementAndGet();
+                drained++;
+                String key = frame.getCoalesceKey() != null
+                        ? frame.getUserId() + "|" + frame.getCoalesceKey()
+                        : "#" + drained;
+                // 相同合并键移到末尾，保留最新的一条
+                merged.remove(key);
+                merged.put(key, frame);
+            }
+            if (merged.isEmpty()) {
+                return;
+            }
+            coalescedFrames.addAndGet(drained - merged.size());
+
+            List<PushFrame> frames = new ArrayList<>(merged.values());
+            for (int i = 0; i < frames.size(); i += MAX_BATCH_SIZE) {
+                List<PushFrame> batch = frames.subList(i, Math.min(i + MAX_BATCH_SIZE, frames.size()));
+                transport.publish(nodeId, new ArrayList<>(batch));
+                publishedBatches.incrementAndGet();
+                publishedFrames.addAndGet(batch.size());
+            }
+        } catch (Exception e) {
+            logger.error("发布推送批次失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 其他节点发来的帧：事件交给订阅者，推送只投递给本机连接的用户
+     */
+    private void deliverRemote(List<PushFrame> frames) {
+        receivedFrames.addAndGet(frames.size());
+        for (PushFrame frame : frames) {
+            if (frame.getTopic() != null) {
+                dispatchEvent(frame);
+                continue;
+            }
+            if (sessionRegistry.sendToUser(frame.getUserId(), frame.getPayload()) > 0) {
+                remoteDelivered.incrementAndGet();
+            }
+        }
+    }
+
+    private void dispatchEvent(PushFrame frame) {
+        receivedEvents.incrementAndGet();
+        Consumer<String> listener = listeners.get(frame.getTopic());
+        if (listener == null) {
+            return;
+        }
+        try {
+            listener.accept(frame.getPayload());
+        } catch (Exception e) {
+            logger.error("处理总线事件失败: topic={}, error={}", frame.getTopic(), e.getMessage());
+        }
+    }
+}
@@ -54,6 +54,7 @@ public class SecurityConfig {
                 .antMatchers(HttpMethod.DELETE, "/api/images").authenticated()
                 .antMatchers("/uploads/**").permitAll()
                 .antMatchers("/api/images/avatars/**").permitAll()
+                // WebSocket 由 JwtHandshakeInterceptor 在握手时校验 Token
                 .antMatchers("/ws/**").permitAll()
                 .antMatchers("/api/addresses/**").authenticated()
                 .antMatchers("/api/system-messages/**").authenticated()
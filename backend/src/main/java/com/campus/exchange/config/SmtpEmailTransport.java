@@ -0,0 +1,64 @@
+package com.campus.exchange.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SMTP 发送：使用 spring.mail 配置的服务器，一批邮件只建立一次连接
+ */
+@Component
+@ConditionalOnProperty(name = "email-queue.transport", havingValue = "smtp")
+public class SmtpEmailTransport implements EmailTransport {
+
+    private final JavaMailSender mailSender;
+
+    private final AtomicLong connections = new AtomicLong();
+    private final AtomicLong sentMessages = new AtomicLong();
+
+    public SmtpEmailTransport(JavaMailSender mailSender) {
+        this.mailSender = mailSender;
+    }
+
+    @Override
+    public Map<Integer, Exception> send(List<SimpleMailMessage> messages) {
+        Map<Integer, Exception> failures = new HashMap<>();
+        connections.incrementAndGet();
+        try {
+            // 多封邮件一次调用时 JavaMailSenderImpl 复用同一个连接
+            mailSender.send(messages.toArray(new SimpleMailMessage[0]));
+        } catch (MailSendException e) {
+            Map<Object, Exception> failed = e.getFailedMessages();
+            for (int i = 0; i < messages.size(); i++) {
+                if (failed.isEmpty()) {
+                    failures.put(i, e);
+                } else if (failed.containsKey(messages.get(i))) {
+                    failures.put(i, failed.get(messages.get(i)));
+                }
+            }
+        } catch (RuntimeException e) {
+            // 连接或认证失败，整批失败
+            for (int i = 0; i < messages.size(); i++) {
+                failures.put(i, e);
+            }
+        }
+        sentMessages.addAndGet(messages.size() - failures.size());
+        return failures;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("transport", "smtp");
+        stats.put("connections", connections.get());
+        stats.put("sentMessages", sentMessages.get());
+        return stats;
+    }
+}
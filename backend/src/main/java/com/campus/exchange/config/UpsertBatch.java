@@ -0,0 +1,60 @@
+package com.campus.exchange.config;
+
+import com.baomidou.mybatisplus.annotation.FieldFill;
+import com.baomidou.mybatisplus.core.injector.AbstractMethod;
+import com.baomidou.mybatisplus.core.metadata.TableFieldInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import org.apache.ibatis.executor.keygen.NoKeyGenerator;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlSource;
+
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * 多行插入或更新（MySQL）
+ * INSERT INTO t (...) VALUES (...),(...) ON DUPLICATE KEY UPDATE col = VALUES(col)，
+ * 冲突时更新所有非主键字段，创建时间等仅插入时填充的字段保留原值。
+ * 冲突行不会回填主键，因此不生成主键。
+ */
+public class UpsertBatch extends AbstractMethod {
+
+    private static final long serialVersionUID = 1L;
+
+    static final Predicate<TableFieldInfo> INSERTABLE = field -> field.getFieldFill() != FieldFill.UPDATE;
+
+    public UpsertBatch() {
+        super("upsertBatch");
+    }
+
+    @Override
+    public MappedStatement injectMappedStatement(Class<?> mapperClass, Class<?> modelClass, TableInfo tableInfo) {
+        List<TableFieldInfo> fieldList = tableInfo.getFieldList();
+        String columns = tableInfo.getKeyInsertSqlColumn(true, null, false)
+                + filterTableFieldInfo(fieldList, INSERTABLE, TableFieldInfo::getInsertSqlColumn, EMPTY);
+        String values = tableInfo.getKeyInsertSqlProperty(true, ENTITY_DOT, false)
+                + filterTableFieldInfo(fieldList, INSERTABLE, field -> field.getInsertSqlProperty(ENTITY_DOT), EMPTY);
+        String updates = fieldList.stream()
+                .filter(INSERTABLE)
+                .filter(field -> field.getFieldFill() != FieldFill.INSERT)
+                .map(field -> field.getColumn() + " = VALUES(" + field.getColumn() + ")")
+                .collect(Collectors.joining(","));
+        if (updates.isEmpty()) {
+            throw new IllegalStateException(tableInfo.getTableName() + " 没有可更新的字段，无法生成 upsertBatch");
+        }
+
+        String sql = "<script>INSERT INTO " + tableInfo.getTableName()
+                + " (" + trimComma(columns) + ") VALUES "
+                + "<foreach collection=\"" + LIST + "\" item=\"" + ENTITY + "\" separator=\",\">"
+                + "(" + trimComma(values) + ")</foreach>"
+                + " ON DUPLICATE KEY UPDATE " + updates + "</script>";
+        SqlSource sqlSource = createSqlSource(configuration, sql, modelClass);
+        return addInsertMappedStatement(mapperClass, modelClass, methodName, sqlSource, NoKeyGenerator.INSTANCE, null, null);
+    }
+
+    static String trimComma(String sql) {
+        String trimmed = sql.trim();
+        return trimmed.endsWith(",") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+}
@@ -1,5 +1,8 @@
 package com.campus.exchange.config;
 
+import com.campus.exchange.security.JwtHandshakeInterceptor;
+import com.campus.exchange.service.MessageService;
+import com.campus.exchange.service.PresenceService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
@@ -10,14 +13,32 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
 @EnableWebSocket
 public class WebSocketConfig implements WebSocketConfigurer {
 
+    private final WebSocketSessionRegistry webSocketSessionRegistry;
+    private final PushRouter pushRouter;
+    private final PresenceService presenceService;
+    private final MessageService messageService;
+    private final JwtHandshakeInterceptor jwtHandshakeInterceptor;
+
+    public WebSocketConfig(WebSocketSessionRegistry webSocketSessionRegistry, PushRouter pushRouter,
+                           PresenceService presenceService, MessageService messageService,
+                           JwtHandshakeInterceptor jwtHandshakeInterceptor) {
+        this.webSocketSessionRegistry = webSocketSessionRegistry;
+        this.pushRouter = pushRouter;
+        this.presenceService = presenceService;
+        this.messageService = messageService;
+        this.jwtHandshakeInterceptor = jwtHandshakeInterceptor;
+    }
+
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        // 握手时校验 Token，连接的用户以 Token 为准
         registry.addHandler(messageWebSocketHandler(), "/ws/message")
+                .addInterceptors(jwtHandshakeInterceptor)
                 .setAllowedOrigins("*");
     }
 
     @Bean
     public MessageWebSocketHandler messageWebSocketHandler() {
-        return new MessageWebSocketHandler();
+        return new MessageWebSocketHandler(webSocketSessionRegistry, pushRouter, presenceService, messageService);
     }
 }
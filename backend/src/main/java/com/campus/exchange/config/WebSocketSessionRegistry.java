@@ -0,0 +1,386 @@
+package com.campus.exchange.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * WebSocket 会话注册表
+ * 同一用户可同时有多个会话（多标签页、多设备）。每个会话有一个有界发送队列，
+ * 由少量写线程串行排空（同一会话同时只有一个线程在写），调用方只负责入队，不会被慢客户端阻塞。
+ * 队列满时按配置丢弃最旧的消息或断开连接。
+ * 写线程阻塞在某个会话的发送上（客户端不读）时，入队和定期巡检都会检查这次发送已进行多久，
+ * 超过 send-time-limit 即在巡检线程上关闭该会话，使阻塞的发送失败返回，释放写线程。
+ */
+@Component
+public class WebSocketSessionRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketSessionRegistry.class);
+
+    /** 队列满时丢弃最旧的消息 */
+    public static final String OVERFLOW_DROP_OLDEST = "DROP_OLDEST";
+    /** 队列满时断开连接，由客户端重连后补拉 */
+    public static final String OVERFLOW_DISCONNECT = "DISCONNECT";
+
+    /** Tomcat 阻塞发送的超时时间（会话属性），作为巡检之外的兜底 */
+    private static final String TOMCAT_BLOCKING_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+
+    private final int queueCapacity;
+    private final String overflowPolicy;
+    private final long sendTimeLimitMs;
+    private final ExecutorService writers;
+    /** 巡检卡住的发送，并在这里执行关闭（关闭可能阻塞，不能放在入队的调用方线程） */
+    private final ScheduledExecutorService watchdog;
+
+    private final Map<String, Set<OutboundSession>> sessionsByUser = new ConcurrentHashMap<>();
+
+    private final AtomicLong sentTotal = new AtomicLong();
+    private final AtomicLong droppedTotal = new AtomicLong();
+    private final AtomicLong disconnectedTotal = new AtomicLong();
+    private final AtomicLong stalledTotal = new AtomicLong();
+    private final AtomicLong latencyTotalMs = new AtomicLong();
+    private final AtomicLong maxLatencyMs = new AtomicLong();
+
+    public WebSocketSessionRegistry(@Value("${websocket.send-queue-capacity:256}") int queueCapacity,
+                                    @Value("${websocket.overflow-policy:DROP_OLDEST}") String overflowPolicy,
+                                    @Value("${websocket.writer-threads:4}") int writerThreads,
+                                    @Value("${websocket.send-time-limit:10000}") long sendTimeLimitMs) {
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.writers = Executors.newFixedThreadPool(writerThreads, r -> {
+            Thread t = new Thread(r, "ws-writer-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ws-send-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+        long sweepMs = Math.max(100, Math.min(1000, sendTimeLimitMs / 2));
+        watchdog.scheduleWithFixedDelay(this::sweepStalled, sweepMs, sweepMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void register(String userId, WebSocketSession session) {
+        if (session instanceof NativeWebSocketSession) {
+            Object nativeSession = ((NativeWebSocketSession) session).getNativeSession();
+            if (nativeSession instanceof javax.websocket.Session) {
+                ((javax.websocket.Session) nativeSession).getUserProperties()
+                        .put(TOMCAT_BLOCKING_SEND_TIMEOUT, sendTimeLimitMs);
+            }
+        }
+        sessionsByUser.computeIfAbsent(userId, k -> new CopyOnWriteArraySet<>()).add(new OutboundSession(session));
+    }
+
+    public void unregister(String userId, WebSocketSession session) {
+        sessionsByUser.computeIfPresent(userId, (k, set) -> {
+            set.removeIf(s -> s.session.getId().equals(session.getId()));
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    /**
+     * 发送给用户的所有会话，返回入队的会话数
+     */
+    public int sendToUser(String userId, String payload) {
+        Set<OutboundSession> sessions = sessionsByUser.get(userId);
+        if (sessions == null) {
+            return 0;
+        }
+        TextMessage message = new TextMessage(payload);
+        int queued = 0;
+        for (OutboundSession session : sessions) {
+            if (session.enqueue(message)) {
+                queued++;
+            }
+        }
+        return queued;
+    }
+
+    /**
+     * 发送给单个会话（如心跳回复）
+     */
+    public void sendToSession(String userId, WebSocketSession session, String payload) {
+        Set<OutboundSession> sessions = sessionsByUser.get(userId);
+        if (sessions == null) {
+            return;
+        }
+        for (OutboundSession s : sessions) {
+            if (s.session.getId().equals(session.getId())) {
+                s.enqueue(new TextMessage(payload));
+                return;
+            }
+        }
+    }
+
+    public boolean isOnline(String userId) {
+        Set<OutboundSession> sessions = sessionsByUser.get(userId);
+        if (sessions == null) {
+            return false;
+        }
+        for (OutboundSession s : sessions) {
+            if (s.session.isOpen()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 当前在线用户ID
+     */
+    public Set<String> getOnlineUserIds() {
+        return sessionsByUser.keySet();
+    }
+
+    /**
+     * 发送队列指标
+     */
+    public Map<String, Object> getStats() {
+        int sessionCount = 0;
+        int queueDepth = 0;
+        int maxQueueDepth = 0;
+        for (Set<OutboundSession> sessions : sessionsByUser.values()) {
+            for (OutboundSession s : sessions) {
+                int depth = s.queue.size();
+                sessionCount++;
+                queueDepth += depth;
+                maxQueueDepth = Math.max(maxQueueDepth, depth);
+            }
+        }
+        long sent = sentTotal.get();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("onlineUsers", sessionsByUser.size());
+        stats.put("sessions", sessionCount);
+        stats.put("queueDepth", queueDepth);
+        stats.put("maxQueueDepth", maxQueueDepth);
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("overflowPolicy", overflowPolicy);
+        stats.put("sentTotal", sent);
+        stats.put("droppedTotal", droppedTotal.get());
+        stats.put("disconnectedTotal", disconnectedTotal.get());
+        stats.put("stalledTotal", stalledTotal.get());
+        stats.put("avgSendLatencyMs", sent > 0 ? latencyTotalMs.get() / sent : 0);
+        stats.put("maxSendLatencyMs", maxLatencyMs.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+        writers.shutdown();
+    }
+
+    /**
+     * 定期巡检：没有新消息入队的会话也能发现卡住的发送
+     */
+    private void sweepStalled() {
+        try {
+            long now = System.currentTimeMillis();
+            for (Set<OutboundSession> sessions : sessionsByUser.values()) {
+                for (OutboundSession s : sessions) {
+                    if (s.isStalled(now)) {
+                        s.abortStalled();
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.error("巡检WebSocket发送失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 单个会话及其发送队列
+     */
+    private class OutboundSession {
+        final WebSocketSession session;
+        final BlockingQueue<Outbound> queue = new ArrayBlockingQueue<>(queueCapacity);
+        /** 是否已有写线程在排空该会话 */
+        final AtomicBoolean draining = new AtomicBoolean();
+        final AtomicBoolean closed = new AtomicBoolean();
+        /** 正在进行的一次发送的开始时间，没有发送时为 0 */
+        volatile long sendStartedAt;
+
+        OutboundSession(WebSocketSession session) {
+            this.session = session;
+        }
+
+        boolean enqueue(TextMessage message) {
+            if (closed.get() || !session.isOpen()) {
+                return false;
+            }
+            long now = System.currentTimeMillis();
+            if (isStalled(now)) {
+                abortStalled();
+                return false;
+            }
+            Outbound item = new Outbound(message, now);
+            while (!queue.offer(item)) {
+                if (OVERFLOW_DISCONNECT.equals(overflowPolicy)) {
+                    disconnectAsync(CloseStatus.SESSION_NOT_RELIABLE, "发送队列已满");
+                    return false;
+                }
+                if (queue.poll() != null) {
+                    droppedTotal.incrementAndGet();
+                }
+            }
+            scheduleDrain();
+            return true;
+        }
+
+        void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    writers.execute(this::drain);
+                } catch (RuntimeException e) {
+                    draining.set(false);
+                    logger.warn("WebSocket写线程不可用: {}", e.getMessage());
+                }
+            }
+        }
+
+        void drain() {
+            try {
+                Outbound item;
+                while ((item = queue.poll()) != null) {
+                    if (!session.isOpen()) {
+                        queue.clear();
+                        return;
+                    }
+                    long start = System.currentTimeMillis();
+                    sendStartedAt = start;
+                    try {
+                        session.sendMessage(item.message);
+                    } finally {
+                        sendStartedAt = 0;
+                    }
+                    long now = System.currentTimeMillis();
+                    recordLatency(now - item.enqueuedAt);
+                    if (now - start > sendTimeLimitMs) {
+                        // 单次发送过慢，视为慢客户端
+                        disconnect(CloseStatus.SESSION_NOT_RELIABLE, "发送超时");
+                        return;
+                    }
+                }
+            } catch (Exception e) {
+                logger.error("WebSocket发送失败: sessionId={}, error={}", session.getId(), e.getMessage());
+                disconnect(CloseStatus.SERVER_ERROR, "发送失败");
+            } finally {
+                draining.set(false);
+                // 排空结束后又有新消息入队，重新调度
+                if (!queue.isEmpty() && session.isOpen()) {
+                    scheduleDrain();
+                }
+            }
+        }
+
+        boolean isStalled(long now) {
+            long started = sendStartedAt;
+            return started != 0 && now - started > sendTimeLimitMs;
+        }
+
+        /**
+         * 发送卡住：交给巡检线程关闭会话，阻塞的发送随之失败，写线程得以释放
+         */
+        void abortStalled() {
+            if (closed.get()) {
+                return;
+            }
+            try {
+                watchdog.execute(() -> {
+                    if (!closed.get()) {
+                        stalledTotal.incrementAndGet();
+                        disconnect(CloseStatus.SESSION_NOT_RELIABLE, "发送超时");
+                    }
+                });
+            } catch (RuntimeException e) {
+                logger.warn("WebSocket巡检线程不可用: {}", e.getMessage());
+            }
+        }
+
+        void disconnect(CloseStatus status, String reason) {
+            if (markClosed(reason)) {
+                closeSession(status);
+            }
+        }
+
+        /**
+         * 在生产者线程上断开：只标记关闭并清空队列，关闭会话交给巡检线程，
+         * 写线程正卡在发送上时 close 可能同样阻塞，不能拖住调用方
+         */
+        void disconnectAsync(CloseStatus status, String reason) {
+            if (!markClosed(reason)) {
+                return;
+            }
+            try {
+                watchdog.execute(() -> closeSession(status));
+            } catch (RuntimeException e) {
+                logger.warn("WebSocket巡检线程不可用: {}", e.getMessage());
+            }
+        }
+
+        /**
+         * 标记会话关闭并丢弃未发送的消息，首次标记时返回 true
+         */
+        private boolean markClosed(String reason) {
+            if (!closed.compareAndSet(false, true)) {
+                droppedTotal.addAndGet(queue.size());
+                queue.clear();
+                return false;
+            }
+            disconnectedTotal.incrementAndGet();
+            droppedTotal.addAndGet(queue.size());
+            queue.clear();
+            logger.warn("断开慢速WebSocket连接: sessionId={}, reason={}", session.getId(), reason);
+            return true;
+        }
+
+        private void closeSession(CloseStatus status) {
+            try {
+                session.close(status);
+            } catch (Exception ignored) {
+                // 连接可能已断开
+            }
+        }
+
+        void recordLatency(long latencyMs) {
+            sentTotal.incrementAndGet();
+            latencyTotalMs.addAndGet(latencyMs);
+            maxLatencyMs.accumulateAndGet(latencyMs, Math::max);
+        }
+    }
+
+    private static class Outbound {
+        final TextMessage message;
+        final long enqueuedAt;
+
+        Outbound(TextMessage message, long enqueuedAt) {
+            this.message = message;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.campus.exchange.controller;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.campus.exchange.dto.*;
 import com.campus.exchange.mapper.*;
@@ -8,7 +9,30 @@ import com.campus.exchange.model.SystemConfig;
 import com.campus.exchange.model.SensitiveWord;
 import com.campus.exchange.model.OperationLog;
 import com.campus.exchange.model.*;
+import com.campus.exchange.config.BatchInsertSupport;
+import com.campus.exchange.config.PushRouter;
+import com.campus.exchange.service.BlockListCache;
+import com.campus.exchange.service.DashboardStatsService;
+import com.campus.exchange.service.DataExportService;
+import com.campus.exchange.service.EmailQueueService;
+import com.campus.exchange.service.EmailService;
+import com.campus.exchange.service.ExportJobService;
+import com.campus.exchange.service.MessageSearchIndex;
+import com.campus.exchange.service.MessageWriter;
+import com.campus.exchange.service.MetricRollupService;
+import com.campus.exchange.service.OrderService;
+import com.campus.exchange.service.OrderVOAssembler;
+import com.campus.exchange.service.OutboxService;
+import com.campus.exchange.service.PresenceService;
+import com.campus.exchange.service.RevenueService;
+import com.campus.exchange.service.ReviewService;
+import com.campus.exchange.service.SensitiveWordFilter;
+import com.campus.exchange.service.SystemMessageService;
+import com.campus.exchange.service.UnreadCounterService;
+import com.campus.exchange.util.BatchHydrator;
 import com.campus.exchange.util.Result;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -19,19 +43,30 @@ import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/admin")
 public class AdminController {
 
+    /** sensitive_word.word 列长度 */
+    private static final int MAX_SENSITIVE_WORD_LENGTH = 100;
+
     private final UserMapper userMapper;
     private final ProductMapper productMapper;
     private final ProductReportMapper productReportMapper;
@@ -44,12 +79,44 @@ public class AdminController {
     private final SystemConfigMapper systemConfigMapper;
     private final SensitiveWordMapper sensitiveWordMapper;
     private final OperationLogMapper operationLogMapper;
+    private final OrderVOAssembler orderVOAssembler;
+    private final OutboxService outboxService;
+    private final RevenueService revenueService;
+    private final UnreadCounterService unreadCounterService;
+    private final PushRouter pushRouter;
+    private final MessageSearchIndex messageSearchIndex;
+    private final BlockListCache blockListCache;
+    private final MessageWriter messageWriter;
+    private final PresenceService presenceService;
+    private final SystemMessageService systemMessageService;
+    private final BatchInsertSupport batchInsertSupport;
+    private final EmailService emailService;
+    private final EmailQueueService emailQueueService;
+    private final EmailDeadLetterMapper emailDeadLetterMapper;
+    private final DataExportService dataExportService;
+    private final ExportJobService exportJobService;
+    private final DashboardStatsService dashboardStatsService;
+    private final MetricRollupService metricRollupService;
+    private final ReviewService reviewService;
+    private final SensitiveWordFilter sensitiveWordFilter;
+    private final OrderService orderService;
 
     public AdminController(UserMapper userMapper, ProductMapper productMapper, ProductReportMapper productReportMapper,
                           CategoryMapper categoryMapper, AnnouncementMapper announcementMapper, CarouselMapper carouselMapper,
                           OrderMapper orderMapper, ReviewMapper reviewMapper, SystemMessageMapper systemMessageMapper,
                           SystemConfigMapper systemConfigMapper, SensitiveWordMapper sensitiveWordMapper,
-                          OperationLogMapper operationLogMapper) {
+                          OperationLogMapper operationLogMapper, OrderVOAssembler orderVOAssembler,
+                          OutboxService outboxService, RevenueService revenueService,
+                          UnreadCounterService unreadCounterService,
+                          PushRouter pushRouter, MessageSearchIndex messageSearchIndex,
+                          BlockListCache blockListCache, MessageWriter messageWriter,
+                          PresenceService presenceService, SystemMessageService systemMessageService,
+                          BatchInsertSupport batchInsertSupport, EmailService emailService,
+                          EmailQueueService emailQueueService, EmailDeadLetterMapper emailDeadLetterMapper,
+                          DataExportService dataExportService, ExportJobService exportJobService,
+                          DashboardStatsService dashboardStatsService, MetricRollupService metricRollupService,
+                          ReviewService reviewService, SensitiveWordFilter sensitiveWordFilter,
+                          OrderService orderService) {
         this.userMapper = userMapper;
         this.productMapper = productMapper;
         this.productReportMapper = productReportMapper;
@@ -62,6 +129,27 @@ public class AdminController {
         this.systemConfigMapper = systemConfigMapper;
         this.sensitiveWordMapper = sensitiveWordMapper;
         this.operationLogMapper = operationLogMapper;
+        this.orderVOAssembler = orderVOAssembler;
+        this.outboxService = outboxService;
+        this.revenueService = revenueService;
+        this.unreadCounterService = unreadCounterService;
+        this.pushRouter = pushRouter;
+        this.messageSearchIndex = messageSearchIndex;
+        this.blockListCache = blockListCache;
+        this.messageWriter = messageWriter;
+        this.presenceService = presenceService;
+        this.systemMessageService = systemMessageService;
+        this.batchInsertSupport = batchInsertSupport;
+        this.emailService = emailService;
+        this.emailQueueService = emailQueueService;
+        this.emailDeadLetterMapper = emailDeadLetterMapper;
+        this.dataExportService = dataExportService;
+        this.exportJobService = exportJobService;
+        this.dashboardStatsService = dashboardStatsService;
+        this.metricRollupService = metricRollupService;
+        this.reviewService = reviewService;
+        this.sensitiveWordFilter = sensitiveWordFilter;
+        this.orderService = orderService;
     }
 
     /**
@@ -171,6 +259,7 @@ public class AdminController {
         user.setUpdatedAt(LocalDateTime.now());
         userMapper.updateById(user);
 
+        dashboardStatsService.markDirty();
         return Result.success();
     }
 
@@ -189,6 +278,7 @@ public class AdminController {
         user.setUpdatedAt(LocalDateTime.now());
         userMapper.updateById(user);
 
+        dashboardStatsService.markDirty();
         return Result.success();
     }
 
@@ -209,6 +299,9 @@ public class AdminController {
         }
 
         userMapper.deleteById(id);
+        messageSearchIndex.purge(id, null);
+        blockListCache.invalidateUser(id);
+        dashboardStatsService.markDirty();
         return Result.success();
     }
 
@@ -227,6 +320,7 @@ public class AdminController {
         user.setUpdatedAt(LocalDateTime.now());
         userMapper.updateById(user);
 
+        dashboardStatsService.markDirty();
         return Result.success();
     }
 
@@ -251,6 +345,7 @@ public class AdminController {
         user.setUpdatedAt(LocalDateTime.now());
         userMapper.updateById(user);
 
+        dashboardStatsService.markDirty();
         return Result.success();
     }
 
@@ -260,26 +355,13 @@ public class AdminController {
     @GetMapping("/users/stats")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<UserStats> getUserStats() {
-        Long totalUsers = userMapper.selectCount(null);
-        Long totalEnabled = userMapper.selectCount(
-                new LambdaQueryWrapper<User>().eq(User::getEnabled, true)
-        );
-        Long totalDisabled = userMapper.selectCount(
-                new LambdaQueryWrapper<User>().eq(User::getEnabled, false)
-        );
-        Long totalAdmins = userMapper.selectCount(
-                new LambdaQueryWrapper<User>().eq(User::getRole, "ADMIN")
-        );
-        Long totalVerified = userMapper.selectCount(
-                new LambdaQueryWrapper<User>().eq(User::getVerified, true)
-        );
-
+        Map<String, Long> users = dashboardStatsService.getSnapshot().getUsers();
         UserStats stats = new UserStats();
-        stats.setTotalUsers(totalUsers);
-        stats.setTotalEnabled(totalEnabled);
-        stats.setTotalDisabled(totalDisabled);
-        stats.setTotalAdmins(totalAdmins);
-        stats.setTotalVerified(totalVerified);
+        stats.setTotalUsers(users.get("total"));
+        stats.setTotalEnabled(users.get("enabled"));
+        stats.setTotalDisabled(users.get("disabled"));
+        stats.setTotalAdmins(users.get("admins"));
+        stats.setTotalVerified(users.get("verified"));
 
         return Result.success(stats);
     }
@@ -339,6 +421,7 @@ public class AdminController {
         }
         product.setUpdatedAt(LocalDateTime.now());
         productMapper.updateById(product);
+        dashboardStatsService.markDirty();
         return Result.success();
     }
 
@@ -356,6 +439,7 @@ public class AdminController {
         product.setForceOfflineReason(req.getReason());
         product.setUpdatedAt(LocalDateTime.now());
         productMapper.updateById(product);
+        dashboardStatsService.markDirty();
         return Result.success();
     }
 
@@ -370,6 +454,7 @@ public class AdminController {
             return Result.error("商品不存在");
         }
         productMapper.deleteById(id);
+        dashboardStatsService.markDirty();
         return Result.success();
     }
 
@@ -379,12 +464,7 @@ public class AdminController {
     @GetMapping("/products/stats")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<Map<String, Long>> getProductStats() {
-        Map<String, Long> stats = new java.util.HashMap<>();
-        stats.put("total", productMapper.selectCount(new LambdaQueryWrapper<Product>()));
-        stats.put("onSale", productMapper.selectCount(new LambdaQueryWrapper<Product>().eq(Product::getStatus, "ON_SALE")));
-        stats.put("pending", productMapper.selectCount(new LambdaQueryWrapper<Product>().eq(Product::getAuditStatus, "PENDING")));
-        stats.put("rejected", productMapper.selectCount(new LambdaQueryWrapper<Product>().eq(Product::getAuditStatus, "REJECTED")));
-        return Result.success(stats);
+        return Result.success(dashboardStatsService.getSnapshot().getProducts());
     }
 
     // ========== 举报处理 ==========
@@ -408,9 +488,14 @@ public class AdminController {
 
         Page<ProductReport> reportPage = productReportMapper.selectPage(pageObj, wrapper);
 
-        // 组装VO
+        // 组装VO：商品、举报者各批量查询一次
+        List<ProductReport> reports = reportPage.getRecords();
+        Map<Long, Product> products = BatchHydrator.load(reports, productMapper, Product::getId,
+                ProductReport::getProductId);
+        Map<Long, User> reporters = BatchHydrator.load(reports, userMapper, User::getId,
+                ProductReport::getReporterId);
         List<ProductReportVO> voList = new ArrayList<>();
-        for (ProductReport report : reportPage.getRecords()) {
+        for (ProductReport report : reports) {
             ProductReportVO vo = new ProductReportVO();
             vo.setId(report.getId());
             vo.setProductId(report.getProductId());
@@ -422,15 +507,15 @@ public class AdminController {
             vo.setHandledAt(report.getHandledAt());
             vo.setCreatedAt(report.getCreatedAt());
 
-            // 查询商品信息
-            Product product = productMapper.selectById(report.getProductId());
+            // 商品信息
+            Product product = products.get(report.getProductId());
             if (product != null) {
                 vo.setProductTitle(product.getTitle());
                 vo.setProductImages(product.getImages());
             }
 
-            // 查询举报者信息
-            User reporter = userMapper.selectById(report.getReporterId());
+            // 举报者信息
+            User reporter = reporters.get(report.getReporterId());
             if (reporter != null) {
                 vo.setReporterUsername(reporter.getUsername());
             }
@@ -478,6 +563,7 @@ public class AdminController {
             }
         }
 
+        dashboardStatsService.markDirty();
         return Result.success();
     }
 
@@ -487,12 +573,7 @@ public class AdminController {
     @GetMapping("/reports/stats")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<Map<String, Long>> getReportStats() {
-        Map<String, Long> stats = new java.util.HashMap<>();
-        stats.put("total", productReportMapper.selectCount(new LambdaQueryWrapper<ProductReport>()));
-        stats.put("pending", productReportMapper.selectCount(new LambdaQueryWrapper<ProductReport>().eq(ProductReport::getStatus, "PENDING")));
-        stats.put("resolved", productReportMapper.selectCount(new LambdaQueryWrapper<ProductReport>().eq(ProductReport::getStatus, "RESOLVED")));
-        stats.put("ignored", productReportMapper.selectCount(new LambdaQueryWrapper<ProductReport>().eq(ProductReport::getStatus, "IGNORED")));
-        return Result.success(stats);
+        return Result.success(dashboardStatsService.getSnapshot().getReports());
     }
 
     // ========== 分类管理 ==========
@@ -609,6 +690,7 @@ public class AdminController {
         announcement.setCreatedAt(LocalDateTime.now());
         announcement.setUpdatedAt(LocalDateTime.now());
         announcementMapper.insert(announcement);
+        dashboardStatsService.markDirty();
         return Result.success();
     }
 
@@ -625,6 +707,7 @@ public class AdminController {
         announcement.setId(id);
         announcement.setUpdatedAt(LocalDateTime.now());
         announcementMapper.updateById(announcement);
+        dashboardStatsService.markDirty();
         return Result.success();
     }
 
@@ -639,15 +722,17 @@ public class AdminController {
             return Result.error("公告不存在");
         }
         announcementMapper.deleteById(id);
+        dashboardStatsService.markDirty();
         return Result.success();
     }
 
     /**
-     * 发布公告
+     * 发布公告，可同时给开启邮件通知的用户发送邮件（写入发送队列，后台限速发送）
      */
     @PostMapping("/announcements/{id}/publish")
     @PreAuthorize("hasRole('ADMIN')")
-    public Result<Void> publishAnnouncement(@PathVariable Long id) {
+    public Result<Void> publishAnnouncement(@PathVariable Long id,
+                                            @RequestParam(defaultValue = "false") boolean notifyByEmail) {
         Announcement announcement = announcementMapper.selectById(id);
         if (announcement == null) {
             return Result.error("公告不存在");
@@ -655,6 +740,10 @@ public class AdminController {
         announcement.setStatus("PUBLISHED");
         announcement.setUpdatedAt(LocalDateTime.now());
         announcementMapper.updateById(announcement);
+        if (notifyByEmail) {
+            emailService.sendAnnouncementToSubscribers(announcement.getTitle(), announcement.getContent());
+        }
+        dashboardStatsService.markDirty();
         return Result.success();
     }
 
@@ -664,12 +753,7 @@ public class AdminController {
     @GetMapping("/announcements/stats")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<Map<String, Long>> getAnnouncementStats() {
-        Map<String, Long> stats = new java.util.HashMap<>();
-        stats.put("total", announcementMapper.selectCount(new LambdaQueryWrapper<Announcement>()));
-        stats.put("published", announcementMapper.selectCount(new LambdaQueryWrapper<Announcement>().eq(Announcement::getStatus, "PUBLISHED")));
-        stats.put("draft", announcementMapper.selectCount(new LambdaQueryWrapper<Announcement>().eq(Announcement::getStatus, "DRAFT")));
-        stats.put("archived", announcementMapper.selectCount(new LambdaQueryWrapper<Announcement>().eq(Announcement::getStatus, "ARCHIVED")));
-        return Result.success(stats);
+        return Result.success(dashboardStatsService.getSnapshot().getAnnouncements());
     }
 
     // ========== 轮播图管理 ==========
@@ -728,6 +812,7 @@ public class AdminController {
         carousel.setCreatedAt(LocalDateTime.now());
         carousel.setUpdatedAt(LocalDateTime.now());
         carouselMapper.insert(carousel);
+        dashboardStatsService.markDirty();
         return Result.success();
     }
 
@@ -744,6 +829,7 @@ public class AdminController {
         carousel.setId(id);
         carousel.setUpdatedAt(LocalDateTime.now());
         carouselMapper.updateById(carousel);
+        dashboardStatsService.markDirty();
         return Result.success();
     }
 
@@ -758,6 +844,7 @@ public class AdminController {
             return Result.error("轮播图不存在");
         }
         carouselMapper.deleteById(id);
+        dashboardStatsService.markDirty();
         return Result.success();
     }
 
@@ -774,6 +861,7 @@ public class AdminController {
         carousel.setStatus("PUBLISHED");
         carousel.setUpdatedAt(LocalDateTime.now());
         carouselMapper.updateById(carousel);
+        dashboardStatsService.markDirty();
         return Result.success();
     }
 
@@ -783,12 +871,7 @@ public class AdminController {
     @GetMapping("/carousels/stats")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<Map<String, Long>> getCarouselStats() {
-        Map<String, Long> stats = new java.util.HashMap<>();
-        stats.put("total", carouselMapper.selectCount(new LambdaQueryWrapper<Carousel>()));
-        stats.put("published", carouselMapper.selectCount(new LambdaQueryWrapper<Carousel>().eq(Carousel::getStatus, "PUBLISHED")));
-        stats.put("draft", carouselMapper.selectCount(new LambdaQueryWrapper<Carousel>().eq(Carousel::getStatus, "DRAFT")));
-        stats.put("disabled", carouselMapper.selectCount(new LambdaQueryWrapper<Carousel>().eq(Carousel::getStatus, "DISABLED")));
-        return Result.success(stats);
+        return Result.success(dashboardStatsService.getSnapshot().getCarousels());
     }
 
     // ========== 订单管理 ==========
@@ -798,7 +881,7 @@ public class AdminController {
      */
     @GetMapping("/orders")
     @PreAuthorize("hasRole('ADMIN')")
-    public Result<Page<Order>> getOrderList(
+    public Result<Page<OrderVO>> getOrderList(
             @RequestParam(defaultValue = "1") int page,
             @RequestParam(defaultValue = "10") int pageSize,
             @RequestParam(required = false) String status,
@@ -827,7 +910,11 @@ public class AdminController {
         }
         wrapper.orderByDesc(Order::getCreatedAt);
 
-        Page<Order> result = orderMapper.selectPage(pageObj, wrapper);
+        Page<Order> orderPage = orderMapper.selectPage(pageObj, wrapper);
+
+        // 批量组装商品和买卖家信息
+        Page<OrderVO> result = new Page<>(orderPage.getCurrent(), orderPage.getSize(), orderPage.getTotal());
+        result.setRecords(orderVOAssembler.toVOList(orderPage.getRecords()));
         return Result.success(result);
     }
 
@@ -850,26 +937,39 @@ public class AdminController {
     @PostMapping("/orders/{id}/cancel")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<Void> cancelOrder(@PathVariable Long id, @RequestBody Map<String, String> request) {
-        Order order = orderMapper.selectById(id);
-        if (order == null) {
-            return Result.error("订单不存在");
-        }
+        orderService.adminCancelOrder(id, request.get("reason"));
+        return Result.success();
+    }
 
-        String reason = request.get("reason");
-        order.setStatus("CANCELLED");
-        order.setRemark((order.getRemark() != null ? order.getRemark() + " | " : "") + "[管理员取消] " + reason);
-        order.setUpdatedAt(LocalDateTime.now());
-        orderMapper.updateById(order);
+    /**
+     * 获取订单事件发件箱指标（积压、延迟、投递计数）
+     */
+    @GetMapping("/outbox/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Map<String, Object>> getOutboxStats() {
+        return Result.success(outboxService.getStats());
+    }
 
-        // 恢复商品状态
-        Product product = productMapper.selectById(order.getProductId());
-        if (product != null) {
-            product.setStatus("ON_SALE");
-            product.setUpdatedAt(LocalDateTime.now());
-            productMapper.updateById(product);
-        }
+    /**
+     * 邮件发送队列运行指标
+     */
+    @GetMapping("/email-queue/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Map<String, Object>> getEmailQueueStats() {
+        return Result.success(emailQueueService.getStats());
+    }
 
-        return Result.success();
+    /**
+     * 邮件死信列表（分页）
+     */
+    @GetMapping("/email-queue/dead-letters")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Page<EmailDeadLetter>> getEmailDeadLetters(
+            @RequestParam(defaultValue = "1") int page,
+            @RequestParam(defaultValue = "20") int pageSize) {
+        LambdaQueryWrapper<EmailDeadLetter> wrapper = new LambdaQueryWrapper<>();
+        wrapper.orderByDesc(EmailDeadLetter::getId);
+        return Result.success(emailDeadLetterMapper.selectPage(new Page<>(page, pageSize), wrapper));
     }
 
     /**
@@ -878,14 +978,7 @@ public class AdminController {
     @GetMapping("/orders/stats")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<Map<String, Long>> getOrderStats() {
-        Map<String, Long> stats = new java.util.HashMap<>();
-        stats.put("total", orderMapper.selectCount(new LambdaQueryWrapper<Order>()));
-        stats.put("pending", orderMapper.selectCount(new LambdaQueryWrapper<Order>().eq(Order::getStatus, "PENDING")));
-        stats.put("paid", orderMapper.selectCount(new LambdaQueryWrapper<Order>().eq(Order::getStatus, "PAID")));
-        stats.put("shipped", orderMapper.selectCount(new LambdaQueryWrapper<Order>().eq(Order::getStatus, "SHIPPED")));
-        stats.put("completed", orderMapper.selectCount(new LambdaQueryWrapper<Order>().eq(Order::getStatus, "COMPLETED")));
-        stats.put("cancelled", orderMapper.selectCount(new LambdaQueryWrapper<Order>().eq(Order::getStatus, "CANCELLED")));
-        return Result.success(stats);
+        return Result.success(dashboardStatsService.getSnapshot().getOrders());
     }
 
     // ========== 评价管理 ==========
@@ -947,11 +1040,7 @@ public class AdminController {
     @DeleteMapping("/reviews/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<Void> deleteReview(@PathVariable Long id) {
-        Review review = reviewMapper.selectById(id);
-        if (review == null) {
-            return Result.error("评价不存在");
-        }
-        reviewMapper.deleteById(id);
+        reviewService.deleteReview(id);
         return Result.success();
     }
 
@@ -961,25 +1050,14 @@ public class AdminController {
     @GetMapping("/reviews/stats")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<Map<String, Object>> getReviewStats() {
+        ReviewRatingStat stat = reviewService.getRatingStat(ReviewRatingStat.GLOBAL);
         Map<String, Object> stats = new java.util.HashMap<>();
-        Long total = reviewMapper.selectCount(new LambdaQueryWrapper<Review>());
-        stats.put("total", total);
-
-        // 计算平均评分
-        List<Review> reviews = reviewMapper.selectList(null);
-        if (!reviews.isEmpty()) {
-            double avgRating = reviews.stream().mapToInt(Review::getRating).average().orElse(0);
-            stats.put("avgRating", Math.round(avgRating * 10) / 10.0);
-        } else {
-            stats.put("avgRating", 0.0);
-        }
-
+        stats.put("total", stat.getTotal());
+        stats.put("avgRating", stat.averageRating());
         // 评分分布
         for (int i = 1; i <= 5; i++) {
-            long count = reviewMapper.selectCount(new LambdaQueryWrapper<Review>().eq(Review::getRating, i));
-            stats.put("star" + i, count);
+            stats.put("star" + i, stat.countOf(i));
         }
-
         return Result.success(stats);
     }
 
@@ -992,18 +1070,9 @@ public class AdminController {
     @PreAuthorize("hasRole('ADMIN')")
     public Result<Void> pushMessage(@Valid @RequestBody AdminPushMessageRequest request) {
         if (request.getUserId() == null) {
-            // 群发给所有用户
-            List<User> users = userMapper.selectList(new LambdaQueryWrapper<User>());
-            for (User user : users) {
-                SystemMessage message = new SystemMessage();
-                message.setUserId(user.getId());
-                message.setTitle(request.getTitle());
-                message.setContent(request.getContent());
-                message.setType("ADMIN_BROADCAST");
-                message.setRead(false);
-                message.setCreateTime(LocalDateTime.now());
-                systemMessageMapper.insert(message);
-            }
+            // 群发：写一条广播，用户读取时合并
+            systemMessageService.broadcast(request.getTitle(), request.getContent(), "ADMIN_BROADCAST",
+                    request.getSegment());
         } else {
             // 单用户推送
             SystemMessage message = new SystemMessage();
@@ -1014,10 +1083,40 @@ public class AdminController {
             message.setRead(false);
             message.setCreateTime(LocalDateTime.now());
             systemMessageMapper.insert(message);
+            unreadCounterService.onSystemMessage(request.getUserId(), 1);
         }
         return Result.success();
     }
 
+    /**
+     * 获取 WebSocket 连接、发送队列、跨节点推送总线与在线状态指标
+     */
+    @GetMapping("/websocket/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Map<String, Object>> getWebSocketStats() {
+        Map<String, Object> stats = new HashMap<>(pushRouter.getStats());
+        stats.put("presence", presenceService.getStats());
+        return Result.success(stats);
+    }
+
+    /**
+     * 获取私信搜索索引状态
+     */
+    @GetMapping("/message-index/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Map<String, Object>> getMessageIndexStats() {
+        return Result.success(messageSearchIndex.getStats());
+    }
+
+    /**
+     * 获取私信组提交写入指标
+     */
+    @GetMapping("/message-writer/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Map<String, Object>> getMessageWriterStats() {
+        return Result.success(messageWriter.getStats());
+    }
+
     /**
      * 获取推送历史
      */
@@ -1038,10 +1137,21 @@ public class AdminController {
         return Result.success(result);
     }
 
+    /**
+     * 获取广播发送记录
+     */
+    @GetMapping("/messages/broadcasts")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<IPage<BroadcastMessage>> getBroadcasts(
+            @RequestParam(defaultValue = "1") int page,
+            @RequestParam(defaultValue = "10") int pageSize) {
+        return Result.success(systemMessageService.getBroadcasts(page, pageSize));
+    }
+
     // ========== 数据导出 ==========
 
     /**
-     * 导出订单数据
+     * 导出订单数据（流式写出，gzip=true 时输出 .csv.gz）
      */
     @GetMapping("/export/orders")
     @PreAuthorize("hasRole('ADMIN')")
@@ -1049,47 +1159,24 @@ public class AdminController {
             @RequestParam(required = false) String status,
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate,
+            @RequestParam(defaultValue = "false") boolean gzip,
             HttpServletResponse response) throws IOException {
-
-        LambdaQueryWrapper<Order> wrapper = new LambdaQueryWrapper<>();
-        if (status != null && !status.isEmpty()) {
-            wrapper.eq(Order::getStatus, status);
-        }
-        if (startDate != null && !startDate.isEmpty()) {
-            wrapper.ge(Order::getCreatedAt, LocalDateTime.parse(startDate + "T00:00:00"));
-        }
-        if (endDate != null && !endDate.isEmpty()) {
-            wrapper.le(Order::getCreatedAt, LocalDateTime.parse(endDate + "T23:59:59"));
-        }
-        wrapper.orderByDesc(Order::getCreatedAt);
-
-        List<Order> orders = orderMapper.selectList(wrapper);
-        exportToCsv(response, "orders", orders);
+        prepareCsvResponse(response, "orders", gzip);
+        dataExportService.exportOrders(status, startDate, endDate, response.getOutputStream(), gzip, null);
     }
 
     /**
-     * 导出用户数据
+     * 导出用户数据（不含密码）
      */
     @GetMapping("/export/users")
     @PreAuthorize("hasRole('ADMIN')")
     public void exportUsers(
             @RequestParam(required = false) String role,
             @RequestParam(required = false) Boolean enabled,
+            @RequestParam(defaultValue = "false") boolean gzip,
             HttpServletResponse response) throws IOException {
-
-        LambdaQueryWrapper<User> wrapper = new LambdaQueryWrapper<>();
-        if (role != null && !role.isEmpty()) {
-            wrapper.eq(User::getRole, role);
-        }
-        if (enabled != null) {
-            wrapper.eq(User::getEnabled, enabled);
-        }
-        wrapper.orderByDesc(User::getCreatedAt);
-
-        List<User> users = userMapper.selectList(wrapper);
-        // 隐藏密码
-        users.forEach(u -> u.setPassword(null));
-        exportToCsv(response, "users", users);
+        prepareCsvResponse(response, "users", gzip);
+        dataExportService.exportUsers(role, enabled, response.getOutputStream(), gzip, null);
     }
 
     /**
@@ -1100,58 +1187,71 @@ public class AdminController {
     public void exportProducts(
             @RequestParam(required = false) String status,
             @RequestParam(required = false) String auditStatus,
+            @RequestParam(defaultValue = "false") boolean gzip,
             HttpServletResponse response) throws IOException {
-
-        LambdaQueryWrapper<Product> wrapper = new LambdaQueryWrapper<>();
-        if (status != null && !status.isEmpty()) {
-            wrapper.eq(Product::getStatus, status);
-        }
-        if (auditStatus != null && !auditStatus.isEmpty()) {
-            wrapper.eq(Product::getAuditStatus, auditStatus);
-        }
-        wrapper.orderByDesc(Product::getCreatedAt);
-
-        List<Product> products = productMapper.selectList(wrapper);
-        exportToCsv(response, "products", products);
+        prepareCsvResponse(response, "products", gzip);
+        dataExportService.exportProducts(status, auditStatus, response.getOutputStream(), gzip, null);
     }
 
-    private <T> void exportToCsv(HttpServletResponse response, String filename, List<T> data) throws IOException {
-        response.setContentType("text/csv;charset=UTF-8");
-        response.setHeader("Content-Disposition", "attachment; filename=" + filename + "_" +
-                LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")) + ".csv");
+    /**
+     * 提交后台导出任务，立即返回任务ID；同一类型同时只允许一个进行中的任务
+     */
+    @PostMapping("/export-jobs")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<ExportJob> submitExportJob(@Valid @RequestBody ExportJobRequest request) {
+        return Result.success(exportJobService.submit(request, getCurrentUserId()));
+    }
 
-        PrintWriter writer = response.getWriter();
-        writer.write("\uFEFF"); // BOM for UTF-8
+    /**
+     * 导出任务列表
+     */
+    @GetMapping("/export-jobs")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Page<ExportJob>> getExportJobs(
+            @RequestParam(defaultValue = "1") int page,
+            @RequestParam(defaultValue = "10") int pageSize,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String status) {
+        return Result.success(exportJobService.listJobs(page, pageSize, type, status));
+    }
 
-        if (data.isEmpty()) {
-            writer.close();
-            return;
-        }
+    /**
+     * 导出任务状态与进度（已导出行数）
+     */
+    @GetMapping("/export-jobs/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<ExportJob> getExportJob(@PathVariable Long id) {
+        return Result.success(exportJobService.getJob(id));
+    }
 
-        // 写入表头
-        java.lang.reflect.Field[] fields = data.get(0).getClass().getDeclaredFields();
-        String[] headers = new String[fields.length];
-        for (int i = 0; i < fields.length; i++) {
-            fields[i].setAccessible(true);
-            headers[i] = fields[i].getName();
-        }
-        writer.println(String.join(",", headers));
+    /**
+     * 下载导出文件（.csv.gz），Resource 响应由 Spring MVC 处理 Range 请求，支持断点续传
+     */
+    @GetMapping("/export-jobs/{id}/download")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Resource> downloadExportJob(@PathVariable Long id) {
+        File file = exportJobService.getArtifact(id);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + file.getName())
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .contentType(MediaType.parseMediaType("application/gzip"))
+                .body(new FileSystemResource(file));
+    }
 
-        // 写入数据
-        for (T item : data) {
-            String[] row = new String[fields.length];
-            for (int i = 0; i < fields.length; i++) {
-                try {
-                    Object value = fields[i].get(item);
-                    row[i] = value != null ? value.toString() : "";
-                } catch (Exception e) {
-                    row[i] = "";
-                }
-            }
-            writer.println(String.join(",", row));
-        }
+    /**
+     * 导出任务统计
+     */
+    @GetMapping("/export-jobs/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Map<String, Object>> getExportJobStats() {
+        return Result.success(exportJobService.getStats());
+    }
 
-        writer.close();
+    private void prepareCsvResponse(HttpServletResponse response, String filename, boolean gzip) {
+        String name = filename + "_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"))
+                + (gzip ? ".csv.gz" : ".csv");
+        response.setContentType(gzip ? "application/gzip" : "text/csv;charset=UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=" + name);
     }
 
     private Long getCurrentUserId() {
@@ -1167,56 +1267,70 @@ public class AdminController {
     @GetMapping("/dashboard/stats")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<DashboardStatsVO> getDashboardStats() {
-        DashboardStatsVO stats = new DashboardStatsVO();
-
-        // 用户统计
-        stats.setTotalUsers(userMapper.selectCount(null));
-        stats.setUserStats(new java.util.HashMap<>());
-        stats.getUserStats().put("enabled", userMapper.selectCount(new LambdaQueryWrapper<User>().eq(User::getEnabled, true)));
-        stats.getUserStats().put("disabled", userMapper.selectCount(new LambdaQueryWrapper<User>().eq(User::getEnabled, false)));
-        stats.getUserStats().put("verified", userMapper.selectCount(new LambdaQueryWrapper<User>().eq(User::getVerified, true)));
-
-        // 商品统计
-        stats.setTotalProducts(productMapper.selectCount(null));
-        stats.setProductStats(new java.util.HashMap<>());
-        stats.getProductStats().put("onSale", productMapper.selectCount(new LambdaQueryWrapper<Product>().eq(Product::getStatus, "ON_SALE")));
-        stats.getProductStats().put("pending", productMapper.selectCount(new LambdaQueryWrapper<Product>().eq(Product::getAuditStatus, "PENDING")));
-        stats.setPendingProducts(productMapper.selectCount(new LambdaQueryWrapper<Product>().eq(Product::getAuditStatus, "PENDING")));
-
-        // 订单统计
-        stats.setTotalOrders(orderMapper.selectCount(null));
-        stats.setOrderStats(new java.util.HashMap<>());
-        stats.getOrderStats().put("pending", orderMapper.selectCount(new LambdaQueryWrapper<Order>().eq(Order::getStatus, "PENDING")));
-        stats.getOrderStats().put("paid", orderMapper.selectCount(new LambdaQueryWrapper<Order>().eq(Order::getStatus, "PAID")));
-        stats.getOrderStats().put("completed", orderMapper.selectCount(new LambdaQueryWrapper<Order>().eq(Order::getStatus, "COMPLETED")));
-
-        // 计算总收入（已完成订单的总金额）
-        List<Order> completedOrders = orderMapper.selectList(new LambdaQueryWrapper<Order>().eq(Order::getStatus, "COMPLETED"));
-        long totalRevenue = completedOrders.stream().mapToLong(o -> o.getPrice() != null ? o.getPrice().longValue() : 0).sum();
-        stats.setTotalRevenue(totalRevenue);
-
-        // 举报统计
-        stats.setPendingReports(productReportMapper.selectCount(new LambdaQueryWrapper<ProductReport>().eq(ProductReport::getStatus, "PENDING")));
-
-        // 最近订单
-        LambdaQueryWrapper<Order> orderWrapper = new LambdaQueryWrapper<>();
-        orderWrapper.orderByDesc(Order::getCreatedAt);
-        orderWrapper.last("LIMIT 5");
-        List<Order> recentOrders = orderMapper.selectList(orderWrapper);
-        List<RecentOrderVO> recentOrderVOList = new ArrayList<>();
-        for (Order order : recentOrders) {
-            RecentOrderVO vo = new RecentOrderVO();
-            vo.setId(order.getId());
-            vo.setOrderNo(order.getOrderNo());
-            vo.setProductName("商品#" + order.getProductId());
-            vo.setAmount(order.getPrice() != null ? order.getPrice().longValue() : 0);
-            vo.setStatus(order.getStatus());
-            vo.setCreatedAt(order.getCreatedAt() != null ? order.getCreatedAt().toString() : "");
-            recentOrderVOList.add(vo);
-        }
-        stats.setRecentOrders(recentOrderVOList);
+        return Result.success(dashboardStatsService.getSnapshot().getDashboard());
+    }
 
-        return Result.success(stats);
+    /**
+     * 统计快照刷新状态
+     */
+    @GetMapping("/dashboard/snapshot-stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Map<String, Object>> getDashboardSnapshotStats() {
+        return Result.success(dashboardStatsService.getStats());
+    }
+
+    /**
+     * 获取成交额趋势（按日/周/月汇总，可按分类筛选）
+     */
+    @GetMapping("/dashboard/revenue")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<List<RevenueBucket>> getRevenueTrend(
+            @RequestParam(defaultValue = "DAY") String periodType,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(defaultValue = "30") int limit) {
+        return Result.success(revenueService.getRecentBuckets(periodType, categoryId, limit));
+    }
+
+    /**
+     * 获取指标趋势（按小时/天汇总，一次读取多个指标），日期格式 yyyy-MM-dd，默认最近30天
+     */
+    @GetMapping("/dashboard/trends")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Map<String, List<MetricRollup>>> getTrends(
+            @RequestParam(defaultValue = "USER_REGISTERED,PRODUCT_CREATED,ORDER_CREATED") String metrics,
+            @RequestParam(defaultValue = "DAY") String granularity,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+        LocalDate end = parseDate(to, LocalDate.now());
+        LocalDate start = parseDate(from, end.minusDays(29));
+        return Result.success(metricRollupService.getTrends(Arrays.asList(metrics.split(",")),
+                granularity.toUpperCase(), start, end));
+    }
+
+    /**
+     * 按业务表回填指定日期范围的指标趋势数据
+     * 订单指标只能回填发件箱保留期（outbox.retention-days）内的日期
+     */
+    @PostMapping("/dashboard/trends/backfill")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Integer> backfillTrends(@RequestParam String from, @RequestParam String to) {
+        LocalDate start = parseDate(from, null);
+        LocalDate end = parseDate(to, null);
+        if (start.isAfter(end)) {
+            return Result.error("开始日期不能晚于结束日期");
+        }
+        return Result.success(metricRollupService.backfill(start, end));
+    }
+
+    private LocalDate parseDate(String value, LocalDate defaultValue) {
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("日期格式应为 yyyy-MM-dd: " + value);
+        }
     }
 
     // ========== 系统配置管理 ==========
@@ -1389,15 +1503,21 @@ public class AdminController {
             return Result.error("敏感词已存在");
         }
 
+        if (req.getAction() != null && !isValidSensitiveWordAction(req.getAction())) {
+            return Result.error("无效的命中动作");
+        }
+
         SensitiveWord word = new SensitiveWord();
         word.setWord(req.getWord());
         word.setCategory(req.getCategory() != null ? req.getCategory() : "GENERAL");
         word.setLevel(req.getLevel() != null ? req.getLevel() : 1);
         word.setReplaceWord(req.getReplaceWord() != null ? req.getReplaceWord() : "***");
+        word.setAction(req.getAction() != null ? req.getAction() : SensitiveWordFilter.ACTION_REPLACE);
         word.setIsEnabled(req.getIsEnabled() != null ? req.getIsEnabled() : true);
         word.setCreatedAt(LocalDateTime.now());
         word.setUpdatedAt(LocalDateTime.now());
         sensitiveWordMapper.insert(word);
+        sensitiveWordFilter.requestRebuild();
         return Result.success();
     }
 
@@ -1411,6 +1531,9 @@ public class AdminController {
         if (existing == null) {
             return Result.error("敏感词不存在");
         }
+        if (req.getAction() != null && !isValidSensitiveWordAction(req.getAction())) {
+            return Result.error("无效的命中动作");
+        }
 
         // 如果修改了词，检查是否冲突
         if (req.getWord() != null && !req.getWord().equals(existing.getWord())) {
@@ -1431,11 +1554,15 @@ public class AdminController {
         if (req.getReplaceWord() != null) {
             existing.setReplaceWord(req.getReplaceWord());
         }
+        if (req.getAction() != null) {
+            existing.setAction(req.getAction());
+        }
         if (req.getIsEnabled() != null) {
             existing.setIsEnabled(req.getIsEnabled());
         }
         existing.setUpdatedAt(LocalDateTime.now());
         sensitiveWordMapper.updateById(existing);
+        sensitiveWordFilter.requestRebuild();
         return Result.success();
     }
 
@@ -1450,6 +1577,7 @@ public class AdminController {
             return Result.error("敏感词不存在");
         }
         sensitiveWordMapper.deleteById(id);
+        sensitiveWordFilter.requestRebuild();
         return Result.success();
     }
 
@@ -1459,33 +1587,67 @@ public class AdminController {
     @PostMapping("/sensitive-words/batch")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<Map<String, Object>> batchImportSensitiveWords(@RequestBody List<String> words) {
-        int success = 0;
         int failed = 0;
         List<String> errors = new ArrayList<>();
 
+        // 唯一索引按不区分大小写的排序规则比较，去重和判断已存在都按小写键进行
+        Map<String, String> candidates = new LinkedHashMap<>();
         for (String word : words) {
             if (word == null || word.trim().isEmpty()) {
                 failed++;
                 continue;
             }
+            String trimmed = word.trim();
+            if (trimmed.length() > MAX_SENSITIVE_WORD_LENGTH) {
+                failed++;
+                errors.add(word + " (超过" + MAX_SENSITIVE_WORD_LENGTH + "个字符)");
+                continue;
+            }
+            if (candidates.putIfAbsent(trimmed.toLowerCase(Locale.ROOT), trimmed) != null) {
+                failed++;
+                errors.add(word + " (已存在)");
+            }
+        }
+        Set<String> existing = new HashSet<>();
+        List<String> candidateList = new ArrayList<>(candidates.values());
+        for (int i = 0; i < candidateList.size(); i += 1000) {
             LambdaQueryWrapper<SensitiveWord> wrapper = new LambdaQueryWrapper<>();
-            wrapper.eq(SensitiveWord::getWord, word.trim());
-            if (sensitiveWordMapper.selectCount(wrapper) > 0) {
+            wrapper.select(SensitiveWord::getWord)
+                    .in(SensitiveWord::getWord, candidateList.subList(i, Math.min(i + 1000, candidateList.size())));
+            for (SensitiveWord sw : sensitiveWordMapper.selectList(wrapper)) {
+                existing.add(sw.getWord().toLowerCase(Locale.ROOT));
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<SensitiveWord> toInsert = new ArrayList<>();
+        for (Map.Entry<String, String> candidate : candidates.entrySet()) {
+            String word = candidate.getValue();
+            if (existing.contains(candidate.getKey())) {
                 failed++;
                 errors.add(word + " (已存在)");
                 continue;
             }
-
             SensitiveWord sw = new SensitiveWord();
-            sw.setWord(word.trim());
+            sw.setWord(word);
             sw.setCategory("CUSTOM");
             sw.setLevel(2);
             sw.setReplaceWord("***");
+            sw.setAction(SensitiveWordFilter.ACTION_REPLACE);
             sw.setIsEnabled(true);
-            sw.setCreatedAt(LocalDateTime.now());
-            sw.setUpdatedAt(LocalDateTime.now());
-            sensitiveWordMapper.insert(sw);
-            success++;
+            sw.setCreatedAt(now);
+            sw.setUpdatedAt(now);
+            toInsert.add(sw);
+        }
+        // 并发导入或大小写以外的排序规则等价（如全角、重音）仍可能冲突，由 INSERT IGNORE 跳过，按已存在计
+        int success = batchInsertSupport.insertIgnoreBatch(sensitiveWordMapper, toInsert);
+        int skipped = toInsert.size() - success;
+        if (skipped > 0) {
+            failed += skipped;
+            errors.add(skipped + " 个词与已有词重复 (已存在)");
+        }
+        if (success > 0) {
+            sensitiveWordFilter.requestRebuild();
         }
 
         Map<String, Object> result = new java.util.HashMap<>();
@@ -1495,6 +1657,31 @@ public class AdminController {
         return Result.success(result);
     }
 
+    /**
+     * 敏感词过滤统计（词典规模、编译耗时、拦截/替换/关注次数）
+     */
+    @GetMapping("/sensitive-words/filter-stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Map<String, Object>> getSensitiveWordFilterStats() {
+        return Result.success(sensitiveWordFilter.getStats());
+    }
+
+    /**
+     * 立即重新编译敏感词词典
+     */
+    @PostMapping("/sensitive-words/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Void> rebuildSensitiveWords() {
+        sensitiveWordFilter.requestRebuild();
+        return Result.success();
+    }
+
+    private boolean isValidSensitiveWordAction(String action) {
+        return SensitiveWordFilter.ACTION_BLOCK.equals(action)
+                || SensitiveWordFilter.ACTION_REPLACE.equals(action)
+                || SensitiveWordFilter.ACTION_FLAG.equals(action);
+    }
+
     // ========== 操作日志管理 ==========
 
     /**
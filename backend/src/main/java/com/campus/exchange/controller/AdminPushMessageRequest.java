@@ -9,6 +9,8 @@ public class AdminPushMessageRequest {
 
     private Long userId;  // 为空时表示群发
 
+    private String segment;  // 群发目标分群: ALL(默认), VERIFIED, UNVERIFIED
+
     @NotBlank(message = "标题不能为空")
     private String title;
 
@@ -1,6 +1,9 @@
 package com.campus.exchange.controller;
 
+import com.campus.exchange.dto.ConversationPageResponse;
 import com.campus.exchange.dto.ConversationVO;
+import com.campus.exchange.dto.MessageHistoryResponse;
+import com.campus.exchange.dto.MessageSearchResponse;
 import com.campus.exchange.dto.MessageVO;
 import com.campus.exchange.dto.SendMessageRequest;
 import com.campus.exchange.model.User;
@@ -12,6 +15,7 @@ import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/messages")
@@ -46,6 +50,30 @@ public class MessageController {
         return Result.success(messages);
     }
 
+    /**
+     * 获取与指定用户的聊天记录（游标分页，向前翻页）
+     */
+    @GetMapping("/conversation/{partnerId}/history")
+    public Result<MessageHistoryResponse> getConversationHistory(
+            @PathVariable Long partnerId,
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "50") int size) {
+        Long userId = getCurrentUserId();
+        return Result.success(messageService.getConversationHistory(userId, partnerId, before, size));
+    }
+
+    /**
+     * 获取游标之后的新消息（断线重连补齐）
+     */
+    @GetMapping("/conversation/{partnerId}/since")
+    public Result<MessageHistoryResponse> getConversationSince(
+            @PathVariable Long partnerId,
+            @RequestParam String after,
+            @RequestParam(defaultValue = "50") int size) {
+        Long userId = getCurrentUserId();
+        return Result.success(messageService.getConversationSince(userId, partnerId, after, size));
+    }
+
     /**
      * 获取会话列表
      */
@@ -56,6 +84,17 @@ public class MessageController {
         return Result.success(conversations);
     }
 
+    /**
+     * 获取会话列表（游标分页）
+     */
+    @GetMapping("/conversations/page")
+    public Result<ConversationPageResponse> getConversationPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        Long userId = getCurrentUserId();
+        return Result.success(messageService.getConversationPage(userId, cursor, size));
+    }
+
     /**
      * 获取未读消息数
      */
@@ -76,6 +115,14 @@ public class MessageController {
         return Result.success(null);
     }
 
+    /**
+     * 批量查询用户在线状态
+     */
+    @GetMapping("/presence")
+    public Result<Map<Long, Boolean>> getPresence(@RequestParam List<Long> userIds) {
+        return Result.success(messageService.getPresence(userIds));
+    }
+
     /**
      * 搜索聊天记录
      */
@@ -89,6 +136,18 @@ public class MessageController {
         return Result.success(messages);
     }
 
+    /**
+     * 搜索聊天记录（游标分页）
+     */
+    @GetMapping("/search/cursor")
+    public Result<MessageSearchResponse> searchMessagesByCursor(
+            @RequestParam String keyword,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        Long userId = getCurrentUserId();
+        return Result.success(messageService.searchMessages(userId, keyword, cursor, size));
+    }
+
     /**
      * 屏蔽用户
      */
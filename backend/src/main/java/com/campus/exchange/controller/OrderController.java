@@ -1,6 +1,7 @@
 package com.campus.exchange.controller;
 
 import com.campus.exchange.dto.*;
+import com.campus.exchange.service.IdempotencyService;
 import com.campus.exchange.service.OrderService;
 import com.campus.exchange.util.Result;
 import org.springframework.security.core.Authentication;
@@ -16,19 +17,25 @@ import javax.validation.Valid;
 @RequestMapping("/api/orders")
 public class OrderController {
 
+    private static final String IDEMPOTENCY_HEADER = "Idempotency-Key";
+
     private final OrderService orderService;
+    private final IdempotencyService idempotencyService;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, IdempotencyService idempotencyService) {
         this.orderService = orderService;
+        this.idempotencyService = idempotencyService;
     }
 
     /**
      * 创建订单（下单）
      */
     @PostMapping
-    public Result<OrderVO> createOrder(@Valid @RequestBody CreateOrderRequest request) {
+    public Result<OrderVO> createOrder(@Valid @RequestBody CreateOrderRequest request,
+                                       @RequestHeader(value = IDEMPOTENCY_HEADER, required = false) String idempotencyKey) {
         Long userId = getCurrentUserId();
-        OrderVO order = orderService.createOrder(userId, request);
+        OrderVO order = idempotencyService.execute(userId, "orders:create", idempotencyKey, OrderVO.class,
+                () -> orderService.createOrder(userId, request));
         return Result.success(order);
     }
 
@@ -76,9 +83,11 @@ public class OrderController {
      * 取消订单
      */
     @PostMapping("/{id}/cancel")
-    public Result<OrderVO> cancelOrder(@PathVariable Long id) {
+    public Result<OrderVO> cancelOrder(@PathVariable Long id,
+                                   @RequestHeader(value = IDEMPOTENCY_HEADER, required = false) String idempotencyKey) {
         Long userId = getCurrentUserId();
-        OrderVO order = orderService.cancelOrder(id, userId);
+        OrderVO order = idempotencyService.execute(userId, "orders:" + id + ":cancel", idempotencyKey, OrderVO.class,
+                () -> orderService.cancelOrder(id, userId));
         return Result.success(order);
     }
 
@@ -86,9 +95,11 @@ public class OrderController {
      * 支付订单
      */
     @PostMapping("/{id}/pay")
-    public Result<OrderVO> payOrder(@PathVariable Long id) {
+    public Result<OrderVO> payOrder(@PathVariable Long id,
+                                   @RequestHeader(value = IDEMPOTENCY_HEADER, required = false) String idempotencyKey) {
         Long userId = getCurrentUserId();
-        OrderVO order = orderService.payOrder(id, userId);
+        OrderVO order = idempotencyService.execute(userId, "orders:" + id + ":pay", idempotencyKey, OrderVO.class,
+                () -> orderService.payOrder(id, userId));
         return Result.success(order);
     }
 
@@ -96,9 +107,11 @@ public class OrderController {
      * 发货
      */
     @PostMapping("/{id}/ship")
-    public Result<OrderVO> shipOrder(@PathVariable Long id) {
+    public Result<OrderVO> shipOrder(@PathVariable Long id,
+                                   @RequestHeader(value = IDEMPOTENCY_HEADER, required = false) String idempotencyKey) {
         Long userId = getCurrentUserId();
-        OrderVO order = orderService.shipOrder(id, userId);
+        OrderVO order = idempotencyService.execute(userId, "orders:" + id + ":ship", idempotencyKey, OrderVO.class,
+                () -> orderService.shipOrder(id, userId));
         return Result.success(order);
     }
 
@@ -106,9 +119,11 @@ public class OrderController {
      * 确认收货
      */
     @PostMapping("/{id}/confirm")
-    public Result<OrderVO> confirmReceipt(@PathVariable Long id) {
+    public Result<OrderVO> confirmReceipt(@PathVariable Long id,
+                                   @RequestHeader(value = IDEMPOTENCY_HEADER, required = false) String idempotencyKey) {
         Long userId = getCurrentUserId();
-        OrderVO order = orderService.confirmReceipt(id, userId);
+        OrderVO order = idempotencyService.execute(userId, "orders:" + id + ":confirm", idempotencyKey, OrderVO.class,
+                () -> orderService.confirmReceipt(id, userId));
         return Result.success(order);
     }
 
@@ -116,9 +131,11 @@ public class OrderController {
      * 申请退款（买家）
      */
     @PostMapping("/{id}/refund")
-    public Result<OrderVO> applyRefund(@PathVariable Long id, @RequestBody RefundRequest request) {
+    public Result<OrderVO> applyRefund(@PathVariable Long id, @RequestBody RefundRequest request,
+                                       @RequestHeader(value = IDEMPOTENCY_HEADER, required = false) String idempotencyKey) {
         Long userId = getCurrentUserId();
-        OrderVO order = orderService.applyRefund(id, userId, request.getReason());
+        OrderVO order = idempotencyService.execute(userId, "orders:" + id + ":refund", idempotencyKey, OrderVO.class,
+                () -> orderService.applyRefund(id, userId, request.getReason()));
         return Result.success(order);
     }
 
@@ -126,9 +143,11 @@ public class OrderController {
      * 同意退款（卖家）
      */
     @PostMapping("/{id}/refund/approve")
-    public Result<OrderVO> approveRefund(@PathVariable Long id) {
+    public Result<OrderVO> approveRefund(@PathVariable Long id,
+                                   @RequestHeader(value = IDEMPOTENCY_HEADER, required = false) String idempotencyKey) {
         Long userId = getCurrentUserId();
-        OrderVO order = orderService.approveRefund(id, userId);
+        OrderVO order = idempotencyService.execute(userId, "orders:" + id + ":refund:approve", idempotencyKey, OrderVO.class,
+                () -> orderService.approveRefund(id, userId));
         return Result.success(order);
     }
 
@@ -136,9 +155,11 @@ public class OrderController {
      * 拒绝退款（卖家）
      */
     @PostMapping("/{id}/refund/reject")
-    public Result<OrderVO> rejectRefund(@PathVariable Long id) {
+    public Result<OrderVO> rejectRefund(@PathVariable Long id,
+                                   @RequestHeader(value = IDEMPOTENCY_HEADER, required = false) String idempotencyKey) {
         Long userId = getCurrentUserId();
-        OrderVO order = orderService.rejectRefund(id, userId);
+        OrderVO order = idempotencyService.execute(userId, "orders:" + id + ":refund:reject", idempotencyKey, OrderVO.class,
+                () -> orderService.rejectRefund(id, userId));
         return Result.success(order);
     }
 
@@ -146,9 +167,11 @@ public class OrderController {
      * 发起纠纷申诉
      */
     @PostMapping("/{id}/dispute")
-    public Result<OrderVO> applyDispute(@PathVariable Long id, @RequestBody DisputeRequest request) {
+    public Result<OrderVO> applyDispute(@PathVariable Long id, @RequestBody DisputeRequest request,
+                                        @RequestHeader(value = IDEMPOTENCY_HEADER, required = false) String idempotencyKey) {
         Long userId = getCurrentUserId();
-        OrderVO order = orderService.applyDispute(id, userId, request.getReason(), request.getEvidence());
+        OrderVO order = idempotencyService.execute(userId, "orders:" + id + ":dispute", idempotencyKey, OrderVO.class,
+                () -> orderService.applyDispute(id, userId, request.getReason(), request.getEvidence()));
         return Result.success(order);
     }
 
@@ -156,8 +179,11 @@ public class OrderController {
      * 处理纠纷（管理员）
      */
     @PostMapping("/{id}/dispute/resolve")
-    public Result<OrderVO> resolveDispute(@PathVariable Long id, @RequestBody DisputeResolveRequest request) {
-        OrderVO order = orderService.resolveDispute(id, request.getResult());
+    public Result<OrderVO> resolveDispute(@PathVariable Long id, @RequestBody DisputeResolveRequest request,
+                                          @RequestHeader(value = IDEMPOTENCY_HEADER, required = false) String idempotencyKey) {
+        Long userId = getCurrentUserId();
+        OrderVO order = idempotencyService.execute(userId, "orders:" + id + ":dispute:resolve", idempotencyKey, OrderVO.class,
+                () -> orderService.resolveDispute(id, request.getResult()));
         return Result.success(order);
     }
 
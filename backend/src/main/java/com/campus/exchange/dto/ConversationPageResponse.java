@@ -0,0 +1,19 @@
+package com.campus.exchange.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 会话列表游标分页响应
+ */
+@Data
+public class ConversationPageResponse {
+
+    private List<ConversationVO> list;
+
+    /** 下一页游标，没有更多时为空 */
+    private String nextCursor;
+
+    private Boolean hasMore;
+}
@@ -13,4 +13,6 @@ public class ConversationVO {
     private String lastMessageType;
     private LocalDateTime lastMessageTime;
     private Integer unreadCount;
+    /** 对方是否在线 */
+    private Boolean partnerOnline;
 }
@@ -1,6 +1,9 @@
 package com.campus.exchange.dto;
 
 import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -9,7 +12,7 @@ public class DashboardStatsVO {
     private Long totalUsers;
     private Long totalProducts;
     private Long totalOrders;
-    private Long totalRevenue;
+    private BigDecimal totalRevenue;
     private Long pendingProducts;
     private Long pendingReports;
     private Long todayUsers;
@@ -19,4 +22,6 @@ public class DashboardStatsVO {
     private Map<String, Long> userStats;
     private Map<String, Long> productStats;
     private Map<String, Long> orderStats;
+    /** 统计快照生成时间 */
+    private LocalDateTime generatedAt;
 }
@@ -0,0 +1,21 @@
+package com.campus.exchange.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 断线补发结果
+ */
+@Data
+public class DeliveryReplay {
+
+    /** 补发的私信帧（与实时推送的 JSON 相同），按投递序号正序 */
+    private List<String> frames;
+
+    /** 补发到的最大序号，没有补发时为客户端上报的序号 */
+    private Long lastSeq;
+
+    /** 缺失的消息超过单次补发上限，客户端应重新加载会话列表 */
+    private Boolean truncated;
+}
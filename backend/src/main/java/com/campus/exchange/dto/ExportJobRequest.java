@@ -0,0 +1,34 @@
+package com.campus.exchange.dto;
+
+import lombok.Data;
+
+import javax.validation.constraints.NotBlank;
+
+/**
+ * 提交后台导出任务，筛选条件与同步导出接口一致
+ */
+@Data
+public class ExportJobRequest {
+
+    /** ORDERS, USERS, PRODUCTS */
+    @NotBlank(message = "导出类型不能为空")
+    private String type;
+
+    /** 订单或商品状态 */
+    private String status;
+
+    /** 订单开始日期 yyyy-MM-dd */
+    private String startDate;
+
+    /** 订单结束日期 yyyy-MM-dd */
+    private String endDate;
+
+    /** 用户角色 */
+    private String role;
+
+    /** 用户是否启用 */
+    private Boolean enabled;
+
+    /** 商品审核状态 */
+    private String auditStatus;
+}
@@ -0,0 +1,24 @@
+package com.campus.exchange.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 聊天记录游标分页响应
+ */
+@Data
+public class MessageHistoryResponse {
+
+    /** 消息列表，按时间正序 */
+    private List<MessageVO> messages;
+
+    /** 加载更早消息的游标（列表中最早一条），没有消息时为空 */
+    private String before;
+
+    /** 拉取新消息的游标（列表中最新一条），没有消息时沿用请求的游标 */
+    private String after;
+
+    /** 是否还有更多：历史接口表示还有更早的消息，增量接口表示还有未拉取完的新消息 */
+    private Boolean hasMore;
+}
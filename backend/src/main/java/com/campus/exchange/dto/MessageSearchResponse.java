@@ -0,0 +1,20 @@
+package com.campus.exchange.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 聊天记录搜索游标分页响应
+ */
+@Data
+public class MessageSearchResponse {
+
+    /** 命中的消息，按时间倒序，highlightedContent 为高亮后的内容 */
+    private List<MessageVO> list;
+
+    /** 下一页游标，没有更多时为空 */
+    private Long nextCursor;
+
+    private Boolean hasMore;
+}
@@ -18,6 +18,10 @@ public class MessageVO {
     private Boolean read;
     private LocalDateTime createdAt;
     private Long productId;
+    /** 接收方投递序号，接收方客户端据此确认和断线补发 */
+    private Long receiverSeq;
     private String productTitle;
     private String productImage;
+    /** 搜索结果中关键字以 <em> 标记的内容（已做 HTML 转义），其他场景为空 */
+    private String highlightedContent;
 }
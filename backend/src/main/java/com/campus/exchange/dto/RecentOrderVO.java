@@ -2,12 +2,14 @@ package com.campus.exchange.dto;
 
 import lombok.Data;
 
+import java.math.BigDecimal;
+
 @Data
 public class RecentOrderVO {
     private Long id;
     private String orderNo;
     private String productName;
-    private Long amount;
+    private BigDecimal amount;
     private String status;
     private String createdAt;
 }
@@ -13,5 +13,6 @@ public class SensitiveWordRequest {
     private String category;
     private Integer level;
     private String replaceWord;
+    private String action;
     private Boolean isEnabled;
 }
@@ -0,0 +1,29 @@
+package com.campus.exchange.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 支持多行写入的基础 Mapper，方法由 BatchSqlInjector 按实体字段生成。
+ * 单条语句的行数没有限制，调用方应通过 BatchInsertSupport 按行数/字节数分批。
+ */
+public interface BatchBaseMapper<T> extends BaseMapper<T> {
+
+    /**
+     * 多行插入：INSERT INTO ... VALUES (...),(...)，自增主键会回填
+     */
+    int insertBatchSomeColumn(@Param(Constants.LIST) List<T> list);
+
+    /**
+     * 多行插入或更新：唯一键冲突时用新值覆盖非主键字段（仅插入时填充的字段除外）
+     */
+    int upsertBatch(@Param(Constants.LIST) List<T> list);
+
+    /**
+     * 多行插入并跳过唯一键冲突的行：返回实际插入的行数，不回填主键
+     */
+    int insertIgnoreBatch(@Param(Constants.LIST) List<T> list);
+}
@@ -0,0 +1,44 @@
+package com.campus.exchange.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.campus.exchange.model.BroadcastMessage;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface BroadcastMessageMapper extends BaseMapper<BroadcastMessage> {
+
+    /**
+     * 待写入的分群广播
+     */
+    @Select("SELECT * FROM broadcast_message WHERE status = 'PENDING' ORDER BY id ASC LIMIT #{limit}")
+    List<BroadcastMessage> findPending(@Param("limit") int limit);
+
+    /**
+     * 分群内的用户ID（按ID顺序分批）
+     */
+    @Select("<script>SELECT id FROM user WHERE deleted = 0 AND id &gt; #{afterId}" +
+            "<if test=\"segment == 'VERIFIED'\"> AND verified = 1</if>" +
+            "<if test=\"segment == 'UNVERIFIED'\"> AND (verified = 0 OR verified IS NULL)</if>" +
+            " ORDER BY id ASC LIMIT #{limit}</script>")
+    List<Long> findSegmentUserIds(@Param("segment") String segment, @Param("afterId") Long afterId,
+                                  @Param("limit") int limit);
+
+    @Update("UPDATE broadcast_message SET materialized_up_to = #{upTo}, status = #{status} WHERE id = #{id}")
+    int updateProgress(@Param("id") Long id, @Param("upTo") Long upTo, @Param("status") String status);
+
+    @Insert("INSERT INTO broadcast_receipt (user_id, broadcast_id, read_time) VALUES (#{userId}, #{broadcastId}, #{readTime}) " +
+            "ON DUPLICATE KEY UPDATE read_time = IFNULL(read_time, VALUES(read_time))")
+    int markRead(@Param("userId") Long userId, @Param("broadcastId") Long broadcastId,
+                 @Param("readTime") LocalDateTime readTime);
+
+    @Insert("INSERT INTO broadcast_receipt (user_id, broadcast_id, deleted) VALUES (#{userId}, #{broadcastId}, 1) " +
+            "ON DUPLICATE KEY UPDATE deleted = 1")
+    int markDeleted(@Param("userId") Long userId, @Param("broadcastId") Long broadcastId);
+}
@@ -0,0 +1,86 @@
+package com.campus.exchange.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.campus.exchange.model.Conversation;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface ConversationMapper extends BaseMapper<Conversation> {
+
+    /**
+     * 记录一条新消息：不存在则创建会话，存在则更新预览并累加接收方未读数
+     * 预览只在消息不早于当前记录时覆盖（last_message_at 最后赋值，前面的判断使用旧值）
+     */
+    @Insert("INSERT INTO conversation (user_low, user_high, last_message_preview, last_message_type, last_sender_id, " +
+            "last_message_at, unread_low, unread_high) " +
+            "VALUES (#{c.userLow}, #{c.userHigh}, #{c.lastMessagePreview}, #{c.lastMessageType}, #{c.lastSenderId}, " +
+            "#{c.lastMessageAt}, #{c.unreadLow}, #{c.unreadHigh}) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "last_message_preview = IF(VALUES(last_message_at) >= last_message_at, VALUES(last_message_preview), last_message_preview), " +
+            "last_message_type = IF(VALUES(last_message_at) >= last_message_at, VALUES(last_message_type), last_message_type), " +
+            "last_sender_id = IF(VALUES(last_message_at) >= last_message_at, VALUES(last_sender_id), last_sender_id), " +
+            "unread_low = unread_low + VALUES(unread_low), " +
+            "unread_high = unread_high + VALUES(unread_high), " +
+            "last_message_at = GREATEST(last_message_at, VALUES(last_message_at))")
+    int recordMessage(@Param("c") Conversation conversation);
+
+    @Select("SELECT * FROM conversation WHERE user_low = #{userLow} AND user_high = #{userHigh}")
+    Conversation findByPair(@Param("userLow") Long userLow, @Param("userHigh") Long userHigh);
+
+    /**
+     * 批量查询会话，用于按已读水位判断消息是否已读
+     */
+    @Select("<script>SELECT * FROM conversation WHERE (user_low, user_high) IN " +
+            "<foreach collection='pairs' item='p' open='(' separator=',' close=')'>(#{p.userLow}, #{p.userHigh})</foreach>" +
+            "</script>")
+    List<Conversation> findByPairs(@Param("pairs") List<Conversation> pairs);
+
+    /**
+     * user_low 读完会话：清零未读数，已读水位推进到其当前最大投递序号。
+     * 先锁住会话行，进行中的写入批次（同样先锁会话行）提交后才会读取序号，不会把未提交的消息算作已读
+     */
+    @Update("UPDATE conversation SET unread_low = 0, read_seq_low = GREATEST(read_seq_low, " +
+            "IFNULL((SELECT last_seq FROM user_delivery_seq WHERE user_id = #{userLow}), 0)) " +
+            "WHERE user_low = #{userLow} AND user_high = #{userHigh}")
+    int markReadLow(@Param("userLow") Long userLow, @Param("userHigh") Long userHigh);
+
+    /**
+     * user_high 读完会话，同 markReadLow
+     */
+    @Update("UPDATE conversation SET unread_high = 0, read_seq_high = GREATEST(read_seq_high, " +
+            "IFNULL((SELECT last_seq FROM user_delivery_seq WHERE user_id = #{userHigh}), 0)) " +
+            "WHERE user_low = #{userLow} AND user_high = #{userHigh}")
+    int markReadHigh(@Param("userLow") Long userLow, @Param("userHigh") Long userHigh);
+
+    /**
+     * 用户有未读消息的会话
+     */
+    @Select("SELECT * FROM conversation WHERE (user_low = #{userId} AND unread_low > 0) " +
+            "OR (user_high = #{userId} AND unread_high > 0)")
+    List<Conversation> findUnreadByUser(@Param("userId") Long userId);
+
+    /**
+     * 用户的会话列表，按最后消息时间倒序，可从游标 (lastMessageAt, id) 之后继续
+     * 两个方向分别走 idx_low_time / idx_high_time 索引后合并
+     */
+    @Select("<script>" +
+            "SELECT * FROM (" +
+            "(SELECT * FROM conversation WHERE user_low = #{userId}" +
+            "<if test='cursorAt != null'> AND (last_message_at &lt; #{cursorAt} OR (last_message_at = #{cursorAt} AND id &lt; #{cursorId}))</if>" +
+            " ORDER BY last_message_at DESC, id DESC LIMIT #{limit})" +
+            " UNION ALL " +
+            "(SELECT * FROM conversation WHERE user_high = #{userId}" +
+            "<if test='cursorAt != null'> AND (last_message_at &lt; #{cursorAt} OR (last_message_at = #{cursorAt} AND id &lt; #{cursorId}))</if>" +
+            " ORDER BY last_message_at DESC, id DESC LIMIT #{limit})" +
+            ") c ORDER BY last_message_at DESC, id DESC LIMIT #{limit}" +
+            "</script>")
+    List<Conversation> findByUser(@Param("userId") Long userId, @Param("cursorAt") LocalDateTime cursorAt,
+                                  @Param("cursorId") Long cursorId, @Param("limit") int limit);
+}
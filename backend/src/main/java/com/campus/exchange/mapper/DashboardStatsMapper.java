@@ -0,0 +1,56 @@
+package com.campus.exchange.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 仪表盘统计：每张表一次扫描得到全部计数，代替逐个条件的 selectCount
+ * 自定义 SQL 不会自动追加逻辑删除条件，需显式过滤 deleted
+ */
+@Mapper
+public interface DashboardStatsMapper {
+
+    /**
+     * 用户计数：total, enabled, disabled, admins, verified, today
+     */
+    @Select("SELECT COUNT(*) AS total, " +
+            "IFNULL(SUM(enabled = 1), 0) AS enabled, " +
+            "IFNULL(SUM(enabled = 0), 0) AS disabled, " +
+            "IFNULL(SUM(role = 'ADMIN'), 0) AS admins, " +
+            "IFNULL(SUM(verified = 1), 0) AS verified, " +
+            "IFNULL(SUM(created_at >= #{since}), 0) AS today " +
+            "FROM user WHERE deleted = 0")
+    Map<String, Object> countUsers(@Param("since") LocalDateTime since);
+
+    /**
+     * 商品按上架状态和审核状态分组计数：status, auditStatus, cnt, today
+     */
+    @Select("SELECT status, audit_status AS auditStatus, COUNT(*) AS cnt, " +
+            "IFNULL(SUM(created_at >= #{since}), 0) AS today " +
+            "FROM product WHERE deleted = 0 GROUP BY status, audit_status")
+    List<Map<String, Object>> countProducts(@Param("since") LocalDateTime since);
+
+    /**
+     * 订单按状态分组计数：status, cnt, today
+     */
+    @Select("SELECT status, COUNT(*) AS cnt, IFNULL(SUM(created_at >= #{since}), 0) AS today " +
+            "FROM `order` WHERE deleted = 0 GROUP BY status")
+    List<Map<String, Object>> countOrders(@Param("since") LocalDateTime since);
+
+    /**
+     * 举报、公告、轮播图按状态分组计数：entity, status, cnt
+     */
+    @Select("SELECT 'REPORT' AS entity, status, COUNT(*) AS cnt FROM product_report GROUP BY status " +
+            "UNION ALL " +
+            "SELECT 'ANNOUNCEMENT' AS entity, status, COUNT(*) AS cnt FROM announcement " +
+            "WHERE deleted = 0 GROUP BY status " +
+            "UNION ALL " +
+            "SELECT 'CAROUSEL' AS entity, status, COUNT(*) AS cnt FROM carousel " +
+            "WHERE deleted = 0 GROUP BY status")
+    List<Map<String, Object>> countContent();
+}
@@ -0,0 +1,9 @@
+package com.campus.exchange.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.campus.exchange.model.EmailDeadLetter;
+import org.apache.ibatis.annotations.Mapper;
+
+@Mapper
+public interface EmailDeadLetterMapper extends BaseMapper<EmailDeadLetter> {
+}
@@ -0,0 +1,47 @@
+package com.campus.exchange.mapper;
+
+import com.campus.exchange.model.EmailQueue;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Mapper
+public interface EmailQueueMapper extends BatchBaseMapper<EmailQueue> {
+
+    /**
+     * 到期待发送的邮件，按优先级排序，跳过当前被限速的域名
+     */
+    @Select("<script>SELECT * FROM email_queue WHERE status = 'NEW' AND next_attempt_at &lt;= #{now}" +
+            "<if test='throttled != null and !throttled.isEmpty()'> AND domain NOT IN " +
+            "<foreach collection='throttled' item='d' open='(' separator=',' close=')'>#{d}</foreach></if>" +
+            " ORDER BY priority DESC, id ASC LIMIT #{limit}</script>")
+    List<EmailQueue> findDue(@Param("now") LocalDateTime now, @Param("throttled") Collection<String> throttled,
+                             @Param("limit") int limit);
+
+    /**
+     * 占用邮件，返回 1 表示当前实例获得发送权
+     */
+    @Update("UPDATE email_queue SET status = 'SENDING', locked_at = #{now} WHERE id = #{id} AND status = 'NEW'")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    /**
+     * 释放发送中途崩溃遗留的邮件
+     */
+    @Update("UPDATE email_queue SET status = 'NEW' WHERE status = 'SENDING' AND locked_at < #{staleBefore}")
+    int releaseStale(@Param("staleBefore") LocalDateTime staleBefore);
+
+    @Delete("DELETE FROM email_queue WHERE status = 'SENT' AND sent_at < #{before} LIMIT #{limit}")
+    int deleteSentBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    @Select("SELECT MIN(created_at) FROM email_queue WHERE status IN ('NEW', 'SENDING')")
+    LocalDateTime findOldestPendingCreatedAt();
+
+    @Select("SELECT COUNT(*) FROM email_queue WHERE status IN ('NEW', 'SENDING')")
+    long countPending();
+}
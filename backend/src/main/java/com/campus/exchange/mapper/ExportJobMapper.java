@@ -0,0 +1,48 @@
+package com.campus.exchange.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.campus.exchange.model.ExportJob;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Mapper
+public interface ExportJobMapper extends BaseMapper<ExportJob> {
+
+    @Select("SELECT COUNT(*) FROM export_job WHERE type = #{type} AND status IN ('PENDING', 'RUNNING')")
+    long countActive(@Param("type") String type);
+
+    /**
+     * 中断的任务：属于本节点（上次运行时提交、进程已退出），或心跳早于 staleBefore（执行节点已失联）
+     * 其他节点心跳正常的任务不受影响
+     */
+    @Update("UPDATE export_job SET status = 'FAILED', error = #{error}, finished_at = #{now} " +
+            "WHERE status IN ('PENDING', 'RUNNING') " +
+            "AND (owner_node = #{node} OR owner_node IS NULL OR heartbeat_at IS NULL OR heartbeat_at < #{staleBefore})")
+    int failInterrupted(@Param("node") String node, @Param("staleBefore") LocalDateTime staleBefore,
+                        @Param("error") String error, @Param("now") LocalDateTime now);
+
+    /**
+     * 执行节点失联的任务：心跳早于 staleBefore
+     */
+    @Update("UPDATE export_job SET status = 'FAILED', error = #{error}, finished_at = #{now} " +
+            "WHERE status IN ('PENDING', 'RUNNING') AND heartbeat_at < #{staleBefore}")
+    int failStale(@Param("staleBefore") LocalDateTime staleBefore, @Param("error") String error,
+                  @Param("now") LocalDateTime now);
+
+    /**
+     * 本节点排队中和导出中的任务续期心跳
+     */
+    @Update("<script>UPDATE export_job SET heartbeat_at = #{now} " +
+            "WHERE owner_node = #{node} AND status IN ('PENDING', 'RUNNING') AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    int heartbeat(@Param("node") String node, @Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Select("SELECT * FROM export_job WHERE status = 'DONE' AND expires_at < #{now} ORDER BY id LIMIT #{limit}")
+    List<ExportJob> findExpired(@Param("now") LocalDateTime now, @Param("limit") int limit);
+}
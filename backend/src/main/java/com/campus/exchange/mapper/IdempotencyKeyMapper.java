@@ -0,0 +1,46 @@
+package com.campus.exchange.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.campus.exchange.model.IdempotencyKey;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+
+@Mapper
+public interface IdempotencyKeyMapper extends BaseMapper<IdempotencyKey> {
+
+    @Delete("DELETE FROM idempotency_key WHERE expire_at < #{now} LIMIT #{limit}")
+    int deleteExpired(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * 接管租约已到期的 PROCESSING 记录，以原持有者为期望值，多个接管者只有一个成功
+     */
+    @Update("<script>" +
+            "UPDATE idempotency_key SET owner_token = #{token}, lease_until = #{leaseUntil}, updated_at = NOW() " +
+            "WHERE id = #{id} AND status = 'PROCESSING' " +
+            "AND (lease_until IS NULL OR lease_until &lt; #{now}) " +
+            "<choose><when test='previousToken != null'>AND owner_token = #{previousToken}</when>" +
+            "<otherwise>AND owner_token IS NULL</otherwise></choose>" +
+            "</script>")
+    int takeOver(@Param("id") Long id, @Param("previousToken") String previousToken, @Param("token") String token,
+                 @Param("leaseUntil") LocalDateTime leaseUntil, @Param("now") LocalDateTime now);
+
+    /**
+     * 持有者写入首次响应，须与业务写入在同一事务中执行
+     */
+    @Update("UPDATE idempotency_key SET status = 'COMPLETED', response_body = #{body}, lease_until = NULL, " +
+            "updated_at = NOW() WHERE user_id = #{userId} AND idem_key = #{idemKey} " +
+            "AND owner_token = #{token} AND status = 'PROCESSING'")
+    int markCompleted(@Param("userId") Long userId, @Param("idemKey") String idemKey, @Param("token") String token,
+                      @Param("body") String body);
+
+    /**
+     * 持有者执行失败时释放，允许用同一个键重试
+     */
+    @Delete("DELETE FROM idempotency_key WHERE user_id = #{userId} AND idem_key = #{idemKey} " +
+            "AND owner_token = #{token} AND status = 'PROCESSING'")
+    int release(@Param("userId") Long userId, @Param("idemKey") String idemKey, @Param("token") String token);
+}
@@ -2,8 +2,77 @@ package com.campus.exchange.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.campus.exchange.model.Message;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 @Mapper
 public interface MessageMapper extends BaseMapper<Message> {
+
+    String COLUMNS = "id, sender_id, receiver_id, content, type, product_id, receiver_seq, `read`, created_at";
+
+    /**
+     * 多行插入，回填自增ID
+     */
+    @Insert("<script>INSERT INTO message (sender_id, receiver_id, content, type, product_id, receiver_seq, `read`, created_at) " +
+            "VALUES <foreach collection='messages' item='m' separator=','>" +
+            "(#{m.senderId}, #{m.receiverId}, #{m.content}, #{m.type}, #{m.productId}, #{m.receiverSeq}, #{m.read}, #{m.createdAt})" +
+            "</foreach></script>")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
+    int insertBatch(@Param("messages") List<Message> messages);
+
+    /**
+     * 会话最新的若干条消息（倒序）
+     */
+    @Select("SELECT " + COLUMNS + " FROM message WHERE user_low = #{userLow} AND user_high = #{userHigh} " +
+            "ORDER BY created_at DESC, id DESC LIMIT #{limit}")
+    List<Message> findLatest(@Param("userLow") Long userLow, @Param("userHigh") Long userHigh,
+                             @Param("limit") int limit);
+
+    /**
+     * 游标之前（更早）的消息（倒序）
+     */
+    @Select("SELECT " + COLUMNS + " FROM message WHERE user_low = #{userLow} AND user_high = #{userHigh} " +
+            "AND (created_at < #{createdAt} OR (created_at = #{createdAt} AND id < #{id})) " +
+            "ORDER BY created_at DESC, id DESC LIMIT #{limit}")
+    List<Message> findBefore(@Param("userLow") Long userLow, @Param("userHigh") Long userHigh,
+                             @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+                             @Param("limit") int limit);
+
+    /**
+     * 游标之后（更新）的消息（正序）
+     */
+    @Select("SELECT " + COLUMNS + " FROM message WHERE user_low = #{userLow} AND user_high = #{userHigh} " +
+            "AND (created_at > #{createdAt} OR (created_at = #{createdAt} AND id > #{id})) " +
+            "ORDER BY created_at ASC, id ASC LIMIT #{limit}")
+    List<Message> findAfter(@Param("userLow") Long userLow, @Param("userHigh") Long userHigh,
+                            @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+                            @Param("limit") int limit);
+
+    /**
+     * 按页码分页（正序），兼容旧接口
+     */
+    @Select("SELECT " + COLUMNS + " FROM message WHERE user_low = #{userLow} AND user_high = #{userHigh} " +
+            "ORDER BY created_at ASC, id ASC LIMIT #{offset}, #{limit}")
+    List<Message> findPage(@Param("userLow") Long userLow, @Param("userHigh") Long userHigh,
+                           @Param("offset") int offset, @Param("limit") int limit);
+
+    /**
+     * 接收方序号之后的消息（按序号正序），用于断线补发
+     */
+    @Select("SELECT " + COLUMNS + " FROM message WHERE receiver_id = #{receiverId} AND receiver_seq > #{afterSeq} " +
+            "ORDER BY receiver_seq ASC LIMIT #{limit}")
+    List<Message> findAfterSeq(@Param("receiverId") Long receiverId, @Param("afterSeq") Long afterSeq,
+                               @Param("limit") int limit);
+
+    /**
+     * 按ID顺序扫描消息，用于补建搜索索引
+     */
+    @Select("SELECT " + COLUMNS + " FROM message WHERE id > #{afterId} ORDER BY id ASC LIMIT #{limit}")
+    List<Message> findAfterId(@Param("afterId") Long afterId, @Param("limit") int limit);
 }
@@ -0,0 +1,89 @@
+package com.campus.exchange.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.campus.exchange.model.MetricRollup;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Mapper
+public interface MetricRollupMapper extends BaseMapper<MetricRollup> {
+
+    /**
+     * 批量累加：不存在的时间段插入，已存在的在原值上增加
+     */
+    @Insert("<script>" +
+            "INSERT INTO metric_rollup (metric, granularity, bucket_start, cnt, amount) VALUES " +
+            "<foreach collection='rollups' item='r' separator=','>" +
+            "(#{r.metric}, #{r.granularity}, #{r.bucketStart}, #{r.cnt}, #{r.amount})" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE cnt = cnt + VALUES(cnt), amount = amount + VALUES(amount)" +
+            "</script>")
+    int accumulate(@Param("rollups") List<MetricRollup> rollups);
+
+    /**
+     * 一次读取多个指标在时间范围内的数据点（走唯一索引），没有事件的时间段不返回
+     */
+    @Select("<script>" +
+            "SELECT metric, granularity, bucket_start, cnt, amount FROM metric_rollup " +
+            "WHERE metric IN <foreach collection='metrics' item='m' open='(' separator=',' close=')'>#{m}</foreach> " +
+            "AND granularity = #{granularity} AND bucket_start &gt;= #{from} AND bucket_start &lt; #{to} " +
+            "ORDER BY metric, bucket_start" +
+            "</script>")
+    List<MetricRollup> findRange(@Param("metrics") Collection<String> metrics,
+                                 @Param("granularity") String granularity,
+                                 @Param("from") LocalDateTime from,
+                                 @Param("to") LocalDateTime to);
+
+    @Delete("DELETE FROM metric_rollup WHERE metric = #{metric} AND granularity = #{granularity} " +
+            "AND bucket_start >= #{from} AND bucket_start < #{to}")
+    int deleteRange(@Param("metric") String metric, @Param("granularity") String granularity,
+                    @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * 按业务表重建指标在时间范围内的数据：注册、商品、私信取各表创建时间，订单各状态取发件箱中的订单事件
+     */
+    @Insert("<script>" +
+            "INSERT INTO metric_rollup (metric, granularity, bucket_start, cnt, amount) " +
+            "SELECT #{metric}, #{granularity}, " +
+            "<choose>" +
+            "<when test=\"granularity == 'HOUR'\">DATE_FORMAT(s.t, '%Y-%m-%d %H:00:00')</when>" +
+            "<otherwise>CAST(DATE(s.t) AS DATETIME)</otherwise>" +
+            "</choose>" +
+            " AS bucket_start, COUNT(*), COALESCE(SUM(s.amount), 0) FROM (" +
+            "<choose>" +
+            "<when test=\"metric == 'USER_REGISTERED'\">" +
+            "SELECT created_at AS t, 0 AS amount FROM user " +
+            "WHERE created_at &gt;= #{from} AND created_at &lt; #{to}" +
+            "</when>" +
+            "<when test=\"metric == 'PRODUCT_CREATED'\">" +
+            "SELECT created_at AS t, 0 AS amount FROM product " +
+            "WHERE created_at &gt;= #{from} AND created_at &lt; #{to}" +
+            "</when>" +
+            "<when test=\"metric == 'MESSAGE_SENT'\">" +
+            "SELECT created_at AS t, 0 AS amount FROM message " +
+            "WHERE created_at &gt;= #{from} AND created_at &lt; #{to}" +
+            "</when>" +
+            "<otherwise>" +
+            "SELECT e.created_at AS t, " +
+            "<choose><when test=\"metric == 'ORDER_COMPLETED'\">COALESCE(o.price, 0)</when><otherwise>0</otherwise></choose>" +
+            " AS amount FROM outbox_event e LEFT JOIN `order` o ON o.id = e.aggregate_id " +
+            "WHERE e.aggregate_type = 'ORDER' AND e.event_type = #{metric} " +
+            "AND e.created_at &gt;= #{from} AND e.created_at &lt; #{to}" +
+            "</otherwise>" +
+            "</choose>" +
+            ") s GROUP BY bucket_start" +
+            "</script>")
+    int rebuild(@Param("metric") String metric, @Param("granularity") String granularity,
+                @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Delete("DELETE FROM metric_rollup WHERE granularity = #{granularity} AND bucket_start < #{before} LIMIT #{limit}")
+    int deleteBefore(@Param("granularity") String granularity, @Param("before") LocalDateTime before,
+                     @Param("limit") int limit);
+}
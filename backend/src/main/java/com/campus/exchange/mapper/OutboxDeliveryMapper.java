@@ -0,0 +1,21 @@
+package com.campus.exchange.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.campus.exchange.model.OutboxDelivery;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+
+@Mapper
+public interface OutboxDeliveryMapper extends BaseMapper<OutboxDelivery> {
+
+    /**
+     * 删除超过保留期的投递记录，事件仍未投递完成（待重投或已失败）的记录保留，重投时继续用于去重
+     */
+    @Delete("DELETE FROM outbox_delivery WHERE created_at < #{before} AND NOT EXISTS (" +
+            "SELECT 1 FROM outbox_event e WHERE e.event_id = outbox_delivery.event_id AND e.status <> 'DONE') " +
+            "LIMIT #{limit}")
+    int deleteBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
@@ -0,0 +1,43 @@
+package com.campus.exchange.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.campus.exchange.model.OutboxEvent;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface OutboxEventMapper extends BaseMapper<OutboxEvent> {
+
+    @Select("SELECT * FROM outbox_event WHERE status = 'NEW' AND next_attempt_at <= #{now} ORDER BY id LIMIT #{limit}")
+    List<OutboxEvent> findDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * 占用事件，返回 1 表示当前实例获得投递权
+     */
+    @Update("UPDATE outbox_event SET status = 'PROCESSING', locked_at = #{now} WHERE id = #{id} AND status = 'NEW'")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    /**
+     * 释放投递中途崩溃遗留的事件
+     */
+    @Update("UPDATE outbox_event SET status = 'NEW' WHERE status = 'PROCESSING' AND locked_at < #{staleBefore}")
+    int releaseStale(@Param("staleBefore") LocalDateTime staleBefore);
+
+    @Select("SELECT MIN(created_at) FROM outbox_event WHERE status IN ('NEW', 'PROCESSING')")
+    LocalDateTime findOldestPendingCreatedAt();
+
+    @Select("SELECT COUNT(*) FROM outbox_event WHERE status IN ('NEW', 'PROCESSING')")
+    long countPending();
+
+    @Select("SELECT COUNT(*) FROM outbox_event WHERE status = 'FAILED'")
+    long countFailed();
+
+    @Delete("DELETE FROM outbox_event WHERE status = 'DONE' AND processed_at < #{before} LIMIT #{limit}")
+    int deleteDoneBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
@@ -1,9 +1,23 @@
 package com.campus.exchange.mapper;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
 import com.campus.exchange.model.Product;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
 
 @Mapper
 public interface ProductMapper extends BaseMapper<Product> {
+
+    /**
+     * 流式读取（MySQL 逐行返回，不缓存整个结果集），用于数据导出，需在事务内消费
+     */
+    @Select("SELECT * FROM product ${ew.customSqlSegment}")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<Product> selectCursor(@Param(Constants.WRAPPER) Wrapper<Product> wrapper);
 }
@@ -0,0 +1,25 @@
+package com.campus.exchange.mapper;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+@Mapper
+public interface ReadWatermarkMapper {
+
+    /** 个人系统消息 */
+    String STREAM_SYSTEM = "SYSTEM";
+    /** 全体广播 */
+    String STREAM_BROADCAST = "BROADCAST";
+
+    /**
+     * 系统消息全部已读：一条语句推进个人消息与广播两个水位，水位只增不减
+     */
+    @Insert("INSERT INTO read_watermark (user_id, stream, read_up_to) VALUES " +
+            "(#{userId}, '" + STREAM_SYSTEM + "', " +
+            "(SELECT IFNULL(MAX(id), 0) FROM system_message WHERE user_id = #{userId})), " +
+            "(#{userId}, '" + STREAM_BROADCAST + "', " +
+            "(SELECT IFNULL(MAX(id), 0) FROM broadcast_message WHERE segment IS NULL)) " +
+            "ON DUPLICATE KEY UPDATE read_up_to = GREATEST(read_up_to, VALUES(read_up_to))")
+    int markAllSystemRead(@Param("userId") Long userId);
+}
@@ -0,0 +1,52 @@
+package com.campus.exchange.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.campus.exchange.model.RevenueBucket;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+@Mapper
+public interface RevenueBucketMapper extends BaseMapper<RevenueBucket> {
+
+    /**
+     * 批量累加：不存在的桶插入，已存在的桶在原值上增减
+     */
+    @Insert("<script>" +
+            "INSERT INTO revenue_bucket (period_type, period_start, category_id, order_count, gmv) VALUES " +
+            "<foreach collection='buckets' item='b' separator=','>" +
+            "(#{b.periodType}, #{b.periodStart}, #{b.categoryId}, #{b.orderCount}, #{b.gmv})" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), gmv = gmv + VALUES(gmv)" +
+            "</script>")
+    int accumulate(@Param("buckets") List<RevenueBucket> buckets);
+
+    @Delete("DELETE FROM revenue_bucket WHERE period_type = #{periodType}")
+    int deleteByPeriodType(@Param("periodType") String periodType);
+
+    /**
+     * 按订单表重建指定周期类型的全部桶（全部分类 + 各分类）
+     */
+    @Insert("<script>" +
+            "INSERT INTO revenue_bucket (period_type, period_start, category_id, order_count, gmv) " +
+            "SELECT #{periodType}, " +
+            "<choose>" +
+            "<when test=\"periodType == 'DAY'\">DATE(b.completed_at)</when>" +
+            "<when test=\"periodType == 'WEEK'\">DATE_SUB(DATE(b.completed_at), INTERVAL WEEKDAY(b.completed_at) DAY)</when>" +
+            "<when test=\"periodType == 'MONTH'\">DATE_SUB(DATE(b.completed_at), INTERVAL DAYOFMONTH(b.completed_at) - 1 DAY)</when>" +
+            "<otherwise>DATE('1970-01-01')</otherwise>" +
+            "</choose>" +
+            " AS period_start, b.category_id, COUNT(*), COALESCE(SUM(b.price), 0) FROM (" +
+            "SELECT COALESCE(o.completed_at, o.updated_at) AS completed_at, 0 AS category_id, o.price " +
+            "FROM `order` o WHERE o.status = 'COMPLETED' AND o.deleted = 0 " +
+            "UNION ALL " +
+            "SELECT COALESCE(o.completed_at, o.updated_at), p.category_id, o.price " +
+            "FROM `order` o JOIN product p ON p.id = o.product_id " +
+            "WHERE o.status = 'COMPLETED' AND o.deleted = 0 AND p.category_id IS NOT NULL" +
+            ") b GROUP BY period_start, b.category_id" +
+            "</script>")
+    int rebuild(@Param("periodType") String periodType);
+}
@@ -0,0 +1,46 @@
+package com.campus.exchange.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.campus.exchange.model.ReviewRatingStat;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+@Mapper
+public interface ReviewRatingStatMapper extends BaseMapper<ReviewRatingStat> {
+
+    /**
+     * 批量累加：不存在的行插入，已存在的行在原值上增减
+     * 调用方按 target_user_id 升序传入（全站行在前），并发更新时加锁顺序一致
+     */
+    @Insert("<script>" +
+            "INSERT INTO review_rating_stat (target_user_id, total, rating_sum, rating_1, rating_2, rating_3, rating_4, rating_5) VALUES " +
+            "<foreach collection='stats' item='s' separator=','>" +
+            "(#{s.targetUserId}, #{s.total}, #{s.ratingSum}, #{s.rating1}, #{s.rating2}, #{s.rating3}, #{s.rating4}, #{s.rating5})" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE total = total + VALUES(total), rating_sum = rating_sum + VALUES(rating_sum), " +
+            "rating_1 = rating_1 + VALUES(rating_1), rating_2 = rating_2 + VALUES(rating_2), " +
+            "rating_3 = rating_3 + VALUES(rating_3), rating_4 = rating_4 + VALUES(rating_4), " +
+            "rating_5 = rating_5 + VALUES(rating_5)" +
+            "</script>")
+    int accumulate(@Param("stats") List<ReviewRatingStat> stats);
+
+    @Delete("DELETE FROM review_rating_stat")
+    int deleteAll();
+
+    /**
+     * 按评价表重建各用户行和全站行
+     */
+    @Insert("INSERT INTO review_rating_stat (target_user_id, total, rating_sum, rating_1, rating_2, rating_3, rating_4, rating_5) " +
+            "SELECT target_user_id, COUNT(*), COALESCE(SUM(rating), 0), " +
+            "SUM(rating = 1), SUM(rating = 2), SUM(rating = 3), SUM(rating = 4), SUM(rating = 5) " +
+            "FROM review WHERE target_user_id IS NOT NULL GROUP BY target_user_id " +
+            "UNION ALL " +
+            "SELECT 0, COUNT(*), COALESCE(SUM(rating), 0), " +
+            "COALESCE(SUM(rating = 1), 0), COALESCE(SUM(rating = 2), 0), COALESCE(SUM(rating = 3), 0), " +
+            "COALESCE(SUM(rating = 4), 0), COALESCE(SUM(rating = 5), 0) FROM review")
+    int rebuild();
+}
@@ -1,9 +1,15 @@
 package com.campus.exchange.mapper;
 
-import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.campus.exchange.model.SensitiveWord;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Select;
 
 @Mapper
-public interface SensitiveWordMapper extends BaseMapper<SensitiveWord> {
+public interface SensitiveWordMapper extends BatchBaseMapper<SensitiveWord> {
+
+    /**
+     * 词表版本签名：增删改任一行都会改变，用于发现其他节点的修改
+     */
+    @Select("SELECT CONCAT_WS(':', COUNT(*), COALESCE(SUM(id), 0), COALESCE(MAX(updated_at), '')) FROM sensitive_word")
+    String findVersion();
 }
@@ -1,9 +1,72 @@
 package com.campus.exchange.mapper;
 
-import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.campus.exchange.model.SystemMessage;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
 
 @Mapper
-public interface SystemMessageMapper extends BaseMapper<SystemMessage> {
+public interface SystemMessageMapper extends BatchBaseMapper<SystemMessage> {
+
+    /**
+     * 用户的个人系统消息，已读取决于单条已读标记或已读水位（用于 script 内，小于号需转义）
+     */
+    String PERSONAL = "SELECT s.id, s.user_id, s.title, s.content, s.type, s.related_id, " +
+            "(s.`read` = 1 OR s.id &lt;= IFNULL(w.read_up_to, 0)) AS `read`, s.create_time, s.read_time " +
+            "FROM system_message s " +
+            "LEFT JOIN read_watermark w ON w.user_id = #{userId} AND w.stream = 'SYSTEM' " +
+            "WHERE s.user_id = #{userId}";
+
+    /**
+     * 用户可见的全体广播，以负数ID与个人消息区分；
+     * 只包含注册之后发出的广播，已读取决于回执或已读水位（用于 script 内，小于号需转义）
+     */
+    String BROADCASTS = "SELECT -b.id AS id, #{userId} AS user_id, b.title, b.content, b.type, NULL AS related_id, " +
+            "(r.read_time IS NOT NULL OR b.id &lt;= IFNULL(w.read_up_to, 0)) AS `read`, " +
+            "b.created_at AS create_time, r.read_time " +
+            "FROM broadcast_message b " +
+            "JOIN user u ON u.id = #{userId} AND b.created_at &gt;= u.created_at " +
+            "LEFT JOIN broadcast_receipt r ON r.user_id = #{userId} AND r.broadcast_id = b.id " +
+            "LEFT JOIN read_watermark w ON w.user_id = #{userId} AND w.stream = 'BROADCAST' " +
+            "WHERE b.segment IS NULL AND (r.deleted IS NULL OR r.deleted = 0)";
+
+    /**
+     * 个人消息与广播合并分页（按时间倒序）
+     */
+    @Select("<script>SELECT * FROM (" + PERSONAL + " UNION ALL " + BROADCASTS + ") t" +
+            "<if test='read != null'> WHERE t.`read` = #{read}</if>" +
+            " ORDER BY t.create_time DESC, t.id DESC LIMIT #{offset}, #{limit}</script>")
+    List<SystemMessage> findMerged(@Param("userId") Long userId, @Param("read") Boolean read,
+                                   @Param("offset") long offset, @Param("limit") long limit);
+
+    @Select("<script>SELECT COUNT(*) FROM (" + PERSONAL + " UNION ALL " + BROADCASTS + ") t" +
+            "<if test='read != null'> WHERE t.`read` = #{read}</if></script>")
+    long countMerged(@Param("userId") Long userId, @Param("read") Boolean read);
+
+    /**
+     * 未读的个人系统消息数：只统计水位之后的消息（走 idx_user_id 的ID范围）
+     */
+    @Select("SELECT COUNT(*) FROM system_message WHERE user_id = #{userId} AND `read` = 0 " +
+            "AND id > IFNULL((SELECT read_up_to FROM read_watermark WHERE user_id = #{userId} AND stream = 'SYSTEM'), 0)")
+    long countUnreadPersonal(@Param("userId") Long userId);
+
+    /**
+     * 用户视角下的单条个人消息，不存在或不属于该用户时为空
+     */
+    @Select("<script>" + PERSONAL + " AND s.id = #{messageId}</script>")
+    SystemMessage findPersonalView(@Param("userId") Long userId, @Param("messageId") Long messageId);
+
+    /**
+     * 未读的广播数
+     */
+    @Select("<script>SELECT COUNT(*) FROM (" + BROADCASTS + ") t WHERE t.`read` = 0</script>")
+    long countUnreadBroadcasts(@Param("userId") Long userId);
+
+    /**
+     * 用户视角下的单条广播，不可见或已删除时为空
+     */
+    @Select("<script>" + BROADCASTS + " AND b.id = #{broadcastId}</script>")
+    SystemMessage findBroadcastView(@Param("userId") Long userId, @Param("broadcastId") Long broadcastId);
 }
@@ -3,7 +3,23 @@ package com.campus.exchange.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.campus.exchange.model.UserBlock;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
 
 @Mapper
 public interface UserBlockMapper extends BaseMapper<UserBlock> {
+
+    /**
+     * 用户屏蔽的所有用户ID
+     */
+    @Select("SELECT blocked_user_id FROM user_block WHERE user_id = #{userId}")
+    List<Long> findBlockedIds(@Param("userId") Long userId);
+
+    /**
+     * 按ID顺序扫描屏蔽关系，用于构建布隆过滤器
+     */
+    @Select("SELECT id, user_id, blocked_user_id FROM user_block WHERE id > #{afterId} ORDER BY id ASC LIMIT #{limit}")
+    List<UserBlock> findAfterId(@Param("afterId") Long afterId, @Param("limit") int limit);
 }
@@ -0,0 +1,23 @@
+package com.campus.exchange.mapper;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+@Mapper
+public interface UserDeliverySeqMapper {
+
+    /**
+     * 为接收方分配 count 个序号（锁住该用户的序号行直到事务结束）
+     */
+    @Insert("INSERT INTO user_delivery_seq (user_id, last_seq) VALUES (#{userId}, #{count}) " +
+            "ON DUPLICATE KEY UPDATE last_seq = last_seq + VALUES(last_seq)")
+    int allocate(@Param("userId") Long userId, @Param("count") int count);
+
+    /**
+     * 已分配的最大序号，与 allocate 在同一事务中调用得到本次分配的上界
+     */
+    @Select("SELECT last_seq FROM user_delivery_seq WHERE user_id = #{userId}")
+    Long findLastSeq(@Param("userId") Long userId);
+}
@@ -1,9 +1,32 @@
 package com.campus.exchange.mapper;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
 import com.campus.exchange.model.User;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
+
+import java.util.List;
 
 @Mapper
 public interface UserMapper extends BaseMapper<User> {
+
+    /**
+     * 开启邮件通知的用户（只取ID和邮箱，按ID分页）
+     */
+    @Select("SELECT id, email FROM user WHERE deleted = 0 AND email_notification_enabled = 1 " +
+            "AND email IS NOT NULL AND email <> '' AND id > #{afterId} ORDER BY id ASC LIMIT #{limit}")
+    List<User> findEmailSubscribers(@Param("afterId") Long afterId, @Param("limit") int limit);
+
+    /**
+     * 流式读取（MySQL 逐行返回，不缓存整个结果集），用于数据导出，需在事务内消费
+     */
+    @Select("SELECT ${ew.sqlSelect} FROM user ${ew.customSqlSegment}")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<User> selectCursor(@Param(Constants.WRAPPER) Wrapper<User> wrapper);
 }
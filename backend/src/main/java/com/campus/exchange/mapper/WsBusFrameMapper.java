@@ -0,0 +1,24 @@
+package com.campus.exchange.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.campus.exchange.model.WsBusFrame;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface WsBusFrameMapper extends BaseMapper<WsBusFrame> {
+
+    @Select("SELECT * FROM ws_bus_frame WHERE id > #{afterId} ORDER BY id LIMIT #{limit}")
+    List<WsBusFrame> findAfter(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    @Select("SELECT COALESCE(MAX(id), 0) FROM ws_bus_frame")
+    long findMaxId();
+
+    @Delete("DELETE FROM ws_bus_frame WHERE created_at < #{before} LIMIT #{limit}")
+    int deleteBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
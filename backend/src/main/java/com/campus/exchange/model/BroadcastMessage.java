@@ -0,0 +1,36 @@
+package com.campus.exchange.model;
+
+import com.baomidou.mybatisplus.annotation.FieldFill;
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@TableName("broadcast_message")
+public class BroadcastMessage {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    private String title;
+
+    private String content;
+
+    private String type;
+
+    /** 目标分群，为空表示全体用户（读扩散） */
+    private String segment;
+
+    /** 分群消息已写入到的用户ID */
+    private Long materializedUpTo;
+
+    /** PENDING-写入中, DONE-完成 */
+    private String status;
+
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+}
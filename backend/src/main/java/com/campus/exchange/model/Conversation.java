@@ -0,0 +1,44 @@
+package com.campus.exchange.model;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@TableName("conversation")
+public class Conversation {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /** 会话双方中较小的用户ID */
+    private Long userLow;
+
+    /** 会话双方中较大的用户ID */
+    private Long userHigh;
+
+    private String lastMessagePreview;
+
+    private String lastMessageType;
+
+    private Long lastSenderId;
+
+    private LocalDateTime lastMessageAt;
+
+    /** user_low 的未读数 */
+    private Integer unreadLow;
+
+    /** user_high 的未读数 */
+    private Integer unreadHigh;
+
+    /** user_low 已读到的投递序号 */
+    private Long readSeqLow;
+
+    /** user_high 已读到的投递序号 */
+    private Long readSeqHigh;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+}
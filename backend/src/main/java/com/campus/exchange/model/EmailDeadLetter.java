@@ -0,0 +1,30 @@
+package com.campus.exchange.model;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@TableName("email_dead_letter")
+public class EmailDeadLetter {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /** 原队列ID */
+    private Long emailId;
+
+    private String recipient;
+
+    private String subject;
+
+    private String content;
+
+    private Integer attempts;
+
+    private String lastError;
+
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,42 @@
+package com.campus.exchange.model;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@TableName("email_queue")
+public class EmailQueue {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    private String recipient;
+
+    /** 收件人域名（小写） */
+    private String domain;
+
+    private String subject;
+
+    private String content;
+
+    /** 越大越先发送 */
+    private Integer priority;
+
+    /** NEW, SENDING, SENT */
+    private String status;
+
+    private Integer attempts;
+
+    private LocalDateTime nextAttemptAt;
+
+    private LocalDateTime lockedAt;
+
+    private String lastError;
+
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime sentAt;
+}
@@ -0,0 +1,51 @@
+package com.campus.exchange.model;
+
+import com.baomidou.mybatisplus.annotation.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@TableName("export_job")
+public class ExportJob {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /** ORDERS, USERS, PRODUCTS */
+    private String type;
+
+    /** 筛选条件 JSON */
+    private String params;
+
+    /** PENDING, RUNNING, DONE, FAILED, EXPIRED */
+    private String status;
+
+    /** 执行任务的节点 */
+    private String ownerNode;
+
+    /** 执行节点最近一次心跳 */
+    private LocalDateTime heartbeatAt;
+
+    private Long rowsProcessed;
+
+    /** 本机文件路径，不返回给前端 */
+    @JsonIgnore
+    private String filePath;
+
+    private Long fileSize;
+
+    private String error;
+
+    private Long createdBy;
+
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+
+    private LocalDateTime expiresAt;
+}
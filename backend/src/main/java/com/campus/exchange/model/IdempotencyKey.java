@@ -0,0 +1,42 @@
+package com.campus.exchange.model;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@TableName("idempotency_key")
+public class IdempotencyKey {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    private Long userId;
+
+    /** 客户端提供的 Idempotency-Key */
+    private String idemKey;
+
+    /** 请求范围，如 orders:create、orders:12:pay */
+    private String scope;
+
+    /** PROCESSING, COMPLETED */
+    private String status;
+
+    /** 当前处理者标识，完成标记和释放只对持有者生效 */
+    private String ownerToken;
+
+    /** 处理租约到期时间 */
+    private LocalDateTime leaseUntil;
+
+    /** 首次响应 JSON */
+    private String responseBody;
+
+    private LocalDateTime expireAt;
+
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+
+    @TableField(fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updatedAt;
+}
@@ -24,6 +24,9 @@ public class Message {
     /** 商品ID，商品卡片消息时使用 */
     private Long productId;
 
+    /** 接收方投递序号，每个接收方单调递增 */
+    private Long receiverSeq;
+
     @TableField("`read`")
     private Boolean read;
 
@@ -0,0 +1,34 @@
+package com.campus.exchange.model;
+
+import com.baomidou.mybatisplus.annotation.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@TableName("metric_rollup")
+public class MetricRollup {
+
+    @TableId(type = IdType.AUTO)
+    @JsonIgnore
+    private Long id;
+
+    /** USER_REGISTERED, PRODUCT_CREATED, ORDER_*, MESSAGE_SENT */
+    private String metric;
+
+    /** HOUR, DAY */
+    private String granularity;
+
+    /** 时间段起点 */
+    private LocalDateTime bucketStart;
+
+    private Long cnt;
+
+    /** ORDER_COMPLETED 为成交额 */
+    private BigDecimal amount;
+
+    @JsonIgnore
+    private LocalDateTime updatedAt;
+}
@@ -63,6 +63,9 @@ public class Order {
     /** 解决时间 */
     private LocalDateTime resolveTime;
 
+    /** 完成时间（确认收货时间） */
+    private LocalDateTime completedAt;
+
     @TableField(fill = FieldFill.INSERT)
     private LocalDateTime createdAt;
 
@@ -0,0 +1,22 @@
+package com.campus.exchange.model;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@TableName("outbox_delivery")
+public class OutboxDelivery {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    private String eventId;
+
+    /** 投递渠道，如 SYSTEM_MESSAGE:12、WEBSOCKET:12、EMAIL:12 */
+    private String channel;
+
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,44 @@
+package com.campus.exchange.model;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@TableName("outbox_event")
+public class OutboxEvent {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /** 事件唯一ID(UUID)，用于消费端去重 */
+    private String eventId;
+
+    /** ORDER_CREATED, ORDER_PAID, ORDER_SHIPPED, REFUND_APPLIED ... */
+    private String eventType;
+
+    /** ORDER */
+    private String aggregateType;
+
+    private Long aggregateId;
+
+    /** 事件内容 JSON */
+    private String payload;
+
+    /** NEW, PROCESSING, DONE, FAILED */
+    private String status;
+
+    private Integer attempts;
+
+    private LocalDateTime nextAttemptAt;
+
+    private LocalDateTime lockedAt;
+
+    private String lastError;
+
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime processedAt;
+}
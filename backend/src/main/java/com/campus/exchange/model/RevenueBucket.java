@@ -0,0 +1,31 @@
+package com.campus.exchange.model;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@TableName("revenue_bucket")
+public class RevenueBucket {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /** TOTAL, DAY, WEEK, MONTH */
+    private String periodType;
+
+    /** 周期起始日 */
+    private LocalDate periodStart;
+
+    /** 商品分类ID，0 表示全部分类 */
+    private Long categoryId;
+
+    private Long orderCount;
+
+    private BigDecimal gmv;
+
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,59 @@
+package com.campus.exchange.model;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@TableName("review_rating_stat")
+public class ReviewRatingStat {
+
+    /** 全站汇总行 */
+    public static final long GLOBAL = 0L;
+
+    /** 被评价用户ID，0 表示全站 */
+    @TableId(type = IdType.INPUT)
+    private Long targetUserId;
+
+    private Long total;
+
+    /** 评分之和 */
+    private Long ratingSum;
+
+    @TableField("rating_1")
+    private Long rating1;
+
+    @TableField("rating_2")
+    private Long rating2;
+
+    @TableField("rating_3")
+    private Long rating3;
+
+    @TableField("rating_4")
+    private Long rating4;
+
+    @TableField("rating_5")
+    private Long rating5;
+
+    private LocalDateTime updatedAt;
+
+    /**
+     * 平均分，保留一位小数
+     */
+    public double averageRating() {
+        if (total == null || total == 0) {
+            return 0.0;
+        }
+        return Math.round(ratingSum * 10.0 / total) / 10.0;
+    }
+
+    /**
+     * 指定星级的评价数
+     */
+    public long countOf(int rating) {
+        Long[] counts = {rating1, rating2, rating3, rating4, rating5};
+        Long count = rating >= 1 && rating <= 5 ? counts[rating - 1] : null;
+        return count != null ? count : 0L;
+    }
+}
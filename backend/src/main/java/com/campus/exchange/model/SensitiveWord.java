@@ -15,6 +15,8 @@ public class SensitiveWord {
     private String category;
     private Integer level;
     private String replaceWord;
+    /** 命中动作：BLOCK/REPLACE/FLAG */
+    private String action;
     private Boolean isEnabled;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
@@ -0,0 +1,25 @@
+package com.campus.exchange.model;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@TableName("ws_bus_frame")
+public class WsBusFrame {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /** 发布节点ID */
+    private String originNode;
+
+    /** 推送帧 JSON 数组 */
+    private String frames;
+
+    private Integer frameCount;
+
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+}
@@ -26,16 +26,21 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenProvider jwtTokenProvider;
     private final EmailService emailService;
+    private final DashboardStatsService dashboardStatsService;
+    private final MetricRollupService metricRollupService;
     private final Random random = new Random();
 
     public AuthService(UserMapper userMapper, PasswordResetCodeMapper passwordResetCodeMapper,
                       PasswordEncoder passwordEncoder, JwtTokenProvider jwtTokenProvider,
-                      EmailService emailService) {
+                      EmailService emailService, DashboardStatsService dashboardStatsService,
+                      MetricRollupService metricRollupService) {
         this.userMapper = userMapper;
         this.passwordResetCodeMapper = passwordResetCodeMapper;
         this.passwordEncoder = passwordEncoder;
         this.jwtTokenProvider = jwtTokenProvider;
         this.emailService = emailService;
+        this.dashboardStatsService = dashboardStatsService;
+        this.metricRollupService = metricRollupService;
     }
 
     /**
@@ -70,6 +75,8 @@ public class AuthService {
         user.setEnabled(true);
         user.setVerified(request.getStudentId() != null && !request.getStudentId().isEmpty());
         userMapper.insert(user);
+        dashboardStatsService.markDirty();
+        metricRollupService.record(MetricRollupService.USER_REGISTERED, LocalDateTime.now());
 
         // 生成 Token 并返回
         String token = jwtTokenProvider.generateToken(user.getId(), user.getUsername(), user.getRole());
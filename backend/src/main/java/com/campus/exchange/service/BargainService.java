@@ -11,10 +11,13 @@ import com.campus.exchange.mapper.UserMapper;
 import com.campus.exchange.model.Bargain;
 import com.campus.exchange.model.Product;
 import com.campus.exchange.model.User;
+import com.campus.exchange.util.BatchHydrator;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Service
 public class BargainService {
@@ -65,7 +68,7 @@ public class BargainService {
         wrapper.eq(Bargain::getProductId, productId)
                .orderByDesc(Bargain::getCreatedAt);
         List<Bargain> bargains = bargainMapper.selectList(wrapper);
-        return bargains.stream().map(this::convertToVO).collect(Collectors.toList());
+        return toVOList(bargains);
     }
 
     /**
@@ -78,7 +81,9 @@ public class BargainService {
                .orderByDesc(Bargain::getCreatedAt);
 
         IPage<Bargain> bargainPage = bargainMapper.selectPage(pageParam, wrapper);
-        return bargainPage.convert(this::convertToVO);
+        Page<BargainVO> voPage = new Page<>(bargainPage.getCurrent(), bargainPage.getSize(), bargainPage.getTotal());
+        voPage.setRecords(toVOList(bargainPage.getRecords()));
+        return voPage;
     }
 
     /**
@@ -151,46 +156,56 @@ public class BargainService {
     }
 
     private BargainVO convertToVO(Bargain bargain) {
-        BargainVO vo = new BargainVO();
-        vo.setId(bargain.getId());
-        vo.setProductId(bargain.getProductId());
-        vo.setOrderId(bargain.getOrderId());
-        vo.setBargainerId(bargain.getBargainerId());
-        vo.setTargetUserId(bargain.getTargetUserId());
-        vo.setOriginalPrice(bargain.getOriginalPrice());
-        vo.setProposedPrice(bargain.getProposedPrice());
-        vo.setStatus(bargain.getStatus());
-        vo.setMessage(bargain.getMessage());
-        vo.setCreatedAt(bargain.getCreatedAt());
-        vo.setUpdatedAt(bargain.getUpdatedAt());
-
-        // 获取商品信息
-        if (bargain.getProductId() != null) {
-            Product product = productMapper.selectById(bargain.getProductId());
+        return toVOList(Collections.singletonList(bargain)).get(0);
+    }
+
+    /**
+     * 批量组装议价列表：商品、用户（买家和目标用户）各查询一次
+     */
+    private List<BargainVO> toVOList(List<Bargain> bargains) {
+        Map<Long, Product> products = BatchHydrator.load(bargains, productMapper, Product::getId,
+                Bargain::getProductId);
+        Map<Long, User> users = BatchHydrator.load(bargains, userMapper, User::getId,
+                Bargain::getBargainerId, Bargain::getTargetUserId);
+
+        List<BargainVO> result = new ArrayList<>(bargains.size());
+        for (Bargain bargain : bargains) {
+            BargainVO vo = new BargainVO();
+            vo.setId(bargain.getId());
+            vo.setProductId(bargain.getProductId());
+            vo.setOrderId(bargain.getOrderId());
+            vo.setBargainerId(bargain.getBargainerId());
+            vo.setTargetUserId(bargain.getTargetUserId());
+            vo.setOriginalPrice(bargain.getOriginalPrice());
+            vo.setProposedPrice(bargain.getProposedPrice());
+            vo.setStatus(bargain.getStatus());
+            vo.setMessage(bargain.getMessage());
+            vo.setCreatedAt(bargain.getCreatedAt());
+            vo.setUpdatedAt(bargain.getUpdatedAt());
+
+            // 商品信息
+            Product product = products.get(bargain.getProductId());
             if (product != null) {
                 vo.setProductTitle(product.getTitle());
                 vo.setProductImage(product.getImages() != null && !product.getImages().isEmpty()
                     ? product.getImages().split(",")[0].replace("[\"", "").replace("\"]", "").replace("\"", "")
                     : null);
             }
-        }
 
-        // 获取买家昵称
-        if (bargain.getBargainerId() != null) {
-            User bargainer = userMapper.selectById(bargain.getBargainerId());
+            // 买家昵称
+            User bargainer = users.get(bargain.getBargainerId());
             if (bargainer != null) {
                 vo.setBargainerNickname(bargainer.getNickname());
             }
-        }
 
-        // 获取目标用户昵称
-        if (bargain.getTargetUserId() != null) {
-            User targetUser = userMapper.selectById(bargain.getTargetUserId());
+            // 目标用户昵称
+            User targetUser = users.get(bargain.getTargetUserId());
             if (targetUser != null) {
                 vo.setTargetUserNickname(targetUser.getNickname());
             }
-        }
 
-        return vo;
+            result.add(vo);
+        }
+        return result;
     }
 }
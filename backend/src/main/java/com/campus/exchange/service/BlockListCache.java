@@ -0,0 +1,274 @@
+package com.campus.exchange.service;
+
+import com.campus.exchange.config.PushRouter;
+import com.campus.exchange.mapper.UserBlockMapper;
+import com.campus.exchange.mapper.UserMapper;
+import com.campus.exchange.model.UserBlock;
+import com.campus.exchange.util.LongPairBloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 屏蔽关系与用户存在性缓存
+ * 所有屏蔽关系 (userId, blockedUserId) 放入一个布隆过滤器，绝大多数发送可直接判定未被屏蔽；
+ * 过滤器命中时再查该用户的屏蔽列表（不可变集合，首次使用时加载，屏蔽/取消屏蔽时失效）。
+ * 用户存在性同样按用户缓存，只缓存存在的用户，删除用户时失效。
+ * 布隆过滤器不支持删除，取消屏蔽后仍会命中，只是多一次精确判断，由定时任务重建。
+ * 缓存为本机内存：屏蔽、取消屏蔽和删除用户经推送总线广播给其他节点，各节点同步更新过滤器并失效缓存。
+ * 其他节点在收到事件前（总线延迟内）仍可能按旧数据判定。
+ */
+@Service
+public class BlockListCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlockListCache.class);
+
+    private static final long IDLE_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    private static final int SCAN_BATCH_SIZE = 5000;
+    private static final long MIN_BLOOM_CAPACITY = 10_000;
+    private static final double BLOOM_FPP = 0.01;
+
+    /** 总线事件主题，负载为 BLOCK:userId:blockedUserId、UNBLOCK:userId 或 USER:userId */
+    private static final String BUS_TOPIC = "block-list";
+
+    private final UserBlockMapper userBlockMapper;
+    private final UserMapper userMapper;
+    private final PushRouter pushRouter;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    private volatile LongPairBloomFilter bloom = new LongPairBloomFilter(MIN_BLOOM_CAPACITY, BLOOM_FPP);
+    /** 上次开始重建以来新增的屏蔽关系，重建时补入新过滤器（写库可能晚于扫描） */
+    private volatile Set<List<Long>> recentBlocks = ConcurrentHashMap.newKeySet();
+    private volatile boolean bloomReady;
+
+    private final AtomicLong bloomNegatives = new AtomicLong();
+    private final AtomicLong exactChecks = new AtomicLong();
+    private final AtomicLong setLoads = new AtomicLong();
+    private final AtomicLong existenceLoads = new AtomicLong();
+    private final AtomicLong staleLoads = new AtomicLong();
+    private final AtomicLong remoteInvalidations = new AtomicLong();
+
+    public BlockListCache(UserBlockMapper userBlockMapper, UserMapper userMapper, PushRouter pushRouter) {
+        this.userBlockMapper = userBlockMapper;
+        this.userMapper = userMapper;
+        this.pushRouter = pushRouter;
+    }
+
+    @PostConstruct
+    public void init() {
+        pushRouter.subscribe(BUS_TOPIC, this::onRemoteEvent);
+        try {
+            rebuildBloomFilter();
+        } catch (Exception e) {
+            // 过滤器未就绪时直接走精确判断
+            logger.error("构建屏蔽关系布隆过滤器失败", e);
+        }
+    }
+
+    /**
+     * userId 是否屏蔽了 blockedUserId
+     */
+    public boolean isBlocked(Long userId, Long blockedUserId) {
+        if (bloomReady && !bloom.mightContain(userId, blockedUserId)) {
+            bloomNegatives.incrementAndGet();
+            return false;
+        }
+        exactChecks.incrementAndGet();
+        return getBlockedIds(userId).contains(blockedUserId);
+    }
+
+    /**
+     * 用户屏蔽的用户ID（不可变集合）
+     */
+    public Set<Long> getBlockedIds(Long userId) {
+        Entry entry = entry(userId);
+        Set<Long> blocked = entry.blocked;
+        if (blocked == null) {
+            // 加载期间发生失效时不回写，避免把失效前读到的旧列表留在缓存中
+            long version = entry.version;
+            blocked = Collections.unmodifiableSet(new HashSet<>(userBlockMapper.findBlockedIds(userId)));
+            synchronized (entry) {
+                if (entry.version == version) {
+                    entry.blocked = blocked;
+                } else {
+                    staleLoads.incrementAndGet();
+                }
+            }
+            setLoads.incrementAndGet();
+        }
+        return blocked;
+    }
+
+    /**
+     * 用户是否存在
+     */
+    public boolean userExists(Long userId) {
+        Entry entry = entry(userId);
+        if (entry.exists) {
+            return true;
+        }
+        existenceLoads.incrementAndGet();
+        // 不缓存不存在的结果，新注册的用户可能正好使用该ID
+        boolean exists = userMapper.selectById(userId) != null;
+        entry.exists = exists;
+        return exists;
+    }
+
+    /**
+     * 新增屏蔽关系：写库之前调用，保证过滤器不会漏判
+     */
+    public void beforeBlock(Long userId, Long blockedUserId) {
+        addToBloom(userId, blockedUserId);
+    }
+
+    /**
+     * 新增屏蔽关系写库之后调用：失效本机缓存并通知其他节点
+     */
+    public void afterBlock(Long userId, Long blockedUserId) {
+        invalidateLocal(userId);
+        pushRouter.publishEvent(BUS_TOPIC, "BLOCK:" + userId + ":" + blockedUserId);
+    }
+
+    /**
+     * 屏蔽列表变化（如取消屏蔽）写库之后调用：失效本机缓存并通知其他节点
+     */
+    public void invalidateBlocks(Long userId) {
+        invalidateLocal(userId);
+        pushRouter.publishEvent(BUS_TOPIC, "UNBLOCK:" + userId);
+    }
+
+    /**
+     * 用户删除后失效缓存并通知其他节点
+     */
+    public void invalidateUser(Long userId) {
+        entries.remove(userId);
+        pushRouter.publishEvent(BUS_TOPIC, "USER:" + userId);
+    }
+
+    private void addToBloom(Long userId, Long blockedUserId) {
+        // 先登记再写过滤器：重建切换之前登记的会被补入，之后的会直接写入新过滤器
+        recentBlocks.add(Arrays.asList(userId, blockedUserId));
+        bloom.put(userId, blockedUserId);
+    }
+
+    private void invalidateLocal(Long userId) {
+        Entry entry = entries.get(userId);
+        if (entry != null) {
+            synchronized (entry) {
+                entry.version++;
+                entry.blocked = null;
+            }
+        }
+    }
+
+    /**
+     * 其他节点广播的屏蔽关系变化
+     */
+    private void onRemoteEvent(String payload) {
+        String[] parts = payload.split(":");
+        Long userId = Long.valueOf(parts[1]);
+        switch (parts[0]) {
+            case "BLOCK":
+                addToBloom(userId, Long.valueOf(parts[2]));
+                invalidateLocal(userId);
+                break;
+            case "UNBLOCK":
+                invalidateLocal(userId);
+                break;
+            case "USER":
+                entries.remove(userId);
+                break;
+            default:
+                logger.warn("未知的屏蔽关系事件: {}", payload);
+                return;
+        }
+        remoteInvalidations.incrementAndGet();
+    }
+
+    /**
+     * 按数据库重建布隆过滤器，清除已取消的屏蔽关系
+     */
+    public synchronized void rebuildBloomFilter() {
+        Set<List<Long>> previous = recentBlocks;
+        Set<List<Long>> current = ConcurrentHashMap.newKeySet();
+        recentBlocks = current;
+
+        long total = userBlockMapper.selectCount(null);
+        LongPairBloomFilter next = new LongPairBloomFilter(Math.max(MIN_BLOOM_CAPACITY, total * 2), BLOOM_FPP);
+        long afterId = 0;
+        List<UserBlock> batch;
+        do {
+            batch = userBlockMapper.findAfterId(afterId, SCAN_BATCH_SIZE);
+            for (UserBlock block : batch) {
+                next.put(block.getUserId(), block.getBlockedUserId());
+                afterId = block.getId();
+            }
+        } while (batch.size() == SCAN_BATCH_SIZE);
+
+        bloom = next;
+        for (Set<List<Long>> pending : Arrays.asList(previous, current)) {
+            for (List<Long> pair : pending) {
+                next.put(pair.get(0), pair.get(1));
+            }
+        }
+        bloomReady = true;
+    }
+
+    /**
+     * 清理长时间未访问的用户
+     */
+    public int evictIdle() {
+        long now = System.currentTimeMillis();
+        int evicted = 0;
+        Iterator<Map.Entry<Long, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().getValue().lastAccess > IDLE_MILLIS) {
+                it.remove();
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("cachedUsers", entries.size());
+        stats.put("bloomReady", bloomReady);
+        stats.put("bloomBytes", bloom.sizeInBytes());
+        stats.put("bloomNegatives", bloomNegatives.get());
+        stats.put("exactChecks", exactChecks.get());
+        stats.put("setLoads", setLoads.get());
+        stats.put("existenceLoads", existenceLoads.get());
+        stats.put("staleLoads", staleLoads.get());
+        stats.put("remoteInvalidations", remoteInvalidations.get());
+        return stats;
+    }
+
+    private Entry entry(Long userId) {
+        Entry entry = entries.computeIfAbsent(userId, k -> new Entry());
+        entry.lastAccess = System.currentTimeMillis();
+        return entry;
+    }
+
+    private static class Entry {
+        volatile boolean exists;
+        /** 为空表示尚未加载或已失效 */
+        volatile Set<Long> blocked;
+        /** 每次失效加一，加载结果只在版本未变时回写 */
+        volatile long version;
+        volatile long lastAccess;
+    }
+}
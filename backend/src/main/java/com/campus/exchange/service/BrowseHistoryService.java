@@ -1,32 +1,51 @@
 package com.campus.exchange.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.campus.exchange.config.BatchInsertSupport;
 import com.campus.exchange.mapper.BrowseHistoryMapper;
 import com.campus.exchange.mapper.ProductMapper;
 import com.campus.exchange.dto.ProductVO;
 import com.campus.exchange.model.BrowseHistory;
 import com.campus.exchange.model.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
+/**
+ * 浏览历史服务
+ * 浏览记录先在内存中按 用户+商品 合并，由 BrowseHistoryFlushTask 定期多行插入或更新（依赖 uk_user_product），
+ * 读取和删除前先写入或丢弃当前用户未落库的记录。
+ */
 @Service
 public class BrowseHistoryService {
 
+    private static final Logger logger = LoggerFactory.getLogger(BrowseHistoryService.class);
+
     @Autowired
     private BrowseHistoryMapper browseHistoryMapper;
 
     @Autowired
     private ProductMapper productMapper;
 
+    @Autowired
+    private BatchInsertSupport batchInsertSupport;
+
     private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_PENDING = 50000;
+
+    /** 未落库的浏览记录，键为 userId:productId */
+    private final Map<String, BrowseHistory> pending = new ConcurrentHashMap<>();
 
     /**
      * 添加浏览记录
@@ -36,18 +55,44 @@ public class BrowseHistoryService {
             return;
         }
 
-        // 检查是否已存在浏览记录，存在则更新时间
-        BrowseHistory existing = browseHistoryMapper.findByUserIdAndProductId(userId, productId);
-        if (existing != null) {
-            existing.setCreateTime(LocalDateTime.now());
-            browseHistoryMapper.updateById(existing);
-        } else {
-            BrowseHistory history = new BrowseHistory();
-            history.setUserId(userId);
-            history.setProductId(productId);
-            history.setCreateTime(LocalDateTime.now());
-            browseHistoryMapper.insert(history);
+        BrowseHistory history = new BrowseHistory();
+        history.setUserId(userId);
+        history.setProductId(productId);
+        history.setCreateTime(LocalDateTime.now());
+        pending.put(userId + ":" + productId, history);
+        if (pending.size() >= MAX_PENDING) {
+            flushPending();
+        }
+    }
+
+    /**
+     * 把未落库的浏览记录多行写入，已存在的记录更新浏览时间，返回写入条数
+     */
+    public int flushPending() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        List<BrowseHistory> batch = new ArrayList<>(pending.size());
+        for (String key : pending.keySet()) {
+            BrowseHistory history = pending.remove(key);
+            if (history != null) {
+                batch.add(history);
+            }
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try {
+            batchInsertSupport.upsertBatch(browseHistoryMapper, batch);
+        } catch (RuntimeException e) {
+            // 放回缓冲区等待下次写入，期间有更新的浏览记录则以新的为准
+            for (BrowseHistory history : batch) {
+                pending.putIfAbsent(history.getUserId() + ":" + history.getProductId(), history);
+            }
+            logger.error("写入浏览记录失败: count={}, error={}", batch.size(), e.getMessage());
+            throw e;
         }
+        return batch.size();
     }
 
     /**
@@ -57,6 +102,7 @@ public class BrowseHistoryService {
         if (limit == null || limit <= 0) {
             limit = DEFAULT_LIMIT;
         }
+        flushPending();
 
         List<Long> productIds = browseHistoryMapper.findProductIdsByUserId(userId, limit);
         if (productIds == null || productIds.isEmpty()) {
@@ -78,6 +124,8 @@ public class BrowseHistoryService {
      * 清空浏览历史
      */
     public void clearBrowseHistory(Long userId) {
+        String prefix = userId + ":";
+        pending.keySet().removeIf(key -> key.startsWith(prefix));
         QueryWrapper<BrowseHistory> wrapper = new QueryWrapper<>();
         wrapper.eq("user_id", userId);
         browseHistoryMapper.delete(wrapper);
@@ -87,6 +135,7 @@ public class BrowseHistoryService {
      * 删除单条浏览记录
      */
     public void deleteBrowseHistory(Long userId, Long productId) {
+        pending.remove(userId + ":" + productId);
         QueryWrapper<BrowseHistory> wrapper = new QueryWrapper<>();
         wrapper.eq("user_id", userId).eq("product_id", productId);
         browseHistoryMapper.delete(wrapper);
@@ -0,0 +1,310 @@
+package com.campus.exchange.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.campus.exchange.dto.DashboardStatsVO;
+import com.campus.exchange.dto.RecentOrderVO;
+import com.campus.exchange.mapper.DashboardStatsMapper;
+import com.campus.exchange.mapper.OrderMapper;
+import com.campus.exchange.mapper.ProductMapper;
+import com.campus.exchange.model.Order;
+import com.campus.exchange.model.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 仪表盘统计快照
+ * 用少量分组查询一次算出仪表盘和各管理页的统计数据，保存在内存中供请求直接读取。
+ * 由定时任务定期刷新；相关数据写入后调用 markDirty，由定时任务合并刷新，避免每次写入都重算。
+ * 快照为本机内存，多节点部署时各节点独立刷新，数据最多滞后一个刷新周期。
+ */
+@Service
+public class DashboardStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardStatsService.class);
+
+    private static final int RECENT_ORDER_LIMIT = 5;
+
+    private final DashboardStatsMapper dashboardStatsMapper;
+    private final OrderMapper orderMapper;
+    private final ProductMapper productMapper;
+    private final RevenueService revenueService;
+
+    private volatile Snapshot snapshot;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    private final AtomicLong refreshTotal = new AtomicLong();
+    private final AtomicLong lastRefreshMs = new AtomicLong();
+
+    public DashboardStatsService(DashboardStatsMapper dashboardStatsMapper, OrderMapper orderMapper,
+                                 ProductMapper productMapper, RevenueService revenueService) {
+        this.dashboardStatsMapper = dashboardStatsMapper;
+        this.orderMapper = orderMapper;
+        this.productMapper = productMapper;
+        this.revenueService = revenueService;
+    }
+
+    /**
+     * 当前快照，尚未生成时同步生成一次
+     */
+    public Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        return current != null ? current : refresh();
+    }
+
+    /**
+     * 统计相关数据已变更，等待下一次合并刷新
+     */
+    public void markDirty() {
+        dirty.set(true);
+    }
+
+    /**
+     * 有变更时刷新
+     */
+    public void refreshIfDirty() {
+        if (dirty.get()) {
+            refresh();
+        }
+    }
+
+    /**
+     * 重新计算快照；计算期间的变更会留下 dirty 标记，由下一轮处理
+     */
+    public synchronized Snapshot refresh() {
+        dirty.set(false);
+        long start = System.currentTimeMillis();
+        LocalDateTime todayStart = LocalDate.now().atStartOfDay();
+
+        Map<String, Long> users = new HashMap<>();
+        Map<String, Object> userRow = dashboardStatsMapper.countUsers(todayStart);
+        for (String key : new String[]{"total", "enabled", "disabled", "admins", "verified", "today"}) {
+            users.put(key, toLong(userRow != null ? userRow.get(key) : null));
+        }
+
+        Map<String, Long> products = newCounter("total", "onSale", "pending", "rejected", "today");
+        for (Map<String, Object> row : dashboardStatsMapper.countProducts(todayStart)) {
+            long cnt = toLong(row.get("cnt"));
+            products.merge("total", cnt, Long::sum);
+            products.merge("today", toLong(row.get("today")), Long::sum);
+            if ("ON_SALE".equals(row.get("status"))) {
+                products.merge("onSale", cnt, Long::sum);
+            }
+            if ("PENDING".equals(row.get("auditStatus"))) {
+                products.merge("pending", cnt, Long::sum);
+            } else if ("REJECTED".equals(row.get("auditStatus"))) {
+                products.merge("rejected", cnt, Long::sum);
+            }
+        }
+
+        Map<String, Long> orders = newCounter("total", "pending", "paid", "shipped", "completed", "cancelled", "today");
+        for (Map<String, Object> row : dashboardStatsMapper.countOrders(todayStart)) {
+            long cnt = toLong(row.get("cnt"));
+            orders.merge("total", cnt, Long::sum);
+            orders.merge("today", toLong(row.get("today")), Long::sum);
+            mergeStatus(orders, row.get("status"), cnt);
+        }
+
+        Map<String, Long> reports = newCounter("total", "pending", "resolved", "ignored");
+        Map<String, Long> announcements = newCounter("total", "published", "draft", "archived");
+        Map<String, Long> carousels = newCounter("total", "published", "draft", "disabled");
+        for (Map<String, Object> row : dashboardStatsMapper.countContent()) {
+            Map<String, Long> target;
+            String entity = (String) row.get("entity");
+            if ("REPORT".equals(entity)) {
+                target = reports;
+            } else if ("ANNOUNCEMENT".equals(entity)) {
+                target = announcements;
+            } else {
+                target = carousels;
+            }
+            long cnt = toLong(row.get("cnt"));
+            target.merge("total", cnt, Long::sum);
+            mergeStatus(target, row.get("status"), cnt);
+        }
+
+        LocalDateTime generatedAt = LocalDateTime.now();
+        DashboardStatsVO dashboard = new DashboardStatsVO();
+        dashboard.setGeneratedAt(generatedAt);
+        dashboard.setTotalUsers(users.get("total"));
+        dashboard.setTodayUsers(users.get("today"));
+        Map<String, Long> userStats = new HashMap<>();
+        userStats.put("enabled", users.get("enabled"));
+        userStats.put("disabled", users.get("disabled"));
+        userStats.put("verified", users.get("verified"));
+        dashboard.setUserStats(userStats);
+
+        dashboard.setTotalProducts(products.get("total"));
+        dashboard.setTodayProducts(products.get("today"));
+        dashboard.setPendingProducts(products.get("pending"));
+        Map<String, Long> productStats = new HashMap<>();
+        productStats.put("onSale", products.get("onSale"));
+        productStats.put("pending", products.get("pending"));
+        dashboard.setProductStats(productStats);
+
+        dashboard.setTotalOrders(orders.get("total"));
+        dashboard.setTodayOrders(orders.get("today"));
+        Map<String, Long> orderStats = new HashMap<>();
+        orderStats.put("pending", orders.get("pending"));
+        orderStats.put("paid", orders.get("paid"));
+        orderStats.put("completed", orders.get("completed"));
+        dashboard.setOrderStats(orderStats);
+
+        dashboard.setTotalRevenue(revenueService.getTotalRevenue());
+        dashboard.setPendingReports(reports.get("pending"));
+        dashboard.setRecentOrders(loadRecentOrders());
+
+        // 各管理页沿用原有字段，每日新增只在仪表盘展示
+        products.remove("today");
+        orders.remove("today");
+        Snapshot refreshed = new Snapshot(generatedAt, dashboard, users, products, orders,
+                reports, announcements, carousels);
+        snapshot = refreshed;
+
+        long elapsed = System.currentTimeMillis() - start;
+        lastRefreshMs.set(elapsed);
+        refreshTotal.incrementAndGet();
+        logger.debug("仪表盘统计快照已刷新，耗时 {}ms", elapsed);
+        return refreshed;
+    }
+
+    public Map<String, Object> getStats() {
+        Snapshot current = snapshot;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("generatedAt", current != null ? current.getGeneratedAt() : null);
+        stats.put("dirty", dirty.get());
+        stats.put("refreshTotal", refreshTotal.get());
+        stats.put("lastRefreshMs", lastRefreshMs.get());
+        return stats;
+    }
+
+    /**
+     * 最近订单，商品名称一次批量查询
+     */
+    private List<RecentOrderVO> loadRecentOrders() {
+        LambdaQueryWrapper<Order> wrapper = new LambdaQueryWrapper<>();
+        wrapper.orderByDesc(Order::getCreatedAt);
+        wrapper.last("LIMIT " + RECENT_ORDER_LIMIT);
+        List<Order> recentOrders = orderMapper.selectList(wrapper);
+
+        Map<Long, String> titles = Collections.emptyMap();
+        Set<Long> productIds = recentOrders.stream()
+                .map(Order::getProductId)
+                .filter(id -> id != null)
+                .collect(Collectors.toSet());
+        if (!productIds.isEmpty()) {
+            titles = productMapper.selectBatchIds(productIds).stream()
+                    .collect(Collectors.toMap(Product::getId, Product::getTitle, (a, b) -> a));
+        }
+
+        List<RecentOrderVO> result = new ArrayList<>(recentOrders.size());
+        for (Order order : recentOrders) {
+            RecentOrderVO vo = new RecentOrderVO();
+            vo.setId(order.getId());
+            vo.setOrderNo(order.getOrderNo());
+            vo.setProductName(titles.getOrDefault(order.getProductId(), "商品#" + order.getProductId()));
+            vo.setAmount(order.getPrice() != null ? order.getPrice() : BigDecimal.ZERO);
+            vo.setStatus(order.getStatus());
+            vo.setCreatedAt(order.getCreatedAt() != null ? order.getCreatedAt().toString() : "");
+            result.add(vo);
+        }
+        return result;
+    }
+
+    private static Map<String, Long> newCounter(String... keys) {
+        Map<String, Long> counter = new HashMap<>();
+        for (String key : keys) {
+            counter.put(key, 0L);
+        }
+        return counter;
+    }
+
+    /**
+     * 按小写状态名累加，只统计预先列出的状态
+     */
+    private static void mergeStatus(Map<String, Long> counter, Object status, long cnt) {
+        if (status != null) {
+            counter.computeIfPresent(status.toString().toLowerCase(), (k, v) -> v + cnt);
+        }
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+
+    /**
+     * 不可变的统计快照
+     */
+    public static class Snapshot {
+
+        private final LocalDateTime generatedAt;
+        private final DashboardStatsVO dashboard;
+        private final Map<String, Long> users;
+        private final Map<String, Long> products;
+        private final Map<String, Long> orders;
+        private final Map<String, Long> reports;
+        private final Map<String, Long> announcements;
+        private final Map<String, Long> carousels;
+
+        Snapshot(LocalDateTime generatedAt, DashboardStatsVO dashboard, Map<String, Long> users,
+                 Map<String, Long> products, Map<String, Long> orders, Map<String, Long> reports,
+                 Map<String, Long> announcements, Map<String, Long> carousels) {
+            this.generatedAt = generatedAt;
+            this.dashboard = dashboard;
+            this.users = Collections.unmodifiableMap(users);
+            this.products = Collections.unmodifiableMap(products);
+            this.orders = Collections.unmodifiableMap(orders);
+            this.reports = Collections.unmodifiableMap(reports);
+            this.announcements = Collections.unmodifiableMap(announcements);
+            this.carousels = Collections.unmodifiableMap(carousels);
+        }
+
+        public LocalDateTime getGeneratedAt() {
+            return generatedAt;
+        }
+
+        public DashboardStatsVO getDashboard() {
+            return dashboard;
+        }
+
+        /** total, enabled, disabled, admins, verified, today */
+        public Map<String, Long> getUsers() {
+            return users;
+        }
+
+        /** total, onSale, pending, rejected */
+        public Map<String, Long> getProducts() {
+            return products;
+        }
+
+        /** total, pending, paid, shipped, completed, cancelled */
+        public Map<String, Long> getOrders() {
+            return orders;
+        }
+
+        public Map<String, Long> getReports() {
+            return reports;
+        }
+
+        public Map<String, Long> getAnnouncements() {
+            return announcements;
+        }
+
+        public Map<String, Long> getCarousels() {
+            return carousels;
+        }
+    }
+}
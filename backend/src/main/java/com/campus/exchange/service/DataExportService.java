@@ -0,0 +1,128 @@
+package com.campus.exchange.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.campus.exchange.mapper.OrderMapper;
+import com.campus.exchange.mapper.ProductMapper;
+import com.campus.exchange.mapper.UserMapper;
+import com.campus.exchange.model.Order;
+import com.campus.exchange.model.Product;
+import com.campus.exchange.model.User;
+import com.campus.exchange.util.CsvSchema;
+import com.campus.exchange.util.CsvWriter;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.function.LongConsumer;
+
+/**
+ * 数据导出服务
+ * 通过 MyBatis Cursor 逐行读取（MySQL 流式结果集），逐行写出 CSV，内存占用与数据量无关。
+ * Cursor 只能在打开它的事务内消费，因此导出方法均为只读事务。
+ */
+@Service
+public class DataExportService {
+
+    /** 导出时排除的敏感字段 */
+    private static final CsvSchema<User> USER_SCHEMA = CsvSchema.of(User.class, "password");
+    private static final CsvSchema<Order> ORDER_SCHEMA = CsvSchema.of(Order.class);
+    private static final CsvSchema<Product> PRODUCT_SCHEMA = CsvSchema.of(Product.class);
+
+    /** 进度回调间隔（行） */
+    private static final int PROGRESS_INTERVAL = 1000;
+
+    private final OrderMapper orderMapper;
+    private final UserMapper userMapper;
+    private final ProductMapper productMapper;
+
+    public DataExportService(OrderMapper orderMapper, UserMapper userMapper, ProductMapper productMapper) {
+        this.orderMapper = orderMapper;
+        this.userMapper = userMapper;
+        this.productMapper = productMapper;
+    }
+
+    /**
+     * 导出订单，返回数据行数
+     *
+     * @param startDate 开始日期 yyyy-MM-dd，可为空
+     * @param endDate   结束日期 yyyy-MM-dd，可为空
+     * @param progress  进度回调（已导出行数），可为空
+     */
+    @Transactional(readOnly = true)
+    public long exportOrders(String status, String startDate, String endDate, OutputStream out, boolean gzip,
+                             LongConsumer progress) throws IOException {
+        LambdaQueryWrapper<Order> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(Order::getDeleted, 0);
+        if (status != null && !status.isEmpty()) {
+            wrapper.eq(Order::getStatus, status);
+        }
+        if (startDate != null && !startDate.isEmpty()) {
+            wrapper.ge(Order::getCreatedAt, LocalDateTime.parse(startDate + "T00:00:00"));
+        }
+        if (endDate != null && !endDate.isEmpty()) {
+            wrapper.le(Order::getCreatedAt, LocalDateTime.parse(endDate + "T23:59:59"));
+        }
+        wrapper.orderByDesc(Order::getCreatedAt);
+        return write(orderMapper.selectCursor(wrapper), ORDER_SCHEMA, out, gzip, progress);
+    }
+
+    /**
+     * 导出用户（不含密码），返回数据行数
+     */
+    @Transactional(readOnly = true)
+    public long exportUsers(String role, Boolean enabled, OutputStream out, boolean gzip, LongConsumer progress)
+            throws IOException {
+        LambdaQueryWrapper<User> wrapper = new LambdaQueryWrapper<>();
+        // 密码列不从数据库读取
+        wrapper.select(User.class, field -> !"password".equals(field.getProperty()));
+        wrapper.eq(User::getDeleted, 0);
+        if (role != null && !role.isEmpty()) {
+            wrapper.eq(User::getRole, role);
+        }
+        if (enabled != null) {
+            wrapper.eq(User::getEnabled, enabled);
+        }
+        wrapper.orderByDesc(User::getCreatedAt);
+        return write(userMapper.selectCursor(wrapper), USER_SCHEMA, out, gzip, progress);
+    }
+
+    /**
+     * 导出商品，返回数据行数
+     */
+    @Transactional(readOnly = true)
+    public long exportProducts(String status, String auditStatus, OutputStream out, boolean gzip,
+                               LongConsumer progress) throws IOException {
+        LambdaQueryWrapper<Product> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(Product::getDeleted, 0);
+        if (status != null && !status.isEmpty()) {
+            wrapper.eq(Product::getStatus, status);
+        }
+        if (auditStatus != null && !auditStatus.isEmpty()) {
+            wrapper.eq(Product::getAuditStatus, auditStatus);
+        }
+        wrapper.orderByDesc(Product::getCreatedAt);
+        return write(productMapper.selectCursor(wrapper), PRODUCT_SCHEMA, out, gzip, progress);
+    }
+
+    private <T> long write(Cursor<T> cursor, CsvSchema<T> schema, OutputStream out, boolean gzip,
+                           LongConsumer progress) throws IOException {
+        long count = 0;
+        try (Cursor<T> rows = cursor; CsvWriter writer = new CsvWriter(out, gzip)) {
+            writer.writeRow(schema.getHeaders());
+            for (T row : rows) {
+                writer.writeRow(schema.values(row));
+                count++;
+                if (progress != null && count % PROGRESS_INTERVAL == 0) {
+                    progress.accept(count);
+                }
+            }
+        }
+        if (progress != null) {
+            progress.accept(count);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,141 @@
+package com.campus.exchange.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 最近投递窗口
+ * 按接收方缓存最近推送的私信帧（按投递序号），断线重连补发时优先从这里取，取不全再查数据库。
+ * 每个窗口记录自己完整覆盖的起始序号：窗口创建后的消息都会进入窗口，
+ * 超出容量丢弃最旧的或客户端确认后裁剪时起始序号随之后移。
+ * 序号在批次提交时连续分配，但写入窗口发生在各发送线程上，顺序不确定，窗口中可能暂时有空洞，
+ * 因此只有请求的区间在窗口中连续时才从窗口补发，否则查数据库。
+ */
+@Component
+public class DeliveryBuffer {
+
+    private static final int WINDOW_SIZE = 100;
+    private static final int MAX_USERS = 20000;
+    private static final long IDLE_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    private final Map<Long, Window> windows = new ConcurrentHashMap<>();
+
+    private final AtomicLong memoryReplays = new AtomicLong();
+    private final AtomicLong missedReplays = new AtomicLong();
+
+    /**
+     * 记录已落库并即将推送的消息帧
+     */
+    public void append(Long userId, long seq, String payload) {
+        Window window = windows.get(userId);
+        if (window == null) {
+            if (windows.size() >= MAX_USERS) {
+                // 窗口数已满时不再缓存，补发走数据库
+                return;
+            }
+            window = windows.computeIfAbsent(userId, k -> new Window(seq));
+        }
+        window.append(seq, payload);
+    }
+
+    /**
+     * 客户端确认到 seq 为止的消息
+     */
+    public void ack(Long userId, long seq) {
+        Window window = windows.get(userId);
+        if (window != null) {
+            window.trim(seq);
+        }
+    }
+
+    /**
+     * 取 afterSeq 之后的所有帧（序号 -> 帧）；窗口不能连续覆盖时返回空，由调用方查数据库
+     */
+    public SortedMap<Long, String> replay(Long userId, long afterSeq) {
+        Window window = windows.get(userId);
+        SortedMap<Long, String> frames = window != null ? window.after(afterSeq) : null;
+        if (frames == null) {
+            missedReplays.incrementAndGet();
+        } else {
+            memoryReplays.incrementAndGet();
+        }
+        return frames;
+    }
+
+    /**
+     * 清理长时间没有新消息的窗口
+     */
+    public int evictIdle() {
+        long now = System.currentTimeMillis();
+        int evicted = 0;
+        Iterator<Map.Entry<Long, Window>> it = windows.entrySet().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().getValue().lastAccess > IDLE_MILLIS) {
+                it.remove();
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("windows", windows.size());
+        stats.put("memoryReplays", memoryReplays.get());
+        stats.put("missedReplays", missedReplays.get());
+        return stats;
+    }
+
+    private static class Window {
+        /** 序号 -> 帧，按序号有序（并发写入时到达顺序可能与序号不一致） */
+        final TreeMap<Long, String> frames = new TreeMap<>();
+        /** 不小于该序号的消息都在窗口中 */
+        long coveredFrom;
+        volatile long lastAccess = System.currentTimeMillis();
+
+        Window(long firstSeq) {
+            this.coveredFrom = firstSeq;
+        }
+
+        synchronized void append(long seq, String payload) {
+            lastAccess = System.currentTimeMillis();
+            if (seq < coveredFrom) {
+                return;
+            }
+            frames.put(seq, payload);
+            while (frames.size() > WINDOW_SIZE) {
+                coveredFrom = frames.pollFirstEntry().getKey() + 1;
+            }
+        }
+
+        synchronized void trim(long ackedSeq) {
+            frames.headMap(ackedSeq, true).clear();
+            coveredFrom = Math.max(coveredFrom, ackedSeq + 1);
+        }
+
+        synchronized SortedMap<Long, String> after(long afterSeq) {
+            if (afterSeq + 1 < coveredFrom) {
+                return null;
+            }
+            SortedMap<Long, String> tail = frames.tailMap(afterSeq, false);
+            long expected = afterSeq + 1;
+            for (Long seq : tail.keySet()) {
+                if (seq != expected) {
+                    // 中间的消息尚未写入窗口（发送线程乱序），窗口内容不完整
+                    return null;
+                }
+                expected++;
+            }
+            lastAccess = System.currentTimeMillis();
+            return new TreeMap<>(tail);
+        }
+    }
+}
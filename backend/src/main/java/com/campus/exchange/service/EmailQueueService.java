@@ -0,0 +1,359 @@
+package com.campus.exchange.service;
+
+import com.campus.exchange.config.BatchInsertSupport;
+import com.campus.exchange.config.EmailTransport;
+import com.campus.exchange.mapper.EmailDeadLetterMapper;
+import com.campus.exchange.mapper.EmailQueueMapper;
+import com.campus.exchange.model.EmailDeadLetter;
+import com.campus.exchange.model.EmailQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.mail.internet.AddressException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 邮件发送队列
+ * 业务方调用 enqueue 写入 email_queue 后立即返回；后台任务按优先级取出到期邮件，
+ * 按收件域名限速（令牌桶，本机内存），同一域名的邮件分批交给发送线程池，一批复用一个 SMTP 连接。
+ * 失败按指数退避重试，超过最大次数或地址无效时移入 email_dead_letter。
+ */
+@Service
+public class EmailQueueService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailQueueService.class);
+
+    /** 验证码等需要立即送达的邮件 */
+    public static final int PRIORITY_HIGH = 10;
+    public static final int PRIORITY_NORMAL = 5;
+    /** 公告等群发邮件 */
+    public static final int PRIORITY_LOW = 0;
+
+    private static final int FETCH_SIZE = 200;
+    private static final int MAX_ATTEMPTS = 6;
+    private static final long BASE_BACKOFF_SECONDS = 30;
+    private static final long MAX_BACKOFF_SECONDS = 3600;
+    private static final long STALE_LOCK_MINUTES = 10;
+    private static final int QUEUE_CAPACITY = 20;
+    private static final int PURGE_BATCH_SIZE = 1000;
+
+    private final EmailQueueMapper emailQueueMapper;
+    private final EmailDeadLetterMapper emailDeadLetterMapper;
+    private final EmailTransport transport;
+    private final BatchInsertSupport batchInsertSupport;
+    private final TransactionTemplate transactionTemplate;
+    private final String fromEmail;
+    private final int connectionBatchSize;
+    private final int domainRatePerMinute;
+    private final ThreadPoolExecutor executor;
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private final AtomicLong sentTotal = new AtomicLong();
+    private final AtomicLong failedAttemptsTotal = new AtomicLong();
+    private final AtomicLong deadLetteredTotal = new AtomicLong();
+    private final AtomicLong batchesTotal = new AtomicLong();
+
+    public EmailQueueService(EmailQueueMapper emailQueueMapper, EmailDeadLetterMapper emailDeadLetterMapper,
+                             EmailTransport transport, BatchInsertSupport batchInsertSupport,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${spring.mail.username:campus-exchange@example.com}") String fromEmail,
+                             @Value("${email-queue.sender-threads:2}") int senderThreads,
+                             @Value("${email-queue.connection-batch-size:50}") int connectionBatchSize,
+                             @Value("${email-queue.domain-rate-per-minute:60}") int domainRatePerMinute) {
+        this.emailQueueMapper = emailQueueMapper;
+        this.emailDeadLetterMapper = emailDeadLetterMapper;
+        this.transport = transport;
+        this.batchInsertSupport = batchInsertSupport;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.fromEmail = fromEmail;
+        this.connectionBatchSize = Math.max(1, connectionBatchSize);
+        this.domainRatePerMinute = Math.max(1, domainRatePerMinute);
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), r -> {
+                    Thread t = new Thread(r, "email-sender-" + threadIndex.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * 写入一封待发送邮件
+     */
+    public void enqueue(String to, String subject, String content, int priority) {
+        emailQueueMapper.insert(newEmail(to, subject, content, priority, LocalDateTime.now()));
+    }
+
+    /**
+     * 批量写入同一内容的邮件（如公告），多行插入
+     */
+    public int enqueueAll(List<String> recipients, String subject, String content, int priority) {
+        LocalDateTime now = LocalDateTime.now();
+        List<EmailQueue> emails = new ArrayList<>(recipients.size());
+        for (String to : recipients) {
+            emails.add(newEmail(to, subject, content, priority, now));
+        }
+        batchInsertSupport.insertBatch(emailQueueMapper, emails);
+        return emails.size();
+    }
+
+    /**
+     * 取出到期邮件，按域名限速后分批提交到发送线程池
+     * 线程池队列满时不取，积压留在表中等待下一轮
+     *
+     * @return 本轮提交的邮件数
+     */
+    public int dispatchPending() {
+        LocalDateTime now = LocalDateTime.now();
+        emailQueueMapper.releaseStale(now.minusMinutes(STALE_LOCK_MINUTES));
+        if (executor.getQueue().remainingCapacity() <= 0) {
+            return 0;
+        }
+
+        Set<String> throttled = new HashSet<>();
+        for (Map.Entry<String, TokenBucket> entry : buckets.entrySet()) {
+            if (!entry.getValue().hasToken()) {
+                throttled.add(entry.getKey());
+            }
+        }
+        Map<String, List<EmailQueue>> byDomain = new LinkedHashMap<>();
+        for (EmailQueue email : emailQueueMapper.findDue(now, throttled, FETCH_SIZE)) {
+            TokenBucket bucket = buckets.computeIfAbsent(email.getDomain(), d -> new TokenBucket(domainRatePerMinute));
+            if (!bucket.tryAcquire()) {
+                continue;
+            }
+            if (emailQueueMapper.claim(email.getId(), now) == 0) {
+                // 已被其他实例占用
+                continue;
+            }
+            byDomain.computeIfAbsent(email.getDomain(), d -> new ArrayList<>()).add(email);
+        }
+
+        int submitted = 0;
+        for (List<EmailQueue> emails : byDomain.values()) {
+            for (int i = 0; i < emails.size(); i += connectionBatchSize) {
+                List<EmailQueue> batch = new ArrayList<>(emails.subList(i, Math.min(i + connectionBatchSize, emails.size())));
+                try {
+                    executor.execute(() -> deliver(batch));
+                    submitted += batch.size();
+                } catch (RejectedExecutionException e) {
+                    for (EmailQueue email : batch) {
+                        reschedule(email, email.getAttempts(), "发送队列已满");
+                    }
+                }
+            }
+        }
+        return submitted;
+    }
+
+    /**
+     * 清理发送成功超过保留期的记录
+     */
+    public int purgeSent(LocalDateTime before) {
+        int total = 0;
+        int deleted;
+        do {
+            deleted = emailQueueMapper.deleteSentBefore(before, PURGE_BATCH_SIZE);
+            total += deleted;
+        } while (deleted == PURGE_BATCH_SIZE);
+        return total;
+    }
+
+    /**
+     * 发送队列运行指标
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        LocalDateTime oldest = emailQueueMapper.findOldestPendingCreatedAt();
+        stats.put("pending", emailQueueMapper.countPending());
+        stats.put("deadLetters", emailDeadLetterMapper.selectCount(null));
+        stats.put("lagSeconds", oldest != null ? Duration.between(oldest, LocalDateTime.now()).getSeconds() : 0);
+        stats.put("sentTotal", sentTotal.get());
+        stats.put("failedAttemptsTotal", failedAttemptsTotal.get());
+        stats.put("deadLetteredTotal", deadLetteredTotal.get());
+        stats.put("batchesTotal", batchesTotal.get());
+        stats.put("queueSize", executor.getQueue().size());
+        stats.put("activeSenders", executor.getActiveCount());
+        stats.put("domainRatePerMinute", domainRatePerMinute);
+        stats.put("transport", transport.getStats());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private EmailQueue newEmail(String to, String subject, String content, int priority, LocalDateTime now) {
+        String recipient = to.trim();
+        EmailQueue email = new EmailQueue();
+        email.setRecipient(recipient);
+        email.setDomain(recipient.substring(recipient.lastIndexOf('@') + 1).toLowerCase(Locale.ROOT));
+        email.setSubject(subject);
+        email.setContent(content);
+        email.setPriority(priority);
+        email.setStatus("NEW");
+        email.setAttempts(0);
+        email.setNextAttemptAt(now);
+        email.setCreatedAt(now);
+        return email;
+    }
+
+    /**
+     * 同一域名的一批邮件在一个连接上发送，逐封记录结果
+     */
+    private void deliver(List<EmailQueue> batch) {
+        List<SimpleMailMessage> messages = new ArrayList<>(batch.size());
+        for (EmailQueue email : batch) {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setFrom(fromEmail);
+            message.setTo(email.getRecipient());
+            message.setSubject(email.getSubject());
+            message.setText(email.getContent());
+            messages.add(message);
+        }
+        batchesTotal.incrementAndGet();
+        Map<Integer, Exception> failures = transport.send(messages);
+
+        for (int i = 0; i < batch.size(); i++) {
+            EmailQueue email = batch.get(i);
+            Exception error = failures.get(i);
+            try {
+                if (error == null) {
+                    EmailQueue update = new EmailQueue();
+                    update.setId(email.getId());
+                    update.setStatus("SENT");
+                    update.setSentAt(LocalDateTime.now());
+                    emailQueueMapper.updateById(update);
+                    sentTotal.incrementAndGet();
+                    continue;
+                }
+                failedAttemptsTotal.incrementAndGet();
+                int attempts = (email.getAttempts() != null ? email.getAttempts() : 0) + 1;
+                logger.warn("邮件发送失败: id={}, to={}, attempts={}, error={}",
+                        email.getId(), email.getRecipient(), attempts, error.getMessage());
+                if (attempts >= MAX_ATTEMPTS || isPermanent(error)) {
+                    deadLetter(email, attempts, error.getMessage());
+                } else {
+                    reschedule(email, attempts, error.getMessage());
+                }
+            } catch (Exception e) {
+                // 状态未写回的邮件超时后由 releaseStale 释放重发
+                logger.error("更新邮件发送状态失败: id={}, error={}", email.getId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 地址格式错误重试也不会成功
+     */
+    private boolean isPermanent(Exception error) {
+        Throwable t = error;
+        while (t != null) {
+            if (t instanceof MailParseException || t instanceof AddressException) {
+                return true;
+            }
+            t = t.getCause();
+        }
+        return false;
+    }
+
+    /**
+     * 按指数退避重新排期
+     */
+    private void reschedule(EmailQueue email, Integer attempts, String error) {
+        int n = attempts != null ? attempts : 0;
+        EmailQueue update = new EmailQueue();
+        update.setId(email.getId());
+        update.setStatus("NEW");
+        update.setAttempts(n);
+        update.setLastError(truncate(error));
+        long backoff = n == 0 ? 0 : Math.min(BASE_BACKOFF_SECONDS << Math.min(n - 1, 20), MAX_BACKOFF_SECONDS);
+        update.setNextAttemptAt(LocalDateTime.now().plusSeconds(backoff));
+        emailQueueMapper.updateById(update);
+    }
+
+    /**
+     * 移入死信表，与删除队列记录在同一事务中
+     */
+    private void deadLetter(EmailQueue email, int attempts, String error) {
+        EmailDeadLetter deadLetter = new EmailDeadLetter();
+        deadLetter.setEmailId(email.getId());
+        deadLetter.setRecipient(email.getRecipient());
+        deadLetter.setSubject(email.getSubject());
+        deadLetter.setContent(email.getContent());
+        deadLetter.setAttempts(attempts);
+        deadLetter.setLastError(truncate(error));
+        deadLetter.setCreatedAt(LocalDateTime.now());
+        transactionTemplate.executeWithoutResult(status -> {
+            emailDeadLetterMapper.insert(deadLetter);
+            emailQueueMapper.deleteById(email.getId());
+        });
+        deadLetteredTotal.incrementAndGet();
+    }
+
+    private String truncate(String error) {
+        return error != null && error.length() > 500 ? error.substring(0, 500) : error;
+    }
+
+    /**
+     * 单个域名的令牌桶：容量为每分钟限额，按时间匀速补充
+     */
+    private static class TokenBucket {
+        private final double capacity;
+        private final double refillPerMs;
+        private double tokens;
+        private long refilledAt;
+
+        TokenBucket(int perMinute) {
+            this.capacity = perMinute;
+            this.refillPerMs = perMinute / 60000.0;
+            this.tokens = perMinute;
+            this.refilledAt = System.currentTimeMillis();
+        }
+
+        synchronized boolean tryAcquire() {
+            refill();
+            if (tokens >= 1) {
+                tokens -= 1;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized boolean hasToken() {
+            refill();
+            return tokens >= 1;
+        }
+
+        private void refill() {
+            long now = System.currentTimeMillis();
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * refillPerMs);
+            refilledAt = now;
+        }
+    }
+}
@@ -1,29 +1,41 @@
 package com.campus.exchange.service;
 
+import com.campus.exchange.mapper.UserMapper;
+import com.campus.exchange.model.User;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 邮件服务
+ * 只负责组装内容并写入发送队列，实际发送、限速与重试由 EmailQueueService 在后台完成，不阻塞请求线程。
+ */
 @Service
 public class EmailService {
 
     private static final Logger log = LoggerFactory.getLogger(EmailService.class);
 
+    private static final int SUBSCRIBER_PAGE_SIZE = 1000;
+
     @Autowired
-    private JavaMailSender mailSender;
+    private EmailQueueService emailQueueService;
 
-    @Value("${spring.mail.username:campus-exchange@example.com}")
-    private String fromEmail;
+    @Autowired
+    private UserMapper userMapper;
 
     /**
-     * 发送简单邮件
-     * @return 是否发送成功
+     * 发送简单邮件（写入发送队列）
+     * @return 是否已写入队列
      */
     public boolean sendEmail(String to, String subject, String content) {
+        return sendEmail(to, subject, content, EmailQueueService.PRIORITY_NORMAL);
+    }
+
+    private boolean sendEmail(String to, String subject, String content, int priority) {
         // 参数校验
         if (to == null || to.trim().isEmpty()) {
             log.error("邮箱地址为空");
@@ -37,16 +49,10 @@ public class EmailService {
         }
 
         try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(to);
-            message.setSubject(subject);
-            message.setText(content);
-            mailSender.send(message);
-            log.info("邮件发送成功: {}", to);
+            emailQueueService.enqueue(to, subject, content, priority);
             return true;
         } catch (Exception e) {
-            log.error("邮件发送失败: {}, error: {}", to, e.getMessage());
+            log.error("邮件写入发送队列失败: {}, error: {}", to, e.getMessage());
             return false;
         }
     }
@@ -60,7 +66,7 @@ public class EmailService {
                 "您的验证码为: " + code + "\n\n" +
                 "验证码有效期为 10 分钟，请尽快完成操作。\n\n" +
                 "如果不是您本人操作，请忽略此邮件。";
-        boolean success = sendEmail(to, subject, content);
+        boolean success = sendEmail(to, subject, content, EmailQueueService.PRIORITY_HIGH);
         if (!success) {
             log.warn("密码重置邮件发送失败: {}", to);
         }
@@ -70,14 +76,61 @@ public class EmailService {
      * 发送系统公告邮件
      */
     public void sendAnnouncementEmail(String to, String title, String content) {
-        String subject = "校园二手交易平台 - 系统公告: " + title;
-        String emailContent = "您好，您收到一条系统公告。\n\n" +
-                "【公告标题】" + title + "\n\n" +
-                "【公告内容】\n" + content + "\n\n" +
-                "感谢您使用校园二手交易平台！";
-        boolean success = sendEmail(to, subject, emailContent);
+        boolean success = sendEmail(to, announcementSubject(title), announcementContent(title, content),
+                EmailQueueService.PRIORITY_LOW);
         if (!success) {
             log.warn("系统公告邮件发送失败: {}", to);
         }
     }
+
+    /**
+     * 给所有开启邮件通知的用户发送公告邮件：按用户ID分页多行写入队列
+     * @return 写入队列的邮件数
+     */
+    public int sendAnnouncementToSubscribers(String title, String content) {
+        String subject = announcementSubject(title);
+        String emailContent = announcementContent(title, content);
+        int total = 0;
+        long afterId = 0;
+        List<User> users;
+        do {
+            users = userMapper.findEmailSubscribers(afterId, SUBSCRIBER_PAGE_SIZE);
+            List<String> recipients = new ArrayList<>(users.size());
+            for (User user : users) {
+                String email = user.getEmail();
+                if (email != null && email.contains("@") && email.contains(".")) {
+                    recipients.add(email);
+                }
+                afterId = user.getId();
+            }
+            if (!recipients.isEmpty()) {
+                total += emailQueueService.enqueueAll(recipients, subject, emailContent, EmailQueueService.PRIORITY_LOW);
+            }
+        } while (users.size() == SUBSCRIBER_PAGE_SIZE);
+        log.info("公告邮件已写入发送队列: title={}, count={}", title, total);
+        return total;
+    }
+
+    private String announcementSubject(String title) {
+        return "校园二手交易平台 - 系统公告: " + title;
+    }
+
+    private String announcementContent(String title, String content) {
+        return "您好，您收到一条系统公告。\n\n" +
+                "【公告标题】" + title + "\n\n" +
+                "【公告内容】\n" + content + "\n\n" +
+                "感谢您使用校园二手交易平台！";
+    }
+
+    /**
+     * 发送订单通知邮件
+     * @return 是否发送成功
+     */
+    public boolean sendOrderNotificationEmail(String to, String title, String content) {
+        String subject = "校园二手交易平台 - " + title;
+        String emailContent = "您好，\n\n" + content + "\n\n" +
+                "您可以登录平台查看订单详情。\n\n" +
+                "感谢您使用校园二手交易平台！";
+        return sendEmail(to, subject, emailContent);
+    }
 }
@@ -0,0 +1,422 @@
+package com.campus.exchange.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.campus.exchange.dto.ExportJobRequest;
+import com.campus.exchange.mapper.ExportJobMapper;
+import com.campus.exchange.model.ExportJob;
+import com.campus.exchange.util.ServiceBusyException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 后台导出任务
+ * 提交后立即返回任务ID，由有界线程池在后台流式导出为 gzip 压缩的 CSV 文件写入本地目录，
+ * 导出过程中定期更新已导出行数，完成后可下载（支持 Range 断点续传），过期后由定时任务删除文件。
+ * 同一类型同时只允许一个排队中或导出中的任务。
+ * 任务记录执行节点，排队中和导出中的任务由该节点定期续期心跳；节点启动时只把自己上次运行留下的任务
+ * 和心跳超时（执行节点已失联）的任务标记为失败，其他节点正在执行的任务不受影响。
+ */
+@Service
+public class ExportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportJobService.class);
+
+    public static final String TYPE_ORDERS = "ORDERS";
+    public static final String TYPE_USERS = "USERS";
+    public static final String TYPE_PRODUCTS = "PRODUCTS";
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_DONE = "DONE";
+    public static final String STATUS_FAILED = "FAILED";
+    public static final String STATUS_EXPIRED = "EXPIRED";
+
+    private static final List<String> TYPES = Arrays.asList(TYPE_ORDERS, TYPE_USERS, TYPE_PRODUCTS);
+
+    private static final int WORKER_THREADS = 2;
+    private static final int QUEUE_CAPACITY = 10;
+    /** 进度写库的最小间隔 */
+    private static final long PROGRESS_UPDATE_INTERVAL_MS = 1000;
+    private static final int EXPIRE_BATCH_SIZE = 100;
+    private static final int MAX_ERROR_LENGTH = 500;
+    /** 心跳超过该时长未更新视为执行节点已失联，应大于 ExportJobTask 的心跳间隔 */
+    private static final long STALE_SECONDS = 120;
+
+    private final ExportJobMapper exportJobMapper;
+    private final DataExportService dataExportService;
+    private final ObjectMapper objectMapper;
+    /** 导出期间 Cursor 占用当前连接，进度更新需在新事务（新连接）中执行 */
+    private final TransactionTemplate progressTransaction;
+    private final Path dir;
+    private final long retentionHours;
+    private final String nodeId;
+    private final ThreadPoolExecutor executor;
+
+    /** 本机正在排队或导出的类型 -> 任务ID */
+    private final Map<String, Long> activeTypes = new ConcurrentHashMap<>();
+
+    private final AtomicLong completedTotal = new AtomicLong();
+    private final AtomicLong failedTotal = new AtomicLong();
+    private final AtomicLong expiredTotal = new AtomicLong();
+    private final AtomicLong staleTotal = new AtomicLong();
+
+    public ExportJobService(ExportJobMapper exportJobMapper, DataExportService dataExportService,
+                            ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+                            @Value("${export-job.dir:./data/exports}") String dir,
+                            @Value("${export-job.retention-hours:24}") long retentionHours,
+                            @Value("${export-job.node-id:}") String nodeId,
+                            @Value("${server.port:8080}") int serverPort) {
+        this.exportJobMapper = exportJobMapper;
+        this.dataExportService = dataExportService;
+        this.objectMapper = objectMapper;
+        this.progressTransaction = new TransactionTemplate(transactionManager);
+        this.progressTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.dir = Paths.get(dir).toAbsolutePath();
+        this.retentionHours = Math.max(1, retentionHours);
+        this.nodeId = nodeId == null || nodeId.isEmpty() ? defaultNodeId(serverPort) : nodeId;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(WORKER_THREADS, WORKER_THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), r -> {
+                    Thread t = new Thread(r, "export-job-" + threadIndex.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * 本节点上次运行中断的任务（进程退出时未完成）和心跳超时的任务标记为失败
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(dir);
+        LocalDateTime now = LocalDateTime.now();
+        int interrupted = exportJobMapper.failInterrupted(nodeId, now.minusSeconds(STALE_SECONDS),
+                "服务重启，任务中断", now);
+        if (interrupted > 0) {
+            logger.warn("标记中断的导出任务为失败: node={}, count={}", nodeId, interrupted);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 提交导出任务，返回任务记录
+     */
+    public ExportJob submit(ExportJobRequest request, Long adminId) {
+        String type = request.getType() == null ? null : request.getType().toUpperCase();
+        if (!TYPES.contains(type)) {
+            throw new IllegalArgumentException("不支持的导出类型: " + request.getType());
+        }
+        validateDate(request.getStartDate());
+        validateDate(request.getEndDate());
+
+        // 本机占位，防止同一类型并发提交；再检查其他节点提交的任务
+        if (activeTypes.putIfAbsent(type, 0L) != null) {
+            throw new IllegalArgumentException("已有进行中的" + type + "导出任务，请等待完成后再提交");
+        }
+        ExportJob job;
+        try {
+            if (exportJobMapper.countActive(type) > 0) {
+                throw new IllegalArgumentException("已有进行中的" + type + "导出任务，请等待完成后再提交");
+            }
+            request.setType(type);
+            job = new ExportJob();
+            job.setType(type);
+            job.setParams(toJson(request));
+            job.setStatus(STATUS_PENDING);
+            job.setOwnerNode(nodeId);
+            job.setHeartbeatAt(LocalDateTime.now());
+            job.setRowsProcessed(0L);
+            job.setCreatedBy(adminId);
+            exportJobMapper.insert(job);
+            activeTypes.put(type, job.getId());
+        } catch (RuntimeException e) {
+            activeTypes.remove(type);
+            throw e;
+        }
+
+        ExportJob submitted = job;
+        try {
+            executor.execute(() -> run(submitted, request));
+        } catch (RejectedExecutionException e) {
+            finish(job.getId(), STATUS_FAILED, null, null, "导出队列已满");
+            activeTypes.remove(type);
+            throw new ServiceBusyException("导出任务过多，请稍后再试");
+        }
+        return job;
+    }
+
+    public ExportJob getJob(Long id) {
+        ExportJob job = exportJobMapper.selectById(id);
+        if (job == null) {
+            throw new IllegalArgumentException("导出任务不存在");
+        }
+        return job;
+    }
+
+    public Page<ExportJob> listJobs(int page, int size, String type, String status) {
+        LambdaQueryWrapper<ExportJob> wrapper = new LambdaQueryWrapper<>();
+        if (type != null && !type.isEmpty()) {
+            wrapper.eq(ExportJob::getType, type.toUpperCase());
+        }
+        if (status != null && !status.isEmpty()) {
+            wrapper.eq(ExportJob::getStatus, status.toUpperCase());
+        }
+        wrapper.orderByDesc(ExportJob::getId);
+        return exportJobMapper.selectPage(new Page<>(page, size), wrapper);
+    }
+
+    /**
+     * 已完成任务的导出文件
+     */
+    public File getArtifact(Long id) {
+        ExportJob job = getJob(id);
+        if (STATUS_EXPIRED.equals(job.getStatus())) {
+            throw new IllegalArgumentException("导出文件已过期，请重新导出");
+        }
+        if (!STATUS_DONE.equals(job.getStatus()) || job.getFilePath() == null) {
+            throw new IllegalArgumentException("导出任务尚未完成");
+        }
+        File file = new File(job.getFilePath());
+        if (!file.isFile()) {
+            throw new IllegalArgumentException("导出文件不存在，可能由其他节点生成或已被清理");
+        }
+        return file;
+    }
+
+    /**
+     * 删除过期的导出文件，任务标记为 EXPIRED
+     * 删除失败的文件保留原状态，下一轮再试
+     *
+     * @return 本次标记过期的任务数
+     */
+    public int expireArtifacts() {
+        int total = 0;
+        while (true) {
+            List<ExportJob> jobs = exportJobMapper.findExpired(LocalDateTime.now(), EXPIRE_BATCH_SIZE);
+            int expired = 0;
+            for (ExportJob job : jobs) {
+                if (job.getFilePath() != null) {
+                    try {
+                        Files.deleteIfExists(Paths.get(job.getFilePath()));
+                    } catch (IOException e) {
+                        logger.warn("删除过期导出文件失败: jobId={}, error={}", job.getId(), e.getMessage());
+                        continue;
+                    }
+                }
+                ExportJob update = new ExportJob();
+                update.setId(job.getId());
+                update.setStatus(STATUS_EXPIRED);
+                exportJobMapper.updateById(update);
+                expired++;
+            }
+            total += expired;
+            expiredTotal.addAndGet(expired);
+            if (jobs.size() < EXPIRE_BATCH_SIZE || expired == 0) {
+                return total;
+            }
+        }
+    }
+
+    /**
+     * 为本节点排队中和导出中的任务续期心跳
+     *
+     * @return 续期的任务数
+     */
+    public int heartbeat() {
+        List<Long> ids = new ArrayList<>();
+        for (Long id : activeTypes.values()) {
+            // 0 为提交过程中的占位
+            if (id != 0L) {
+                ids.add(id);
+            }
+        }
+        return ids.isEmpty() ? 0 : exportJobMapper.heartbeat(nodeId, ids, LocalDateTime.now());
+    }
+
+    /**
+     * 执行节点已失联（心跳超时）的任务标记为失败，释放该类型供重新提交
+     *
+     * @return 本次标记的任务数
+     */
+    public int failStaleJobs() {
+        LocalDateTime now = LocalDateTime.now();
+        int stale = exportJobMapper.failStale(now.minusSeconds(STALE_SECONDS), "执行节点失联，任务中断", now);
+        staleTotal.addAndGet(stale);
+        return stale;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("nodeId", nodeId);
+        stats.put("activeTypes", activeTypes.keySet());
+        stats.put("activeWorkers", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("completedTotal", completedTotal.get());
+        stats.put("failedTotal", failedTotal.get());
+        stats.put("expiredTotal", expiredTotal.get());
+        stats.put("staleTotal", staleTotal.get());
+        return stats;
+    }
+
+    /**
+     * 后台线程执行导出：先写入临时文件，完成后重命名，避免下载到不完整的文件
+     */
+    private void run(ExportJob job, ExportJobRequest request) {
+        Long id = job.getId();
+        Path target = dir.resolve(id + "-" + job.getType().toLowerCase() + ".csv.gz");
+        Path partial = dir.resolve(target.getFileName() + ".part");
+        try {
+            ExportJob running = new ExportJob();
+            running.setId(id);
+            running.setStatus(STATUS_RUNNING);
+            running.setStartedAt(LocalDateTime.now());
+            exportJobMapper.updateById(running);
+
+            ProgressReporter progress = new ProgressReporter(id);
+            long rows;
+            try (OutputStream out = Files.newOutputStream(partial)) {
+                switch (job.getType()) {
+                    case TYPE_ORDERS:
+                        rows = dataExportService.exportOrders(request.getStatus(), request.getStartDate(),
+                                request.getEndDate(), out, true, progress::report);
+                        break;
+                    case TYPE_USERS:
+                        rows = dataExportService.exportUsers(request.getRole(), request.getEnabled(),
+                                out, true, progress::report);
+                        break;
+                    default:
+                        rows = dataExportService.exportProducts(request.getStatus(), request.getAuditStatus(),
+                                out, true, progress::report);
+                        break;
+                }
+            }
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            ExportJob done = new ExportJob();
+            done.setId(id);
+            done.setStatus(STATUS_DONE);
+            done.setRowsProcessed(rows);
+            done.setFilePath(target.toString());
+            done.setFileSize(Files.size(target));
+            done.setFinishedAt(LocalDateTime.now());
+            done.setExpiresAt(done.getFinishedAt().plusHours(retentionHours));
+            exportJobMapper.updateById(done);
+            completedTotal.incrementAndGet();
+            logger.info("导出任务完成: jobId={}, type={}, rows={}", id, job.getType(), rows);
+        } catch (Exception e) {
+            logger.error("导出任务失败: jobId={}, type={}, error={}", id, job.getType(), e.getMessage());
+            try {
+                Files.deleteIfExists(partial);
+            } catch (IOException ignored) {
+                // 临时文件残留不影响结果
+            }
+            finish(id, STATUS_FAILED, null, null, e.getMessage());
+            failedTotal.incrementAndGet();
+        } finally {
+            activeTypes.remove(job.getType(), id);
+        }
+    }
+
+    private void finish(Long id, String status, String filePath, Long fileSize, String error) {
+        ExportJob update = new ExportJob();
+        update.setId(id);
+        update.setStatus(status);
+        update.setFilePath(filePath);
+        update.setFileSize(fileSize);
+        if (error != null && error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+        update.setError(error);
+        update.setFinishedAt(LocalDateTime.now());
+        exportJobMapper.updateById(update);
+    }
+
+    /**
+     * 未配置节点ID时取主机名加端口，重启后保持不变，以便认出自己上次运行留下的任务
+     */
+    private static String defaultNodeId(int serverPort) {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "localhost";
+        }
+        return host + ":" + serverPort;
+    }
+
+    private void validateDate(String date) {
+        if (date != null && !date.isEmpty() && !date.matches("\\d{4}-\\d{2}-\\d{2}")) {
+            throw new IllegalArgumentException("日期格式应为 yyyy-MM-dd: " + date);
+        }
+    }
+
+    private String toJson(ExportJobRequest request) {
+        try {
+            return objectMapper.writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("导出参数序列化失败", e);
+        }
+    }
+
+    /**
+     * 按时间间隔节流写入已导出行数
+     */
+    private class ProgressReporter {
+
+        private final Long jobId;
+        private long lastUpdateAt;
+
+        ProgressReporter(Long jobId) {
+            this.jobId = jobId;
+        }
+
+        void report(long rows) {
+            long now = System.currentTimeMillis();
+            if (now - lastUpdateAt < PROGRESS_UPDATE_INTERVAL_MS) {
+                return;
+            }
+            lastUpdateAt = now;
+            ExportJob update = new ExportJob();
+            update.setId(jobId);
+            update.setRowsProcessed(rows);
+            progressTransaction.executeWithoutResult(status -> exportJobMapper.updateById(update));
+        }
+    }
+}
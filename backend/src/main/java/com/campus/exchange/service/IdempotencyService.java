@@ -0,0 +1,311 @@
+package com.campus.exchange.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.campus.exchange.mapper.IdempotencyKeyMapper;
+import com.campus.exchange.model.IdempotencyKey;
+import com.campus.exchange.util.ConflictException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 请求幂等服务
+ * 客户端通过 Idempotency-Key 请求头标识一次操作，重试时直接返回首次响应。
+ * 本机使用分段（striped）的有界内存表，同一个键的并发请求等待正在执行的结果；
+ * 跨实例通过 idempotency_key 表的唯一索引保证只执行一次。
+ * 操作与完成标记在同一事务中提交：业务写入成功则响应一定已保存，失败则一起回滚并释放键。
+ * PROCESSING 记录带处理租约，持有节点崩溃后租约到期即可被重试请求接管，不会阻塞到记录过期。
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private static final int STRIPE_COUNT = 16;
+    private static final int MAX_ENTRIES_PER_STRIPE = 512;
+    private static final long TTL_HOURS = 24;
+    private static final long WAIT_TIMEOUT_MS = 10_000;
+    /** 处理租约，须大于单个操作的最长执行时间 */
+    private static final long LEASE_SECONDS = 30;
+    private static final long DB_POLL_INTERVAL_MS = 100;
+    private static final int MAX_KEY_LENGTH = 64;
+    private static final int PURGE_BATCH_SIZE = 1000;
+
+    private static final String STATUS_PROCESSING = "PROCESSING";
+    private static final String STATUS_COMPLETED = "COMPLETED";
+
+    private final IdempotencyKeyMapper idempotencyKeyMapper;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Stripe[] stripes = new Stripe[STRIPE_COUNT];
+
+    public IdempotencyService(IdempotencyKeyMapper idempotencyKeyMapper, ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager) {
+        this.idempotencyKeyMapper = idempotencyKeyMapper;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * 以幂等方式执行操作
+     * 未携带幂等键时直接执行；同一用户同一个键只会执行一次，之后返回首次的响应
+     *
+     * @param userId 当前用户
+     * @param scope  请求范围，同一个键不能用于不同请求
+     * @param key    客户端提供的幂等键，可为空
+     * @param type   响应类型，用于从存储中反序列化
+     * @param action 实际操作，在与完成标记相同的事务中执行
+     * @throws ConflictException 同一个键的请求正在处理中
+     */
+    public <T> T execute(Long userId, String scope, String key, Class<T> type, Supplier<T> action) {
+        if (key == null || key.trim().isEmpty()) {
+            return action.get();
+        }
+        String idemKey = key.trim();
+        if (idemKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key 长度不能超过" + MAX_KEY_LENGTH);
+        }
+
+        String cacheKey = userId + ":" + idemKey;
+        Stripe stripe = stripeFor(cacheKey);
+        long now = System.currentTimeMillis();
+
+        Slot slot;
+        boolean owner = false;
+        synchronized (stripe) {
+            slot = stripe.entries.get(cacheKey);
+            if (slot != null && slot.expireAt < now) {
+                stripe.entries.remove(cacheKey);
+                slot = null;
+            }
+            if (slot == null) {
+                slot = new Slot(scope, now + TimeUnit.HOURS.toMillis(TTL_HOURS));
+                stripe.entries.put(cacheKey, slot);
+                owner = true;
+            }
+        }
+
+        if (!slot.scope.equals(scope)) {
+            throw new IllegalArgumentException("Idempotency-Key 已被其他请求使用");
+        }
+        if (!owner) {
+            // 本机已有相同请求在执行或已完成，等待其结果
+            return deserialize(await(slot.future), type);
+        }
+
+        String token = UUID.randomUUID().toString();
+        boolean claimed = false;
+        try {
+            String stored = claimOrLoad(userId, idemKey, scope, token);
+            if (stored != null) {
+                slot.future.complete(stored);
+                return deserialize(stored, type);
+            }
+            claimed = true;
+
+            String[] body = new String[1];
+            T result = transactionTemplate.execute(status -> {
+                T value = action.get();
+                body[0] = serialize(value);
+                if (idempotencyKeyMapper.markCompleted(userId, idemKey, token, body[0]) == 0) {
+                    // 租约已被其他请求接管，回滚本次操作
+                    throw new ConflictException("请求正在处理中，请稍后重试");
+                }
+                return value;
+            });
+            slot.future.complete(body[0]);
+            return result;
+        } catch (RuntimeException e) {
+            // 执行失败时业务写入已随事务回滚，不缓存，允许客户端用同一个键重试
+            release(userId, idemKey, token, stripe, cacheKey, slot, claimed);
+            slot.future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 清理过期的幂等记录
+     */
+    public int purgeExpired() {
+        long now = System.currentTimeMillis();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                Iterator<Slot> it = stripe.entries.values().iterator();
+                while (it.hasNext()) {
+                    if (it.next().expireAt < now) {
+                        it.remove();
+                    }
+                }
+            }
+        }
+
+        int total = 0;
+        int deleted;
+        do {
+            deleted = idempotencyKeyMapper.deleteExpired(LocalDateTime.now(), PURGE_BATCH_SIZE);
+            total += deleted;
+        } while (deleted == PURGE_BATCH_SIZE);
+        return total;
+    }
+
+    /**
+     * 在数据库中占用幂等键；若其他实例已处理完成则返回存储的响应
+     */
+    private String claimOrLoad(Long userId, String idemKey, String scope, String token) {
+        IdempotencyKey record = new IdempotencyKey();
+        record.setUserId(userId);
+        record.setIdemKey(idemKey);
+        record.setScope(scope);
+        record.setStatus(STATUS_PROCESSING);
+        record.setOwnerToken(token);
+        record.setLeaseUntil(LocalDateTime.now().plusSeconds(LEASE_SECONDS));
+        record.setExpireAt(LocalDateTime.now().plusHours(TTL_HOURS));
+        try {
+            idempotencyKeyMapper.insert(record);
+            return null;
+        } catch (DuplicateKeyException e) {
+            // 已存在：可能是其他实例正在处理，或记录已完成
+        }
+
+        long deadline = System.currentTimeMillis() + WAIT_TIMEOUT_MS;
+        while (true) {
+            IdempotencyKey existing = findRecord(userId, idemKey);
+            if (existing == null || existing.getExpireAt().isBefore(LocalDateTime.now())) {
+                // 原记录已失败释放或过期，重新占用
+                if (existing != null) {
+                    idempotencyKeyMapper.deleteById(existing.getId());
+                }
+                return claimOrLoad(userId, idemKey, scope, token);
+            }
+            if (!scope.equals(existing.getScope())) {
+                throw new IllegalArgumentException("Idempotency-Key 已被其他请求使用");
+            }
+            if (STATUS_COMPLETED.equals(existing.getStatus())) {
+                return existing.getResponseBody();
+            }
+            LocalDateTime now = LocalDateTime.now();
+            if (existing.getLeaseUntil() == null || existing.getLeaseUntil().isBefore(now)) {
+                // 持有者未在租约内完成（如节点崩溃），接管后重新执行；其事务若仍在进行，完成标记会因持有者不符而回滚
+                if (idempotencyKeyMapper.takeOver(existing.getId(), existing.getOwnerToken(), token,
+                        now.plusSeconds(LEASE_SECONDS), now) == 1) {
+                    logger.warn("接管租约过期的幂等键: userId={}, key={}", userId, idemKey);
+                    return null;
+                }
+                continue;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new ConflictException("请求正在处理中，请稍后重试");
+            }
+            try {
+                Thread.sleep(DB_POLL_INTERVAL_MS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new ConflictException("请求正在处理中，请稍后重试");
+            }
+        }
+    }
+
+    private void release(Long userId, String idemKey, String token, Stripe stripe, String cacheKey, Slot slot,
+                         boolean claimed) {
+        synchronized (stripe) {
+            if (stripe.entries.get(cacheKey) == slot) {
+                stripe.entries.remove(cacheKey);
+            }
+        }
+        if (!claimed) {
+            // 数据库记录属于其他实例，不能删除
+            return;
+        }
+        try {
+            idempotencyKeyMapper.release(userId, idemKey, token);
+        } catch (Exception e) {
+            logger.warn("释放幂等键失败: userId={}, key={}, error={}", userId, idemKey, e.getMessage());
+        }
+    }
+
+    private IdempotencyKey findRecord(Long userId, String idemKey) {
+        return idempotencyKeyMapper.selectOne(new LambdaQueryWrapper<IdempotencyKey>()
+                .eq(IdempotencyKey::getUserId, userId)
+                .eq(IdempotencyKey::getIdemKey, idemKey));
+    }
+
+    private String await(CompletableFuture<String> future) {
+        try {
+            return future.get(WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new ConflictException("请求正在处理中，请稍后重试");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConflictException("请求正在处理中，请稍后重试");
+        }
+    }
+
+    private String serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("响应序列化失败", e);
+        }
+    }
+
+    private <T> T deserialize(String body, Class<T> type) {
+        try {
+            return objectMapper.readValue(body, type);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("响应反序列化失败", e);
+        }
+    }
+
+    private Stripe stripeFor(String cacheKey) {
+        int h = cacheKey.hashCode();
+        h ^= (h >>> 16);
+        return stripes[h & (STRIPE_COUNT - 1)];
+    }
+
+    /**
+     * 一个分段：按插入顺序淘汰的有界表
+     */
+    private static class Stripe {
+        final Map<String, Slot> entries = new LinkedHashMap<String, Slot>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Slot> eldest) {
+                return size() > MAX_ENTRIES_PER_STRIPE;
+            }
+        };
+    }
+
+    private static class Slot {
+        final String scope;
+        final long expireAt;
+        final CompletableFuture<String> future = new CompletableFuture<>();
+
+        Slot(String scope, long expireAt) {
+            this.scope = scope;
+            this.expireAt = expireAt;
+        }
+    }
+}
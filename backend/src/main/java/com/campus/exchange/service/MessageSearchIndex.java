@@ -0,0 +1,1152 @@
+package com.campus.exchange.service;
+
+import com.campus.exchange.config.PushRouter;
+import com.campus.exchange.model.Message;
+import com.campus.exchange.util.CjkBigramTokenizer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 私信全文索引
+ * 每个用户一份倒排索引（发送方和接收方各记一份），词项为 CjkBigramTokenizer 切分的二元词，
+ * 倒排项为 (消息ID, 对方用户ID)，按消息ID倒序。
+ * 新消息先进入内存表，达到阈值或定时刷写为本地磁盘上的只读段文件，查询时通过内存映射读取。
+ * 每个节点各自维护一份索引：本节点写入的消息和清除操作经 PushRouter 广播，其他节点收到后写入各自的索引。
+ *
+ * 合并按大小分层：同一层（大小相差不到 MERGE_FACTOR 倍）的段凑满 MERGE_FACTOR 个时合并为一个，
+ * 合并结果不超过段大小上限；超过上限一半的段不再参与分层合并，只在已清除的倒排项比例过高时单独重写。
+ *
+ * 清除：段内词典按 (ownerId, termHash) 排序，一个用户的词典项连续，清除时在每个段中把该用户匹配的倒排项
+ * 记入段的删除位图，查询时按位跳过，合并和重写时不再写出。清除记录追加到日志，删除位图定期写入段旁的 .del 文件；
+ * 所有段都已持久化某条清除记录、且该记录不高于已刷写水位（补建索引不会再写回）后，从日志中删除。
+ *
+ * 段文件格式：
+ * [magic int][version int][词典条数 int][词典起始 long][倒排区起始 long][已应用的清除序号 long]
+ * 倒排区：[messageId long][partnerId long] * n
+ * 词典：按 (ownerId, termHash) 升序的定长记录 [ownerId long][termHash long][倒排偏移 long][倒排条数 int]
+ * 版本号不是 VERSION 的段文件拒绝加载。
+ * 段文件按块映射，文件内偏移均为 long，不受单个映射 2GB 的限制。
+ *
+ * 索引只返回候选消息ID，调用方需按原文校验（二元词全部命中不代表连续出现，词项哈希也可能冲突）。
+ */
+@Component
+public class MessageSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageSearchIndex.class);
+
+    /** 节点间事件主题，载荷为 INDEX（新消息）或 PURGE（清除）事件 JSON */
+    static final String TOPIC = "message-index";
+    private static final String EVENT_INDEX = "INDEX";
+    private static final String EVENT_PURGE = "PURGE";
+
+    private static final int MAGIC = 0x4D534958;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 8 + 8 + 8;
+    private static final int DICT_ENTRY_BYTES = 8 + 8 + 8 + 4;
+    private static final int POSTING_BYTES = 8 + 8;
+    private static final int DELETES_MAGIC = 0x4D534944;
+    private static final int DELETES_HEADER_BYTES = 4 + 8;
+
+    private static final int MEMTABLE_FLUSH_POSTINGS = 50_000;
+    /** 同一层凑满该数量的段时合并，相邻两层的段大小相差该倍数 */
+    private static final int MERGE_FACTOR = 4;
+    /** 小于该大小的段都算作最低一层，避免刷写出的小段各自成层 */
+    private static final long FLOOR_SEGMENT_BYTES = 2L << 20;
+    /** 已清除的倒排项超过该比例时单独重写段 */
+    private static final double EXPUNGE_DELETED_RATIO = 0.2;
+    private static final int MAP_CHUNK_BYTES = 1 << 30;
+    /** 相邻映射块的重叠字节数，大于单次读取的长度，跨块边界的读取总能落在前一块内 */
+    private static final int MAP_CHUNK_OVERLAP = 32;
+
+    private static final String SEGMENT_PREFIX = "seg-";
+    private static final String SEGMENT_SUFFIX = ".idx";
+    private static final String DELETES_SUFFIX = ".del";
+    private static final String TOMBSTONE_FILE = "tombstones.txt";
+    private static final String WATERMARK_FILE = "watermark.txt";
+
+    private final PushRouter pushRouter;
+    private final ObjectMapper objectMapper;
+    private final Path indexDir;
+    private final long maxSegmentBytes;
+    private final int mapChunkBytes;
+
+    /** 内存表：(ownerId, termHash) -> 倒排项，按写入顺序（消息ID大致递增） */
+    private Map<Key, List<Posting>> memtable = new HashMap<>();
+    private int memPostings;
+    private final Object memLock = new Object();
+
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final ReentrantLock maintenanceLock = new ReentrantLock();
+
+    /** 清除日志中尚未删除的记录，按序号递增；写入和段列表的替换都在 purgeLock 下进行 */
+    private final List<Tombstone> tombstones = new CopyOnWriteArrayList<>();
+    private final Object purgeLock = new Object();
+    private long tombstoneSeq;
+    /** 日志中清除记录的最大 upToMessageId，补建索引的消息不超过它时才需要检查清除记录 */
+    private volatile long maxPurgedUpTo;
+
+    /** 已刷写到段文件的最大消息ID，启动时从该位置补建索引 */
+    private final AtomicLong flushedWatermark = new AtomicLong();
+    /** 已进入索引（含内存表）的最大消息ID */
+    private final AtomicLong indexedMaxId = new AtomicLong();
+    private long nextGeneration = 1;
+
+    private final AtomicLong mergedTotal = new AtomicLong();
+    private final AtomicLong expungedTotal = new AtomicLong();
+    private final AtomicLong remoteIndexed = new AtomicLong();
+
+    @Autowired
+    public MessageSearchIndex(PushRouter pushRouter, ObjectMapper objectMapper,
+                              @Value("${message-search.index-dir:./data/message-index}") String indexDir,
+                              @Value("${message-search.max-segment-mb:1024}") long maxSegmentMb) {
+        this(pushRouter, objectMapper, indexDir, maxSegmentMb << 20, MAP_CHUNK_BYTES);
+    }
+
+    /**
+     * 测试用：可缩小段大小上限和映射块大小
+     */
+    MessageSearchIndex(PushRouter pushRouter, ObjectMapper objectMapper, String indexDir,
+                       long maxSegmentBytes, int mapChunkBytes) {
+        this.pushRouter = pushRouter;
+        this.objectMapper = objectMapper;
+        this.indexDir = Paths.get(indexDir);
+        this.maxSegmentBytes = Math.max(HEADER_BYTES, maxSegmentBytes);
+        this.mapChunkBytes = Math.max(HEADER_BYTES, mapChunkBytes);
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(indexDir);
+
+        // 先读清除日志，打开段时重放段尚未持久化的清除记录
+        Path tombstoneFile = indexDir.resolve(TOMBSTONE_FILE);
+        if (Files.exists(tombstoneFile)) {
+            for (String line : Files.readAllLines(tombstoneFile, StandardCharsets.UTF_8)) {
+                String[] parts = line.trim().split(",");
+                if (parts.length != 4) {
+                    continue;
+                }
+                Tombstone tombstone = new Tombstone(Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+                        Long.parseLong(parts[2]), Long.parseLong(parts[3]));
+                tombstones.add(tombstone);
+                tombstoneSeq = Math.max(tombstoneSeq, tombstone.seq);
+                maxPurgedUpTo = Math.max(maxPurgedUpTo, tombstone.upToMessageId);
+            }
+        }
+
+        File[] files = indexDir.toFile().listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (files != null) {
+            Arrays.sort(files, (a, b) -> Long.compare(generationOf(a.getName()), generationOf(b.getName())));
+            for (File file : files) {
+                try {
+                    Segment segment = Segment.open(file.toPath(), mapChunkBytes);
+                    for (Tombstone tombstone : tombstones) {
+                        if (tombstone.seq > segment.getAppliedSeq()) {
+                            segment.apply(tombstone);
+                        }
+                    }
+                    segments.add(segment);
+                    nextGeneration = Math.max(nextGeneration, generationOf(file.getName()) + 1);
+                } catch (IOException e) {
+                    logger.error("索引段文件损坏，已跳过: {}", file.getName(), e);
+                }
+            }
+        }
+
+        Path watermarkFile = indexDir.resolve(WATERMARK_FILE);
+        if (Files.exists(watermarkFile)) {
+            flushedWatermark.set(Long.parseLong(new String(Files.readAllBytes(watermarkFile), StandardCharsets.UTF_8).trim()));
+        }
+        indexedMaxId.set(flushedWatermark.get());
+        pushRouter.subscribe(TOPIC, this::onRemoteEvent);
+        logger.info("私信索引已加载: segments={}, tombstones={}, watermark={}",
+                segments.size(), tombstones.size(), flushedWatermark.get());
+    }
+
+    @PreDestroy
+    public void close() {
+        try {
+            flush();
+            persistDeletes();
+        } catch (Exception e) {
+            logger.error("关闭时刷写私信索引失败", e);
+        }
+    }
+
+    /**
+     * 索引一条消息（只索引文本消息）并广播给其他节点，在事务中调用时提交后才加入索引
+     */
+    public void index(Message message) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    indexAndPublish(message);
+                }
+            });
+        } else {
+            indexAndPublish(message);
+        }
+    }
+
+    /**
+     * 补建索引：只写入本节点，不广播（每个节点各自从数据库补建）
+     */
+    public void reindex(Message message) {
+        doIndex(message);
+    }
+
+    private void indexAndPublish(Message message) {
+        if (!doIndex(message)) {
+            return;
+        }
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("op", EVENT_INDEX);
+        event.put("id", message.getId());
+        event.put("senderId", message.getSenderId());
+        event.put("receiverId", message.getReceiverId());
+        event.put("type", message.getType());
+        event.put("content", message.getContent());
+        publish(event);
+    }
+
+    private boolean doIndex(Message message) {
+        if (message.getId() == null || message.getContent() == null
+                || (message.getType() != null && !"TEXT".equals(message.getType()))) {
+            return false;
+        }
+        Set<String> tokens = CjkBigramTokenizer.tokenize(message.getContent());
+        if (tokens.isEmpty()) {
+            return false;
+        }
+        long id = message.getId();
+        // 补建或迟到的旧消息可能已被清除；新消息的ID大于所有清除记录，跳过检查
+        boolean senderPurged = id <= maxPurgedUpTo && isPurged(message.getSenderId(), id, message.getReceiverId());
+        boolean receiverPurged = id <= maxPurgedUpTo && isPurged(message.getReceiverId(), id, message.getSenderId());
+        synchronized (memLock) {
+            for (String token : tokens) {
+                long hash = termHash(token);
+                if (!senderPurged) {
+                    addPosting(new Key(message.getSenderId(), hash), new Posting(id, message.getReceiverId()));
+                }
+                if (!receiverPurged) {
+                    addPosting(new Key(message.getReceiverId(), hash), new Posting(id, message.getSenderId()));
+                }
+            }
+        }
+        indexedMaxId.accumulateAndGet(id, Math::max);
+        return true;
+    }
+
+    /**
+     * 清除用户索引中的倒排项，并广播给其他节点
+     *
+     * @param ownerId   索引所属用户
+     * @param partnerId 只清除与该用户的消息；为空时清除全部
+     */
+    public void purge(Long ownerId, Long partnerId) {
+        applyPurge(ownerId, partnerId != null ? partnerId : 0L);
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("op", EVENT_PURGE);
+        event.put("ownerId", ownerId);
+        event.put("partnerId", partnerId);
+        publish(event);
+    }
+
+    /**
+     * 记录清除并立即作用到内存表和各段的删除位图
+     */
+    private void applyPurge(long ownerId, long partnerId) {
+        synchronized (purgeLock) {
+            Tombstone tombstone = new Tombstone(++tombstoneSeq, ownerId, partnerId, indexedMaxId.get());
+            try {
+                Files.write(indexDir.resolve(TOMBSTONE_FILE), (tombstone.toLine() + "\n").getBytes(StandardCharsets.UTF_8),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                logger.error("写入索引清除记录失败: ownerId={}", ownerId, e);
+            }
+            tombstones.add(tombstone);
+            maxPurgedUpTo = Math.max(maxPurgedUpTo, tombstone.upToMessageId);
+            synchronized (memLock) {
+                Iterator<Map.Entry<Key, List<Posting>>> it = memtable.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<Key, List<Posting>> entry = it.next();
+                    if (entry.getKey().ownerId != ownerId) {
+                        continue;
+                    }
+                    List<Posting> postings = entry.getValue();
+                    int before = postings.size();
+                    postings.removeIf(tombstone::matches);
+                    memPostings -= before - postings.size();
+                    if (postings.isEmpty()) {
+                        it.remove();
+                    }
+                }
+            }
+            for (Segment segment : segments) {
+                segment.apply(tombstone);
+            }
+        }
+    }
+
+    /**
+     * 查询候选消息ID（倒序）
+     *
+     * @param beforeMessageId 只返回小于该ID的消息，为空表示从最新开始
+     * @param limit           最多返回条数
+     */
+    public long[] search(Long ownerId, String query, Long beforeMessageId, int limit) {
+        Set<String> tokens = CjkBigramTokenizer.tokenize(query);
+        if (tokens.isEmpty()) {
+            return new long[0];
+        }
+        long before = beforeMessageId != null ? beforeMessageId : Long.MAX_VALUE;
+
+        // 每个词项的倒排表，从最短的开始求交集
+        List<Posting[]> lists = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            Posting[] postings = collect(new Key(ownerId, termHash(token)), before);
+            if (postings.length == 0) {
+                return new long[0];
+            }
+            lists.add(postings);
+        }
+        lists.sort((a, b) -> Integer.compare(a.length, b.length));
+
+        Posting[] result = lists.get(0);
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = intersect(result, lists.get(i));
+        }
+
+        long[] ids = new long[Math.min(limit, result.length)];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = result[i].messageId;
+        }
+        return ids;
+    }
+
+    /**
+     * 内存表是否达到刷写阈值
+     */
+    public boolean shouldFlush() {
+        synchronized (memLock) {
+            return memPostings >= MEMTABLE_FLUSH_POSTINGS;
+        }
+    }
+
+    /**
+     * 把内存表刷写为新的段文件
+     */
+    public void flush() throws IOException {
+        flush(Long.MAX_VALUE);
+    }
+
+    /**
+     * 把内存表刷写为新的段文件，记录的水位不超过 watermarkCap（补建未完成时使用）
+     */
+    public void flush(long watermarkCap) throws IOException {
+        maintenanceLock.lock();
+        try {
+            Map<Key, List<Posting>> snapshot;
+            long watermark;
+            long appliedSeq;
+            synchronized (purgeLock) {
+                synchronized (memLock) {
+                    if (memtable.isEmpty()) {
+                        return;
+                    }
+                    snapshot = memtable;
+                    watermark = Math.min(indexedMaxId.get(), watermarkCap);
+                    memtable = new HashMap<>();
+                    memPostings = 0;
+                }
+                appliedSeq = tombstoneSeq;
+            }
+
+            TreeMap<Key, Posting[]> sorted = new TreeMap<>();
+            for (Map.Entry<Key, List<Posting>> entry : snapshot.entrySet()) {
+                sorted.put(entry.getKey(), sortDesc(entry.getValue().toArray(new Posting[0])));
+            }
+            try (SegmentWriter writer = new SegmentWriter()) {
+                for (Map.Entry<Key, Posting[]> entry : sorted.entrySet()) {
+                    writer.add(entry.getKey(), entry.getValue());
+                }
+                publish(writer.finish(appliedSeq), Collections.emptyList());
+            }
+            writeWatermark(watermark);
+        } finally {
+            maintenanceLock.unlock();
+        }
+    }
+
+    /**
+     * 分层合并：同一层凑满 MERGE_FACTOR 个段时合并其中最小的几个，结果不超过段大小上限；
+     * 没有可合并的层时，单独重写已清除比例最高的段。每次最多执行一次合并。
+     */
+    public void mergeIfNeeded() throws IOException {
+        maintenanceLock.lock();
+        try {
+            List<Segment> sources = selectMerge();
+            if (sources.isEmpty()) {
+                return;
+            }
+            long appliedSeq;
+            synchronized (purgeLock) {
+                appliedSeq = tombstoneSeq;
+            }
+            Segment target = null;
+            try (SegmentWriter writer = new SegmentWriter()) {
+                mergeInto(writer, sources);
+                // 全部倒排项都已清除时不产生新段
+                if (!writer.isEmpty()) {
+                    target = writer.finish(appliedSeq);
+                }
+            }
+            publish(target, sources);
+            for (Segment source : sources) {
+                source.delete();
+            }
+            (sources.size() == 1 ? expungedTotal : mergedTotal).incrementAndGet();
+            logger.info("私信索引段合并完成: {} -> {}, bytes={}", sources.size(), target != null ? 1 : 0,
+                    target != null ? target.size : 0);
+        } finally {
+            maintenanceLock.unlock();
+        }
+    }
+
+    /**
+     * 把各段有变化的删除位图写入 .del 文件，再从清除日志中删除已被所有段持久化且不会再被补建写回的记录
+     */
+    public void persistDeletes() throws IOException {
+        maintenanceLock.lock();
+        try {
+            for (Segment segment : segments) {
+                segment.persistDeletes();
+            }
+            synchronized (purgeLock) {
+                long covered = tombstoneSeq;
+                for (Segment segment : segments) {
+                    covered = Math.min(covered, segment.getPersistedSeq());
+                }
+                long watermark = flushedWatermark.get();
+                List<Tombstone> kept = new ArrayList<>(tombstones.size());
+                long maxUpTo = 0;
+                for (Tombstone tombstone : tombstones) {
+                    if (tombstone.seq > covered || tombstone.upToMessageId > watermark) {
+                        kept.add(tombstone);
+                        maxUpTo = Math.max(maxUpTo, tombstone.upToMessageId);
+                    }
+                }
+                if (kept.size() == tombstones.size()) {
+                    return;
+                }
+                StringBuilder sb = new StringBuilder();
+                for (Tombstone tombstone : kept) {
+                    sb.append(tombstone.toLine()).append('\n');
+                }
+                Path tmp = indexDir.resolve(TOMBSTONE_FILE + ".tmp");
+                Files.write(tmp, sb.toString().getBytes(StandardCharsets.UTF_8));
+                Files.move(tmp, indexDir.resolve(TOMBSTONE_FILE), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+                tombstones.retainAll(kept);
+                maxPurgedUpTo = maxUpTo;
+            }
+        } finally {
+            maintenanceLock.unlock();
+        }
+    }
+
+    public long getFlushedWatermark() {
+        return flushedWatermark.get();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (memLock) {
+            stats.put("memtablePostings", memPostings);
+        }
+        long segmentBytes = 0;
+        long deletedPostings = 0;
+        for (Segment segment : segments) {
+            segmentBytes += segment.size;
+            deletedPostings += segment.getDeletedCount();
+        }
+        stats.put("segments", segments.size());
+        stats.put("segmentBytes", segmentBytes);
+        stats.put("maxSegmentBytes", maxSegmentBytes);
+        stats.put("deletedPostings", deletedPostings);
+        stats.put("tombstones", tombstones.size());
+        stats.put("mergedTotal", mergedTotal.get());
+        stats.put("expungedTotal", expungedTotal.get());
+        stats.put("remoteIndexed", remoteIndexed.get());
+        stats.put("flushedWatermark", flushedWatermark.get());
+        stats.put("indexedMaxId", indexedMaxId.get());
+        return stats;
+    }
+
+    /**
+     * 其他节点写入的消息和清除操作，在总线接收线程上执行
+     */
+    private void onRemoteEvent(String payload) {
+        try {
+            JsonNode event = objectMapper.readTree(payload);
+            String op = event.path("op").asText();
+            if (EVENT_INDEX.equals(op)) {
+                Message message = new Message();
+                message.setId(event.path("id").asLong());
+                message.setSenderId(event.path("senderId").asLong());
+                message.setReceiverId(event.path("receiverId").asLong());
+                message.setType(event.path("type").isNull() ? null : event.path("type").asText());
+                message.setContent(event.path("content").asText(null));
+                if (doIndex(message)) {
+                    remoteIndexed.incrementAndGet();
+                }
+            } else if (EVENT_PURGE.equals(op)) {
+                applyPurge(event.path("ownerId").asLong(), event.path("partnerId").asLong(0L));
+            }
+        } catch (Exception e) {
+            logger.error("处理私信索引事件失败: {}", e.getMessage());
+        }
+    }
+
+    private void publish(Map<String, Object> event) {
+        try {
+            pushRouter.publishEvent(TOPIC, objectMapper.writeValueAsString(event));
+        } catch (Exception e) {
+            logger.error("广播私信索引事件失败: op={}, error={}", event.get("op"), e.getMessage());
+        }
+    }
+
+    /**
+     * 新段加入、被合并的段移除；补上生成新段期间发生的清除
+     */
+    private void publish(Segment target, List<Segment> replaced) {
+        synchronized (purgeLock) {
+            if (target != null) {
+                for (Tombstone tombstone : tombstones) {
+                    if (tombstone.seq > target.getAppliedSeq()) {
+                        target.apply(tombstone);
+                    }
+                }
+                segments.add(target);
+            }
+            segments.removeAll(replaced);
+        }
+    }
+
+    private List<Segment> selectMerge() {
+        List<Segment> candidates = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (segment.liveBytes() <= maxSegmentBytes / 2) {
+                candidates.add(segment);
+            }
+        }
+        candidates.sort(Comparator.comparingLong(Segment::liveBytes));
+        TreeMap<Integer, List<Segment>> tiers = new TreeMap<>();
+        for (Segment segment : candidates) {
+            tiers.computeIfAbsent(tierOf(segment.liveBytes()), k -> new ArrayList<>()).add(segment);
+        }
+        for (List<Segment> tier : tiers.values()) {
+            if (tier.size() < MERGE_FACTOR) {
+                continue;
+            }
+            List<Segment> picked = new ArrayList<>(tier.subList(0, MERGE_FACTOR));
+            long total = 0;
+            for (Segment segment : picked) {
+                total += segment.liveBytes();
+            }
+            while (total > maxSegmentBytes && picked.size() > 2) {
+                total -= picked.remove(picked.size() - 1).liveBytes();
+            }
+            if (total <= maxSegmentBytes) {
+                return picked;
+            }
+        }
+
+        Segment worst = null;
+        for (Segment segment : segments) {
+            if (segment.deletedRatio() >= EXPUNGE_DELETED_RATIO
+                    && (worst == null || segment.deletedRatio() > worst.deletedRatio())) {
+                worst = segment;
+            }
+        }
+        return worst != null ? Collections.singletonList(worst) : Collections.emptyList();
+    }
+
+    private static int tierOf(long bytes) {
+        if (bytes <= FLOOR_SEGMENT_BYTES) {
+            return 0;
+        }
+        return 1 + (int) (Math.log((double) bytes / FLOOR_SEGMENT_BYTES) / Math.log(MERGE_FACTOR));
+    }
+
+    /**
+     * 按词典顺序多路归并各段，已清除的倒排项不写出
+     */
+    private static void mergeInto(SegmentWriter writer, List<Segment> sources) throws IOException {
+        int[] cursor = new int[sources.size()];
+        Key[] heads = new Key[sources.size()];
+        for (int i = 0; i < sources.size(); i++) {
+            heads[i] = sources.get(i).dictCount > 0 ? sources.get(i).keyAt(0) : null;
+        }
+        while (true) {
+            Key min = null;
+            for (Key head : heads) {
+                if (head != null && (min == null || head.compareTo(min) < 0)) {
+                    min = head;
+                }
+            }
+            if (min == null) {
+                return;
+            }
+            Posting[] merged = new Posting[0];
+            for (int i = 0; i < sources.size(); i++) {
+                if (min.equals(heads[i])) {
+                    Segment source = sources.get(i);
+                    merged = mergeDesc(merged, source.postingsAt(cursor[i], Long.MAX_VALUE));
+                    cursor[i]++;
+                    heads[i] = cursor[i] < source.dictCount ? source.keyAt(cursor[i]) : null;
+                }
+            }
+            if (merged.length > 0) {
+                writer.add(min, merged);
+            }
+        }
+    }
+
+    private void addPosting(Key key, Posting posting) {
+        memtable.computeIfAbsent(key, k -> new ArrayList<>()).add(posting);
+        memPostings++;
+    }
+
+    /**
+     * 汇总内存表和各段中某个词项的倒排项，倒序去重
+     */
+    private Posting[] collect(Key key, long before) {
+        Posting[] result = new Posting[0];
+        synchronized (memLock) {
+            List<Posting> mem = memtable.get(key);
+            if (mem != null) {
+                List<Posting> filtered = new ArrayList<>(mem.size());
+                for (Posting posting : mem) {
+                    if (posting.messageId < before) {
+                        filtered.add(posting);
+                    }
+                }
+                result = sortDesc(filtered.toArray(new Posting[0]));
+            }
+        }
+        for (Segment segment : segments) {
+            int index = segment.find(key);
+            if (index >= 0) {
+                result = mergeDesc(result, segment.postingsAt(index, before));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 日志中的清除记录是否覆盖该倒排项，只用于补建和迟到的旧消息
+     */
+    private boolean isPurged(long ownerId, long messageId, long partnerId) {
+        for (Tombstone tombstone : tombstones) {
+            if (tombstone.ownerId == ownerId && tombstone.matches(messageId, partnerId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeWatermark(long watermark) throws IOException {
+        long value = flushedWatermark.accumulateAndGet(watermark, Math::max);
+        Path tmp = indexDir.resolve(WATERMARK_FILE + ".tmp");
+        Files.write(tmp, String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, indexDir.resolve(WATERMARK_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static Posting[] sortDesc(Posting[] postings) {
+        Arrays.sort(postings, (a, b) -> Long.compare(b.messageId, a.messageId));
+        return dedupe(postings);
+    }
+
+    private static Posting[] dedupe(Posting[] sorted) {
+        int n = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (n == 0 || sorted[n - 1].messageId != sorted[i].messageId) {
+                sorted[n++] = sorted[i];
+            }
+        }
+        return n == sorted.length ? sorted : Arrays.copyOf(sorted, n);
+    }
+
+    /**
+     * 合并两个倒序列表并去重
+     */
+    private static Posting[] mergeDesc(Posting[] a, Posting[] b) {
+        if (a.length == 0) {
+            return b;
+        }
+        if (b.length == 0) {
+            return a;
+        }
+        Posting[] out = new Posting[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            Posting next;
+            if (j >= b.length || (i < a.length && a[i].messageId >= b[j].messageId)) {
+                next = a[i++];
+            } else {
+                next = b[j++];
+            }
+            if (n == 0 || out[n - 1].messageId != next.messageId) {
+                out[n++] = next;
+            }
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    /**
+     * 两个倒序列表求交集
+     */
+    private static Posting[] intersect(Posting[] a, Posting[] b) {
+        Posting[] out = new Posting[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i].messageId == b[j].messageId) {
+                out[n++] = a[i];
+                i++;
+                j++;
+            } else if (a[i].messageId > b[j].messageId) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /**
+     * 64 位 FNV-1a 哈希
+     */
+    private static long termHash(String term) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : term.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long generationOf(String fileName) {
+        return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static final class Key implements Comparable<Key> {
+        final long ownerId;
+        final long termHash;
+
+        Key(long ownerId, long termHash) {
+            this.ownerId = ownerId;
+            this.termHash = termHash;
+        }
+
+        @Override
+        public int compareTo(Key o) {
+            int c = Long.compare(ownerId, o.ownerId);
+            return c != 0 ? c : Long.compare(termHash, o.termHash);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return ownerId == k.ownerId && termHash == k.termHash;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(ownerId) * 31 + Long.hashCode(termHash);
+        }
+    }
+
+    private static final class Posting {
+        final long messageId;
+        final long partnerId;
+
+        Posting(long messageId, long partnerId) {
+            this.messageId = messageId;
+            this.partnerId = partnerId;
+        }
+    }
+
+    private static final class Tombstone {
+        final long seq;
+        final long ownerId;
+        /** 0 表示该用户的全部消息 */
+        final long partnerId;
+        final long upToMessageId;
+
+        Tombstone(long seq, long ownerId, long partnerId, long upToMessageId) {
+            this.seq = seq;
+            this.ownerId = ownerId;
+            this.partnerId = partnerId;
+            this.upToMessageId = upToMessageId;
+        }
+
+        boolean matches(long messageId, long partner) {
+            return messageId <= upToMessageId && (partnerId == 0 || partnerId == partner);
+        }
+
+        boolean matches(Posting posting) {
+            return matches(posting.messageId, posting.partnerId);
+        }
+
+        String toLine() {
+            return seq + "," + ownerId + "," + partnerId + "," + upToMessageId;
+        }
+    }
+
+    /**
+     * 顺序写出新段：倒排区直接写入段文件，词典先写入临时文件，完成时追加到倒排区之后再补写头部，
+     * 合并时不需要把全部倒排项读入内存
+     */
+    private final class SegmentWriter implements Closeable {
+        private final Path target;
+        private final Path tmp;
+        private final Path dictTmp;
+        private final FileChannel channel;
+        private final FileChannel dictChannel;
+        private final ByteBuffer postings = ByteBuffer.allocate(64 * 1024);
+        private final ByteBuffer dict = ByteBuffer.allocate(64 * 1024);
+        private long offset;
+        private int dictCount;
+        private boolean finished;
+
+        SegmentWriter() throws IOException {
+            long generation = nextGeneration++;
+            target = indexDir.resolve(SEGMENT_PREFIX + generation + SEGMENT_SUFFIX);
+            tmp = indexDir.resolve(SEGMENT_PREFIX + generation + SEGMENT_SUFFIX + ".tmp");
+            dictTmp = indexDir.resolve(SEGMENT_PREFIX + generation + SEGMENT_SUFFIX + ".dict.tmp");
+            channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            dictChannel = FileChannel.open(dictTmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            channel.position(HEADER_BYTES);
+        }
+
+        void add(Key key, Posting[] list) throws IOException {
+            if (dict.remaining() < DICT_ENTRY_BYTES) {
+                drain(dict, dictChannel);
+            }
+            dict.putLong(key.ownerId).putLong(key.termHash).putLong(offset).putInt(list.length);
+            dictCount++;
+            for (Posting posting : list) {
+                if (postings.remaining() < POSTING_BYTES) {
+                    drain(postings, channel);
+                }
+                postings.putLong(posting.messageId).putLong(posting.partnerId);
+            }
+            offset += (long) list.length * POSTING_BYTES;
+        }
+
+        boolean isEmpty() {
+            return dictCount == 0;
+        }
+
+        Segment finish(long appliedSeq) throws IOException {
+            drain(postings, channel);
+            drain(dict, dictChannel);
+            long dictStart = HEADER_BYTES + offset;
+            long dictBytes = dictChannel.size();
+            long transferred = 0;
+            while (transferred < dictBytes) {
+                transferred += dictChannel.transferTo(transferred, dictBytes - transferred, channel);
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(dictCount).putLong(dictStart).putLong(HEADER_BYTES)
+                    .putLong(appliedSeq).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+            finished = true;
+            close();
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            return Segment.open(target, mapChunkBytes);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+            dictChannel.close();
+            Files.deleteIfExists(dictTmp);
+            if (!finished) {
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    /**
+     * 只读段文件，按块内存映射访问；删除位图按倒排项在段内的序号记录已清除的倒排项
+     */
+    private static final class Segment {
+        final Path path;
+        final long size;
+        final int dictCount;
+        final long dictStart;
+        final long postingsStart;
+        final int postingCount;
+        private final MappedByteBuffer[] chunks;
+        private final int chunkBytes;
+        private final BitSet deleted = new BitSet();
+        private int deletedCount;
+        /** 已作用到删除位图的最大清除序号 */
+        private long appliedSeq;
+        /** 已写入磁盘（段头部或 .del 文件）的清除序号，重启后重放其后的清除记录 */
+        private long persistedSeq;
+
+        private Segment(Path path, long size, MappedByteBuffer[] chunks, int chunkBytes) throws IOException {
+            this.path = path;
+            this.size = size;
+            this.chunks = chunks;
+            this.chunkBytes = chunkBytes;
+            if (getInt(0) != MAGIC) {
+                throw new IOException("索引段文件格式不正确: " + path);
+            }
+            if (getInt(4) != VERSION) {
+                throw new IOException("索引段文件版本不支持: " + path);
+            }
+            this.dictCount = getInt(8);
+            this.dictStart = getLong(12);
+            this.postingsStart = getLong(20);
+            this.postingCount = (int) ((dictStart - postingsStart) / POSTING_BYTES);
+            this.appliedSeq = getLong(28);
+            this.persistedSeq = appliedSeq;
+        }
+
+        static Segment open(Path path, int chunkBytes) throws IOException {
+            Segment segment;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size < HEADER_BYTES) {
+                    throw new IOException("索引段文件不完整: " + path);
+                }
+                MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((size + chunkBytes - 1) / chunkBytes)];
+                for (int i = 0; i < chunks.length; i++) {
+                    long start = (long) i * chunkBytes;
+                    chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                            Math.min(size - start, (long) chunkBytes + MAP_CHUNK_OVERLAP));
+                }
+                segment = new Segment(path, size, chunks, chunkBytes);
+            }
+            segment.loadDeletes();
+            return segment;
+        }
+
+        private long getLong(long pos) {
+            return chunks[(int) (pos / chunkBytes)].getLong((int) (pos % chunkBytes));
+        }
+
+        private int getInt(long pos) {
+            return chunks[(int) (pos / chunkBytes)].getInt((int) (pos % chunkBytes));
+        }
+
+        private long dictPos(int index) {
+            return dictStart + (long) index * DICT_ENTRY_BYTES;
+        }
+
+        Key keyAt(int index) {
+            long pos = dictPos(index);
+            return new Key(getLong(pos), getLong(pos + 8));
+        }
+
+        /**
+         * 二分查找词典，未找到返回 -1
+         */
+        int find(Key key) {
+            int lo = 0, hi = dictCount - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = keyAt(mid).compareTo(key);
+                if (c == 0) {
+                    return mid;
+                } else if (c < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * 读取词典项对应的未清除倒排项，只取消息ID小于 before 的部分
+         */
+        synchronized Posting[] postingsAt(int index, long before) {
+            long pos = dictPos(index);
+            long offset = getLong(pos + 16);
+            int count = getInt(pos + 24);
+            long base = postingsStart + offset;
+            int ordinal = (int) (offset / POSTING_BYTES);
+
+            List<Posting> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long p = base + (long) i * POSTING_BYTES;
+                long messageId = getLong(p);
+                if (messageId < before && !deleted.get(ordinal + i)) {
+                    result.add(new Posting(messageId, getLong(p + 8)));
+                }
+            }
+            return result.toArray(new Posting[0]);
+        }
+
+        /**
+         * 把清除记录作用到删除位图：二分找到该用户的第一个词典项，逐项标记匹配的倒排项
+         */
+        synchronized void apply(Tombstone tombstone) {
+            int lo = 0, hi = dictCount;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (getLong(dictPos(mid)) < tombstone.ownerId) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            for (int i = lo; i < dictCount && getLong(dictPos(i)) == tombstone.ownerId; i++) {
+                long pos = dictPos(i);
+                long offset = getLong(pos + 16);
+                int count = getInt(pos + 24);
+                long base = postingsStart + offset;
+                int ordinal = (int) (offset / POSTING_BYTES);
+                for (int j = 0; j < count; j++) {
+                    long p = base + (long) j * POSTING_BYTES;
+                    if (tombstone.matches(getLong(p), getLong(p + 8)) && !deleted.get(ordinal + j)) {
+                        deleted.set(ordinal + j);
+                        deletedCount++;
+                    }
+                }
+            }
+            appliedSeq = Math.max(appliedSeq, tombstone.seq);
+        }
+
+        synchronized long getAppliedSeq() {
+            return appliedSeq;
+        }
+
+        synchronized long getPersistedSeq() {
+            return persistedSeq;
+        }
+
+        synchronized int getDeletedCount() {
+            return deletedCount;
+        }
+
+        double deletedRatio() {
+            return postingCount == 0 ? 0 : (double) getDeletedCount() / postingCount;
+        }
+
+        /** 扣除已清除部分后的大小估计 */
+        long liveBytes() {
+            return (long) (size * (1 - deletedRatio()));
+        }
+
+        private Path deletesPath() {
+            return path.resolveSibling(path.getFileName() + DELETES_SUFFIX);
+        }
+
+        private void loadDeletes() throws IOException {
+            Path file = deletesPath();
+            if (!Files.exists(file)) {
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buffer.remaining() < DELETES_HEADER_BYTES || buffer.getInt() != DELETES_MAGIC) {
+                throw new IOException("删除位图文件格式不正确: " + file);
+            }
+            long seq = buffer.getLong();
+            synchronized (this) {
+                deleted.or(BitSet.valueOf(buffer));
+                deletedCount = deleted.cardinality();
+                appliedSeq = Math.max(appliedSeq, seq);
+                persistedSeq = appliedSeq;
+            }
+        }
+
+        /**
+         * 删除位图有新的清除记录时写入 .del 文件
+         */
+        void persistDeletes() throws IOException {
+            long seq;
+            byte[] bits;
+            synchronized (this) {
+                if (appliedSeq == persistedSeq) {
+                    return;
+                }
+                seq = appliedSeq;
+                bits = deleted.toByteArray();
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(DELETES_HEADER_BYTES + bits.length);
+            buffer.putInt(DELETES_MAGIC).putLong(seq).put(bits);
+            Path file = deletesPath();
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(tmp, buffer.array());
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            synchronized (this) {
+                persistedSeq = Math.max(persistedSeq, seq);
+            }
+        }
+
+        void delete() throws IOException {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(deletesPath());
+        }
+    }
+}
@@ -2,22 +2,32 @@ package com.campus.exchange.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.campus.exchange.config.MessageWebSocketHandler;
+import com.campus.exchange.dto.ConversationPageResponse;
 import com.campus.exchange.dto.ConversationVO;
+import com.campus.exchange.dto.DeliveryReplay;
+import com.campus.exchange.dto.MessageHistoryResponse;
+import com.campus.exchange.dto.MessageSearchResponse;
 import com.campus.exchange.dto.MessageVO;
 import com.campus.exchange.dto.SendMessageRequest;
+import com.campus.exchange.mapper.ConversationMapper;
 import com.campus.exchange.mapper.MessageMapper;
 import com.campus.exchange.mapper.ProductMapper;
 import com.campus.exchange.mapper.UserBlockMapper;
 import com.campus.exchange.mapper.UserMapper;
+import com.campus.exchange.model.Conversation;
 import com.campus.exchange.model.Message;
 import com.campus.exchange.model.Product;
 import com.campus.exchange.model.User;
 import com.campus.exchange.model.UserBlock;
+import com.campus.exchange.util.CjkBigramTokenizer;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.util.HtmlUtils;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -31,17 +41,43 @@ public class MessageService {
     private final UserMapper userMapper;
     private final ProductMapper productMapper;
     private final UserBlockMapper userBlockMapper;
+    private final ConversationMapper conversationMapper;
+    private final UnreadCounterService unreadCounterService;
+    private final MessageSearchIndex messageSearchIndex;
+    private final BlockListCache blockListCache;
+    private final MessageWriter messageWriter;
+    private final PresenceService presenceService;
+    private final DeliveryBuffer deliveryBuffer;
+    private final SensitiveWordFilter sensitiveWordFilter;
     private static final ObjectMapper objectMapper = new ObjectMapper();
 
-    public MessageService(MessageMapper messageMapper, UserMapper userMapper, ProductMapper productMapper, UserBlockMapper userBlockMapper) {
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_CONVERSATIONS = 500;
+    private static final int MAX_REPLAY = 500;
+
+    public MessageService(MessageMapper messageMapper, UserMapper userMapper, ProductMapper productMapper,
+                          UserBlockMapper userBlockMapper, ConversationMapper conversationMapper,
+                          UnreadCounterService unreadCounterService, MessageSearchIndex messageSearchIndex,
+                          BlockListCache blockListCache, MessageWriter messageWriter,
+                          PresenceService presenceService, DeliveryBuffer deliveryBuffer,
+                          SensitiveWordFilter sensitiveWordFilter) {
         this.messageMapper = messageMapper;
         this.userMapper = userMapper;
         this.productMapper = productMapper;
         this.userBlockMapper = userBlockMapper;
+        this.conversationMapper = conversationMapper;
+        this.unreadCounterService = unreadCounterService;
+        this.messageSearchIndex = messageSearchIndex;
+        this.blockListCache = blockListCache;
+        this.messageWriter = messageWriter;
+        this.presenceService = presenceService;
+        this.deliveryBuffer = deliveryBuffer;
+        this.sensitiveWordFilter = sensitiveWordFilter;
     }
 
     /**
      * 发送私信
+     * 消息经 MessageWriter 组提交写入，返回时已落库；推送在落库之后进行
      */
     public MessageVO sendMessage(Long senderId, SendMessageRequest request) {
         if (senderId.equals(request.getReceiverId())) {
@@ -49,178 +85,391 @@ public class MessageService {
         }
 
         // 检查接收者是否存在
-        User receiver = userMapper.selectById(request.getReceiverId());
-        if (receiver == null) {
+        if (!blockListCache.userExists(request.getReceiverId())) {
             throw new RuntimeException("接收者不存在");
         }
 
         // 检查是否被对方屏蔽
-        if (isBlocked(request.getReceiverId(), senderId)) {
+        if (blockListCache.isBlocked(request.getReceiverId(), senderId)) {
             throw new RuntimeException("对方已将您屏蔽，无法发送消息");
         }
 
         Message message = new Message();
         message.setSenderId(senderId);
         message.setReceiverId(request.getReceiverId());
-        message.setContent(request.getContent());
         message.setType(request.getType() != null ? request.getType() : "TEXT");
+        // 图片等消息的内容为链接，只过滤文本消息
+        message.setContent("TEXT".equals(message.getType())
+                ? sensitiveWordFilter.check(request.getContent(), "私信").getText()
+                : request.getContent());
         message.setProductId(request.getProductId());
         message.setRead(false);
-        message.setCreatedAt(LocalDateTime.now());
+        // 与数据库 DATETIME 精度一致，保证返回的消息可直接作为游标
+        message.setCreatedAt(LocalDateTime.now().withNano(0));
 
-        messageMapper.insert(message);
+        // 同一事务中先更新会话摘要再插入消息；落库后的处理挂在写入结果上，调用方等待超时也会执行
+        return messageWriter.write(message, this::afterPersisted);
+    }
 
-        MessageVO messageVO = convertToVO(message);
+    /**
+     * 消息落库后：加入搜索索引、更新未读数，通过 WebSocket 推送给接收者并记入最近投递窗口供断线补发
+     * 在 MessageWriter 的回调线程执行，消息已提交，这里的失败只记录日志
+     */
+    private MessageVO afterPersisted(Message message) {
+        try {
+            messageSearchIndex.index(message);
+            unreadCounterService.onChatMessage(message.getReceiverId(), message.getSenderId());
+        } catch (Exception e) {
+            logger.error("私信落库后处理失败: messageId={}, error={}", message.getId(), e.getMessage());
+        }
 
-        // 通过 WebSocket 推送消息给接收者
+        MessageVO messageVO = convertToVO(message);
         try {
             String jsonMessage = objectMapper.writeValueAsString(messageVO);
-            MessageWebSocketHandler.sendMessageToUser(String.valueOf(request.getReceiverId()), jsonMessage);
+            deliveryBuffer.append(message.getReceiverId(), message.getReceiverSeq(), jsonMessage);
+            MessageWebSocketHandler.sendMessageToUser(String.valueOf(message.getReceiverId()), jsonMessage);
         } catch (Exception e) {
             logger.error("WebSocket推送失败: {}", e.getMessage());
         }
-
         return messageVO;
     }
 
     /**
-     * 获取与指定用户的聊天记录
+     * 获取与指定用户的聊天记录（按页码，正序）
      */
+    @Transactional
     public List<MessageVO> getConversation(Long userId, Long partnerId, int page, int size) {
-        // 查询两人之间的所有消息
-        LambdaQueryWrapper<Message> wrapper = new LambdaQueryWrapper<>();
-        wrapper.and(w -> w
-                .eq(Message::getSenderId, userId).eq(Message::getReceiverId, partnerId)
-                .or()
-                .eq(Message::getSenderId, partnerId).eq(Message::getReceiverId, userId)
-        ).orderByAsc(Message::getCreatedAt);
+        int pageSize = clampSize(size);
+        int offset = (Math.max(page, 1) - 1) * pageSize;
+        List<Message> messages = messageMapper.findPage(Math.min(userId, partnerId), Math.max(userId, partnerId),
+                offset, pageSize);
 
-        List<Message> messages = messageMapper.selectList(wrapper);
+        // 标记未读消息为已读
+        markAsRead(partnerId, userId);
 
-        // 分页
-        int start = (page - 1) * size;
-        int end = Math.min(start + size, messages.size());
-        if (start >= messages.size()) {
-            return new ArrayList<>();
+        return convertToVOList(messages);
+    }
+
+    /**
+     * 获取更早的聊天记录
+     * 不传游标时返回最新一页；传入 before 游标时返回该消息之前的一页
+     */
+    @Transactional
+    public MessageHistoryResponse getConversationHistory(Long userId, Long partnerId, String before, int size) {
+        int pageSize = clampSize(size);
+        Long userLow = Math.min(userId, partnerId);
+        Long userHigh = Math.max(userId, partnerId);
+
+        List<Message> messages;
+        if (before == null || before.isEmpty()) {
+            messages = messageMapper.findLatest(userLow, userHigh, pageSize + 1);
+            markAsRead(partnerId, userId);
+        } else {
+            Cursor cursor = decodeCursor(before);
+            messages = messageMapper.findBefore(userLow, userHigh, cursor.time, cursor.id, pageSize + 1);
         }
 
-        List<Message> pagedMessages = messages.subList(start, end);
+        boolean hasMore = messages.size() > pageSize;
+        if (hasMore) {
+            messages = new ArrayList<>(messages.subList(0, pageSize));
+        }
+        // 查询为倒序，返回按时间正序
+        Collections.reverse(messages);
+
+        MessageHistoryResponse response = new MessageHistoryResponse();
+        response.setMessages(convertToVOList(messages));
+        response.setBefore(messages.isEmpty() ? null : encodeCursor(messages.get(0).getCreatedAt(), messages.get(0).getId()));
+        response.setAfter(messages.isEmpty() ? null : encodeCursor(last(messages).getCreatedAt(), last(messages).getId()));
+        response.setHasMore(hasMore);
+        return response;
+    }
 
-        // 标记未读消息为已读
-        markAsRead(partnerId, userId);
+    /**
+     * 获取游标之后的新消息，供断线重连的客户端补齐
+     */
+    @Transactional
+    public MessageHistoryResponse getConversationSince(Long userId, Long partnerId, String after, int size) {
+        if (after == null || after.isEmpty()) {
+            throw new IllegalArgumentException("缺少游标参数");
+        }
+        int pageSize = clampSize(size);
+        Cursor cursor = decodeCursor(after);
+        List<Message> messages = messageMapper.findAfter(Math.min(userId, partnerId), Math.max(userId, partnerId),
+                cursor.time, cursor.id, pageSize + 1);
+
+        boolean hasMore = messages.size() > pageSize;
+        if (hasMore) {
+            messages = new ArrayList<>(messages.subList(0, pageSize));
+        }
+        if (!messages.isEmpty()) {
+            markAsRead(partnerId, userId);
+        }
 
-        return pagedMessages.stream().map(this::convertToVO).collect(Collectors.toList());
+        MessageHistoryResponse response = new MessageHistoryResponse();
+        response.setMessages(convertToVOList(messages));
+        response.setBefore(messages.isEmpty() ? null : encodeCursor(messages.get(0).getCreatedAt(), messages.get(0).getId()));
+        response.setAfter(messages.isEmpty() ? after : encodeCursor(last(messages).getCreatedAt(), last(messages).getId()));
+        response.setHasMore(hasMore);
+        return response;
     }
 
     /**
      * 获取会话列表（与当前用户有聊天记录的所有用户）
+     * 读取会话摘要表，最多返回最近的 MAX_CONVERSATIONS 个会话
      */
     public List<ConversationVO> getConversationList(Long userId) {
-        // 查询所有发送或接收的消息
-        LambdaQueryWrapper<Message> wrapper = new LambdaQueryWrapper<>();
-        wrapper.and(w -> w
-                .eq(Message::getSenderId, userId)
-                .or()
-                .eq(Message::getReceiverId, userId)
-        ).orderByDesc(Message::getCreatedAt);
-
-        List<Message> allMessages = messageMapper.selectList(wrapper);
+        List<Conversation> conversations = conversationMapper.findByUser(userId, null, null, MAX_CONVERSATIONS);
+        return convertConversations(userId, conversations);
+    }
 
-        // 按聊天对象分组，获取每个对象最新的一条消息
-        Map<Long, Message> latestMessages = new HashMap<>();
-        for (Message msg : allMessages) {
-            Long partnerId = msg.getSenderId().equals(userId) ? msg.getReceiverId() : msg.getSenderId();
-            if (!latestMessages.containsKey(partnerId)) {
-                latestMessages.put(partnerId, msg);
-            }
+    /**
+     * 获取会话列表（游标分页，按最后消息时间倒序）
+     */
+    public ConversationPageResponse getConversationPage(Long userId, String cursor, int size) {
+        int pageSize = clampSize(size);
+        Cursor after = cursor == null || cursor.isEmpty() ? null : decodeCursor(cursor);
+        List<Conversation> conversations = conversationMapper.findByUser(userId,
+                after != null ? after.time : null, after != null ? after.id : null, pageSize + 1);
+
+        boolean hasMore = conversations.size() > pageSize;
+        if (hasMore) {
+            conversations = conversations.subList(0, pageSize);
         }
 
-        // 构建会话列表
-        List<ConversationVO> conversations = new ArrayList<>();
-        for (Map.Entry<Long, Message> entry : latestMessages.entrySet()) {
-            Long partnerId = entry.getKey();
-            Message lastMsg = entry.getValue();
+        ConversationPageResponse response = new ConversationPageResponse();
+        response.setList(convertConversations(userId, conversations));
+        response.setHasMore(hasMore);
+        response.setNextCursor(hasMore
+                ? encodeCursor(last(conversations).getLastMessageAt(), last(conversations).getId()) : null);
+        return response;
+    }
+
+    private List<ConversationVO> convertConversations(Long userId, List<Conversation> conversations) {
+        if (conversations.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-            // 获取未读消息数量
-            LambdaQueryWrapper<Message> unreadWrapper = new LambdaQueryWrapper<>();
-            unreadWrapper.eq(Message::getSenderId, partnerId)
-                    .eq(Message::getReceiverId, userId)
-                    .eq(Message::getRead, false);
-            long unreadCount = messageMapper.selectCount(unreadWrapper);
+        Set<Long> partnerIds = new HashSet<>();
+        for (Conversation c : conversations) {
+            partnerIds.add(partnerOf(c, userId));
+        }
+        Map<Long, User> partners = userMapper.selectBatchIds(partnerIds).stream()
+                .collect(Collectors.toMap(User::getId, u -> u));
+        Map<Long, Boolean> presence = presenceService.getPresence(partnerIds);
 
-            // 获取对方用户信息
-            User partner = userMapper.selectById(partnerId);
+        List<ConversationVO> result = new ArrayList<>(conversations.size());
+        for (Conversation c : conversations) {
+            Long partnerId = partnerOf(c, userId);
+            User partner = partners.get(partnerId);
 
             ConversationVO conversation = new ConversationVO();
             conversation.setPartnerId(partnerId);
             conversation.setPartnerNickname(partner != null ? partner.getNickname() : "未知用户");
             conversation.setPartnerAvatar(partner != null ? partner.getAvatar() : null);
-            conversation.setLastMessage(lastMsg.getContent());
-            conversation.setLastMessageType(lastMsg.getType());
-            conversation.setLastMessageTime(lastMsg.getCreatedAt());
-            conversation.setUnreadCount((int) unreadCount);
+            conversation.setLastMessage(c.getLastMessagePreview());
+            conversation.setLastMessageType(c.getLastMessageType());
+            conversation.setLastMessageTime(c.getLastMessageAt());
+            conversation.setUnreadCount(userId.equals(c.getUserLow()) ? c.getUnreadLow() : c.getUnreadHigh());
+            conversation.setPartnerOnline(presence.get(partnerId));
+            result.add(conversation);
+        }
+        return result;
+    }
 
-            conversations.add(conversation);
+    /**
+     * 消息所在会话（含双方已读水位），只查询有未标记已读消息的会话
+     */
+    private Map<String, Conversation> readWatermarks(List<Message> messages) {
+        Map<String, Conversation> pairs = new HashMap<>();
+        for (Message message : messages) {
+            if (!Boolean.TRUE.equals(message.getRead())) {
+                String key = pairKey(message.getSenderId(), message.getReceiverId());
+                if (!pairs.containsKey(key)) {
+                    Conversation pair = new Conversation();
+                    pair.setUserLow(Math.min(message.getSenderId(), message.getReceiverId()));
+                    pair.setUserHigh(Math.max(message.getSenderId(), message.getReceiverId()));
+                    pairs.put(key, pair);
+                }
+            }
+        }
+        if (pairs.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Conversation> conversations = new HashMap<>();
+        for (Conversation c : conversationMapper.findByPairs(new ArrayList<>(pairs.values()))) {
+            conversations.put(pairKey(c.getUserLow(), c.getUserHigh()), c);
         }
+        return conversations;
+    }
 
-        // 按最后消息时间排序
-        conversations.sort((a, b) -> b.getLastMessageTime().compareTo(a.getLastMessageTime()));
+    /**
+     * 已读：旧数据的单条已读标记，或投递序号不大于接收方的会话已读水位。
+     * 水位大于 0 说明读过会话，此前没有序号的历史消息也都已读
+     */
+    private boolean isRead(Message message, Conversation conversation) {
+        if (Boolean.TRUE.equals(message.getRead())) {
+            return true;
+        }
+        if (conversation == null) {
+            return false;
+        }
+        Long watermark = message.getReceiverId().equals(conversation.getUserLow())
+                ? conversation.getReadSeqLow() : conversation.getReadSeqHigh();
+        if (watermark == null || watermark == 0) {
+            return false;
+        }
+        return message.getReceiverSeq() == null || message.getReceiverSeq() <= watermark;
+    }
 
-        return conversations;
+    private String pairKey(Long a, Long b) {
+        return Math.min(a, b) + ":" + Math.max(a, b);
+    }
+
+    private Long partnerOf(Conversation conversation, Long userId) {
+        return userId.equals(conversation.getUserLow()) ? conversation.getUserHigh() : conversation.getUserLow();
     }
 
     /**
-     * 标记消息为已读
+     * 标记会话为已读：没有未读时不写库；否则清零未读数并推进已读水位，不逐条更新消息
      */
+    @Transactional
     public void markAsRead(Long senderId, Long receiverId) {
-        LambdaQueryWrapper<Message> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(Message::getSenderId, senderId)
-                .eq(Message::getReceiverId, receiverId)
-                .eq(Message::getRead, false);
+        Long userLow = Math.min(senderId, receiverId);
+        Long userHigh = Math.max(senderId, receiverId);
+        Conversation conversation = conversationMapper.findByPair(userLow, userHigh);
+        if (conversation == null) {
+            return;
+        }
+        Integer unread = receiverId.equals(userLow) ? conversation.getUnreadLow() : conversation.getUnreadHigh();
+        if (unread == null || unread == 0) {
+            return;
+        }
+        if (receiverId.equals(userLow)) {
+            conversationMapper.markReadLow(userLow, userHigh);
+        } else {
+            conversationMapper.markReadHigh(userLow, userHigh);
+        }
+        unreadCounterService.onConversationRead(receiverId, senderId);
+    }
 
-        Message update = new Message();
-        update.setRead(true);
-        messageMapper.update(update, wrapper);
+    /**
+     * 批量查询用户在线状态
+     */
+    public Map<Long, Boolean> getPresence(List<Long> userIds) {
+        if (userIds.size() > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("一次最多查询" + MAX_PAGE_SIZE + "个用户");
+        }
+        return presenceService.getPresence(userIds);
+    }
+
+    /**
+     * 断线补发：返回 afterSeq 之后发给该用户的私信帧，优先取最近投递窗口，不完整时查数据库
+     */
+    public DeliveryReplay getMissedMessages(Long userId, long afterSeq) {
+        SortedMap<Long, String> buffered = deliveryBuffer.replay(userId, afterSeq);
+        List<String> frames;
+        boolean truncated = false;
+        if (buffered == null) {
+            List<Message> messages = messageMapper.findAfterSeq(userId, afterSeq, MAX_REPLAY + 1);
+            truncated = messages.size() > MAX_REPLAY;
+            if (truncated) {
+                messages = messages.subList(0, MAX_REPLAY);
+            }
+            frames = new ArrayList<>(messages.size());
+            for (MessageVO vo : convertToVOList(messages)) {
+                try {
+                    frames.add(objectMapper.writeValueAsString(vo));
+                } catch (Exception e) {
+                    logger.error("序列化补发消息失败: messageId={}", vo.getId());
+                }
+            }
+            afterSeq = messages.isEmpty() ? afterSeq : last(messages).getReceiverSeq();
+        } else {
+            frames = new ArrayList<>(buffered.values());
+            afterSeq = buffered.isEmpty() ? afterSeq : buffered.lastKey();
+        }
+
+        DeliveryReplay replay = new DeliveryReplay();
+        replay.setFrames(frames);
+        replay.setLastSeq(afterSeq);
+        replay.setTruncated(truncated);
+        return replay;
+    }
+
+    /**
+     * 客户端确认已收到的投递序号，裁剪最近投递窗口
+     */
+    public void ackDelivery(Long userId, long seq) {
+        deliveryBuffer.ack(userId, seq);
     }
 
     /**
      * 获取未读消息总数
      */
     public int getUnreadCount(Long userId) {
-        LambdaQueryWrapper<Message> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(Message::getReceiverId, userId)
-                .eq(Message::getRead, false);
-        return messageMapper.selectCount(wrapper).intValue();
+        return unreadCounterService.getChatUnread(userId);
     }
 
     private MessageVO convertToVO(Message message) {
-        MessageVO vo = new MessageVO();
-        vo.setId(message.getId());
-        vo.setSenderId(message.getSenderId());
-        vo.setReceiverId(message.getReceiverId());
-        vo.setContent(message.getContent());
-        vo.setType(message.getType());
-        vo.setRead(message.getRead());
-        vo.setCreatedAt(message.getCreatedAt());
-        vo.setProductId(message.getProductId());
-
-        // 获取发送者信息
-        User sender = userMapper.selectById(message.getSenderId());
-        if (sender != null) {
-            vo.setSenderNickname(sender.getNickname());
-            vo.setSenderAvatar(sender.getAvatar());
-        }
-
-        // 获取接收者信息
-        User receiver = userMapper.selectById(message.getReceiverId());
-        if (receiver != null) {
-            vo.setReceiverNickname(receiver.getNickname());
-            vo.setReceiverAvatar(receiver.getAvatar());
-        }
-
-        // 获取商品信息（商品卡片消息时）
-        if (message.getProductId() != null) {
-            Product product = productMapper.selectById(message.getProductId());
+        // 刚发送的消息一定未读，不需要查询已读水位
+        return convertToVOList(Collections.singletonList(message), Collections.emptyMap()).get(0);
+    }
+
+    /**
+     * 批量转换消息，用户和商品各查询一次
+     */
+    private List<MessageVO> convertToVOList(List<Message> messages) {
+        return convertToVOList(messages, readWatermarks(messages));
+    }
+
+    private List<MessageVO> convertToVOList(List<Message> messages, Map<String, Conversation> conversations) {
+        if (messages.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> productIds = new HashSet<>();
+        for (Message message : messages) {
+            userIds.add(message.getSenderId());
+            userIds.add(message.getReceiverId());
+            if (message.getProductId() != null) {
+                productIds.add(message.getProductId());
+            }
+        }
+        Map<Long, User> users = userMapper.selectBatchIds(userIds).stream()
+                .collect(Collectors.toMap(User::getId, u -> u));
+        Map<Long, Product> products = productIds.isEmpty() ? Collections.emptyMap()
+                : productMapper.selectBatchIds(productIds).stream().collect(Collectors.toMap(Product::getId, p -> p));
+
+        List<MessageVO> result = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            MessageVO vo = new MessageVO();
+            vo.setId(message.getId());
+            vo.setSenderId(message.getSenderId());
+            vo.setReceiverId(message.getReceiverId());
+            vo.setContent(message.getContent());
+            vo.setType(message.getType());
+            vo.setRead(isRead(message, conversations.get(pairKey(message.getSenderId(), message.getReceiverId()))));
+            vo.setCreatedAt(message.getCreatedAt());
+            vo.setProductId(message.getProductId());
+            vo.setReceiverSeq(message.getReceiverSeq());
+
+            // 发送者信息
+            User sender = users.get(message.getSenderId());
+            if (sender != null) {
+                vo.setSenderNickname(sender.getNickname());
+                vo.setSenderAvatar(sender.getAvatar());
+            }
+
+            // 接收者信息
+            User receiver = users.get(message.getReceiverId());
+            if (receiver != null) {
+                vo.setReceiverNickname(receiver.getNickname());
+                vo.setReceiverAvatar(receiver.getAvatar());
+            }
+
+            // 商品信息（商品卡片消息时）
+            Product product = message.getProductId() != null ? products.get(message.getProductId()) : null;
             if (product != null) {
                 vo.setProductTitle(product.getTitle());
                 // 取第一张图片
@@ -229,9 +478,35 @@ public class MessageService {
                     vo.setProductImage(images[0].trim());
                 }
             }
+            result.add(vo);
+        }
+        return result;
+    }
+
+    /**
+     * 游标为 (时间, id) 的 Base64 编码，对客户端不透明
+     */
+    private String encodeCursor(LocalDateTime time, Long id) {
+        String raw = time + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Cursor decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf('|');
+            return new Cursor(LocalDateTime.parse(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("无效的游标");
         }
+    }
+
+    private static <T> T last(List<T> list) {
+        return list.get(list.size() - 1);
+    }
 
-        return vo;
+    private int clampSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
     }
 
     /**
@@ -252,7 +527,12 @@ public class MessageService {
         block.setBlockedUserId(blockedUserId);
         block.setCreatedAt(LocalDateTime.now());
 
+        blockListCache.beforeBlock(userId, blockedUserId);
         userBlockMapper.insert(block);
+        blockListCache.afterBlock(userId, blockedUserId);
+
+        // 屏蔽后不再能搜到与对方的历史消息
+        messageSearchIndex.purge(userId, blockedUserId);
     }
 
     /**
@@ -263,16 +543,14 @@ public class MessageService {
         wrapper.eq(UserBlock::getUserId, userId)
                 .eq(UserBlock::getBlockedUserId, blockedUserId);
         userBlockMapper.delete(wrapper);
+        blockListCache.invalidateBlocks(userId);
     }
 
     /**
      * 检查是否屏蔽了指定用户
      */
     public boolean isBlocked(Long userId, Long blockedUserId) {
-        LambdaQueryWrapper<UserBlock> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(UserBlock::getUserId, userId)
-                .eq(UserBlock::getBlockedUserId, blockedUserId);
-        return userBlockMapper.selectCount(wrapper) > 0;
+        return blockListCache.isBlocked(userId, blockedUserId);
     }
 
     /**
@@ -294,32 +572,143 @@ public class MessageService {
     }
 
     /**
-     * 搜索聊天记录
+     * 搜索聊天记录（按页码），兼容旧接口
      */
     public List<MessageVO> searchMessages(Long userId, String keyword, int page, int size) {
+        int pageSize = clampSize(size);
+        int skip = (Math.max(page, 1) - 1) * pageSize;
+        Long cursor = null;
+        // 逐页跳过前面的结果，搜索结果通常只翻前几页
+        while (skip > 0) {
+            MessageSearchResponse skipped = searchMessages(userId, keyword, cursor, Math.min(skip, MAX_PAGE_SIZE));
+            if (!skipped.getHasMore()) {
+                return new ArrayList<>();
+            }
+            skip -= skipped.getList().size();
+            cursor = skipped.getNextCursor();
+        }
+        return searchMessages(userId, keyword, cursor, pageSize).getList();
+    }
+
+    /**
+     * 搜索聊天记录（游标分页，按时间倒序）
+     * 关键字能切分出二元词时走私信索引，候选消息再按原文校验；单个字符的关键字回退为 LIKE 查询。
+     *
+     * @param cursor 上一页返回的 nextCursor，为空表示第一页
+     */
+    public MessageSearchResponse searchMessages(Long userId, String keyword, Long cursor, int size) {
+        MessageSearchResponse response = new MessageSearchResponse();
+        response.setList(new ArrayList<>());
+        response.setHasMore(false);
         if (keyword == null || keyword.trim().isEmpty()) {
-            return new ArrayList<>();
+            return response;
+        }
+        String query = keyword.trim();
+        int pageSize = clampSize(size);
+
+        List<Message> matched = CjkBigramTokenizer.isIndexable(query)
+                ? searchByIndex(userId, query, cursor, pageSize + 1)
+                : searchByLike(userId, query, cursor, pageSize + 1);
+
+        boolean hasMore = matched.size() > pageSize;
+        if (hasMore) {
+            matched = matched.subList(0, pageSize);
+        }
+        List<MessageVO> list = convertToVOList(matched);
+        for (MessageVO vo : list) {
+            vo.setHighlightedContent(highlight(vo.getContent(), query));
+        }
+        response.setList(list);
+        response.setHasMore(hasMore);
+        response.setNextCursor(hasMore ? last(matched).getId() : null);
+        return response;
+    }
+
+    /**
+     * 从索引取候选消息，按原文校验后凑满 limit 条
+     */
+    private List<Message> searchByIndex(Long userId, String query, Long cursor, int limit) {
+        String lowerQuery = query.toLowerCase(Locale.ROOT);
+        List<Message> result = new ArrayList<>(limit);
+        Long before = cursor;
+        while (result.size() < limit) {
+            int batchSize = Math.max(limit * 2, 20);
+            long[] candidates = messageSearchIndex.search(userId, query, before, batchSize);
+            if (candidates.length == 0) {
+                break;
+            }
+            List<Long> ids = new ArrayList<>(candidates.length);
+            for (long id : candidates) {
+                ids.add(id);
+            }
+            Map<Long, Message> messages = messageMapper.selectBatchIds(ids).stream()
+                    .collect(Collectors.toMap(Message::getId, m -> m));
+            for (long id : candidates) {
+                Message message = messages.get(id);
+                if (message != null && message.getContent() != null
+                        && (userId.equals(message.getSenderId()) || userId.equals(message.getReceiverId()))
+                        && message.getContent().toLowerCase(Locale.ROOT).contains(lowerQuery)) {
+                    result.add(message);
+                    if (result.size() >= limit) {
+                        break;
+                    }
+                }
+            }
+            if (candidates.length < batchSize) {
+                break;
+            }
+            before = candidates[candidates.length - 1];
         }
+        return result;
+    }
 
-        // 查询与指定用户的聊天记录中包含关键字的消息
+    private List<Message> searchByLike(Long userId, String query, Long cursor, int limit) {
         LambdaQueryWrapper<Message> wrapper = new LambdaQueryWrapper<>();
         wrapper.and(w -> w
                 .eq(Message::getSenderId, userId)
                 .or()
                 .eq(Message::getReceiverId, userId)
-        ).like(Message::getContent, keyword.trim())
-         .orderByDesc(Message::getCreatedAt);
-
-        List<Message> messages = messageMapper.selectList(wrapper);
+        ).like(Message::getContent, query)
+         .lt(cursor != null, Message::getId, cursor)
+         .orderByDesc(Message::getId)
+         .last("LIMIT " + limit);
+        return messageMapper.selectList(wrapper);
+    }
 
-        // 分页
-        int start = (page - 1) * size;
-        int end = Math.min(start + size, messages.size());
-        if (start >= messages.size()) {
-            return new ArrayList<>();
+    /**
+     * HTML 转义后用 <em> 标记关键字（不区分大小写）
+     */
+    private String highlight(String content, String query) {
+        if (content == null) {
+            return null;
+        }
+        String lowerContent = content.toLowerCase(Locale.ROOT);
+        String lowerQuery = query.toLowerCase(Locale.ROOT);
+        // 大小写转换可能改变长度，此时不做高亮
+        if (lowerContent.length() != content.length() || lowerQuery.length() != query.length()) {
+            return HtmlUtils.htmlEscape(content);
         }
+        StringBuilder sb = new StringBuilder();
+        int from = 0;
+        int index;
+        while ((index = lowerContent.indexOf(lowerQuery, from)) >= 0) {
+            sb.append(HtmlUtils.htmlEscape(content.substring(from, index)))
+                    .append("<em>")
+                    .append(HtmlUtils.htmlEscape(content.substring(index, index + query.length())))
+                    .append("</em>");
+            from = index + query.length();
+        }
+        sb.append(HtmlUtils.htmlEscape(content.substring(from)));
+        return sb.toString();
+    }
 
-        List<Message> pagedMessages = messages.subList(start, end);
-        return pagedMessages.stream().map(this::convertToVO).collect(Collectors.toList());
+    private static class Cursor {
+        final LocalDateTime time;
+        final Long id;
+
+        Cursor(LocalDateTime time, Long id) {
+            this.time = time;
+            this.id = id;
+        }
     }
 }
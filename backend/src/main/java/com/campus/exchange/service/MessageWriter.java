@@ -0,0 +1,322 @@
+package com.campus.exchange.service;
+
+import com.campus.exchange.mapper.ConversationMapper;
+import com.campus.exchange.mapper.MessageMapper;
+import com.campus.exchange.mapper.UserDeliverySeqMapper;
+import com.campus.exchange.model.Conversation;
+import com.campus.exchange.model.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 私信组提交写入器
+ * 发送的消息先进入有界环形队列，由单个写线程攒批：凑满 max-batch-size 条或等待超过 max-delay 毫秒即刷写，
+ * 一批消息在同一个事务中更新会话摘要并多行插入，一次提交（一次 fsync）完成。
+ * 落库后的处理（索引、未读数、推送）作为回调挂在消息的 future 上，在回调线程中执行，不占用写线程；
+ * 调用方等待超时只是不再等待，消息仍可能随批次提交，回调照常执行，不会出现已落库却未推送的消息。
+ * 关闭组提交、队列已满或写线程未运行时退回为调用线程同步写入。
+ */
+@Component
+public class MessageWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageWriter.class);
+
+    private static final int PREVIEW_LENGTH = 200;
+    private static final int CALLBACK_THREADS = 2;
+    private static final int CALLBACK_QUEUE_CAPACITY = 1000;
+
+    private final MessageMapper messageMapper;
+    private final ConversationMapper conversationMapper;
+    private final UserDeliverySeqMapper userDeliverySeqMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final MetricRollupService metricRollupService;
+
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxDelayMs;
+    private final long awaitTimeoutMs;
+    private final BlockingQueue<PendingMessage> queue;
+    private final ThreadPoolExecutor callbackExecutor;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batchedMessages = new AtomicLong();
+    private final AtomicLong maxBatch = new AtomicLong();
+    private final AtomicLong syncWrites = new AtomicLong();
+    private final AtomicLong failedMessages = new AtomicLong();
+
+    public MessageWriter(MessageMapper messageMapper, ConversationMapper conversationMapper,
+                         UserDeliverySeqMapper userDeliverySeqMapper,
+                         PlatformTransactionManager transactionManager,
+                         MetricRollupService metricRollupService,
+                         @Value("${message-writer.enabled:true}") boolean enabled,
+                         @Value("${message-writer.max-batch-size:100}") int maxBatchSize,
+                         @Value("${message-writer.max-delay:5}") long maxDelayMs,
+                         @Value("${message-writer.queue-capacity:10000}") int queueCapacity,
+                         @Value("${message-writer.await-timeout:5000}") long awaitTimeoutMs) {
+        this.messageMapper = messageMapper;
+        this.conversationMapper = conversationMapper;
+        this.userDeliverySeqMapper = userDeliverySeqMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.metricRollupService = metricRollupService;
+        this.enabled = enabled;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxDelayMs = Math.max(0, maxDelayMs);
+        this.awaitTimeoutMs = awaitTimeoutMs;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        AtomicInteger threadIndex = new AtomicInteger();
+        // 回调积压时由写线程自己执行，相当于对发送方限流
+        this.callbackExecutor = new ThreadPoolExecutor(CALLBACK_THREADS, CALLBACK_THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(CALLBACK_QUEUE_CAPACITY), r -> {
+                    Thread t = new Thread(r, "message-writer-callback-" + threadIndex.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            logger.info("私信组提交未开启，使用同步写入");
+            return;
+        }
+        running = true;
+        writerThread = new Thread(this::runLoop, "message-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writerThread != null) {
+            writerThread.interrupt();
+            writerThread.join(awaitTimeoutMs);
+        }
+        // 写线程退出后剩余的消息直接写入
+        List<PendingMessage> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            flush(remaining);
+        }
+        callbackExecutor.shutdown();
+        callbackExecutor.awaitTermination(awaitTimeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 提交一条消息，返回的 future 在消息落库后完成（回填了ID）
+     */
+    public CompletableFuture<Message> submit(Message message) {
+        PendingMessage pending = new PendingMessage(message);
+        if (!running || !queue.offer(pending)) {
+            syncWrites.incrementAndGet();
+            flush(Collections.singletonList(pending));
+        }
+        return pending.future;
+    }
+
+    /**
+     * 写入一条消息，落库后执行 afterPersisted 并等待其结果。不能在外层事务中调用：消息在写线程自己的事务中提交
+     * afterPersisted 挂在 future 上，调用方等待超时抛出异常后，消息一旦提交它仍会执行
+     */
+    public <T> T write(Message message, Function<Message, T> afterPersisted) {
+        CompletableFuture<T> result = submit(message).thenApply(afterPersisted);
+        try {
+            return result.get(awaitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new RuntimeException("消息发送超时，可能已发送成功，请稍后在会话中确认");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("消息发送被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long batchCount = batches.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("running", running);
+        stats.put("queueDepth", queue.size());
+        stats.put("batches", batchCount);
+        stats.put("batchedMessages", batchedMessages.get());
+        stats.put("avgBatchSize", batchCount > 0 ? (double) batchedMessages.get() / batchCount : 0);
+        stats.put("maxBatchSize", maxBatch.get());
+        stats.put("syncWrites", syncWrites.get());
+        stats.put("failedMessages", failedMessages.get());
+        stats.put("callbackQueueDepth", callbackExecutor.getQueue().size());
+        return stats;
+    }
+
+    private void runLoop() {
+        List<PendingMessage> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                PendingMessage first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+                while (batch.size() < maxBatchSize) {
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PendingMessage next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("私信写线程异常", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 整批在一个事务中写入；失败时逐条重试，只让出错的消息失败
+     */
+    private void flush(List<PendingMessage> batch) {
+        try {
+            persist(batch);
+            batches.incrementAndGet();
+            batchedMessages.addAndGet(batch.size());
+            maxBatch.accumulateAndGet(batch.size(), Math::max);
+            for (PendingMessage pending : batch) {
+                metricRollupService.record(MetricRollupService.MESSAGE_SENT, pending.message.getCreatedAt());
+                // 在回调线程完成 future，挂在上面的落库后处理随之在回调线程执行
+                callbackExecutor.execute(() -> pending.future.complete(pending.message));
+            }
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                failedMessages.incrementAndGet();
+                logger.error("写入私信失败: senderId={}, error={}", batch.get(0).message.getSenderId(), e.getMessage());
+                batch.get(0).future.completeExceptionally(new RuntimeException("消息发送失败", e));
+                return;
+            }
+            logger.warn("批量写入私信失败，逐条重试: size={}, error={}", batch.size(), e.getMessage());
+            for (PendingMessage pending : batch) {
+                pending.message.setId(null);
+                pending.message.setReceiverSeq(null);
+                flush(Collections.singletonList(pending));
+            }
+        }
+    }
+
+    /**
+     * 先按 (user_low, user_high) 顺序更新会话摘要（锁住会话行，与 markAsRead 的加锁顺序一致），
+     * 再按接收方ID顺序分配投递序号，最后多行插入消息
+     */
+    private void persist(List<PendingMessage> batch) {
+        List<Message> messages = new ArrayList<>(batch.size());
+        Map<Conversation, Conversation> conversations = new TreeMap<>(
+                Comparator.comparing(Conversation::getUserLow).thenComparing(Conversation::getUserHigh));
+        for (PendingMessage pending : batch) {
+            Message message = pending.message;
+            messages.add(message);
+            Conversation delta = toConversation(message);
+            Conversation merged = conversations.get(delta);
+            if (merged == null) {
+                conversations.put(delta, delta);
+            } else {
+                // 同一会话批内多条消息：预览取最后一条，未读数累加
+                merged.setLastMessagePreview(delta.getLastMessagePreview());
+                merged.setLastMessageType(delta.getLastMessageType());
+                merged.setLastSenderId(delta.getLastSenderId());
+                merged.setLastMessageAt(delta.getLastMessageAt());
+                merged.setUnreadLow(merged.getUnreadLow() + delta.getUnreadLow());
+                merged.setUnreadHigh(merged.getUnreadHigh() + delta.getUnreadHigh());
+            }
+        }
+        Map<Long, List<Message>> byReceiver = new TreeMap<>();
+        for (Message message : messages) {
+            byReceiver.computeIfAbsent(message.getReceiverId(), k -> new ArrayList<>()).add(message);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Conversation conversation : conversations.values()) {
+                conversationMapper.recordMessage(conversation);
+            }
+            for (Map.Entry<Long, List<Message>> entry : byReceiver.entrySet()) {
+                List<Message> received = entry.getValue();
+                userDeliverySeqMapper.allocate(entry.getKey(), received.size());
+                long seq = userDeliverySeqMapper.findLastSeq(entry.getKey()) - received.size();
+                for (Message message : received) {
+                    message.setReceiverSeq(++seq);
+                }
+            }
+            messageMapper.insertBatch(messages);
+        });
+    }
+
+    /**
+     * 一条消息对会话摘要的更新：覆盖最后一条消息预览，接收方未读数加一
+     */
+    private Conversation toConversation(Message message) {
+        Long userLow = Math.min(message.getSenderId(), message.getReceiverId());
+        String content = message.getContent();
+
+        Conversation conversation = new Conversation();
+        conversation.setUserLow(userLow);
+        conversation.setUserHigh(Math.max(message.getSenderId(), message.getReceiverId()));
+        conversation.setLastMessagePreview(content != null && content.length() > PREVIEW_LENGTH
+                ? content.substring(0, PREVIEW_LENGTH) : content);
+        conversation.setLastMessageType(message.getType());
+        conversation.setLastSenderId(message.getSenderId());
+        conversation.setLastMessageAt(message.getCreatedAt());
+        boolean receiverIsLow = message.getReceiverId().equals(userLow);
+        conversation.setUnreadLow(receiverIsLow ? 1 : 0);
+        conversation.setUnreadHigh(receiverIsLow ? 0 : 1);
+        return conversation;
+    }
+
+    private static class PendingMessage {
+        final Message message;
+        final CompletableFuture<Message> future = new CompletableFuture<>();
+
+        PendingMessage(Message message) {
+            this.message = message;
+        }
+    }
+}
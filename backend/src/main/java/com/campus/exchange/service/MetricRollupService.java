@@ -0,0 +1,276 @@
+package com.campus.exchange.service;
+
+import com.campus.exchange.mapper.MetricRollupMapper;
+import com.campus.exchange.model.MetricRollup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 指标汇总服务
+ * 业务事件提交后按指标和小时/天时间段在内存中合并，由定时任务批量累加到 metric_rollup，
+ * 趋势图一次按索引读取任意时间范围，不再扫描业务表。
+ * 进程异常退出时未写入的增量会丢失，由回填任务按业务表重建已结束的时间段来修正。
+ */
+@Service
+public class MetricRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricRollupService.class);
+
+    public static final String USER_REGISTERED = "USER_REGISTERED";
+    public static final String PRODUCT_CREATED = "PRODUCT_CREATED";
+    public static final String ORDER_CREATED = "ORDER_CREATED";
+    public static final String ORDER_PAID = "ORDER_PAID";
+    public static final String ORDER_SHIPPED = "ORDER_SHIPPED";
+    /** 金额为成交额 */
+    public static final String ORDER_COMPLETED = "ORDER_COMPLETED";
+    public static final String ORDER_CANCELLED = "ORDER_CANCELLED";
+    public static final String MESSAGE_SENT = "MESSAGE_SENT";
+
+    public static final String GRANULARITY_HOUR = "HOUR";
+    public static final String GRANULARITY_DAY = "DAY";
+
+    public static final List<String> METRICS = Arrays.asList(USER_REGISTERED, PRODUCT_CREATED, ORDER_CREATED,
+            ORDER_PAID, ORDER_SHIPPED, ORDER_COMPLETED, ORDER_CANCELLED, MESSAGE_SENT);
+    /** 按 outbox_event 回填的订单指标，已投递事件超过保留期会被清理 */
+    private static final Set<String> ORDER_METRICS = new LinkedHashSet<>(Arrays.asList(ORDER_CREATED,
+            ORDER_PAID, ORDER_SHIPPED, ORDER_COMPLETED, ORDER_CANCELLED));
+    private static final String[] GRANULARITIES = {GRANULARITY_HOUR, GRANULARITY_DAY};
+
+    /** 单次查询的最大时间段数 */
+    private static final long MAX_HOUR_BUCKETS = 24 * 93;
+    private static final long MAX_DAY_BUCKETS = 366 * 3;
+    /** 回填只处理该时间之前的数据，确保这段时间的内存增量都已写入 */
+    private static final long SETTLE_MINUTES = 5;
+    private static final int MAX_PENDING = 10000;
+    private static final int PURGE_BATCH_SIZE = 5000;
+
+    private final MetricRollupMapper metricRollupMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int hourRetentionDays;
+    private final int outboxRetentionDays;
+
+    /** metric|granularity|bucketStart -> 待累加的增量 */
+    private final Map<String, MetricRollup> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong recordedTotal = new AtomicLong();
+    private final AtomicLong droppedTotal = new AtomicLong();
+    private final AtomicLong flushedRows = new AtomicLong();
+
+    public MetricRollupService(MetricRollupMapper metricRollupMapper, PlatformTransactionManager transactionManager,
+                               @Value("${metric-rollup.hour-retention-days:90}") int hourRetentionDays,
+                               @Value("${outbox.retention-days:30}") int outboxRetentionDays) {
+        this.metricRollupMapper = metricRollupMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.hourRetentionDays = Math.max(1, hourRetentionDays);
+        this.outboxRetentionDays = Math.max(1, outboxRetentionDays);
+    }
+
+    /**
+     * 记录一次事件
+     */
+    public void record(String metric, LocalDateTime at) {
+        record(metric, at, 1, null);
+    }
+
+    /**
+     * 记录事件，在事务中调用时等提交后再计入，回滚的写入不会计入
+     */
+    public void record(String metric, LocalDateTime at, long count, BigDecimal amount) {
+        LocalDateTime time = at != null ? at : LocalDateTime.now();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(metric, time, count, amount);
+                }
+            });
+        } else {
+            add(metric, time, count, amount);
+        }
+    }
+
+    /**
+     * 把内存中的增量批量累加到汇总表，失败时放回等待下一轮
+     *
+     * @return 写入的行数
+     */
+    public int flush() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        List<MetricRollup> rollups = new ArrayList<>(pending.size());
+        for (String key : new ArrayList<>(pending.keySet())) {
+            MetricRollup rollup = pending.remove(key);
+            if (rollup != null) {
+                rollups.add(rollup);
+            }
+        }
+        if (rollups.isEmpty()) {
+            return 0;
+        }
+        try {
+            metricRollupMapper.accumulate(rollups);
+            flushedRows.addAndGet(rollups.size());
+            return rollups.size();
+        } catch (Exception e) {
+            for (MetricRollup rollup : rollups) {
+                merge(rollup);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 趋势数据：多个指标在 [from, to] 日期范围内的数据点，按指标分组，没有事件的时间段不返回
+     */
+    public Map<String, List<MetricRollup>> getTrends(List<String> metrics, String granularity,
+                                                     LocalDate from, LocalDate to) {
+        if (!GRANULARITY_HOUR.equals(granularity) && !GRANULARITY_DAY.equals(granularity)) {
+            throw new IllegalArgumentException("不支持的粒度: " + granularity);
+        }
+        Set<String> requested = new LinkedHashSet<>();
+        for (String metric : metrics) {
+            String name = metric.trim().toUpperCase();
+            if (!METRICS.contains(name)) {
+                throw new IllegalArgumentException("不支持的指标: " + metric);
+            }
+            requested.add(name);
+        }
+        if (requested.isEmpty()) {
+            throw new IllegalArgumentException("请指定指标");
+        }
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("开始日期不能晚于结束日期");
+        }
+        LocalDateTime start = from.atStartOfDay();
+        LocalDateTime end = to.plusDays(1).atStartOfDay();
+        long buckets = GRANULARITY_HOUR.equals(granularity)
+                ? ChronoUnit.HOURS.between(start, end) : ChronoUnit.DAYS.between(start, end);
+        if (buckets > (GRANULARITY_HOUR.equals(granularity) ? MAX_HOUR_BUCKETS : MAX_DAY_BUCKETS)) {
+            throw new IllegalArgumentException("查询范围过大，请缩小日期范围或改用按天统计");
+        }
+
+        Map<String, List<MetricRollup>> result = new LinkedHashMap<>();
+        for (String metric : requested) {
+            result.put(metric, new ArrayList<>());
+        }
+        for (MetricRollup rollup : metricRollupMapper.findRange(requested, granularity, start, end)) {
+            result.get(rollup.getMetric()).add(rollup);
+        }
+        return result;
+    }
+
+    /**
+     * 按业务表重建 [from, to] 日期范围内已结束的时间段
+     * 小时粒度处理到当前整点之前，天粒度处理到今天之前；进行中的时间段仍由实时增量维护。
+     * 订单指标按 outbox_event 统计，只重建 outbox.retention-days 保留期内完整的日期，
+     * 更早的事件已被清理，这部分汇总保持原样，不会被清零。
+     *
+     * @return 重建后写入的行数
+     */
+    public int backfill(LocalDate from, LocalDate to) {
+        flush();
+        LocalDateTime settled = LocalDateTime.now().minusMinutes(SETTLE_MINUTES);
+        LocalDateTime start = from.atStartOfDay();
+        LocalDateTime requestedEnd = to.plusDays(1).atStartOfDay();
+        // 清理按投递完成时间，该日期及之后创建的事件都还在表中
+        LocalDateTime outboxRetained = LocalDate.now().minusDays(outboxRetentionDays - 1).atStartOfDay();
+        int rows = 0;
+        for (String granularity : GRANULARITIES) {
+            LocalDateTime closed = GRANULARITY_HOUR.equals(granularity)
+                    ? settled.truncatedTo(ChronoUnit.HOURS)
+                    : settled.toLocalDate().atStartOfDay();
+            LocalDateTime end = requestedEnd.isBefore(closed) ? requestedEnd : closed;
+            if (!start.isBefore(end)) {
+                continue;
+            }
+            for (String metric : METRICS) {
+                LocalDateTime metricStart = ORDER_METRICS.contains(metric) && start.isBefore(outboxRetained)
+                        ? outboxRetained : start;
+                if (!metricStart.isBefore(end)) {
+                    continue;
+                }
+                Integer inserted = transactionTemplate.execute(status -> {
+                    metricRollupMapper.deleteRange(metric, granularity, metricStart, end);
+                    return metricRollupMapper.rebuild(metric, granularity, metricStart, end);
+                });
+                rows += inserted != null ? inserted : 0;
+            }
+        }
+        logger.info("指标汇总回填完成: {} ~ {}, 写入 {} 行", from, to, rows);
+        return rows;
+    }
+
+    /**
+     * 删除超过保留期的小时数据，按天数据长期保留
+     */
+    public int purgeExpiredHours() {
+        LocalDateTime before = LocalDate.now().minusDays(hourRetentionDays).atStartOfDay();
+        int total = 0;
+        int deleted;
+        do {
+            deleted = metricRollupMapper.deleteBefore(GRANULARITY_HOUR, before, PURGE_BATCH_SIZE);
+            total += deleted;
+        } while (deleted >= PURGE_BATCH_SIZE);
+        return total;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pending", pending.size());
+        stats.put("recordedTotal", recordedTotal.get());
+        stats.put("droppedTotal", droppedTotal.get());
+        stats.put("flushedRows", flushedRows.get());
+        return stats;
+    }
+
+    private void add(String metric, LocalDateTime at, long count, BigDecimal amount) {
+        if (pending.size() >= MAX_PENDING) {
+            // 写库持续失败时不再无限增长，丢失的部分由回填修正
+            droppedTotal.incrementAndGet();
+            return;
+        }
+        recordedTotal.incrementAndGet();
+        BigDecimal value = amount != null ? amount : BigDecimal.ZERO;
+        merge(delta(metric, GRANULARITY_HOUR, at.truncatedTo(ChronoUnit.HOURS), count, value));
+        merge(delta(metric, GRANULARITY_DAY, at.toLocalDate().atStartOfDay(), count, value));
+    }
+
+    private void merge(MetricRollup delta) {
+        String key = delta.getMetric() + "|" + delta.getGranularity() + "|" + delta.getBucketStart();
+        pending.merge(key, delta, (a, b) -> delta(a.getMetric(), a.getGranularity(), a.getBucketStart(),
+                a.getCnt() + b.getCnt(), a.getAmount().add(b.getAmount())));
+    }
+
+    private MetricRollup delta(String metric, String granularity, LocalDateTime bucketStart,
+                               long count, BigDecimal amount) {
+        MetricRollup rollup = new MetricRollup();
+        rollup.setMetric(metric);
+        rollup.setGranularity(granularity);
+        rollup.setBucketStart(bucketStart);
+        rollup.setCnt(count);
+        rollup.setAmount(amount);
+        return rollup;
+    }
+}
@@ -0,0 +1,218 @@
+package com.campus.exchange.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.campus.exchange.config.MessageWebSocketHandler;
+import com.campus.exchange.mapper.OutboxDeliveryMapper;
+import com.campus.exchange.mapper.UserMapper;
+import com.campus.exchange.model.OutboxDelivery;
+import com.campus.exchange.model.OutboxEvent;
+import com.campus.exchange.model.User;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 订单事件通知器
+ * 将发件箱中的订单事件扇出为系统消息、WebSocket 推送和邮件，每个渠道按事件ID去重
+ */
+@Component
+public class OrderEventNotifier {
+
+    private static final String CHANNEL_SYSTEM_MESSAGE = "SYSTEM_MESSAGE";
+    private static final String CHANNEL_WEBSOCKET = "WEBSOCKET";
+    private static final String CHANNEL_EMAIL = "EMAIL";
+
+    private final OutboxDeliveryMapper outboxDeliveryMapper;
+    private final UserMapper userMapper;
+    private final SystemMessageService systemMessageService;
+    private final EmailService emailService;
+    private final DashboardStatsService dashboardStatsService;
+    private final ObjectMapper objectMapper;
+
+    public OrderEventNotifier(OutboxDeliveryMapper outboxDeliveryMapper, UserMapper userMapper,
+                              SystemMessageService systemMessageService, EmailService emailService,
+                              DashboardStatsService dashboardStatsService, ObjectMapper objectMapper) {
+        this.outboxDeliveryMapper = outboxDeliveryMapper;
+        this.userMapper = userMapper;
+        this.systemMessageService = systemMessageService;
+        this.emailService = emailService;
+        this.dashboardStatsService = dashboardStatsService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 投递单个事件，任一渠道失败时抛出异常以便重试（已成功的渠道不会重复）
+     */
+    public void handle(OutboxEvent event) throws Exception {
+        // 事件在订单事务提交后才会投递，此时刷新统计能看到最新状态
+        dashboardStatsService.markDirty();
+        Map<String, Object> payload = objectMapper.readValue(event.getPayload(),
+                new TypeReference<Map<String, Object>>() {});
+        Long orderId = toLong(payload.get("orderId"));
+        Long buyerId = toLong(payload.get("buyerId"));
+        Long sellerId = toLong(payload.get("sellerId"));
+        String orderNo = (String) payload.get("orderNo");
+
+        Map<Long, String> notices = buildNotices(event.getEventType(), orderNo, buyerId, sellerId, payload);
+        if (notices.isEmpty()) {
+            return;
+        }
+
+        Map<Long, User> users = new HashMap<>();
+        for (User user : userMapper.selectBatchIds(new ArrayList<>(notices.keySet()))) {
+            users.put(user.getId(), user);
+        }
+
+        String title = titleOf(event.getEventType());
+        List<String> errors = new ArrayList<>();
+        for (Map.Entry<Long, String> notice : notices.entrySet()) {
+            Long userId = notice.getKey();
+            String content = notice.getValue();
+
+            deliverOnce(event, CHANNEL_SYSTEM_MESSAGE + ":" + userId, () ->
+                    systemMessageService.sendMessage(userId, title, content, "ORDER_NOTIFY", orderId));
+
+            deliverOnce(event, CHANNEL_WEBSOCKET + ":" + userId, () -> {
+                Map<String, Object> push = new LinkedHashMap<>();
+                push.put("type", "ORDER_EVENT");
+                push.put("eventId", event.getEventId());
+                push.put("eventType", event.getEventType());
+                push.put("orderId", orderId);
+                push.put("title", title);
+                push.put("content", content);
+                MessageWebSocketHandler.sendMessageToUser(String.valueOf(userId), objectMapper.writeValueAsString(push));
+            });
+
+            User user = users.get(userId);
+            if (user != null && Boolean.TRUE.equals(user.getEmailNotificationEnabled())
+                    && user.getEmail() != null && !user.getEmail().isEmpty()) {
+                try {
+                    deliverOnce(event, CHANNEL_EMAIL + ":" + userId, () -> {
+                        if (!emailService.sendOrderNotificationEmail(user.getEmail(), title, content)) {
+                            throw new IllegalStateException("邮件发送失败: " + user.getEmail());
+                        }
+                    });
+                } catch (Exception e) {
+                    // 邮件失败不影响其他收件人，整体重试时只重发未成功的渠道
+                    errors.add(e.getMessage());
+                }
+            }
+        }
+
+        if (!errors.isEmpty()) {
+            throw new IllegalStateException(String.join("; ", errors));
+        }
+    }
+
+    /**
+     * 各事件类型的通知对象及内容
+     */
+    private Map<Long, String> buildNotices(String eventType, String orderNo, Long buyerId, Long sellerId,
+                                           Map<String, Object> payload) {
+        Map<Long, String> notices = new LinkedHashMap<>();
+        switch (eventType) {
+            case OutboxService.ORDER_CREATED:
+                notices.put(sellerId, "您的商品已被下单，订单号：" + orderNo);
+                break;
+            case OutboxService.ORDER_PAID:
+                notices.put(sellerId, "买家已付款，请尽快发货，订单号：" + orderNo);
+                break;
+            case OutboxService.ORDER_SHIPPED:
+                notices.put(buyerId, "卖家已发货，请留意收货，订单号：" + orderNo);
+                break;
+            case OutboxService.ORDER_COMPLETED:
+                notices.put(sellerId, "买家已确认收货，交易完成，订单号：" + orderNo);
+                break;
+            case OutboxService.ORDER_CANCELLED:
+                notices.put(buyerId, "订单已取消，订单号：" + orderNo);
+                notices.put(sellerId, "订单已取消，订单号：" + orderNo);
+                break;
+            case OutboxService.REFUND_APPLIED:
+                notices.put(sellerId, "买家申请退款，订单号：" + orderNo + "，原因：" + nullToEmpty(payload.get("refundReason")));
+                break;
+            case OutboxService.REFUND_APPROVED:
+                notices.put(buyerId, "卖家已同意退款，订单号：" + orderNo);
+                break;
+            case OutboxService.REFUND_REJECTED:
+                notices.put(buyerId, "卖家已拒绝退款，订单号：" + orderNo);
+                break;
+            case OutboxService.DISPUTE_APPLIED:
+                notices.put(buyerId, "订单发起了纠纷申诉，订单号：" + orderNo);
+                notices.put(sellerId, "订单发起了纠纷申诉，订单号：" + orderNo);
+                break;
+            case OutboxService.DISPUTE_RESOLVED:
+                String result = "纠纷已处理，订单号：" + orderNo + "，结果：" + nullToEmpty(payload.get("disputeResult"));
+                notices.put(buyerId, result);
+                notices.put(sellerId, result);
+                break;
+            default:
+                break;
+        }
+        notices.remove(null);
+        return notices;
+    }
+
+    private String titleOf(String eventType) {
+        switch (eventType) {
+            case OutboxService.ORDER_CREATED:
+                return "新订单提醒";
+            case OutboxService.ORDER_PAID:
+                return "订单付款提醒";
+            case OutboxService.ORDER_SHIPPED:
+                return "订单发货提醒";
+            case OutboxService.ORDER_COMPLETED:
+                return "交易完成提醒";
+            case OutboxService.ORDER_CANCELLED:
+                return "订单取消提醒";
+            case OutboxService.REFUND_APPLIED:
+            case OutboxService.REFUND_APPROVED:
+            case OutboxService.REFUND_REJECTED:
+                return "退款进度提醒";
+            default:
+                return "纠纷进度提醒";
+        }
+    }
+
+    /**
+     * 同一事件同一渠道只投递一次；投递成功后再记录，崩溃时可能重复一次（至少一次语义）
+     */
+    private void deliverOnce(OutboxEvent event, String channel, DeliveryAction action) throws Exception {
+        Long delivered = outboxDeliveryMapper.selectCount(new LambdaQueryWrapper<OutboxDelivery>()
+                .eq(OutboxDelivery::getEventId, event.getEventId())
+                .eq(OutboxDelivery::getChannel, channel));
+        if (delivered > 0) {
+            return;
+        }
+
+        action.run();
+
+        OutboxDelivery record = new OutboxDelivery();
+        record.setEventId(event.getEventId());
+        record.setChannel(channel);
+        try {
+            outboxDeliveryMapper.insert(record);
+        } catch (DuplicateKeyException ignored) {
+            // 并发重投时已由其他线程记录
+        }
+    }
+
+    private Long toLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : null;
+    }
+
+    private String nullToEmpty(Object value) {
+        return value != null ? value.toString() : "";
+    }
+
+    @FunctionalInterface
+    private interface DeliveryAction {
+        void run() throws Exception;
+    }
+}
@@ -10,14 +10,12 @@ import com.campus.exchange.mapper.ProductMapper;
 import com.campus.exchange.mapper.UserMapper;
 import com.campus.exchange.model.Order;
 import com.campus.exchange.model.Product;
-import com.campus.exchange.model.User;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 /**
  * 订单服务层
@@ -28,11 +26,19 @@ public class OrderService {
     private final OrderMapper orderMapper;
     private final ProductMapper productMapper;
     private final UserMapper userMapper;
+    private final OrderVOAssembler orderVOAssembler;
+    private final OutboxService outboxService;
+    private final RevenueService revenueService;
 
-    public OrderService(OrderMapper orderMapper, ProductMapper productMapper, UserMapper userMapper) {
+    public OrderService(OrderMapper orderMapper, ProductMapper productMapper, UserMapper userMapper,
+                        OrderVOAssembler orderVOAssembler, OutboxService outboxService,
+                        RevenueService revenueService) {
         this.orderMapper = orderMapper;
         this.productMapper = productMapper;
         this.userMapper = userMapper;
+        this.orderVOAssembler = orderVOAssembler;
+        this.outboxService = outboxService;
+        this.revenueService = revenueService;
     }
 
     /**
@@ -74,6 +80,8 @@ public class OrderService {
         product.setStatus("SOLD");
         productMapper.updateById(product);
 
+        outboxService.publishOrderEvent(OutboxService.ORDER_CREATED, order);
+
         return getOrderVO(order);
     }
 
@@ -107,9 +115,43 @@ public class OrderService {
             productMapper.updateById(product);
         }
 
+        outboxService.publishOrderEvent(OutboxService.ORDER_CANCELLED, order);
+
         return getOrderVO(order);
     }
 
+    /**
+     * 管理员取消订单：已完成的订单同时冲减收入统计，订单、商品、收入与发件箱事件在同一事务内提交
+     */
+    @Transactional
+    public void adminCancelOrder(Long orderId, String reason) {
+        Order order = orderMapper.selectById(orderId);
+        if (order == null) {
+            throw new IllegalArgumentException("订单不存在");
+        }
+        if ("CANCELLED".equals(order.getStatus())) {
+            throw new IllegalArgumentException("订单已取消");
+        }
+
+        if ("COMPLETED".equals(order.getStatus())) {
+            revenueService.reverseCompleted(order);
+        }
+        order.setStatus("CANCELLED");
+        order.setRemark((order.getRemark() != null ? order.getRemark() + " | " : "") + "[管理员取消] " + reason);
+        order.setUpdatedAt(LocalDateTime.now());
+        orderMapper.updateById(order);
+
+        // 恢复商品状态
+        Product product = productMapper.selectById(order.getProductId());
+        if (product != null) {
+            product.setStatus("ON_SALE");
+            product.setUpdatedAt(LocalDateTime.now());
+            productMapper.updateById(product);
+        }
+
+        outboxService.publishOrderEvent(OutboxService.ORDER_CANCELLED, order);
+    }
+
     /**
      * 支付订单
      */
@@ -133,6 +175,8 @@ public class OrderService {
         order.setStatus("PAID");
         orderMapper.updateById(order);
 
+        outboxService.publishOrderEvent(OutboxService.ORDER_PAID, order);
+
         return getOrderVO(order);
     }
 
@@ -159,6 +203,8 @@ public class OrderService {
         order.setStatus("SHIPPED");
         orderMapper.updateById(order);
 
+        outboxService.publishOrderEvent(OutboxService.ORDER_SHIPPED, order);
+
         return getOrderVO(order);
     }
 
@@ -182,9 +228,19 @@ public class OrderService {
             throw new IllegalArgumentException("订单状态不正确");
         }
 
+        // 退款处理中不能确认收货，否则同意退款时订单已计入成交额
+        if ("APPLYING".equals(order.getRefundStatus())) {
+            throw new IllegalArgumentException("订单有退款申请处理中，请等待卖家处理后再确认收货");
+        }
+
         order.setStatus("COMPLETED");
+        order.setCompletedAt(LocalDateTime.now());
         orderMapper.updateById(order);
 
+        revenueService.recordCompleted(order);
+
+        outboxService.publishOrderEvent(OutboxService.ORDER_COMPLETED, order);
+
         return getOrderVO(order);
     }
 
@@ -227,9 +283,7 @@ public class OrderService {
 
         IPage<Order> orderPage = orderMapper.selectPage(page, queryWrapper);
 
-        List<OrderVO> orderVOList = orderPage.getRecords().stream()
-                .map(this::getOrderVO)
-                .collect(Collectors.toList());
+        List<OrderVO> orderVOList = orderVOAssembler.toVOList(orderPage.getRecords());
 
         OrderPageResponse response = new OrderPageResponse();
         response.setList(orderVOList);
@@ -258,9 +312,7 @@ public class OrderService {
 
         IPage<Order> orderPage = orderMapper.selectPage(page, queryWrapper);
 
-        List<OrderVO> orderVOList = orderPage.getRecords().stream()
-                .map(this::getOrderVO)
-                .collect(Collectors.toList());
+        List<OrderVO> orderVOList = orderVOAssembler.toVOList(orderPage.getRecords());
 
         OrderPageResponse response = new OrderPageResponse();
         response.setList(orderVOList);
@@ -289,9 +341,7 @@ public class OrderService {
 
         IPage<Order> orderPage = orderMapper.selectPage(page, queryWrapper);
 
-        List<OrderVO> orderVOList = orderPage.getRecords().stream()
-                .map(this::getOrderVO)
-                .collect(Collectors.toList());
+        List<OrderVO> orderVOList = orderVOAssembler.toVOList(orderPage.getRecords());
 
         OrderPageResponse response = new OrderPageResponse();
         response.setList(orderVOList);
@@ -331,6 +381,7 @@ public class OrderService {
                     product.setStatus("ON_SALE");
                     productMapper.updateById(product);
                 }
+                outboxService.publishOrderEvent(OutboxService.ORDER_CANCELLED, order);
                 count++;
             } catch (Exception e) {
                 // 忽略单个订单的错误，继续处理其他订单
@@ -351,62 +402,7 @@ public class OrderService {
      * 将 Order 转换为 OrderVO
      */
     private OrderVO getOrderVO(Order order) {
-        OrderVO vo = new OrderVO();
-        vo.setId(order.getId());
-        vo.setOrderNo(order.getOrderNo());
-        vo.setProductId(order.getProductId());
-        vo.setPrice(order.getPrice());
-        vo.setBuyerId(order.getBuyerId());
-        vo.setSellerId(order.getSellerId());
-        vo.setStatus(order.getStatus());
-        vo.setTradeType(order.getTradeType());
-        vo.setTradeLocation(order.getTradeLocation());
-        vo.setRemark(order.getRemark());
-        vo.setCreatedAt(order.getCreatedAt());
-        vo.setUpdatedAt(order.getUpdatedAt());
-
-        // 查询商品信息
-        Product product = productMapper.selectById(order.getProductId());
-        if (product != null) {
-            vo.setProductTitle(product.getTitle());
-            // 解析商品图片
-            String images = product.getImages();
-            if (images != null && images.startsWith("[")) {
-                // 简单解析第一张图片
-                int start = images.indexOf("\"");
-                if (start >= 0) {
-                    int end = images.indexOf("\"", start + 1);
-                    if (end > start) {
-                        vo.setProductImage(images.substring(start + 1, end));
-                    }
-                }
-            }
-        }
-
-        // 查询买家信息
-        User buyer = userMapper.selectById(order.getBuyerId());
-        if (buyer != null) {
-            vo.setBuyerNickname(buyer.getNickname());
-        }
-
-        // 查询卖家信息
-        User seller = userMapper.selectById(order.getSellerId());
-        if (seller != null) {
-            vo.setSellerNickname(seller.getNickname());
-        }
-
-        // 退款和纠纷信息
-        vo.setRefundStatus(order.getRefundStatus());
-        vo.setRefundReason(order.getRefundReason());
-        vo.setRefundTime(order.getRefundTime());
-        vo.setDisputeStatus(order.getDisputeStatus());
-        vo.setDisputeReason(order.getDisputeReason());
-        vo.setDisputeEvidence(order.getDisputeEvidence());
-        vo.setDisputeResult(order.getDisputeResult());
-        vo.setDisputeTime(order.getDisputeTime());
-        vo.setResolveTime(order.getResolveTime());
-
-        return vo;
+        return orderVOAssembler.toVO(order);
     }
 
     /**
@@ -441,6 +437,8 @@ public class OrderService {
         order.setRefundReason(reason);
         orderMapper.updateById(order);
 
+        outboxService.publishOrderEvent(OutboxService.REFUND_APPLIED, order);
+
         return getOrderVO(order);
     }
 
@@ -464,7 +462,10 @@ public class OrderService {
             throw new IllegalArgumentException("订单没有退款申请");
         }
 
-        // 同意退款
+        // 同意退款；已计入成交额的订单（如历史数据中退款期间已确认收货）需要冲减
+        if ("COMPLETED".equals(order.getStatus())) {
+            revenueService.reverseCompleted(order);
+        }
         order.setRefundStatus("APPROVED");
         order.setRefundTime(LocalDateTime.now());
         order.setStatus("CANCELLED");
@@ -477,6 +478,8 @@ public class OrderService {
             productMapper.updateById(product);
         }
 
+        outboxService.publishOrderEvent(OutboxService.REFUND_APPROVED, order);
+
         return getOrderVO(order);
     }
 
@@ -503,6 +506,8 @@ public class OrderService {
         order.setRefundStatus("REJECTED");
         orderMapper.updateById(order);
 
+        outboxService.publishOrderEvent(OutboxService.REFUND_REJECTED, order);
+
         return getOrderVO(order);
     }
 
@@ -537,6 +542,8 @@ public class OrderService {
         order.setDisputeTime(LocalDateTime.now());
         orderMapper.updateById(order);
 
+        outboxService.publishOrderEvent(OutboxService.DISPUTE_APPLIED, order);
+
         return getOrderVO(order);
     }
 
@@ -561,6 +568,10 @@ public class OrderService {
 
         // 根据处理结果更新订单状态
         if (result.contains("退款") || result.contains("取消")) {
+            if ("COMPLETED".equals(order.getStatus())) {
+                // 已计入成交额的订单需要冲减
+                revenueService.reverseCompleted(order);
+            }
             order.setStatus("CANCELLED");
             // 恢复商品状态
             Product product = productMapper.selectById(order.getProductId());
@@ -572,6 +583,8 @@ public class OrderService {
 
         orderMapper.updateById(order);
 
+        outboxService.publishOrderEvent(OutboxService.DISPUTE_RESOLVED, order);
+
         return getOrderVO(order);
     }
 
@@ -0,0 +1,170 @@
+package com.campus.exchange.service;
+
+import com.campus.exchange.dto.OrderVO;
+import com.campus.exchange.mapper.ProductMapper;
+import com.campus.exchange.mapper.UserMapper;
+import com.campus.exchange.model.Order;
+import com.campus.exchange.model.Product;
+import com.campus.exchange.model.User;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 订单 VO 批量组装器
+ * 一页订单只按实体类型各查询一次（商品一次、用户一次），SQL 次数与页大小无关
+ */
+@Component
+public class OrderVOAssembler {
+
+    private final ProductMapper productMapper;
+    private final UserMapper userMapper;
+    private final ObjectMapper objectMapper;
+
+    public OrderVOAssembler(ProductMapper productMapper, UserMapper userMapper, ObjectMapper objectMapper) {
+        this.productMapper = productMapper;
+        this.userMapper = userMapper;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 组装单个订单
+     */
+    public OrderVO toVO(Order order) {
+        return toVOList(Collections.singletonList(order)).get(0);
+    }
+
+    /**
+     * 批量组装订单列表，保持输入顺序
+     */
+    public List<OrderVO> toVOList(List<Order> orders) {
+        if (orders == null || orders.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Set<Long> productIds = new HashSet<>();
+        Set<Long> userIds = new HashSet<>();
+        for (Order order : orders) {
+            if (order.getProductId() != null) {
+                productIds.add(order.getProductId());
+            }
+            if (order.getBuyerId() != null) {
+                userIds.add(order.getBuyerId());
+            }
+            if (order.getSellerId() != null) {
+                userIds.add(order.getSellerId());
+            }
+        }
+
+        // 商品：标题 + 首图，每个商品只解析一次图片
+        Map<Long, Product> products = loadProducts(productIds);
+        Map<Long, String> firstImages = new HashMap<>();
+        for (Product product : products.values()) {
+            firstImages.put(product.getId(), extractFirstImage(product.getImages()));
+        }
+
+        // 买家和卖家合并为一次用户查询
+        Map<Long, User> users = loadUsers(userIds);
+
+        List<OrderVO> result = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            OrderVO vo = copyFields(order);
+
+            Product product = products.get(order.getProductId());
+            if (product != null) {
+                vo.setProductTitle(product.getTitle());
+                vo.setProductImage(firstImages.get(product.getId()));
+            }
+
+            User buyer = users.get(order.getBuyerId());
+            if (buyer != null) {
+                vo.setBuyerNickname(buyer.getNickname());
+            }
+
+            User seller = users.get(order.getSellerId());
+            if (seller != null) {
+                vo.setSellerNickname(seller.getNickname());
+            }
+
+            result.add(vo);
+        }
+        return result;
+    }
+
+    private Map<Long, Product> loadProducts(Collection<Long> ids) {
+        Map<Long, Product> map = new HashMap<>();
+        if (ids.isEmpty()) {
+            return map;
+        }
+        for (Product product : productMapper.selectBatchIds(ids)) {
+            map.put(product.getId(), product);
+        }
+        return map;
+    }
+
+    private Map<Long, User> loadUsers(Collection<Long> ids) {
+        Map<Long, User> map = new HashMap<>();
+        if (ids.isEmpty()) {
+            return map;
+        }
+        for (User user : userMapper.selectBatchIds(ids)) {
+            map.put(user.getId(), user);
+        }
+        return map;
+    }
+
+    /**
+     * 从图片 JSON 数组中取第一张图片
+     */
+    private String extractFirstImage(String images) {
+        if (images == null || !images.startsWith("[")) {
+            return null;
+        }
+        try {
+            JsonNode node = objectMapper.readTree(images);
+            if (node.isArray() && node.size() > 0 && !node.get(0).isNull()) {
+                return node.get(0).asText();
+            }
+        } catch (Exception ignored) {
+            // 图片字段格式异常时不展示首图
+        }
+        return null;
+    }
+
+    private OrderVO copyFields(Order order) {
+        OrderVO vo = new OrderVO();
+        vo.setId(order.getId());
+        vo.setOrderNo(order.getOrderNo());
+        vo.setProductId(order.getProductId());
+        vo.setPrice(order.getPrice());
+        vo.setBuyerId(order.getBuyerId());
+        vo.setSellerId(order.getSellerId());
+        vo.setStatus(order.getStatus());
+        vo.setTradeType(order.getTradeType());
+        vo.setTradeLocation(order.getTradeLocation());
+        vo.setRemark(order.getRemark());
+        vo.setCreatedAt(order.getCreatedAt());
+        vo.setUpdatedAt(order.getUpdatedAt());
+
+        // 退款和纠纷信息
+        vo.setRefundStatus(order.getRefundStatus());
+        vo.setRefundReason(order.getRefundReason());
+        vo.setRefundTime(order.getRefundTime());
+        vo.setDisputeStatus(order.getDisputeStatus());
+        vo.setDisputeReason(order.getDisputeReason());
+        vo.setDisputeEvidence(order.getDisputeEvidence());
+        vo.setDisputeResult(order.getDisputeResult());
+        vo.setDisputeTime(order.getDisputeTime());
+        vo.setResolveTime(order.getResolveTime());
+        return vo;
+    }
+}
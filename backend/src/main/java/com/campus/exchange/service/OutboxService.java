@@ -0,0 +1,246 @@
+package com.campus.exchange.service;
+
+import com.campus.exchange.mapper.OutboxDeliveryMapper;
+import com.campus.exchange.mapper.OutboxEventMapper;
+import com.campus.exchange.model.Order;
+import com.campus.exchange.model.OutboxEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 事务发件箱服务
+ * 业务方法在自身事务内调用 publish 写入事件；后台任务分批取出事件并交给 OrderEventNotifier 投递。
+ * 投递语义为至少一次，重复投递由 outbox_delivery 表按事件ID去重。
+ * 已投递的事件和投递记录保留 outbox.retention-days 天后清理。
+ */
+@Service
+public class OutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxService.class);
+
+    public static final String AGGREGATE_ORDER = "ORDER";
+
+    public static final String ORDER_CREATED = "ORDER_CREATED";
+    public static final String ORDER_PAID = "ORDER_PAID";
+    public static final String ORDER_SHIPPED = "ORDER_SHIPPED";
+    public static final String ORDER_COMPLETED = "ORDER_COMPLETED";
+    public static final String ORDER_CANCELLED = "ORDER_CANCELLED";
+    public static final String REFUND_APPLIED = "REFUND_APPLIED";
+    public static final String REFUND_APPROVED = "REFUND_APPROVED";
+    public static final String REFUND_REJECTED = "REFUND_REJECTED";
+    public static final String DISPUTE_APPLIED = "DISPUTE_APPLIED";
+    public static final String DISPUTE_RESOLVED = "DISPUTE_RESOLVED";
+
+    private static final int BATCH_SIZE = 100;
+    private static final int MAX_ATTEMPTS = 8;
+    private static final long MAX_BACKOFF_SECONDS = 600;
+    private static final long STALE_LOCK_MINUTES = 5;
+    private static final int WORKER_THREADS = 4;
+    private static final int QUEUE_CAPACITY = 200;
+    private static final int PURGE_BATCH_SIZE = 5000;
+
+    private final OutboxEventMapper outboxEventMapper;
+    private final OutboxDeliveryMapper outboxDeliveryMapper;
+    private final OrderEventNotifier orderEventNotifier;
+    private final ObjectMapper objectMapper;
+    private final MetricRollupService metricRollupService;
+    private final ThreadPoolExecutor executor;
+    private final int retentionDays;
+
+    private final AtomicLong deliveredTotal = new AtomicLong();
+    private final AtomicLong failedAttemptsTotal = new AtomicLong();
+    private final AtomicLong lastDeliveryLagMs = new AtomicLong();
+
+    public OutboxService(OutboxEventMapper outboxEventMapper, OutboxDeliveryMapper outboxDeliveryMapper,
+                         OrderEventNotifier orderEventNotifier, ObjectMapper objectMapper,
+                         MetricRollupService metricRollupService,
+                         @Value("${outbox.retention-days:30}") int retentionDays) {
+        this.outboxEventMapper = outboxEventMapper;
+        this.outboxDeliveryMapper = outboxDeliveryMapper;
+        this.orderEventNotifier = orderEventNotifier;
+        this.objectMapper = objectMapper;
+        this.metricRollupService = metricRollupService;
+        this.retentionDays = Math.max(1, retentionDays);
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(WORKER_THREADS, WORKER_THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), r -> {
+                    Thread t = new Thread(r, "outbox-dispatcher-" + threadIndex.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * 写入订单事件
+     * 必须在订单状态变更的同一事务中调用，事务回滚时事件一并回滚
+     */
+    public void publishOrderEvent(String eventType, Order order) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("orderId", order.getId());
+        payload.put("orderNo", order.getOrderNo());
+        payload.put("productId", order.getProductId());
+        payload.put("buyerId", order.getBuyerId());
+        payload.put("sellerId", order.getSellerId());
+        payload.put("price", order.getPrice());
+        payload.put("status", order.getStatus());
+        payload.put("refundReason", order.getRefundReason());
+        payload.put("disputeReason", order.getDisputeReason());
+        payload.put("disputeResult", order.getDisputeResult());
+
+        OutboxEvent event = new OutboxEvent();
+        event.setEventId(UUID.randomUUID().toString());
+        event.setEventType(eventType);
+        event.setAggregateType(AGGREGATE_ORDER);
+        event.setAggregateId(order.getId());
+        try {
+            event.setPayload(objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("事件序列化失败", e);
+        }
+        event.setStatus("NEW");
+        event.setAttempts(0);
+        event.setNextAttemptAt(LocalDateTime.now());
+        outboxEventMapper.insert(event);
+
+        // 订单各状态的趋势计数，与回填时按 outbox_event 统计的口径一致
+        if (MetricRollupService.METRICS.contains(eventType)) {
+            metricRollupService.record(eventType, LocalDateTime.now(), 1,
+                    ORDER_COMPLETED.equals(eventType) ? order.getPrice() : null);
+        }
+    }
+
+    /**
+     * 取出到期事件并提交到投递线程池
+     * 线程池队列满时少取或不取，积压留在表中等待下一轮
+     *
+     * @return 本轮提交的事件数
+     */
+    public int dispatchPending() {
+        LocalDateTime now = LocalDateTime.now();
+        outboxEventMapper.releaseStale(now.minusMinutes(STALE_LOCK_MINUTES));
+
+        int capacity = Math.min(BATCH_SIZE, executor.getQueue().remainingCapacity());
+        if (capacity <= 0) {
+            return 0;
+        }
+
+        List<OutboxEvent> events = outboxEventMapper.findDue(now, capacity);
+        int submitted = 0;
+        for (OutboxEvent event : events) {
+            if (outboxEventMapper.claim(event.getId(), now) == 0) {
+                // 已被其他实例占用
+                continue;
+            }
+            try {
+                executor.execute(() -> deliver(event));
+                submitted++;
+            } catch (RejectedExecutionException e) {
+                reschedule(event, 0, "投递队列已满");
+                break;
+            }
+        }
+        return submitted;
+    }
+
+    /**
+     * 清理投递完成超过保留期的事件及其投递记录，未完成和失败的事件保留
+     * 订单趋势的回填按 outbox_event 统计，只能重建保留期内的数据
+     *
+     * @return 删除的事件数
+     */
+    public int purgeDone() {
+        LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+        int total = 0;
+        int deleted;
+        do {
+            deleted = outboxEventMapper.deleteDoneBefore(before, PURGE_BATCH_SIZE);
+            total += deleted;
+        } while (deleted == PURGE_BATCH_SIZE);
+        do {
+            deleted = outboxDeliveryMapper.deleteBefore(before, PURGE_BATCH_SIZE);
+        } while (deleted == PURGE_BATCH_SIZE);
+        return total;
+    }
+
+    /**
+     * 发件箱运行指标
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        LocalDateTime oldest = outboxEventMapper.findOldestPendingCreatedAt();
+        stats.put("pending", outboxEventMapper.countPending());
+        stats.put("failed", outboxEventMapper.countFailed());
+        stats.put("lagSeconds", oldest != null ? Duration.between(oldest, LocalDateTime.now()).getSeconds() : 0);
+        stats.put("lastDeliveryLagMs", lastDeliveryLagMs.get());
+        stats.put("deliveredTotal", deliveredTotal.get());
+        stats.put("failedAttemptsTotal", failedAttemptsTotal.get());
+        stats.put("queueSize", executor.getQueue().size());
+        stats.put("activeWorkers", executor.getActiveCount());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void deliver(OutboxEvent event) {
+        try {
+            orderEventNotifier.handle(event);
+
+            OutboxEvent update = new OutboxEvent();
+            update.setId(event.getId());
+            update.setStatus("DONE");
+            update.setProcessedAt(LocalDateTime.now());
+            outboxEventMapper.updateById(update);
+
+            deliveredTotal.incrementAndGet();
+            if (event.getCreatedAt() != null) {
+                lastDeliveryLagMs.set(Duration.between(event.getCreatedAt(), LocalDateTime.now()).toMillis());
+            }
+        } catch (Exception e) {
+            failedAttemptsTotal.incrementAndGet();
+            int attempts = (event.getAttempts() != null ? event.getAttempts() : 0) + 1;
+            logger.warn("事件投递失败: eventId={}, type={}, attempts={}, error={}",
+                    event.getEventId(), event.getEventType(), attempts, e.getMessage());
+            reschedule(event, attempts, e.getMessage());
+        }
+    }
+
+    /**
+     * 按指数退避重新排期，超过最大次数标记为失败
+     */
+    private void reschedule(OutboxEvent event, int attempts, String error) {
+        OutboxEvent update = new OutboxEvent();
+        update.setId(event.getId());
+        update.setAttempts(attempts);
+        update.setLastError(error != null && error.length() > 500 ? error.substring(0, 500) : error);
+        if (attempts >= MAX_ATTEMPTS) {
+            update.setStatus("FAILED");
+        } else {
+            long backoff = Math.min(1L << attempts, MAX_BACKOFF_SECONDS);
+            update.setStatus("NEW");
+            update.setNextAttemptAt(LocalDateTime.now().plusSeconds(attempts == 0 ? 0 : backoff));
+        }
+        outboxEventMapper.updateById(update);
+    }
+}
@@ -0,0 +1,304 @@
+package com.campus.exchange.service;
+
+import com.campus.exchange.config.MessageWebSocketHandler;
+import com.campus.exchange.mapper.ConversationMapper;
+import com.campus.exchange.model.Conversation;
+import com.campus.exchange.util.HashedTimingWheel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import javax.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 在线状态服务
+ * 记录每个 WebSocket 会话最后一次收到消息（含心跳）的时间，用时间轮检查空闲会话：
+ * 到期时若期间有过心跳则按剩余时间重新挂入，否则断开（清理半开连接）。
+ * 用户上线/下线在防抖时间后仍保持时才推送给最近的会话对象，刷新页面等短暂断线不会产生通知。
+ * 时间轮线程只做判断，查询会话对象并推送、关闭空闲连接交给 presence-worker 线程池执行，避免阻塞时间轮。
+ * 在线状态只反映本节点的连接。
+ */
+@Service
+public class PresenceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PresenceService.class);
+
+    private static final int NOTIFY_PARTNER_LIMIT = 100;
+    private static final int WORKER_THREADS = 2;
+    private static final int WORKER_QUEUE_CAPACITY = 10000;
+    /** 线程池已满时空闲连接的重试间隔 */
+    private static final long REAP_RETRY_MS = 1000;
+
+    private final ConversationMapper conversationMapper;
+    private final ObjectMapper objectMapper;
+    private final long idleTimeoutMs;
+    private final long debounceMs;
+    private final HashedTimingWheel wheel = new HashedTimingWheel("presence-wheel", 1, TimeUnit.SECONDS, 512);
+    private final ThreadPoolExecutor worker;
+
+    private final Map<String, SessionPresence> sessions = new ConcurrentHashMap<>();
+    private final Map<Long, UserPresence> users = new ConcurrentHashMap<>();
+
+    private final AtomicLong reapedSessions = new AtomicLong();
+    private final AtomicLong publishedTransitions = new AtomicLong();
+    private final AtomicLong suppressedTransitions = new AtomicLong();
+    private final AtomicLong rejectedTasks = new AtomicLong();
+
+    public PresenceService(ConversationMapper conversationMapper, ObjectMapper objectMapper,
+                           @Value("${websocket.idle-timeout:90000}") long idleTimeoutMs,
+                           @Value("${websocket.presence-debounce:5000}") long debounceMs) {
+        this.conversationMapper = conversationMapper;
+        this.objectMapper = objectMapper;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.debounceMs = debounceMs;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.worker = new ThreadPoolExecutor(WORKER_THREADS, WORKER_THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(WORKER_QUEUE_CAPACITY), r -> {
+                    Thread t = new Thread(r, "presence-worker-" + threadIndex.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        wheel.stop();
+        worker.shutdownNow();
+    }
+
+    /**
+     * 连接建立
+     */
+    public void onConnect(Long userId, WebSocketSession session) {
+        SessionPresence presence = new SessionPresence(userId, session);
+        sessions.put(session.getId(), presence);
+        scheduleIdleCheck(presence, idleTimeoutMs);
+
+        boolean[] cameOnline = new boolean[1];
+        UserPresence user = users.compute(userId, (k, u) -> {
+            UserPresence p = u != null ? u : new UserPresence();
+            p.lastSeen = presence.lastSeen;
+            cameOnline[0] = ++p.sessions == 1;
+            return p;
+        });
+        if (cameOnline[0]) {
+            scheduleTransitionCheck(userId, user);
+        }
+    }
+
+    /**
+     * 收到客户端消息（心跳或其他）
+     */
+    public void touch(WebSocketSession session) {
+        SessionPresence presence = sessions.get(session.getId());
+        if (presence != null) {
+            long now = System.currentTimeMillis();
+            presence.lastSeen = now;
+            UserPresence user = users.get(presence.userId);
+            if (user != null) {
+                user.lastSeen = now;
+            }
+        }
+    }
+
+    /**
+     * 连接关闭
+     */
+    public void onDisconnect(WebSocketSession session) {
+        SessionPresence presence = sessions.remove(session.getId());
+        if (presence == null) {
+            return;
+        }
+        boolean[] wentOffline = new boolean[1];
+        UserPresence user = users.computeIfPresent(presence.userId, (k, u) -> {
+            wentOffline[0] = --u.sessions == 0;
+            return u;
+        });
+        if (wentOffline[0]) {
+            scheduleTransitionCheck(presence.userId, user);
+        }
+    }
+
+    public boolean isOnline(Long userId) {
+        UserPresence user = users.get(userId);
+        return user != null && user.sessions > 0;
+    }
+
+    /**
+     * 批量查询在线状态
+     */
+    public Map<Long, Boolean> getPresence(Collection<Long> userIds) {
+        Map<Long, Boolean> result = new LinkedHashMap<>();
+        for (Long userId : userIds) {
+            result.put(userId, isOnline(userId));
+        }
+        return result;
+    }
+
+    /**
+     * 最后活跃时间（毫秒时间戳），本节点未见过该用户时为空
+     */
+    public Long getLastSeen(Long userId) {
+        UserPresence user = users.get(userId);
+        return user != null ? user.lastSeen : null;
+    }
+
+    public Map<String, Object> getStats() {
+        int onlineUsers = 0;
+        for (UserPresence user : users.values()) {
+            if (user.sessions > 0) {
+                onlineUsers++;
+            }
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("connectedUsers", onlineUsers);
+        stats.put("sessions", sessions.size());
+        stats.put("trackedUsers", users.size());
+        stats.put("pendingTimers", wheel.pendingCount());
+        stats.put("workerQueue", worker.getQueue().size());
+        stats.put("rejectedTasks", rejectedTasks.get());
+        stats.put("reapedSessions", reapedSessions.get());
+        stats.put("publishedTransitions", publishedTransitions.get());
+        stats.put("suppressedTransitions", suppressedTransitions.get());
+        return stats;
+    }
+
+    /**
+     * 空闲检查：期间有过活动则按剩余时间重新挂入时间轮，避免每次心跳都重新调度
+     */
+    private void scheduleIdleCheck(SessionPresence presence, long delayMs) {
+        wheel.schedule(() -> {
+            if (sessions.get(presence.session.getId()) != presence) {
+                return;
+            }
+            long idle = System.currentTimeMillis() - presence.lastSeen;
+            if (idle < idleTimeoutMs) {
+                scheduleIdleCheck(presence, idleTimeoutMs - idle);
+                return;
+            }
+            if (!offload(() -> reap(presence, idle))) {
+                scheduleIdleCheck(presence, REAP_RETRY_MS);
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 断开空闲连接，半开连接关闭时可能阻塞到 TCP 超时，在 presence-worker 线程执行
+     */
+    private void reap(SessionPresence presence, long idle) {
+        if (sessions.get(presence.session.getId()) != presence) {
+            return;
+        }
+        reapedSessions.incrementAndGet();
+        logger.info("断开空闲WebSocket连接: userId={}, sessionId={}, idle={}ms",
+                presence.userId, presence.session.getId(), idle);
+        try {
+            presence.session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (Exception ignored) {
+            // 半开连接关闭时可能出错
+        }
+        // 半开连接不一定触发关闭回调，这里直接清理
+        onDisconnect(presence.session);
+    }
+
+    /**
+     * 防抖：状态变化后等待一段时间，届时状态与上次通知不同才推送
+     */
+    private void scheduleTransitionCheck(Long userId, UserPresence user) {
+        if (!user.checkScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        wheel.schedule(() -> {
+            user.checkScheduled.set(false);
+            boolean online = user.sessions > 0;
+            if (online == user.publishedOnline) {
+                suppressedTransitions.incrementAndGet();
+            } else {
+                user.publishedOnline = online;
+                publishedTransitions.incrementAndGet();
+                long lastSeen = user.lastSeen;
+                // 通知丢失只影响对方看到的状态，不重试
+                offload(() -> publishTransition(userId, online, lastSeen));
+            }
+            if (!online) {
+                // 下线且期间没有新的连接，不再跟踪
+                users.computeIfPresent(userId, (k, u) -> u == user && u.sessions == 0 ? null : u);
+            }
+        }, debounceMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 交给 presence-worker 线程执行，线程池已满时返回 false
+     */
+    private boolean offload(Runnable task) {
+        try {
+            worker.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejectedTasks.incrementAndGet();
+            logger.warn("在线状态线程池已满，任务被拒绝");
+            return false;
+        }
+    }
+
+    /**
+     * 查询最近的会话对象并推送状态变化，在 presence-worker 线程执行
+     */
+    private void publishTransition(Long userId, boolean online, long lastSeen) {
+        try {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("type", "PRESENCE");
+            payload.put("userId", userId);
+            payload.put("online", online);
+            payload.put("lastSeen", lastSeen);
+            String json = objectMapper.writeValueAsString(payload);
+
+            Set<Long> partners = new LinkedHashSet<>();
+            for (Conversation c : conversationMapper.findByUser(userId, null, null, NOTIFY_PARTNER_LIMIT)) {
+                partners.add(userId.equals(c.getUserLow()) ? c.getUserHigh() : c.getUserLow());
+            }
+            for (Long partnerId : partners) {
+                MessageWebSocketHandler.sendMessageToUser(String.valueOf(partnerId), json, "PRESENCE:" + userId);
+            }
+        } catch (Exception e) {
+            logger.error("推送在线状态失败: userId={}, error={}", userId, e.getMessage());
+        }
+    }
+
+    private static class SessionPresence {
+        final Long userId;
+        final WebSocketSession session;
+        volatile long lastSeen = System.currentTimeMillis();
+
+        SessionPresence(Long userId, WebSocketSession session) {
+            this.userId = userId;
+            this.session = session;
+        }
+    }
+
+    private static class UserPresence {
+        /** 连接数，只在 users 的 compute 中修改 */
+        volatile int sessions;
+        final AtomicBoolean checkScheduled = new AtomicBoolean();
+        volatile boolean publishedOnline;
+        volatile long lastSeen;
+    }
+}
@@ -18,6 +18,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -33,15 +34,24 @@ public class ProductService {
     private final CategoryMapper categoryMapper;
     private final UserMapper userMapper;
     private final ObjectMapper objectMapper;
+    private final DashboardStatsService dashboardStatsService;
+    private final MetricRollupService metricRollupService;
+    private final SensitiveWordFilter sensitiveWordFilter;
 
     public ProductService(ProductMapper productMapper,
                          CategoryMapper categoryMapper,
                          UserMapper userMapper,
-                         ObjectMapper objectMapper) {
+                         ObjectMapper objectMapper,
+                         DashboardStatsService dashboardStatsService,
+                         MetricRollupService metricRollupService,
+                         SensitiveWordFilter sensitiveWordFilter) {
         this.productMapper = productMapper;
         this.categoryMapper = categoryMapper;
         this.userMapper = userMapper;
         this.objectMapper = objectMapper;
+        this.dashboardStatsService = dashboardStatsService;
+        this.metricRollupService = metricRollupService;
+        this.sensitiveWordFilter = sensitiveWordFilter;
     }
 
     /**
@@ -49,9 +59,16 @@ public class ProductService {
      */
     public ProductVO createProduct(Long sellerId, CreateProductRequest request) {
         // 创建商品实体
+        SensitiveWordFilter.FilterResult title = sensitiveWordFilter.check(request.getTitle(), "商品标题");
+        SensitiveWordFilter.FilterResult description = sensitiveWordFilter.check(request.getDescription(), "商品描述");
+
         Product product = new Product();
-        product.setTitle(request.getTitle());
-        product.setDescription(request.getDescription());
+        product.setTitle(title.getText());
+        product.setDescription(description.getText());
+        // 命中关注词的商品转人工审核
+        if (title.isFlagged() || description.isFlagged()) {
+            product.setAuditStatus("PENDING");
+        }
         product.setPrice(request.getPrice());
         product.setOriginalPrice(request.getOriginalPrice());
         product.setCategoryId(request.getCategoryId());
@@ -88,6 +105,8 @@ public class ProductService {
 
         // 保存商品
         productMapper.insert(product);
+        dashboardStatsService.markDirty();
+        metricRollupService.record(MetricRollupService.PRODUCT_CREATED, LocalDateTime.now());
 
         // 返回商品详情
         return getProductVO(product);
@@ -276,10 +295,19 @@ public class ProductService {
 
         // 更新非空字段
         if (request.getTitle() != null) {
-            product.setTitle(request.getTitle());
+            SensitiveWordFilter.FilterResult title = sensitiveWordFilter.check(request.getTitle(), "商品标题");
+            product.setTitle(title.getText());
+            if (title.isFlagged()) {
+                product.setAuditStatus("PENDING");
+            }
         }
         if (request.getDescription() != null) {
-            product.setDescription(request.getDescription());
+            SensitiveWordFilter.FilterResult description =
+                    sensitiveWordFilter.check(request.getDescription(), "商品描述");
+            product.setDescription(description.getText());
+            if (description.isFlagged()) {
+                product.setAuditStatus("PENDING");
+            }
         }
         if (request.getPrice() != null) {
             product.setPrice(request.getPrice());
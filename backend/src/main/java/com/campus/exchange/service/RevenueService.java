@@ -0,0 +1,176 @@
+package com.campus.exchange.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.campus.exchange.mapper.ProductMapper;
+import com.campus.exchange.mapper.RevenueBucketMapper;
+import com.campus.exchange.model.Order;
+import com.campus.exchange.model.Product;
+import com.campus.exchange.model.RevenueBucket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 成交额汇总服务
+ * 订单完成时在同一事务中累加累计/日/周/月桶（全部分类和所属分类各一份），
+ * 已完成订单被取消时冲减；仪表盘直接读取汇总行，不再扫描订单表。
+ */
+@Service
+public class RevenueService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RevenueService.class);
+
+    public static final String PERIOD_TOTAL = "TOTAL";
+    public static final String PERIOD_DAY = "DAY";
+    public static final String PERIOD_WEEK = "WEEK";
+    public static final String PERIOD_MONTH = "MONTH";
+
+    /** 全部分类 */
+    public static final long ALL_CATEGORIES = 0L;
+
+    private static final LocalDate TOTAL_PERIOD_START = LocalDate.of(1970, 1, 1);
+    private static final String[] PERIOD_TYPES = {PERIOD_TOTAL, PERIOD_DAY, PERIOD_WEEK, PERIOD_MONTH};
+    private static final int MAX_BUCKETS = 366;
+
+    private final RevenueBucketMapper revenueBucketMapper;
+    private final ProductMapper productMapper;
+
+    public RevenueService(RevenueBucketMapper revenueBucketMapper, ProductMapper productMapper) {
+        this.revenueBucketMapper = revenueBucketMapper;
+        this.productMapper = productMapper;
+    }
+
+    /**
+     * 订单完成时累加，需在订单状态变更的事务中调用
+     */
+    public void recordCompleted(Order order) {
+        accumulate(order, 1, order.getPrice());
+    }
+
+    /**
+     * 已完成的订单被取消（纠纷退款、管理员取消）时冲减
+     */
+    public void reverseCompleted(Order order) {
+        BigDecimal price = order.getPrice();
+        accumulate(order, -1, price != null ? price.negate() : null);
+    }
+
+    /**
+     * 累计成交额
+     */
+    public BigDecimal getTotalRevenue() {
+        RevenueBucket bucket = findBucket(PERIOD_TOTAL, TOTAL_PERIOD_START, ALL_CATEGORIES);
+        return bucket != null ? bucket.getGmv() : BigDecimal.ZERO;
+    }
+
+    /**
+     * 指定日期所在周期的成交额
+     */
+    public BigDecimal getRevenue(String periodType, LocalDate date, Long categoryId) {
+        RevenueBucket bucket = findBucket(periodType, periodStart(periodType, date),
+                categoryId != null ? categoryId : ALL_CATEGORIES);
+        return bucket != null ? bucket.getGmv() : BigDecimal.ZERO;
+    }
+
+    /**
+     * 最近若干个周期的成交额，按周期起始日升序；没有成交的周期不返回
+     */
+    public List<RevenueBucket> getRecentBuckets(String periodType, Long categoryId, int limit) {
+        if (!PERIOD_DAY.equals(periodType) && !PERIOD_WEEK.equals(periodType) && !PERIOD_MONTH.equals(periodType)) {
+            throw new IllegalArgumentException("不支持的周期类型: " + periodType);
+        }
+        int size = Math.max(1, Math.min(limit, MAX_BUCKETS));
+        List<RevenueBucket> buckets = revenueBucketMapper.selectList(new LambdaQueryWrapper<RevenueBucket>()
+                .eq(RevenueBucket::getPeriodType, periodType)
+                .eq(RevenueBucket::getCategoryId, categoryId != null ? categoryId : ALL_CATEGORIES)
+                .orderByDesc(RevenueBucket::getPeriodStart)
+                .last("LIMIT " + size));
+        Collections.reverse(buckets);
+        return buckets;
+    }
+
+    /**
+     * 按订单表重建全部汇总桶，返回重建前后累计成交额的差额
+     */
+    @Transactional
+    public BigDecimal rebuild() {
+        BigDecimal before = getTotalRevenue();
+        for (String periodType : PERIOD_TYPES) {
+            revenueBucketMapper.deleteByPeriodType(periodType);
+            revenueBucketMapper.rebuild(periodType);
+        }
+        BigDecimal drift = getTotalRevenue().subtract(before);
+        if (drift.signum() != 0) {
+            logger.warn("成交额汇总与订单表不一致，已按订单表重建，差额: {}", drift);
+        }
+        return drift;
+    }
+
+    private void accumulate(Order order, int countDelta, BigDecimal gmvDelta) {
+        LocalDateTime completedAt = order.getCompletedAt() != null ? order.getCompletedAt()
+                : order.getUpdatedAt() != null ? order.getUpdatedAt() : LocalDateTime.now();
+        LocalDate date = completedAt.toLocalDate();
+        BigDecimal gmv = gmvDelta != null ? gmvDelta : BigDecimal.ZERO;
+
+        Long categoryId = null;
+        if (order.getProductId() != null) {
+            Product product = productMapper.selectById(order.getProductId());
+            categoryId = product != null ? product.getCategoryId() : null;
+        }
+
+        List<RevenueBucket> buckets = new ArrayList<>(PERIOD_TYPES.length * 2);
+        for (String periodType : PERIOD_TYPES) {
+            LocalDate start = periodStart(periodType, date);
+            buckets.add(delta(periodType, start, ALL_CATEGORIES, countDelta, gmv));
+            if (categoryId != null) {
+                buckets.add(delta(periodType, start, categoryId, countDelta, gmv));
+            }
+        }
+        revenueBucketMapper.accumulate(buckets);
+    }
+
+    private RevenueBucket findBucket(String periodType, LocalDate periodStart, long categoryId) {
+        return revenueBucketMapper.selectOne(new LambdaQueryWrapper<RevenueBucket>()
+                .eq(RevenueBucket::getPeriodType, periodType)
+                .eq(RevenueBucket::getPeriodStart, periodStart)
+                .eq(RevenueBucket::getCategoryId, categoryId));
+    }
+
+    /**
+     * 周期起始日，与重建 SQL 的计算方式保持一致（周以周一开始）
+     */
+    private LocalDate periodStart(String periodType, LocalDate date) {
+        switch (periodType) {
+            case PERIOD_DAY:
+                return date;
+            case PERIOD_WEEK:
+                return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case PERIOD_MONTH:
+                return date.withDayOfMonth(1);
+            case PERIOD_TOTAL:
+                return TOTAL_PERIOD_START;
+            default:
+                throw new IllegalArgumentException("不支持的周期类型: " + periodType);
+        }
+    }
+
+    private RevenueBucket delta(String periodType, LocalDate periodStart, long categoryId, int count, BigDecimal gmv) {
+        RevenueBucket bucket = new RevenueBucket();
+        bucket.setPeriodType(periodType);
+        bucket.setPeriodStart(periodStart);
+        bucket.setCategoryId(categoryId);
+        bucket.setOrderCount((long) count);
+        bucket.setGmv(gmv);
+        return bucket;
+    }
+}
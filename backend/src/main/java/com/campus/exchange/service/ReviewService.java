@@ -11,23 +11,31 @@ import com.campus.exchange.dto.ReviewVO;
 import com.campus.exchange.mapper.OrderMapper;
 import com.campus.exchange.mapper.ProductMapper;
 import com.campus.exchange.mapper.ReviewMapper;
+import com.campus.exchange.mapper.ReviewRatingStatMapper;
 import com.campus.exchange.mapper.ReviewReportMapper;
 import com.campus.exchange.mapper.UserMapper;
 import com.campus.exchange.model.Order;
 import com.campus.exchange.model.Product;
 import com.campus.exchange.model.Review;
+import com.campus.exchange.model.ReviewRatingStat;
 import com.campus.exchange.model.ReviewReport;
 import com.campus.exchange.model.User;
+import com.campus.exchange.util.BatchHydrator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 /**
  * 评价服务层
@@ -35,25 +43,32 @@ import java.util.stream.Collectors;
 @Service
 public class ReviewService {
 
+    private static final Logger logger = LoggerFactory.getLogger(ReviewService.class);
+
     private final ReviewMapper reviewMapper;
     private final ReviewReportMapper reviewReportMapper;
+    private final ReviewRatingStatMapper reviewRatingStatMapper;
     private final OrderMapper orderMapper;
     private final ProductMapper productMapper;
     private final UserMapper userMapper;
     private final SystemMessageService systemMessageService;
     private final ObjectMapper objectMapper;
+    private final SensitiveWordFilter sensitiveWordFilter;
 
     public ReviewService(ReviewMapper reviewMapper, ReviewReportMapper reviewReportMapper,
+                         ReviewRatingStatMapper reviewRatingStatMapper,
                          OrderMapper orderMapper, ProductMapper productMapper,
                          UserMapper userMapper, SystemMessageService systemMessageService,
-                         ObjectMapper objectMapper) {
+                         ObjectMapper objectMapper, SensitiveWordFilter sensitiveWordFilter) {
         this.reviewMapper = reviewMapper;
         this.reviewReportMapper = reviewReportMapper;
+        this.reviewRatingStatMapper = reviewRatingStatMapper;
         this.orderMapper = orderMapper;
         this.productMapper = productMapper;
         this.userMapper = userMapper;
         this.systemMessageService = systemMessageService;
         this.objectMapper = objectMapper;
+        this.sensitiveWordFilter = sensitiveWordFilter;
     }
 
     /**
@@ -97,7 +112,7 @@ public class ReviewService {
         review.setReviewerId(reviewerId);
         review.setTargetUserId(targetUserId);
         review.setRating(request.getRating());
-        review.setContent(request.getContent());
+        review.setContent(sensitiveWordFilter.check(request.getContent(), "评价内容").getText());
         review.setAnonymous(request.getAnonymous() != null ? request.getAnonymous() : 0);
 
         // 处理图片JSON
@@ -119,6 +134,7 @@ public class ReviewService {
         }
 
         reviewMapper.insert(review);
+        accumulateRating(targetUserId, review.getRating(), 1);
 
         // 发送系统消息提醒被评价者
         User reviewer = userMapper.selectById(reviewerId);
@@ -146,10 +162,7 @@ public class ReviewService {
         Page<Review> reviewPage = reviewMapper.selectPage(new Page<>(page, size), wrapper);
         Page<ReviewVO> voPage = new Page<>(reviewPage.getCurrent(), reviewPage.getSize(), reviewPage.getTotal());
 
-        List<ReviewVO> voList = reviewPage.getRecords().stream()
-                .map(this::getReviewVO)
-                .collect(Collectors.toList());
-        voPage.setRecords(voList);
+        voPage.setRecords(toVOList(reviewPage.getRecords()));
 
         return voPage;
     }
@@ -165,10 +178,7 @@ public class ReviewService {
         Page<Review> reviewPage = reviewMapper.selectPage(new Page<>(page, size), wrapper);
         Page<ReviewVO> voPage = new Page<>(reviewPage.getCurrent(), reviewPage.getSize(), reviewPage.getTotal());
 
-        List<ReviewVO> voList = reviewPage.getRecords().stream()
-                .map(this::getReviewVO)
-                .collect(Collectors.toList());
-        voPage.setRecords(voList);
+        voPage.setRecords(toVOList(reviewPage.getRecords()));
 
         return voPage;
     }
@@ -177,38 +187,89 @@ public class ReviewService {
      * 获取用户的评价统计
      */
     public UserReviewStats getUserReviewStats(Long userId) {
-        LambdaQueryWrapper<Review> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(Review::getTargetUserId, userId);
-
-        List<Review> reviews = reviewMapper.selectList(wrapper);
+        ReviewRatingStat stat = getRatingStat(userId);
 
         UserReviewStats stats = new UserReviewStats();
-        stats.setTotalReviews(reviews.size());
+        stats.setTotalReviews(stat.getTotal().intValue());
+        stats.setAverageRating(stat.averageRating());
+        stats.setRating5Count((int) stat.countOf(5));
+        stats.setRating4Count((int) stat.countOf(4));
+        stats.setRating3Count((int) stat.countOf(3));
+        stats.setRating2Count((int) stat.countOf(2));
+        stats.setRating1Count((int) stat.countOf(1));
 
-        if (reviews.isEmpty()) {
-            stats.setAverageRating(0.0);
-        } else {
-            double avgRating = reviews.stream()
-                    .mapToInt(Review::getRating)
-                    .average()
-                    .orElse(0.0);
-            stats.setAverageRating(Math.round(avgRating * 10) / 10.0);
+        return stats;
+    }
+
+    /**
+     * 评分汇总，targetUserId 为 ReviewRatingStat.GLOBAL 时为全站汇总；没有评价时各项为0
+     */
+    public ReviewRatingStat getRatingStat(Long targetUserId) {
+        ReviewRatingStat stat = reviewRatingStatMapper.selectById(targetUserId);
+        if (stat == null) {
+            stat = ratingDelta(targetUserId, 0, 0);
         }
+        return stat;
+    }
 
-        // 评分分布
-        int[] ratingCounts = new int[5];
-        for (Review review : reviews) {
-            if (review.getRating() >= 1 && review.getRating() <= 5) {
-                ratingCounts[review.getRating() - 1]++;
-            }
+    /**
+     * 删除评价（管理员），同一事务中冲减评分汇总
+     */
+    @Transactional
+    public void deleteReview(Long reviewId) {
+        Review review = reviewMapper.selectById(reviewId);
+        if (review == null) {
+            throw new IllegalArgumentException("评价不存在");
+        }
+        if (reviewMapper.deleteById(reviewId) > 0) {
+            accumulateRating(review.getTargetUserId(), review.getRating(), -1);
         }
-        stats.setRating5Count(ratingCounts[4]);
-        stats.setRating4Count(ratingCounts[3]);
-        stats.setRating3Count(ratingCounts[2]);
-        stats.setRating2Count(ratingCounts[1]);
-        stats.setRating1Count(ratingCounts[0]);
+    }
 
-        return stats;
+    /**
+     * 按评价表重建评分汇总，返回重建前后全站评价数的差额
+     */
+    @Transactional
+    public long rebuildRatingStats() {
+        long before = getRatingStat(ReviewRatingStat.GLOBAL).getTotal();
+        reviewRatingStatMapper.deleteAll();
+        reviewRatingStatMapper.rebuild();
+        long drift = getRatingStat(ReviewRatingStat.GLOBAL).getTotal() - before;
+        if (drift != 0) {
+            logger.warn("评分汇总与评价表不一致，已按评价表重建，评价数差额: {}", drift);
+        }
+        return drift;
+    }
+
+    /**
+     * 累加被评价用户行和全站行，全站行（ID为0）在前，与并发事务的加锁顺序一致
+     */
+    private void accumulateRating(Long targetUserId, Integer rating, int delta) {
+        int value = rating != null ? rating : 0;
+        List<ReviewRatingStat> stats = new ArrayList<>(2);
+        stats.add(ratingDelta(ReviewRatingStat.GLOBAL, value, delta));
+        if (targetUserId != null) {
+            stats.add(ratingDelta(targetUserId, value, delta));
+        }
+        reviewRatingStatMapper.accumulate(stats);
+    }
+
+    private ReviewRatingStat ratingDelta(Long targetUserId, int rating, int delta) {
+        Long[] counts = new Long[5];
+        Arrays.fill(counts, 0L);
+        if (rating >= 1 && rating <= 5) {
+            counts[rating - 1] = (long) delta;
+        }
+        ReviewRatingStat stat = new ReviewRatingStat();
+        stat.setTargetUserId(targetUserId);
+        stat.setTotal((long) delta);
+        stat.setRatingSum((long) rating * delta);
+        stat.setRating1(counts[0]);
+        stat.setRating2(counts[1]);
+        stat.setRating3(counts[2]);
+        stat.setRating4(counts[3]);
+        stat.setRating5(counts[4]);
+        return stat;
     }
 
     /**
@@ -241,7 +302,7 @@ public class ReviewService {
             throw new IllegalArgumentException("该评价已回复");
         }
 
-        review.setReply(request.getReply());
+        review.setReply(sensitiveWordFilter.check(request.getReply(), "评价回复").getText());
         review.setReplyAt(LocalDateTime.now());
         reviewMapper.updateById(review);
 
@@ -318,84 +379,88 @@ public class ReviewService {
     }
 
     private ReviewVO getReviewVO(Review review) {
-        ReviewVO vo = new ReviewVO();
-        vo.setId(review.getId());
-        vo.setOrderId(review.getOrderId());
-        vo.setReviewerId(review.getReviewerId());
-        vo.setTargetUserId(review.getTargetUserId());
-        vo.setRating(review.getRating());
-        vo.setContent(review.getContent());
-        vo.setAnonymous(review.getAnonymous() != null ? review.getAnonymous() : 0);
-        vo.setReply(review.getReply());
-        vo.setReplyAt(review.getReplyAt());
-        vo.setCreatedAt(review.getCreatedAt());
-
-        // 处理图片
-        if (review.getImages() != null && !review.getImages().isEmpty()) {
-            try {
-                List<String> images = objectMapper.readValue(review.getImages(),
-                        new TypeReference<List<String>>() {});
-                vo.setImages(images);
-            } catch (JsonProcessingException e) {
-                vo.setImages(new ArrayList<>());
-            }
-        } else {
-            vo.setImages(new ArrayList<>());
-        }
+        return toVOList(Collections.singletonList(review)).get(0);
+    }
 
-        // 处理标签
-        if (review.getTags() != null && !review.getTags().isEmpty()) {
-            try {
-                List<String> tags = objectMapper.readValue(review.getTags(),
-                        new TypeReference<List<String>>() {});
-                vo.setTags(tags);
-            } catch (JsonProcessingException e) {
-                vo.setTags(new ArrayList<>());
-            }
-        } else {
-            vo.setTags(new ArrayList<>());
-        }
-
-        // 获取评价者信息
-        User reviewer = userMapper.selectById(review.getReviewerId());
-        if (reviewer != null) {
-            if (review.getAnonymous() != null && review.getAnonymous() == 1) {
-                vo.setReviewerUsername("匿名用户");
-                vo.setReviewerAvatar(null);
-            } else {
-                vo.setReviewerUsername(reviewer.getUsername());
-                vo.setReviewerAvatar(reviewer.getAvatar());
+    /**
+     * 批量组装评价列表：用户（评价者和被评价者）、订单、商品各查询一次
+     */
+    private List<ReviewVO> toVOList(List<Review> reviews) {
+        Map<Long, User> users = BatchHydrator.load(reviews, userMapper, User::getId,
+                Review::getReviewerId, Review::getTargetUserId);
+        Map<Long, Order> orders = BatchHydrator.load(reviews, orderMapper, Order::getId, Review::getOrderId);
+        Map<Long, Product> products = BatchHydrator.load(orders.values(), productMapper, Product::getId,
+                Order::getProductId);
+        Map<Long, String> firstImages = new HashMap<>();
+        for (Product product : products.values()) {
+            firstImages.put(product.getId(), parseFirstImage(product.getImages()));
+        }
+
+        List<ReviewVO> result = new ArrayList<>(reviews.size());
+        for (Review review : reviews) {
+            ReviewVO vo = new ReviewVO();
+            vo.setId(review.getId());
+            vo.setOrderId(review.getOrderId());
+            vo.setReviewerId(review.getReviewerId());
+            vo.setTargetUserId(review.getTargetUserId());
+            vo.setRating(review.getRating());
+            vo.setContent(review.getContent());
+            vo.setAnonymous(review.getAnonymous() != null ? review.getAnonymous() : 0);
+            vo.setReply(review.getReply());
+            vo.setReplyAt(review.getReplyAt());
+            vo.setCreatedAt(review.getCreatedAt());
+            vo.setImages(parseStringList(review.getImages()));
+            vo.setTags(parseStringList(review.getTags()));
+
+            // 评价者信息
+            User reviewer = users.get(review.getReviewerId());
+            if (reviewer != null) {
+                if (review.getAnonymous() != null && review.getAnonymous() == 1) {
+                    vo.setReviewerUsername("匿名用户");
+                    vo.setReviewerAvatar(null);
+                } else {
+                    vo.setReviewerUsername(reviewer.getUsername());
+                    vo.setReviewerAvatar(reviewer.getAvatar());
+                }
             }
-        }
 
-        // 获取被评价者信息
-        User targetUser = userMapper.selectById(review.getTargetUserId());
-        if (targetUser != null) {
-            vo.setTargetUsername(targetUser.getUsername());
-            vo.setTargetAvatar(targetUser.getAvatar());
-        }
+            // 被评价者信息
+            User targetUser = users.get(review.getTargetUserId());
+            if (targetUser != null) {
+                vo.setTargetUsername(targetUser.getUsername());
+                vo.setTargetAvatar(targetUser.getAvatar());
+            }
 
-        // 获取订单关联的商品信息
-        Order order = orderMapper.selectById(review.getOrderId());
-        if (order != null) {
-            Product product = productMapper.selectById(order.getProductId());
+            // 订单关联的商品信息
+            Order order = orders.get(review.getOrderId());
+            Product product = order != null ? products.get(order.getProductId()) : null;
             if (product != null) {
                 vo.setProductTitle(product.getTitle());
-                // 处理商品图片（取第一张）
-                if (product.getImages() != null && !product.getImages().isEmpty()) {
-                    try {
-                        List<String> productImages = objectMapper.readValue(product.getImages(),
-                                new TypeReference<List<String>>() {});
-                        if (!productImages.isEmpty()) {
-                            vo.setProductImage(productImages.get(0));
-                        }
-                    } catch (JsonProcessingException ignored) {
-                    }
-                }
+                vo.setProductImage(firstImages.get(product.getId()));
             }
+
+            result.add(vo);
+        }
+        return result;
+    }
+
+    /**
+     * 解析 JSON 字符串数组（图片、标签），格式错误时返回空列表
+     */
+    private List<String> parseStringList(String json) {
+        if (json == null || json.isEmpty()) {
+            return new ArrayList<>();
         }
+        try {
+            return objectMapper.readValue(json, new TypeReference<List<String>>() {});
+        } catch (JsonProcessingException e) {
+            return new ArrayList<>();
+        }
+    }
 
-        return vo;
+    private String parseFirstImage(String json) {
+        List<String> images = parseStringList(json);
+        return images.isEmpty() ? null : images.get(0);
     }
 
     /**
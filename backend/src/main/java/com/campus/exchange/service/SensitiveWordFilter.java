@@ -0,0 +1,384 @@
+package com.campus.exchange.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.campus.exchange.mapper.SensitiveWordMapper;
+import com.campus.exchange.model.SensitiveWord;
+import com.campus.exchange.util.DoubleArrayAhoCorasick;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 敏感词过滤
+ * 启用的敏感词归一化后编译成双数组 Aho-Corasick 自动机，对文本单遍扫描，代价与文本长度成正比、与词表大小无关。
+ * 归一化：全角转半角、大小写折叠，非字母数字字符视为干扰符号跳过，因此“c-h-e-a-t”“ＣＨＥＡＴ”都能命中“cheat”。
+ * 词表修改后由后台线程重新编译，编译完成后整体替换引用，扫描中的请求继续使用旧词典，不加锁。
+ * 多节点部署时由定时任务比对词表版本，发现其他节点的修改后重新编译。
+ */
+@Service
+public class SensitiveWordFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SensitiveWordFilter.class);
+
+    public static final String ACTION_BLOCK = "BLOCK";
+    public static final String ACTION_REPLACE = "REPLACE";
+    public static final String ACTION_FLAG = "FLAG";
+
+    private static final String DEFAULT_REPLACE_WORD = "***";
+
+    private final SensitiveWordMapper sensitiveWordMapper;
+    private final ThreadPoolExecutor executor;
+
+    private volatile Dictionary dictionary = Dictionary.EMPTY;
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+
+    private final AtomicLong scannedTotal = new AtomicLong();
+    private final AtomicLong blockedTotal = new AtomicLong();
+    private final AtomicLong replacedTotal = new AtomicLong();
+    private final AtomicLong flaggedTotal = new AtomicLong();
+    private final AtomicLong rebuildTotal = new AtomicLong();
+
+    public SensitiveWordFilter(SensitiveWordMapper sensitiveWordMapper) {
+        this.sensitiveWordMapper = sensitiveWordMapper;
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1), r -> {
+            Thread t = new Thread(r, "sensitive-word-rebuild");
+            t.setDaemon(true);
+            return t;
+        }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            logger.error("敏感词词典初始化失败，暂不过滤", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 词表已修改，在后台重新编译
+     * 编译期间的多次修改合并为一次编译
+     */
+    public void requestRebuild() {
+        if (!rebuildPending.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(() -> {
+            rebuildPending.set(false);
+            try {
+                rebuild();
+            } catch (Exception e) {
+                logger.error("敏感词词典编译失败", e);
+            }
+        });
+    }
+
+    /**
+     * 词表版本与当前词典不一致时重新编译
+     */
+    public void checkForChanges() {
+        String version = sensitiveWordMapper.findVersion();
+        if (version != null && !version.equals(dictionary.version)) {
+            requestRebuild();
+        }
+    }
+
+    /**
+     * 读取启用的敏感词并编译，完成后替换当前词典
+     */
+    public synchronized void rebuild() {
+        // 先取版本再读词表，读取期间的修改会在下次比对时发现
+        String version = sensitiveWordMapper.findVersion();
+
+        LambdaQueryWrapper<SensitiveWord> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(SensitiveWord::getId, SensitiveWord::getWord, SensitiveWord::getReplaceWord,
+                SensitiveWord::getAction);
+        wrapper.eq(SensitiveWord::getIsEnabled, true);
+        wrapper.orderByAsc(SensitiveWord::getId);
+        load(sensitiveWordMapper.selectList(wrapper), version);
+    }
+
+    /**
+     * 编译给定的词表并替换当前词典
+     * 归一化后相同的词（如“c-heat”与“cheat”）合并为一条，取最严格的动作：BLOCK > REPLACE > FLAG
+     */
+    void load(List<SensitiveWord> words, String version) {
+        long start = System.currentTimeMillis();
+        Map<String, Integer> indexOf = new HashMap<>();
+        List<String> patterns = new ArrayList<>(words.size());
+        List<SensitiveWord> entries = new ArrayList<>(words.size());
+        for (SensitiveWord word : words) {
+            String normalized = normalize(word.getWord());
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            Integer index = indexOf.get(normalized);
+            if (index == null) {
+                indexOf.put(normalized, entries.size());
+                patterns.add(normalized);
+                entries.add(word);
+            } else if (severity(word.getAction()) > severity(entries.get(index).getAction())) {
+                entries.set(index, word);
+            }
+        }
+
+        DoubleArrayAhoCorasick automaton = DoubleArrayAhoCorasick.build(patterns);
+        long elapsed = System.currentTimeMillis() - start;
+        dictionary = new Dictionary(automaton, entries, version, LocalDateTime.now(), elapsed);
+        rebuildTotal.incrementAndGet();
+        logger.info("敏感词词典已编译: words={}, states={}, arraySize={}, elapsed={}ms",
+                entries.size(), automaton.getStateCount(), automaton.getArraySize(), elapsed);
+    }
+
+    /**
+     * 扫描文本，BLOCK 词命中时结果为拦截，REPLACE 词替换为各自的替换词，FLAG 词只记录
+     */
+    public FilterResult filter(String text) {
+        Dictionary dict = dictionary;
+        if (text == null || text.isEmpty() || dict.entries.isEmpty()) {
+            return new FilterResult(text, Collections.emptyList(), Collections.emptyList(), 0);
+        }
+        scannedTotal.incrementAndGet();
+
+        DoubleArrayAhoCorasick automaton = dict.automaton;
+        int window = automaton.getMaxLength();
+        // 最近 window 个有效字符在原文中的下标，用于把匹配还原到原文区间
+        int[] positions = new int[window];
+        int count = 0;
+        int state = DoubleArrayAhoCorasick.ROOT;
+
+        Set<String> blocked = null;
+        Set<String> flagged = null;
+        List<int[]> spans = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = normalize(text.charAt(i));
+            if (c == 0) {
+                continue;
+            }
+            positions[count % window] = i;
+            count++;
+            state = automaton.step(state, c);
+            for (int m = automaton.firstMatch(state); m != -1; m = automaton.nextMatch(m)) {
+                int pattern = automaton.patternOf(m);
+                SensitiveWord entry = dict.entries.get(pattern);
+                String action = entry.getAction();
+                if (ACTION_BLOCK.equals(action)) {
+                    if (blocked == null) {
+                        blocked = new LinkedHashSet<>();
+                    }
+                    blocked.add(entry.getWord());
+                } else if (ACTION_FLAG.equals(action)) {
+                    if (flagged == null) {
+                        flagged = new LinkedHashSet<>();
+                    }
+                    flagged.add(entry.getWord());
+                } else {
+                    if (spans == null) {
+                        spans = new ArrayList<>();
+                    }
+                    int start = positions[(count - automaton.lengthOf(pattern)) % window];
+                    spans.add(new int[]{start, i + 1, pattern});
+                }
+            }
+        }
+
+        if (blocked != null) {
+            blockedTotal.incrementAndGet();
+            return new FilterResult(text, new ArrayList<>(blocked),
+                    flagged != null ? new ArrayList<>(flagged) : Collections.emptyList(), 0);
+        }
+        String result = text;
+        int replaced = 0;
+        if (spans != null) {
+            // 起点相同取最长，重叠的后一个区间并入前一个
+            spans.sort((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(b[1], a[1]));
+            StringBuilder sb = new StringBuilder(text.length());
+            int last = 0;
+            for (int[] span : spans) {
+                if (span[0] < last) {
+                    last = Math.max(last, span[1]);
+                    continue;
+                }
+                String replaceWord = dict.entries.get(span[2]).getReplaceWord();
+                sb.append(text, last, span[0]).append(replaceWord != null ? replaceWord : DEFAULT_REPLACE_WORD);
+                last = span[1];
+                replaced++;
+            }
+            result = sb.append(text, last, text.length()).toString();
+            replacedTotal.incrementAndGet();
+        }
+        if (flagged != null) {
+            flaggedTotal.incrementAndGet();
+        }
+        return new FilterResult(result, Collections.emptyList(),
+                flagged != null ? new ArrayList<>(flagged) : Collections.emptyList(), replaced);
+    }
+
+    /**
+     * 过滤用户提交的文本：命中 BLOCK 词时拒绝提交，否则返回替换后的结果
+     *
+     * @param field 字段说明，用于日志
+     */
+    public FilterResult check(String text, String field) {
+        FilterResult result = filter(text);
+        if (result.isBlocked()) {
+            logger.info("{}命中拦截词: {}", field, result.getBlockedWords());
+            throw new IllegalArgumentException("内容包含违规词，请修改后重试");
+        }
+        if (result.isFlagged()) {
+            logger.info("{}命中关注词: {}", field, result.getFlaggedWords());
+        }
+        return result;
+    }
+
+    /**
+     * 过滤统计
+     */
+    public Map<String, Object> getStats() {
+        Dictionary dict = dictionary;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("wordCount", dict.entries.size());
+        stats.put("stateCount", dict.automaton.getStateCount());
+        stats.put("arraySize", dict.automaton.getArraySize());
+        stats.put("maxWordLength", dict.automaton.getMaxLength());
+        stats.put("version", dict.version);
+        stats.put("builtAt", dict.builtAt);
+        stats.put("buildMs", dict.buildMs);
+        stats.put("rebuildTotal", rebuildTotal.get());
+        stats.put("rebuildPending", rebuildPending.get());
+        stats.put("scannedTotal", scannedTotal.get());
+        stats.put("blockedTotal", blockedTotal.get());
+        stats.put("replacedTotal", replacedTotal.get());
+        stats.put("flaggedTotal", flaggedTotal.get());
+        return stats;
+    }
+
+    private static int severity(String action) {
+        if (ACTION_BLOCK.equals(action)) {
+            return 3;
+        }
+        if (ACTION_FLAG.equals(action)) {
+            return 1;
+        }
+        // 未设置动作按 REPLACE 处理
+        return 2;
+    }
+
+    /**
+     * 归一化单个字符，干扰符号返回 0
+     */
+    static char normalize(char c) {
+        if (c >= '\uFF01' && c <= '\uFF5E') {
+            // 全角 ASCII 转半角
+            c = (char) (c - 0xFEE0);
+        }
+        if (!Character.isLetterOrDigit(c)) {
+            return 0;
+        }
+        return Character.toLowerCase(c);
+    }
+
+    static String normalize(String word) {
+        if (word == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(word.length());
+        for (int i = 0; i < word.length(); i++) {
+            char c = normalize(word.charAt(i));
+            if (c != 0) {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 编译后的词典，构建后不再修改
+     */
+    private static final class Dictionary {
+
+        static final Dictionary EMPTY = new Dictionary(DoubleArrayAhoCorasick.build(Collections.emptyList()),
+                Collections.emptyList(), null, null, 0);
+
+        final DoubleArrayAhoCorasick automaton;
+        /** 与自动机模式下标一一对应 */
+        final List<SensitiveWord> entries;
+        final String version;
+        final LocalDateTime builtAt;
+        final long buildMs;
+
+        Dictionary(DoubleArrayAhoCorasick automaton, List<SensitiveWord> entries, String version,
+                   LocalDateTime builtAt, long buildMs) {
+            this.automaton = automaton;
+            this.entries = entries;
+            this.version = version;
+            this.builtAt = builtAt;
+            this.buildMs = buildMs;
+        }
+    }
+
+    /**
+     * 过滤结果
+     */
+    public static final class FilterResult {
+
+        private final String text;
+        private final List<String> blockedWords;
+        private final List<String> flaggedWords;
+        private final int replacedCount;
+
+        FilterResult(String text, List<String> blockedWords, List<String> flaggedWords, int replacedCount) {
+            this.text = text;
+            this.blockedWords = blockedWords;
+            this.flaggedWords = flaggedWords;
+            this.replacedCount = replacedCount;
+        }
+
+        /** 替换后的文本；被拦截时为原文 */
+        public String getText() {
+            return text;
+        }
+
+        public boolean isBlocked() {
+            return !blockedWords.isEmpty();
+        }
+
+        public boolean isFlagged() {
+            return !flaggedWords.isEmpty();
+        }
+
+        public List<String> getBlockedWords() {
+            return blockedWords;
+        }
+
+        public List<String> getFlaggedWords() {
+            return flaggedWords;
+        }
+
+        public int getReplacedCount() {
+            return replacedCount;
+        }
+    }
+}
@@ -3,20 +3,50 @@ package com.campus.exchange.service;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.campus.exchange.config.BatchInsertSupport;
+import com.campus.exchange.mapper.BroadcastMessageMapper;
+import com.campus.exchange.mapper.ReadWatermarkMapper;
 import com.campus.exchange.mapper.SystemMessageMapper;
+import com.campus.exchange.model.BroadcastMessage;
 import com.campus.exchange.model.SystemMessage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * 系统消息服务
+ * 个人消息每个用户一行；群发写为一条广播（broadcast_message），用户读取时与个人消息合并，
+ * 广播在列表中以负数ID表示，已读/删除记录在回执表。
+ * 全部已读只推进 read_watermark 中的水位，ID 不大于水位的消息视为已读，水位之后以单条已读标记为准。
+ */
 @Service
 public class SystemMessageService {
 
+    /** 全体用户 */
+    public static final String SEGMENT_ALL = "ALL";
+    /** 已认证用户 */
+    public static final String SEGMENT_VERIFIED = "VERIFIED";
+    /** 未认证用户 */
+    public static final String SEGMENT_UNVERIFIED = "UNVERIFIED";
+
     @Autowired
     private SystemMessageMapper systemMessageMapper;
 
+    @Autowired
+    private BroadcastMessageMapper broadcastMessageMapper;
+
+    @Autowired
+    private ReadWatermarkMapper readWatermarkMapper;
+
+    @Autowired
+    private UnreadCounterService unreadCounterService;
+
+    @Autowired
+    private BatchInsertSupport batchInsertSupport;
+
     /**
      * 发送系统消息
      */
@@ -30,6 +60,7 @@ public class SystemMessageService {
         message.setRead(false);
         message.setCreateTime(LocalDateTime.now());
         systemMessageMapper.insert(message);
+        unreadCounterService.onSystemMessage(userId, 1);
     }
 
     /**
@@ -37,6 +68,7 @@ public class SystemMessageService {
      */
     public void batchSendMessage(List<Long> userIds, String title, String content, String type, Long relatedId) {
         LocalDateTime now = LocalDateTime.now();
+        List<SystemMessage> messages = new ArrayList<>(userIds.size());
         for (Long userId : userIds) {
             SystemMessage message = new SystemMessage();
             message.setUserId(userId);
@@ -46,68 +78,117 @@ public class SystemMessageService {
             message.setRelatedId(relatedId);
             message.setRead(false);
             message.setCreateTime(now);
-            systemMessageMapper.insert(message);
+            messages.add(message);
+        }
+        batchInsertSupport.insertBatch(systemMessageMapper, messages);
+        for (Long userId : userIds) {
+            unreadCounterService.onSystemMessage(userId, 1);
         }
     }
 
     /**
-     * 获取用户的系统消息列表
+     * 群发系统消息
+     * 全体用户只写一条广播，与用户数无关；指定分群时由 BroadcastMaterializeTask 在后台分批写入个人消息
      */
-    public IPage<SystemMessage> getUserMessages(Long userId, int page, int size, Boolean read) {
-        Page<SystemMessage> pageParam = new Page<>(page, size);
-        QueryWrapper<SystemMessage> wrapper = new QueryWrapper<>();
-        wrapper.eq("user_id", userId);
-        if (read != null) {
-            wrapper.eq("`read`", read);
+    public BroadcastMessage broadcast(String title, String content, String type, String segment) {
+        boolean all = segment == null || segment.isEmpty() || SEGMENT_ALL.equals(segment);
+        if (!all && !SEGMENT_VERIFIED.equals(segment) && !SEGMENT_UNVERIFIED.equals(segment)) {
+            throw new IllegalArgumentException("不支持的用户分群: " + segment);
+        }
+        BroadcastMessage broadcast = new BroadcastMessage();
+        broadcast.setTitle(title);
+        broadcast.setContent(content);
+        broadcast.setType(type);
+        broadcast.setSegment(all ? null : segment);
+        broadcast.setMaterializedUpTo(0L);
+        broadcast.setStatus(all ? "DONE" : "PENDING");
+        broadcast.setCreatedAt(LocalDateTime.now());
+        broadcastMessageMapper.insert(broadcast);
+        if (all) {
+            unreadCounterService.onBroadcast();
         }
-        wrapper.orderByDesc("create_time");
-        return systemMessageMapper.selectPage(pageParam, wrapper);
+        return broadcast;
+    }
+
+    /**
+     * 广播发送记录
+     */
+    public IPage<BroadcastMessage> getBroadcasts(int page, int size) {
+        QueryWrapper<BroadcastMessage> wrapper = new QueryWrapper<>();
+        wrapper.orderByDesc("id");
+        return broadcastMessageMapper.selectPage(new Page<>(page, size), wrapper);
+    }
+
+    /**
+     * 获取用户的系统消息列表（个人消息与广播合并，按时间倒序）
+     */
+    public IPage<SystemMessage> getUserMessages(Long userId, int page, int size, Boolean read) {
+        Page<SystemMessage> result = new Page<>(page, size);
+        result.setTotal(systemMessageMapper.countMerged(userId, read));
+        long offset = (Math.max(page, 1) - 1L) * size;
+        result.setRecords(offset < result.getTotal()
+                ? systemMessageMapper.findMerged(userId, read, offset, size) : new ArrayList<>());
+        return result;
     }
 
     /**
      * 获取用户未读消息数量
      */
     public long getUnreadCount(Long userId) {
-        QueryWrapper<SystemMessage> wrapper = new QueryWrapper<>();
-        wrapper.eq("user_id", userId);
-        wrapper.eq("`read`", false);
-        return systemMessageMapper.selectCount(wrapper);
+        return unreadCounterService.getSystemUnread(userId);
     }
 
     /**
      * 标记消息为已读
      */
     public void markAsRead(Long messageId, Long userId) {
-        SystemMessage message = systemMessageMapper.selectById(messageId);
-        if (message != null && message.getUserId().equals(userId)) {
-            message.setRead(true);
-            message.setReadTime(LocalDateTime.now());
-            systemMessageMapper.updateById(message);
+        if (messageId < 0) {
+            SystemMessage view = systemMessageMapper.findBroadcastView(userId, -messageId);
+            if (view != null && !Boolean.TRUE.equals(view.getRead())) {
+                broadcastMessageMapper.markRead(userId, -messageId, LocalDateTime.now());
+                unreadCounterService.onSystemRead(userId, 1);
+            }
+            return;
+        }
+        SystemMessage view = systemMessageMapper.findPersonalView(userId, messageId);
+        if (view != null && !Boolean.TRUE.equals(view.getRead())) {
+            SystemMessage update = new SystemMessage();
+            update.setId(messageId);
+            update.setRead(true);
+            update.setReadTime(LocalDateTime.now());
+            systemMessageMapper.updateById(update);
+            unreadCounterService.onSystemRead(userId, 1);
         }
     }
 
     /**
-     * 标记所有消息为已读
+     * 标记所有消息为已读：只推进个人消息与广播的已读水位，不逐条更新
      */
     public void markAllAsRead(Long userId) {
-        QueryWrapper<SystemMessage> wrapper = new QueryWrapper<>();
-        wrapper.eq("user_id", userId);
-        wrapper.eq("`read`", false);
-        List<SystemMessage> messages = systemMessageMapper.selectList(wrapper);
-        for (SystemMessage message : messages) {
-            message.setRead(true);
-            message.setReadTime(LocalDateTime.now());
-            systemMessageMapper.updateById(message);
-        }
+        readWatermarkMapper.markAllSystemRead(userId);
+        unreadCounterService.onSystemAllRead(userId);
     }
 
     /**
      * 删除消息
      */
     public void deleteMessage(Long messageId, Long userId) {
-        SystemMessage message = systemMessageMapper.selectById(messageId);
-        if (message != null && message.getUserId().equals(userId)) {
+        if (messageId < 0) {
+            SystemMessage view = systemMessageMapper.findBroadcastView(userId, -messageId);
+            if (view != null) {
+                broadcastMessageMapper.markDeleted(userId, -messageId);
+                if (!Boolean.TRUE.equals(view.getRead())) {
+                    unreadCounterService.onSystemRead(userId, 1);
+                }
+            }
+            return;
+        }
+        SystemMessage view = systemMessageMapper.findPersonalView(userId, messageId);
+        if (view != null) {
             systemMessageMapper.deleteById(messageId);
+            if (!Boolean.TRUE.equals(view.getRead())) {
+                unreadCounterService.onSystemRead(userId, 1);
+            }
         }
     }
 }
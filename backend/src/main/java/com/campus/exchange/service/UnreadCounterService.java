@@ -0,0 +1,285 @@
+package com.campus.exchange.service;
+
+import com.campus.exchange.config.PushRouter;
+import com.campus.exchange.mapper.ConversationMapper;
+import com.campus.exchange.mapper.SystemMessageMapper;
+import com.campus.exchange.model.Conversation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 未读数计数服务
+ * 按用户缓存私信未读（总数和每个会话）与系统消息未读，首次访问时从数据库加载，
+ * 发送时加一、已读时清零，变化后经 PushRouter 推送，由连接所在的节点投递，不在线则丢弃。
+ * 每个节点各自缓存，某个节点修改后经总线通知其他节点丢弃该用户的缓存，下次访问时重新加载。
+ * 数据库仍是准确来源：缓存定期按数据库重新加载，修正并发下可能产生的偏差。
+ */
+@Service
+public class UnreadCounterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnreadCounterService.class);
+
+    private static final long RESEED_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final long IDLE_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    /** 节点间事件主题，载荷为 USER:userId（丢弃该用户缓存）或 BROADCAST（全体广播） */
+    static final String TOPIC = "unread-counter";
+    private static final String EVENT_USER = "USER:";
+    private static final String EVENT_BROADCAST = "BROADCAST";
+
+    private final ConversationMapper conversationMapper;
+    private final SystemMessageMapper systemMessageMapper;
+    private final ObjectMapper objectMapper;
+    private final PushRouter pushRouter;
+    private final Map<Long, Counters> counters = new ConcurrentHashMap<>();
+
+    public UnreadCounterService(ConversationMapper conversationMapper, SystemMessageMapper systemMessageMapper,
+                                ObjectMapper objectMapper, PushRouter pushRouter) {
+        this.conversationMapper = conversationMapper;
+        this.systemMessageMapper = systemMessageMapper;
+        this.objectMapper = objectMapper;
+        this.pushRouter = pushRouter;
+    }
+
+    @PostConstruct
+    public void init() {
+        pushRouter.subscribe(TOPIC, this::onRemoteEvent);
+    }
+
+    /**
+     * 私信未读总数
+     */
+    public int getChatUnread(Long userId) {
+        return getOrSeed(userId).chatTotal.get();
+    }
+
+    /**
+     * 系统消息未读数
+     */
+    public int getSystemUnread(Long userId) {
+        return getOrSeed(userId).system.get();
+    }
+
+    /**
+     * 收到一条私信
+     */
+    public void onChatMessage(Long receiverId, Long senderId) {
+        afterCommit(() -> {
+            Counters c = counters.get(receiverId);
+            if (c != null) {
+                c.conversation(senderId).incrementAndGet();
+                c.chatTotal.incrementAndGet();
+            }
+            publishChange(receiverId);
+            push(receiverId, senderId);
+        });
+    }
+
+    /**
+     * 会话已读，清零该会话的未读
+     */
+    public void onConversationRead(Long readerId, Long partnerId) {
+        afterCommit(() -> {
+            publishChange(readerId);
+            Counters c = counters.get(readerId);
+            if (c == null) {
+                return;
+            }
+            AtomicInteger conversation = c.conversations.get(partnerId);
+            int cleared = conversation != null ? conversation.getAndSet(0) : 0;
+            if (cleared > 0) {
+                c.chatTotal.addAndGet(-cleared);
+                push(readerId, partnerId);
+            }
+        });
+    }
+
+    /**
+     * 收到系统消息
+     */
+    public void onSystemMessage(Long userId, int count) {
+        afterCommit(() -> {
+            Counters c = counters.get(userId);
+            if (c != null) {
+                c.system.addAndGet(count);
+            }
+            publishChange(userId);
+            push(userId, null);
+        });
+    }
+
+    /**
+     * 发出全体广播：已缓存的用户计数加一并推送，其余用户下次加载时从数据库计入
+     * 其他节点收到广播事件后对各自缓存的用户做同样处理
+     */
+    public void onBroadcast() {
+        afterCommit(() -> {
+            pushRouter.publishEvent(TOPIC, EVENT_BROADCAST);
+            for (Map.Entry<Long, Counters> entry : counters.entrySet()) {
+                entry.getValue().system.incrementAndGet();
+                push(entry.getKey(), null);
+            }
+        });
+    }
+
+    /**
+     * 系统消息已读或未读消息被删除
+     */
+    public void onSystemRead(Long userId, int count) {
+        afterCommit(() -> {
+            publishChange(userId);
+            Counters c = counters.get(userId);
+            if (c != null) {
+                c.system.updateAndGet(v -> Math.max(0, v - count));
+                push(userId, null);
+            }
+        });
+    }
+
+    /**
+     * 系统消息全部已读
+     */
+    public void onSystemAllRead(Long userId) {
+        afterCommit(() -> {
+            publishChange(userId);
+            Counters c = counters.get(userId);
+            if (c != null && c.system.getAndSet(0) > 0) {
+                push(userId, null);
+            }
+        });
+    }
+
+    /**
+     * 清理长时间未访问且不在线的用户
+     */
+    public int evictIdle() {
+        long now = System.currentTimeMillis();
+        int evicted = 0;
+        Iterator<Map.Entry<Long, Counters>> it = counters.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, Counters> entry = it.next();
+            if (now - entry.getValue().lastAccess > IDLE_MILLIS
+                    && !pushRouter.isConnectedHere(String.valueOf(entry.getKey()))) {
+                it.remove();
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    private Counters getOrSeed(Long userId) {
+        long now = System.currentTimeMillis();
+        Counters c = counters.get(userId);
+        if (c == null || now - c.seededAt > RESEED_MILLIS) {
+            c = load(userId, now);
+            counters.put(userId, c);
+        }
+        c.lastAccess = now;
+        return c;
+    }
+
+    private Counters load(Long userId, long now) {
+        Counters c = new Counters(now);
+        for (Conversation conversation : conversationMapper.findUnreadByUser(userId)) {
+            boolean isLow = userId.equals(conversation.getUserLow());
+            int unread = isLow ? conversation.getUnreadLow() : conversation.getUnreadHigh();
+            if (unread > 0) {
+                c.conversation(isLow ? conversation.getUserHigh() : conversation.getUserLow()).set(unread);
+                c.chatTotal.addAndGet(unread);
+            }
+        }
+        c.system.set((int) (systemMessageMapper.countUnreadPersonal(userId)
+                + systemMessageMapper.countUnreadBroadcasts(userId)));
+        return c;
+    }
+
+    /**
+     * 通知其他节点该用户的计数已变化，丢弃其缓存
+     */
+    private void publishChange(Long userId) {
+        pushRouter.publishEvent(TOPIC, EVENT_USER + userId);
+    }
+
+    /**
+     * 其他节点的变化：丢弃缓存；全体广播时已缓存的用户加一，并推送给连接在本节点的用户
+     */
+    private void onRemoteEvent(String payload) {
+        if (payload.startsWith(EVENT_USER)) {
+            counters.remove(Long.valueOf(payload.substring(EVENT_USER.length())));
+        } else if (EVENT_BROADCAST.equals(payload)) {
+            for (Map.Entry<Long, Counters> entry : counters.entrySet()) {
+                entry.getValue().system.incrementAndGet();
+                if (pushRouter.isConnectedHere(String.valueOf(entry.getKey()))) {
+                    push(entry.getKey(), null);
+                }
+            }
+        }
+    }
+
+    /**
+     * 推送最新未读数
+     * 用户可能连接在其他节点，这里不判断是否在线，统一交给 PushRouter，由连接所在的节点投递，没有连接的节点丢弃
+     */
+    private void push(Long userId, Long partnerId) {
+        try {
+            Counters c = getOrSeed(userId);
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("type", "UNREAD_COUNT");
+            payload.put("chat", c.chatTotal.get());
+            payload.put("system", c.system.get());
+            if (partnerId != null) {
+                AtomicInteger conversation = c.conversations.get(partnerId);
+                payload.put("partnerId", partnerId);
+                payload.put("conversationUnread", conversation != null ? conversation.get() : 0);
+            }
+            pushRouter.sendToUser(String.valueOf(userId), objectMapper.writeValueAsString(payload), "UNREAD_COUNT");
+        } catch (Exception e) {
+            logger.error("推送未读数失败: userId={}, error={}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * 事务提交后再更新计数，回滚的写入不会计入
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static class Counters {
+        final long seededAt;
+        final AtomicInteger chatTotal = new AtomicInteger();
+        final AtomicInteger system = new AtomicInteger();
+        final Map<Long, AtomicInteger> conversations = new ConcurrentHashMap<>();
+        volatile long lastAccess;
+
+        Counters(long seededAt) {
+            this.seededAt = seededAt;
+            this.lastAccess = seededAt;
+        }
+
+        AtomicInteger conversation(Long partnerId) {
+            return conversations.computeIfAbsent(partnerId, k -> new AtomicInteger());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.campus.exchange.task;
+
+import com.campus.exchange.service.BlockListCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 屏蔽关系缓存维护任务
+ */
+@Component
+public class BlockListCacheTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlockListCacheTask.class);
+
+    private final BlockListCache blockListCache;
+
+    public BlockListCacheTask(BlockListCache blockListCache) {
+        this.blockListCache = blockListCache;
+    }
+
+    /**
+     * 每5分钟清理长时间未访问的用户
+     */
+    @Scheduled(fixedDelay = 5 * 60 * 1000L, initialDelay = 5 * 60 * 1000L)
+    public void evictIdle() {
+        try {
+            int count = blockListCache.evictIdle();
+            if (count > 0) {
+                logger.info("清理了 {} 个用户的屏蔽列表缓存", count);
+            }
+        } catch (Exception e) {
+            logger.error("清理屏蔽列表缓存失败", e);
+        }
+    }
+
+    /**
+     * 每小时重建布隆过滤器，去掉已取消的屏蔽关系
+     */
+    @Scheduled(fixedDelay = 60 * 60 * 1000L, initialDelay = 60 * 60 * 1000L)
+    public void rebuildBloomFilter() {
+        try {
+            blockListCache.rebuildBloomFilter();
+        } catch (Exception e) {
+            logger.error("重建屏蔽关系布隆过滤器失败", e);
+        }
+    }
+}
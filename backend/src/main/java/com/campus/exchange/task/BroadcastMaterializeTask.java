@@ -0,0 +1,98 @@
+package com.campus.exchange.task;
+
+import com.campus.exchange.config.BatchInsertSupport;
+import com.campus.exchange.mapper.BroadcastMessageMapper;
+import com.campus.exchange.mapper.SystemMessageMapper;
+import com.campus.exchange.model.BroadcastMessage;
+import com.campus.exchange.model.SystemMessage;
+import com.campus.exchange.service.UnreadCounterService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分群广播写入任务
+ * 指定分群的广播在后台按用户ID分批写入个人系统消息，进度记录在广播行上，重启后从断点继续
+ */
+@Component
+public class BroadcastMaterializeTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(BroadcastMaterializeTask.class);
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final BroadcastMessageMapper broadcastMessageMapper;
+    private final SystemMessageMapper systemMessageMapper;
+    private final UnreadCounterService unreadCounterService;
+    private final BatchInsertSupport batchInsertSupport;
+    private final TransactionTemplate transactionTemplate;
+
+    public BroadcastMaterializeTask(BroadcastMessageMapper broadcastMessageMapper,
+                                    SystemMessageMapper systemMessageMapper,
+                                    UnreadCounterService unreadCounterService,
+                                    BatchInsertSupport batchInsertSupport,
+                                    PlatformTransactionManager transactionManager) {
+        this.broadcastMessageMapper = broadcastMessageMapper;
+        this.systemMessageMapper = systemMessageMapper;
+        this.unreadCounterService = unreadCounterService;
+        this.batchInsertSupport = batchInsertSupport;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 每5秒处理待写入的分群广播
+     */
+    @Scheduled(fixedDelay = 5000, initialDelay = 15000)
+    public void materialize() {
+        try {
+            for (BroadcastMessage broadcast : broadcastMessageMapper.findPending(10)) {
+                materialize(broadcast);
+            }
+        } catch (Exception e) {
+            logger.error("写入分群广播失败", e);
+        }
+    }
+
+    private void materialize(BroadcastMessage broadcast) {
+        long upTo = broadcast.getMaterializedUpTo() != null ? broadcast.getMaterializedUpTo() : 0L;
+        int total = 0;
+        List<Long> userIds;
+        do {
+            userIds = broadcastMessageMapper.findSegmentUserIds(broadcast.getSegment(), upTo, BATCH_SIZE);
+            if (userIds.isEmpty()) {
+                break;
+            }
+            List<SystemMessage> messages = new ArrayList<>(userIds.size());
+            for (Long userId : userIds) {
+                SystemMessage message = new SystemMessage();
+                message.setUserId(userId);
+                message.setTitle(broadcast.getTitle());
+                message.setContent(broadcast.getContent());
+                message.setType(broadcast.getType());
+                message.setRead(false);
+                message.setCreateTime(broadcast.getCreatedAt());
+                messages.add(message);
+            }
+            long batchUpTo = userIds.get(userIds.size() - 1);
+            // 消息与进度在同一事务中提交，中断后不会重复写入
+            transactionTemplate.executeWithoutResult(status -> {
+                batchInsertSupport.insertBatch(systemMessageMapper, messages);
+                broadcastMessageMapper.updateProgress(broadcast.getId(), batchUpTo, "PENDING");
+            });
+            upTo = batchUpTo;
+            for (Long userId : userIds) {
+                unreadCounterService.onSystemMessage(userId, 1);
+            }
+            total += userIds.size();
+        } while (userIds.size() == BATCH_SIZE);
+
+        broadcastMessageMapper.updateProgress(broadcast.getId(), upTo, "DONE");
+        logger.info("分群广播写入完成: broadcastId={}, segment={}, users={}", broadcast.getId(), broadcast.getSegment(), total);
+    }
+}
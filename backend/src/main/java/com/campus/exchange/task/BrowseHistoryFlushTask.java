@@ -0,0 +1,44 @@
+package com.campus.exchange.task;
+
+import com.campus.exchange.service.BrowseHistoryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+
+/**
+ * 浏览记录写入任务
+ */
+@Component
+public class BrowseHistoryFlushTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(BrowseHistoryFlushTask.class);
+
+    private final BrowseHistoryService browseHistoryService;
+
+    public BrowseHistoryFlushTask(BrowseHistoryService browseHistoryService) {
+        this.browseHistoryService = browseHistoryService;
+    }
+
+    /**
+     * 每秒把缓冲的浏览记录多行写入
+     */
+    @Scheduled(fixedDelay = 1000, initialDelay = 1000)
+    public void flush() {
+        try {
+            browseHistoryService.flushPending();
+        } catch (Exception e) {
+            logger.error("写入浏览记录失败", e);
+        }
+    }
+
+    /**
+     * 停机前写入剩余的浏览记录
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,46 @@
+package com.campus.exchange.task;
+
+import com.campus.exchange.service.DashboardStatsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 仪表盘统计快照刷新任务
+ */
+@Component
+public class DashboardStatsTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardStatsTask.class);
+
+    private final DashboardStatsService dashboardStatsService;
+
+    public DashboardStatsTask(DashboardStatsService dashboardStatsService) {
+        this.dashboardStatsService = dashboardStatsService;
+    }
+
+    /**
+     * 每 2 秒合并处理期间的数据变更
+     */
+    @Scheduled(fixedDelay = 2000L, initialDelay = 10 * 1000L)
+    public void refreshIfDirty() {
+        try {
+            dashboardStatsService.refreshIfDirty();
+        } catch (Exception e) {
+            logger.error("刷新仪表盘统计失败", e);
+        }
+    }
+
+    /**
+     * 每分钟全量刷新，覆盖未标记变更的写入（如其他节点的写入、跨天）
+     */
+    @Scheduled(fixedDelay = 60 * 1000L, initialDelay = 5 * 1000L)
+    public void refresh() {
+        try {
+            dashboardStatsService.refresh();
+        } catch (Exception e) {
+            logger.error("刷新仪表盘统计失败", e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.campus.exchange.task;
+
+import com.campus.exchange.service.DeliveryBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 最近投递窗口清理任务
+ */
+@Component
+public class DeliveryBufferTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeliveryBufferTask.class);
+
+    private final DeliveryBuffer deliveryBuffer;
+
+    public DeliveryBufferTask(DeliveryBuffer deliveryBuffer) {
+        this.deliveryBuffer = deliveryBuffer;
+    }
+
+    /**
+     * 每5分钟清理长时间没有新消息的窗口
+     */
+    @Scheduled(fixedDelay = 5 * 60 * 1000L, initialDelay = 5 * 60 * 1000L)
+    public void evictIdle() {
+        try {
+            int count = deliveryBuffer.evictIdle();
+            if (count > 0) {
+                logger.info("清理了 {} 个用户的投递窗口", count);
+            }
+        } catch (Exception e) {
+            logger.error("清理投递窗口失败", e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.campus.exchange.task;
+
+import com.campus.exchange.service.EmailQueueService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * 邮件发送队列任务
+ */
+@Component
+public class EmailQueueTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailQueueTask.class);
+
+    private static final int SENT_RETENTION_DAYS = 7;
+
+    private final EmailQueueService emailQueueService;
+
+    public EmailQueueTask(EmailQueueService emailQueueService) {
+        this.emailQueueService = emailQueueService;
+    }
+
+    /**
+     * 每秒取出到期的邮件
+     */
+    @Scheduled(fixedDelay = 1000L, initialDelay = 10 * 1000L)
+    public void dispatchPendingEmails() {
+        try {
+            emailQueueService.dispatchPending();
+        } catch (Exception e) {
+            logger.error("发送队列邮件失败", e);
+        }
+    }
+
+    /**
+     * 每天清理发送成功超过保留期的记录
+     */
+    @Scheduled(fixedDelay = 24 * 60 * 60 * 1000L, initialDelay = 60 * 60 * 1000L)
+    public void purgeSentEmails() {
+        try {
+            int count = emailQueueService.purgeSent(LocalDateTime.now().minusDays(SENT_RETENTION_DAYS));
+            if (count > 0) {
+                logger.info("清理了 {} 条已发送邮件记录", count);
+            }
+        } catch (Exception e) {
+            logger.error("清理已发送邮件记录失败", e);
+        }
+    }
+}
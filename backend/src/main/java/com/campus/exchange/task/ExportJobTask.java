@@ -0,0 +1,53 @@
+package com.campus.exchange.task;
+
+import com.campus.exchange.service.ExportJobService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 导出任务心跳与导出文件过期清理任务
+ */
+@Component
+public class ExportJobTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportJobTask.class);
+
+    private final ExportJobService exportJobService;
+
+    public ExportJobTask(ExportJobService exportJobService) {
+        this.exportJobService = exportJobService;
+    }
+
+    /**
+     * 每30秒为本节点的任务续期心跳，并把执行节点失联的任务标记为失败
+     */
+    @Scheduled(fixedDelay = 30 * 1000L, initialDelay = 30 * 1000L)
+    public void heartbeat() {
+        try {
+            exportJobService.heartbeat();
+            int stale = exportJobService.failStaleJobs();
+            if (stale > 0) {
+                logger.warn("执行节点失联的导出任务已标记为失败: {} 个", stale);
+            }
+        } catch (Exception e) {
+            logger.error("导出任务心跳失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 每小时删除过期的导出文件
+     */
+    @Scheduled(fixedDelay = 60 * 60 * 1000L, initialDelay = 5 * 60 * 1000L)
+    public void expireArtifacts() {
+        try {
+            int total = exportJobService.expireArtifacts();
+            if (total > 0) {
+                logger.info("清理过期导出文件: {} 个", total);
+            }
+        } catch (Exception e) {
+            logger.error("清理过期导出文件失败: {}", e.getMessage());
+        }
+    }
+}
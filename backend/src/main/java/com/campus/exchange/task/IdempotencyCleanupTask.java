@@ -0,0 +1,37 @@
+package com.campus.exchange.task;
+
+import com.campus.exchange.service.IdempotencyService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 幂等键清理任务
+ */
+@Component
+public class IdempotencyCleanupTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyCleanupTask.class);
+
+    private final IdempotencyService idempotencyService;
+
+    public IdempotencyCleanupTask(IdempotencyService idempotencyService) {
+        this.idempotencyService = idempotencyService;
+    }
+
+    /**
+     * 每10分钟清理过期的幂等记录
+     */
+    @Scheduled(fixedDelay = 10 * 60 * 1000L, initialDelay = 60 * 1000L)
+    public void purgeExpiredKeys() {
+        try {
+            int count = idempotencyService.purgeExpired();
+            if (count > 0) {
+                logger.info("清理了 {} 条过期的幂等记录", count);
+            }
+        } catch (Exception e) {
+            logger.error("清理幂等记录失败", e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.campus.exchange.task;
+
+import com.campus.exchange.mapper.MessageMapper;
+import com.campus.exchange.model.Message;
+import com.campus.exchange.service.MessageSearchIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 私信搜索索引维护任务
+ * 补建、刷写和合并可能持续很久，在独立的 message-index-maintenance 线程执行，不占用 Spring 的调度线程；
+ * 上一轮未结束时跳过本轮。
+ */
+@Component
+public class MessageIndexTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageIndexTask.class);
+
+    private static final int CATCH_UP_BATCH_SIZE = 1000;
+    private static final long FLUSH_INTERVAL_MS = 60 * 1000L;
+
+    private final MessageSearchIndex messageSearchIndex;
+    private final MessageMapper messageMapper;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "message-index-maintenance");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile boolean caughtUp;
+    private long lastFlushAt = System.currentTimeMillis();
+
+    public MessageIndexTask(MessageSearchIndex messageSearchIndex, MessageMapper messageMapper) {
+        this.messageSearchIndex = messageSearchIndex;
+        this.messageMapper = messageMapper;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 每5秒提交一轮维护：
+     * 启动后先从已刷写的位置补建索引（首次启动即全量构建，异常退出时补上内存表中丢失的部分）；
+     * 之后内存表达到阈值或距上次刷写超过1分钟时刷写为段文件，再按层合并段、持久化删除位图。
+     */
+    @Scheduled(fixedDelay = 5000, initialDelay = 10000)
+    public void maintain() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    runMaintenance();
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+        }
+    }
+
+    private void runMaintenance() {
+        try {
+            if (!caughtUp) {
+                catchUp();
+                caughtUp = true;
+            }
+            long now = System.currentTimeMillis();
+            if (messageSearchIndex.shouldFlush() || now - lastFlushAt >= FLUSH_INTERVAL_MS) {
+                messageSearchIndex.flush();
+                lastFlushAt = now;
+            }
+            messageSearchIndex.mergeIfNeeded();
+            messageSearchIndex.persistDeletes();
+        } catch (Exception e) {
+            logger.error("维护私信搜索索引失败", e);
+        }
+    }
+
+    private void catchUp() throws Exception {
+        long afterId = messageSearchIndex.getFlushedWatermark();
+        long total = 0;
+        List<Message> batch;
+        do {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException("补建私信索引被中断");
+            }
+            batch = messageMapper.findAfterId(afterId, CATCH_UP_BATCH_SIZE);
+            for (Message message : batch) {
+                messageSearchIndex.reindex(message);
+                afterId = message.getId();
+            }
+            total += batch.size();
+            if (messageSearchIndex.shouldFlush()) {
+                messageSearchIndex.flush(afterId);
+            }
+        } while (batch.size() == CATCH_UP_BATCH_SIZE);
+        if (total > 0) {
+            messageSearchIndex.flush();
+            logger.info("私信搜索索引补建完成，共 {} 条消息", total);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.campus.exchange.task;
+
+import com.campus.exchange.service.MetricRollupService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+
+/**
+ * 指标汇总任务
+ */
+@Component
+public class MetricRollupTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricRollupTask.class);
+
+    /** 每日回填覆盖的天数 */
+    private static final int BACKFILL_DAYS = 2;
+
+    private final MetricRollupService metricRollupService;
+
+    public MetricRollupTask(MetricRollupService metricRollupService) {
+        this.metricRollupService = metricRollupService;
+    }
+
+    /**
+     * 每 5 秒写入内存中的增量
+     */
+    @Scheduled(fixedDelay = 5000L, initialDelay = 5000L)
+    public void flush() {
+        try {
+            metricRollupService.flush();
+        } catch (Exception e) {
+            logger.error("写入指标汇总失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 每天凌晨按业务表重建最近两天的数据，修正进程异常退出时丢失的增量；同时清理过期的小时数据
+     */
+    @Scheduled(cron = "0 20 3 * * ?")
+    public void backfillRecent() {
+        try {
+            LocalDate today = LocalDate.now();
+            metricRollupService.backfill(today.minusDays(BACKFILL_DAYS), today);
+            int purged = metricRollupService.purgeExpiredHours();
+            if (purged > 0) {
+                logger.info("清理过期的小时指标数据: {} 行", purged);
+            }
+        } catch (Exception e) {
+            logger.error("指标汇总回填失败", e);
+        }
+    }
+
+    /**
+     * 停机前写入剩余增量
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,49 @@
+package com.campus.exchange.task;
+
+import com.campus.exchange.service.OutboxService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 订单事件发件箱投递与清理任务
+ */
+@Component
+public class OutboxDispatchTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxDispatchTask.class);
+
+    private final OutboxService outboxService;
+
+    public OutboxDispatchTask(OutboxService outboxService) {
+        this.outboxService = outboxService;
+    }
+
+    /**
+     * 每秒取出待投递的事件
+     */
+    @Scheduled(fixedDelay = 1000L, initialDelay = 10 * 1000L)
+    public void dispatchPendingEvents() {
+        try {
+            outboxService.dispatchPending();
+        } catch (Exception e) {
+            logger.error("投递订单事件失败", e);
+        }
+    }
+
+    /**
+     * 每天清理投递完成超过保留期的事件
+     */
+    @Scheduled(fixedDelay = 24 * 60 * 60 * 1000L, initialDelay = 60 * 60 * 1000L)
+    public void purgeDoneEvents() {
+        try {
+            int count = outboxService.purgeDone();
+            if (count > 0) {
+                logger.info("清理了 {} 条已投递的订单事件", count);
+            }
+        } catch (Exception e) {
+            logger.error("清理已投递订单事件失败", e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.campus.exchange.task;
+
+import com.campus.exchange.service.RevenueService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 成交额汇总对账任务
+ */
+@Component
+public class RevenueReconcileTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(RevenueReconcileTask.class);
+
+    private final RevenueService revenueService;
+
+    public RevenueReconcileTask(RevenueService revenueService) {
+        this.revenueService = revenueService;
+    }
+
+    /**
+     * 启动后执行一次，之后每6小时按订单表重建成交额汇总
+     */
+    @Scheduled(fixedDelay = 6 * 60 * 60 * 1000L, initialDelay = 60 * 1000L)
+    public void reconcile() {
+        try {
+            revenueService.rebuild();
+        } catch (Exception e) {
+            logger.error("成交额汇总对账失败", e);
+        }
+    }
+}
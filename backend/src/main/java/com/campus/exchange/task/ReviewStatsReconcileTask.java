@@ -0,0 +1,34 @@
+package com.campus.exchange.task;
+
+import com.campus.exchange.service.ReviewService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 评分汇总对账任务
+ */
+@Component
+public class ReviewStatsReconcileTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReviewStatsReconcileTask.class);
+
+    private final ReviewService reviewService;
+
+    public ReviewStatsReconcileTask(ReviewService reviewService) {
+        this.reviewService = reviewService;
+    }
+
+    /**
+     * 启动后执行一次，之后每6小时按评价表重建评分汇总
+     */
+    @Scheduled(fixedDelay = 6 * 60 * 60 * 1000L, initialDelay = 2 * 60 * 1000L)
+    public void reconcile() {
+        try {
+            reviewService.rebuildRatingStats();
+        } catch (Exception e) {
+            logger.error("评分汇总对账失败", e);
+        }
+    }
+}
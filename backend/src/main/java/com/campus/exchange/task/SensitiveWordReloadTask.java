@@ -0,0 +1,32 @@
+package com.campus.exchange.task;
+
+import com.campus.exchange.service.SensitiveWordFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 敏感词词典同步任务
+ * 本节点的修改会立即触发编译；此任务用于发现其他节点或直接改库造成的修改
+ */
+@Component
+public class SensitiveWordReloadTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(SensitiveWordReloadTask.class);
+
+    private final SensitiveWordFilter sensitiveWordFilter;
+
+    public SensitiveWordReloadTask(SensitiveWordFilter sensitiveWordFilter) {
+        this.sensitiveWordFilter = sensitiveWordFilter;
+    }
+
+    @Scheduled(fixedDelay = 60 * 1000L, initialDelay = 60 * 1000L)
+    public void checkForChanges() {
+        try {
+            sensitiveWordFilter.checkForChanges();
+        } catch (Exception e) {
+            logger.error("检查敏感词词表版本失败", e);
+        }
+    }
+}
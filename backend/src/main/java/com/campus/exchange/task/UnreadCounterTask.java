@@ -0,0 +1,37 @@
+package com.campus.exchange.task;
+
+import com.campus.exchange.service.UnreadCounterService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 未读数缓存清理任务
+ */
+@Component
+public class UnreadCounterTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnreadCounterTask.class);
+
+    private final UnreadCounterService unreadCounterService;
+
+    public UnreadCounterTask(UnreadCounterService unreadCounterService) {
+        this.unreadCounterService = unreadCounterService;
+    }
+
+    /**
+     * 每5分钟清理长时间未访问的离线用户计数
+     */
+    @Scheduled(fixedDelay = 5 * 60 * 1000L, initialDelay = 5 * 60 * 1000L)
+    public void evictIdleCounters() {
+        try {
+            int count = unreadCounterService.evictIdle();
+            if (count > 0) {
+                logger.info("清理了 {} 个用户的未读数缓存", count);
+            }
+        } catch (Exception e) {
+            logger.error("清理未读数缓存失败", e);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.campus.exchange.util;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 列表 VO 批量关联加载工具
+ * 声明一页数据引用某类实体的外键（如评价的 reviewerId、targetUserId 都指向用户），
+ * 收集整页去重后的ID，每类实体只用一次 selectBatchIds 加载，返回 ID -> 实体 的映射供组装 VO，
+ * SQL 次数只与关联的实体类型数有关，与页大小无关。
+ */
+public class BatchHydrator {
+
+    /** 单条 IN 查询的最大ID数，超过时分批 */
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
+    private BatchHydrator() {
+    }
+
+    /**
+     * 按外键批量加载关联实体
+     *
+     * @param rows        一页数据
+     * @param mapper      关联实体的 Mapper
+     * @param idOf        关联实体的主键
+     * @param foreignKeys 数据行上指向该实体的外键，可以有多个
+     */
+    @SafeVarargs
+    public static <S, E> Map<Long, E> load(Collection<S> rows, BaseMapper<E> mapper, Function<E, Long> idOf,
+                                           Function<S, Long>... foreignKeys) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (Function<S, Long> key : foreignKeys) {
+            addIds(ids, rows, key);
+        }
+        return loadByIds(mapper, ids, idOf);
+    }
+
+    /**
+     * 收集外键，去掉空值和重复值
+     */
+    @SafeVarargs
+    public static <S> Set<Long> collectIds(Collection<S> rows, Function<S, Long>... foreignKeys) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (Function<S, Long> key : foreignKeys) {
+            addIds(ids, rows, key);
+        }
+        return ids;
+    }
+
+    /**
+     * 可变参数数组只在声明它的方法里遍历，不传给其他方法，@SafeVarargs 才成立
+     */
+    private static <S> void addIds(Set<Long> ids, Collection<S> rows, Function<S, Long> foreignKey) {
+        for (S row : rows) {
+            Long id = foreignKey.apply(row);
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+    }
+
+    /**
+     * 按ID批量加载，不存在（或已逻辑删除）的ID不在结果中
+     */
+    public static <E> Map<Long, E> loadByIds(BaseMapper<E> mapper, Collection<Long> ids, Function<E, Long> idOf) {
+        Map<Long, E> result = new HashMap<>();
+        if (ids.isEmpty()) {
+            return result;
+        }
+        List<Long> idList = new ArrayList<>(ids);
+        for (int i = 0; i < idList.size(); i += MAX_IDS_PER_QUERY) {
+            List<Long> chunk = idList.subList(i, Math.min(i + MAX_IDS_PER_QUERY, idList.size()));
+            for (E entity : mapper.selectBatchIds(chunk)) {
+                result.put(idOf.apply(entity), entity);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,64 @@
+package com.campus.exchange.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 二元分词工具类
+ * 把文本按字母/数字/汉字连续片段切分，每个片段取相邻两个字符作为词项（中英文统一处理，不区分大小写），
+ * 如 "二手iPhone" 切分为 二手、手i、ip、ph、ho、on、ne。
+ * 查询时使用同样的切分，命中所有词项的文档再做一次原文包含校验即可得到与 LIKE 相同的结果。
+ */
+public class CjkBigramTokenizer {
+
+    private CjkBigramTokenizer() {
+    }
+
+    /**
+     * 切分为去重后的二元词项；长度为 1 的片段无法切分，不产生词项
+     */
+    public static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        for (String run : runs(text)) {
+            for (int i = 0; i + 2 <= run.length(); i++) {
+                tokens.add(run.substring(i, i + 2));
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 查询词是否可以走索引（至少有一个长度不小于 2 的片段）
+     */
+    public static boolean isIndexable(String query) {
+        return !tokenize(query).isEmpty();
+    }
+
+    /**
+     * 连续的字母、数字、汉字片段，统一转为小写
+     */
+    private static List<String> runs(String text) {
+        List<String> runs = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int i = 0;
+        while (i < text.length()) {
+            int cp = text.codePointAt(i);
+            if (Character.isLetterOrDigit(cp)) {
+                current.appendCodePoint(Character.toLowerCase(cp));
+            } else if (current.length() > 0) {
+                runs.add(current.toString());
+                current.setLength(0);
+            }
+            i += Character.charCount(cp);
+        }
+        if (current.length() > 0) {
+            runs.add(current.toString());
+        }
+        return runs;
+    }
+}
@@ -0,0 +1,13 @@
+package com.campus.exchange.util;
+
+/**
+ * 请求与正在进行的操作冲突，对应 HTTP 409，客户端可稍后重试
+ */
+public class ConflictException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ConflictException(String message) {
+        super(message);
+    }
+}
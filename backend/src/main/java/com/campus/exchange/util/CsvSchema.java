@@ -0,0 +1,83 @@
+package com.campus.exchange.util;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * CSV 导出列定义
+ * 按实体字段声明顺序生成列，每列的 getter 在创建时解析为 MethodHandle，逐行读取时不再反射查找字段。
+ * 排除的字段（如 password）不会出现在表头和数据中。
+ */
+public class CsvSchema<T> {
+
+    private final String[] headers;
+    private final MethodHandle[] getters;
+
+    private CsvSchema(List<String> headers, List<MethodHandle> getters) {
+        this.headers = headers.toArray(new String[0]);
+        this.getters = getters.toArray(new MethodHandle[0]);
+    }
+
+    public static <T> CsvSchema<T> of(Class<T> type, String... excluded) {
+        Set<String> skip = new HashSet<>(Arrays.asList(excluded));
+        Map<String, PropertyDescriptor> properties = new HashMap<>();
+        try {
+            BeanInfo info = Introspector.getBeanInfo(type, Object.class);
+            for (PropertyDescriptor pd : info.getPropertyDescriptors()) {
+                properties.put(pd.getName(), pd);
+            }
+        } catch (IntrospectionException e) {
+            throw new IllegalArgumentException("无法解析导出字段: " + type.getName(), e);
+        }
+
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        List<String> headers = new ArrayList<>();
+        List<MethodHandle> getters = new ArrayList<>();
+        for (Field field : type.getDeclaredFields()) {
+            PropertyDescriptor pd = properties.get(field.getName());
+            if (Modifier.isStatic(field.getModifiers()) || skip.contains(field.getName())
+                    || pd == null || pd.getReadMethod() == null) {
+                continue;
+            }
+            try {
+                getters.add(lookup.unreflect(pd.getReadMethod()));
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("无法读取导出字段: " + field.getName(), e);
+            }
+            headers.add(field.getName());
+        }
+        return new CsvSchema<>(headers, getters);
+    }
+
+    public String[] getHeaders() {
+        return headers.clone();
+    }
+
+    /**
+     * 读取一行的所有列值
+     */
+    public Object[] values(T row) {
+        Object[] values = new Object[getters.length];
+        for (int i = 0; i < getters.length; i++) {
+            try {
+                values[i] = getters[i].invoke(row);
+            } catch (Throwable e) {
+                throw new IllegalStateException("读取导出字段失败: " + headers[i], e);
+            }
+        }
+        return values;
+    }
+}
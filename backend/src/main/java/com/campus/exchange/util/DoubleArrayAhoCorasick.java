@@ -0,0 +1,322 @@
+package com.campus.exchange.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 双数组 Aho-Corasick 自动机
+ * 构建时先把排序后的模式插入普通字典树，再按层把每个节点的子节点放进 base/check 双数组（状态即数组下标），
+ * 转移只需一次数组寻址：t = base[s] + code(c)，check[t] == s 即存在该转移。
+ * 失败指针和输出链在构建时算好，匹配时每个输入字符的均摊代价为 O(1)，与词典大小无关。
+ * 实例构建后只读，可被多个线程同时使用。
+ */
+public class DoubleArrayAhoCorasick {
+
+    public static final int ROOT = 0;
+    private static final int NONE = -1;
+    /** 单个节点寻找 base 时失败的次数超过该值，则把搜索起点移到找到的位置 */
+    private static final int MAX_PROBES = 32;
+
+    /** 字符 -> 紧凑编码（从 1 开始），0 表示词典中没有该字符 */
+    private final char[] codeOf;
+    private final int[] base;
+    private final int[] check;
+    private final int[] fail;
+    /** 在该状态结束的模式下标，没有则为 -1 */
+    private final int[] output;
+    /** 沿失败指针最近的有输出的状态，没有则为 -1 */
+    private final int[] outputLink;
+    private final int[] lengths;
+    private final int maxLength;
+    private final int stateCount;
+
+    private DoubleArrayAhoCorasick(char[] codeOf, int[] base, int[] check, int[] fail, int[] output,
+                                   int[] outputLink, int[] lengths, int maxLength, int stateCount) {
+        this.codeOf = codeOf;
+        this.base = base;
+        this.check = check;
+        this.fail = fail;
+        this.output = output;
+        this.outputLink = outputLink;
+        this.lengths = lengths;
+        this.maxLength = maxLength;
+        this.stateCount = stateCount;
+    }
+
+    /**
+     * 构建自动机，模式在列表中的下标即匹配时返回的模式下标
+     * 空模式忽略；重复的模式只保留第一个
+     */
+    public static DoubleArrayAhoCorasick build(List<String> patterns) {
+        // 1. 字母表按字符排序编码，模式排序后插入时子节点即按编码升序追加
+        BitSet alphabet = new BitSet(Character.MAX_VALUE + 1);
+        List<Integer> order = new ArrayList<>(patterns.size());
+        int[] lengths = new int[patterns.size()];
+        int maxLength = 1;
+        for (int p = 0; p < patterns.size(); p++) {
+            String pattern = patterns.get(p);
+            if (pattern == null || pattern.isEmpty()) {
+                continue;
+            }
+            for (int i = 0; i < pattern.length(); i++) {
+                alphabet.set(pattern.charAt(i));
+            }
+            order.add(p);
+            lengths[p] = pattern.length();
+            maxLength = Math.max(maxLength, pattern.length());
+        }
+        char[] codeOf = new char[Character.MAX_VALUE + 1];
+        int codeCount = 0;
+        for (int c = alphabet.nextSetBit(0); c >= 0; c = alphabet.nextSetBit(c + 1)) {
+            codeOf[c] = (char) ++codeCount;
+        }
+        // 稳定排序，相同的模式保持原顺序，先插入的保留
+        order.sort(Comparator.comparing(patterns::get));
+
+        // 2. 字典树：按排序顺序插入，与前一个模式的公共前缀直接复用，新节点总是追加为最后一个子节点
+        Trie trie = new Trie(Math.max(16, patterns.size() * 4));
+        int[] path = new int[maxLength + 1];
+        String previous = "";
+        for (int p : order) {
+            String pattern = patterns.get(p);
+            int common = 0;
+            int limit = Math.min(previous.length(), pattern.length());
+            while (common < limit && previous.charAt(common) == pattern.charAt(common)) {
+                common++;
+            }
+            for (int i = common; i < pattern.length(); i++) {
+                path[i + 1] = trie.addChild(path[i], codeOf[pattern.charAt(i)]);
+            }
+            int node = path[pattern.length()];
+            if (trie.terminal[node] == NONE) {
+                trie.terminal[node] = p;
+            }
+            previous = pattern;
+        }
+
+        // 3. 按层放入双数组：用位图跳过已占用的位置，为每个节点找第一个能放下全部子节点的 base
+        int nodeCount = trie.size;
+        int[] position = new int[nodeCount];
+        int[] bfs = new int[nodeCount];
+        int capacity = Math.max(1024, nodeCount + codeCount + 1);
+        int[] base = new int[capacity];
+        int[] check = new int[capacity];
+        Arrays.fill(check, NONE);
+        check[ROOT] = ROOT;
+        BitSet used = new BitSet(capacity);
+        used.set(ROOT);
+        int[] codes = new int[codeCount + 1];
+        int head = 1;
+        int maxPosition = 0;
+
+        int tail = 0;
+        bfs[tail++] = 0;
+        for (int q = 0; q < tail; q++) {
+            int node = bfs[q];
+            int count = 0;
+            for (int child = trie.firstChild[node]; child != NONE; child = trie.nextSibling[child]) {
+                codes[count++] = trie.code[child];
+            }
+            if (count == 0) {
+                continue;
+            }
+            int first = codes[0];
+            int pos = used.nextClearBit(Math.max(head, first + 1));
+            int probes = 0;
+            int b;
+            while (true) {
+                b = pos - first;
+                boolean fits = true;
+                for (int i = 1; i < count; i++) {
+                    if (used.get(b + codes[i])) {
+                        fits = false;
+                        break;
+                    }
+                }
+                if (fits) {
+                    break;
+                }
+                probes++;
+                pos = used.nextClearBit(pos + 1);
+            }
+            if (probes > MAX_PROBES) {
+                // 前面的空位已很难放下多子节点，之后的节点从这里开始找，以少量空洞换取构建时间
+                head = pos;
+            }
+            int required = b + codes[count - 1] + 1;
+            if (required > check.length) {
+                int newCapacity = Math.max(required, check.length * 2);
+                base = Arrays.copyOf(base, newCapacity);
+                int oldLength = check.length;
+                check = Arrays.copyOf(check, newCapacity);
+                Arrays.fill(check, oldLength, newCapacity, NONE);
+            }
+            int parent = position[node];
+            base[parent] = b;
+            for (int child = trie.firstChild[node]; child != NONE; child = trie.nextSibling[child]) {
+                int pos2 = b + trie.code[child];
+                used.set(pos2);
+                check[pos2] = parent;
+                position[child] = pos2;
+                maxPosition = Math.max(maxPosition, pos2);
+                bfs[tail++] = child;
+            }
+            head = used.nextClearBit(head);
+        }
+
+        int size = maxPosition + 1;
+        base = Arrays.copyOf(base, size);
+        check = Arrays.copyOf(check, size);
+        int[] output = new int[size];
+        Arrays.fill(output, NONE);
+        for (int node = 0; node < nodeCount; node++) {
+            output[position[node]] = trie.terminal[node];
+        }
+
+        // 4. 按层计算失败指针和输出链
+        int[] fail = new int[size];
+        int[] outputLink = new int[size];
+        Arrays.fill(outputLink, NONE);
+        for (int q = 0; q < tail; q++) {
+            int node = bfs[q];
+            int state = position[node];
+            for (int child = trie.firstChild[node]; child != NONE; child = trie.nextSibling[child]) {
+                int code = trie.code[child];
+                int childState = position[child];
+                if (state == ROOT) {
+                    fail[childState] = ROOT;
+                } else {
+                    int f = fail[state];
+                    int target = transition(base, check, f, code);
+                    while (target == NONE && f != ROOT) {
+                        f = fail[f];
+                        target = transition(base, check, f, code);
+                    }
+                    fail[childState] = target != NONE ? target : ROOT;
+                }
+                int f = fail[childState];
+                outputLink[childState] = output[f] != NONE ? f : outputLink[f];
+            }
+        }
+
+        return new DoubleArrayAhoCorasick(codeOf, base, check, fail, output, outputLink, lengths,
+                maxLength, nodeCount);
+    }
+
+    /**
+     * 读入一个字符后的状态
+     */
+    public int step(int state, char c) {
+        int code = codeOf[c];
+        if (code == 0) {
+            return ROOT;
+        }
+        while (true) {
+            int target = transition(base, check, state, code);
+            if (target != NONE) {
+                return target;
+            }
+            if (state == ROOT) {
+                return ROOT;
+            }
+            state = fail[state];
+        }
+    }
+
+    /**
+     * 当前状态的第一个匹配（自身或沿输出链），没有则为 -1
+     */
+    public int firstMatch(int state) {
+        return output[state] != NONE ? state : outputLink[state];
+    }
+
+    /**
+     * 同一位置结束的下一个（更短的）匹配，没有则为 -1
+     */
+    public int nextMatch(int matchState) {
+        return outputLink[matchState];
+    }
+
+    /**
+     * 匹配状态对应的模式下标
+     */
+    public int patternOf(int matchState) {
+        return output[matchState];
+    }
+
+    public int lengthOf(int pattern) {
+        return lengths[pattern];
+    }
+
+    /** 最长模式的长度 */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    /** 双数组长度，反映内存占用 */
+    public int getArraySize() {
+        return base.length;
+    }
+
+    private static int transition(int[] base, int[] check, int state, int code) {
+        int target = base[state] + code;
+        return target < check.length && check[target] == state && target != ROOT ? target : NONE;
+    }
+
+    /**
+     * 构建期使用的字典树，子节点以单链表按插入顺序保存
+     */
+    private static final class Trie {
+        int[] firstChild;
+        int[] lastChild;
+        int[] nextSibling;
+        int[] code;
+        int[] terminal;
+        int size;
+
+        Trie(int capacity) {
+            firstChild = new int[capacity];
+            lastChild = new int[capacity];
+            nextSibling = new int[capacity];
+            code = new int[capacity];
+            terminal = new int[capacity];
+            newNode(0);
+        }
+
+        int addChild(int parent, int childCode) {
+            int child = newNode(childCode);
+            if (firstChild[parent] == NONE) {
+                firstChild[parent] = child;
+            } else {
+                nextSibling[lastChild[parent]] = child;
+            }
+            lastChild[parent] = child;
+            return child;
+        }
+
+        private int newNode(int nodeCode) {
+            if (size == code.length) {
+                int newCapacity = size * 2;
+                firstChild = Arrays.copyOf(firstChild, newCapacity);
+                lastChild = Arrays.copyOf(lastChild, newCapacity);
+                nextSibling = Arrays.copyOf(nextSibling, newCapacity);
+                code = Arrays.copyOf(code, newCapacity);
+                terminal = Arrays.copyOf(terminal, newCapacity);
+            }
+            int node = size++;
+            firstChild[node] = NONE;
+            lastChild[node] = NONE;
+            nextSibling[node] = NONE;
+            code[node] = nodeCode;
+            terminal[node] = NONE;
+            return node;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.campus.exchange.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 哈希时间轮
+ * 定时任务按到期时间散列到固定数量的槽中，单个线程每个刻度处理一个槽，
+ * 添加和取消都是 O(1)，适合大量精度要求不高的超时（如连接空闲检测）。
+ * 任务在时间轮线程中执行，应当快速返回；查库、关闭连接等可能阻塞的工作应交给其他线程池，
+ * 否则会推迟同一槽及之后所有任务的触发。
+ * 新任务先进入待入槽队列，由时间轮线程在每个刻度开始时放入槽中：槽只被时间轮线程访问，
+ * 不会出现任务放进刚处理过的槽、要等满一圈才触发的情况。
+ */
+public class HashedTimingWheel {
+
+    private static final Logger logger = LoggerFactory.getLogger(HashedTimingWheel.class);
+
+    private final long tickMillis;
+    private final Queue<Timeout>[] wheel;
+    private final Queue<Timeout> incoming = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private volatile boolean running = true;
+    /** 只由时间轮线程读写 */
+    private long tick;
+    private final long startTime;
+
+    public HashedTimingWheel(String name, long tickDuration, TimeUnit unit, int wheelSize) {
+        this.tickMillis = Math.max(1, unit.toMillis(tickDuration));
+        // 泛型数组只能先建通配符数组再转换，每个槽都放 Timeout 队列，转换是安全的
+        @SuppressWarnings("unchecked")
+        Queue<Timeout>[] slots = (Queue<Timeout>[]) new Queue<?>[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            slots[i] = new ArrayDeque<>();
+        }
+        this.wheel = slots;
+        this.startTime = System.currentTimeMillis();
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * 延迟执行任务，返回可取消的句柄
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        long deadlineTick = (System.currentTimeMillis() + unit.toMillis(delay) - startTime + tickMillis - 1) / tickMillis;
+        Timeout timeout = new Timeout(task, deadlineTick);
+        pending.incrementAndGet();
+        incoming.offer(timeout);
+        return timeout;
+    }
+
+    public int pendingCount() {
+        return pending.get();
+    }
+
+    public void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            long next = tick + 1;
+            long sleep = startTime + next * tickMillis - System.currentTimeMillis();
+            if (sleep > 0) {
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            tick = next;
+            transferIncoming(next);
+            Iterator<Timeout> it = wheel[(int) (next % wheel.length)].iterator();
+            while (it.hasNext()) {
+                Timeout timeout = it.next();
+                if (timeout.cancelled) {
+                    it.remove();
+                    pending.decrementAndGet();
+                } else if (timeout.deadlineTick <= next) {
+                    it.remove();
+                    pending.decrementAndGet();
+                    try {
+                        timeout.task.run();
+                    } catch (Exception e) {
+                        logger.error("时间轮任务执行失败", e);
+                    }
+                }
+                // 否则还要再转几圈
+            }
+        }
+    }
+
+    /**
+     * 把待入槽的任务放入槽中，已过期的放入当前刻度的槽，随后立即处理
+     */
+    private void transferIncoming(long currentTick) {
+        Timeout timeout;
+        while ((timeout = incoming.poll()) != null) {
+            if (timeout.cancelled) {
+                pending.decrementAndGet();
+                continue;
+            }
+            long slotTick = Math.max(timeout.deadlineTick, currentTick);
+            wheel[(int) (slotTick % wheel.length)].offer(timeout);
+        }
+    }
+
+    /**
+     * 定时任务句柄
+     */
+    public static final class Timeout {
+        final Runnable task;
+        final long deadlineTick;
+        volatile boolean cancelled;
+
+        Timeout(Runnable task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.campus.exchange.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * (long, long) 二元组的布隆过滤器，线程安全
+ * mightContain 返回 false 时一定不存在；返回 true 时可能存在，需要再做精确判断。
+ * 不支持删除，删除后的元素仍可能返回 true，由调用方定期重建。
+ */
+public class LongPairBloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * @param expectedInsertions 预计元素数
+     * @param fpp                期望误判率，如 0.01
+     */
+    public LongPairBloomFilter(long expectedInsertions, double fpp) {
+        long n = Math.max(expectedInsertions, 1);
+        long m = (long) Math.ceil(-n * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (m + 63) / 64));
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    public void put(long a, long b) {
+        long h1 = mix(a * 0x9E3779B97F4A7C15L ^ b);
+        long h2 = mix(h1 ^ b);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bitCount;
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long old;
+            do {
+                old = bits.get(word);
+                if ((old & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(word, old, old | mask));
+        }
+    }
+
+    public boolean mightContain(long a, long b) {
+        long h1 = mix(a * 0x9E3779B97F4A7C15L ^ b);
+        long h2 = mix(h1 ^ b);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bitCount;
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 位图大小（字节）
+     */
+    public long sizeInBytes() {
+        return bitCount / 8;
+    }
+
+    /**
+     * 64 位混淆（SplitMix64 终结函数）
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,13 @@
+package com.campus.exchange.util;
+
+/**
+ * 服务暂时无法受理（如后台队列已满），对应 HTTP 503，客户端可稍后重试
+ */
+public class ServiceBusyException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ServiceBusyException(String message) {
+        super(message);
+    }
+}
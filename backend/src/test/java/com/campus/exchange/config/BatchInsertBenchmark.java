@@ -0,0 +1,157 @@
+package com.campus.exchange.config;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.MybatisSqlSessionFactoryBuilder;
+import com.baomidou.mybatisplus.core.config.GlobalConfig;
+import com.baomidou.mybatisplus.core.toolkit.GlobalConfigUtils;
+import com.campus.exchange.mapper.SensitiveWordMapper;
+import com.campus.exchange.model.SensitiveWord;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多行写入基准：逐行 INSERT 与 BatchInsertSupport 分批多行写入的每秒行数
+ * 需要一个可写的 MySQL 库（默认 localhost:3307/campus_exchange_bench，会重建其中的 sensitive_word 表），
+ * 可用环境变量 BENCH_JDBC_URL、BENCH_JDBC_USER、BENCH_JDBC_PASSWORD 覆盖。
+ * 结果看 rows 一列（rows/s），每次调用前清空表，只计写入耗时。
+ * 运行：mvn -P benchmark test-compile exec:exec -Dbenchmark=BatchInsertBenchmark
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BatchInsertBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int rowCount;
+
+    /** row：逐行 insert；batch：insertBatchSomeColumn；ignore：insertIgnoreBatch（敏感词批量导入使用） */
+    @Param({"row", "batch", "ignore"})
+    public String mode;
+
+    private SqlSession session;
+    private SensitiveWordMapper mapper;
+    private BatchInsertSupport batchInsertSupport;
+    private List<SensitiveWord> rows;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class RowCounter {
+        public long rows;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rows = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws SQLException {
+        UnpooledDataSource dataSource = new UnpooledDataSource("com.mysql.cj.jdbc.Driver",
+                env("BENCH_JDBC_URL", "jdbc:mysql://localhost:3307/campus_exchange_bench?useUnicode=true"
+                        + "&characterEncoding=utf-8&serverTimezone=Asia/Shanghai&useSSL=false"
+                        + "&allowPublicKeyRetrieval=true"),
+                env("BENCH_JDBC_USER", "root"), env("BENCH_JDBC_PASSWORD", "123456"));
+        MybatisConfiguration configuration = new MybatisConfiguration();
+        GlobalConfig globalConfig = GlobalConfigUtils.defaults();
+        globalConfig.setSqlInjector(new BatchSqlInjector());
+        GlobalConfigUtils.setGlobalConfig(configuration, globalConfig);
+        configuration.setEnvironment(new Environment("benchmark", new JdbcTransactionFactory(), dataSource));
+        configuration.addMapper(SensitiveWordMapper.class);
+        SqlSessionFactory factory = new MybatisSqlSessionFactoryBuilder().build(configuration);
+
+        session = factory.openSession(true);
+        mapper = session.getMapper(SensitiveWordMapper.class);
+        batchInsertSupport = new BatchInsertSupport(1000, 1048576);
+        try (Statement statement = session.getConnection().createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS sensitive_word");
+            statement.execute("CREATE TABLE sensitive_word ("
+                    + "id BIGINT PRIMARY KEY AUTO_INCREMENT,"
+                    + "word VARCHAR(100) NOT NULL UNIQUE,"
+                    + "category VARCHAR(50) DEFAULT 'OTHER',"
+                    + "level INT DEFAULT 1,"
+                    + "replace_word VARCHAR(50) DEFAULT '***',"
+                    + "action VARCHAR(10) NOT NULL DEFAULT 'REPLACE',"
+                    + "is_enabled TINYINT(1) DEFAULT 1,"
+                    + "created_at DATETIME DEFAULT CURRENT_TIMESTAMP,"
+                    + "updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP"
+                    + ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() throws SQLException {
+        Connection connection = session.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("TRUNCATE TABLE sensitive_word");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        rows = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            SensitiveWord word = new SensitiveWord();
+            word.setWord("bench-word-" + i);
+            word.setCategory("CUSTOM");
+            word.setLevel(2);
+            word.setReplaceWord("***");
+            word.setAction("REPLACE");
+            word.setIsEnabled(true);
+            word.setCreatedAt(now);
+            word.setUpdatedAt(now);
+            rows.add(word);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        session.close();
+    }
+
+    @Benchmark
+    public int insert(RowCounter counter) {
+        int affected;
+        if ("row".equals(mode)) {
+            affected = 0;
+            for (SensitiveWord word : rows) {
+                affected += mapper.insert(word);
+            }
+        } else if ("batch".equals(mode)) {
+            affected = batchInsertSupport.insertBatch(mapper, rows);
+        } else {
+            affected = batchInsertSupport.insertIgnoreBatch(mapper, rows);
+        }
+        counter.rows += affected;
+        return affected;
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value != null && !value.isEmpty() ? value : defaultValue;
+    }
+}
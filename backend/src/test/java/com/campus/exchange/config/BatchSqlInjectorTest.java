@@ -0,0 +1,77 @@
+package com.campus.exchange.config;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.config.GlobalConfig;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import com.baomidou.mybatisplus.core.toolkit.GlobalConfigUtils;
+import com.campus.exchange.mapper.SensitiveWordMapper;
+import com.campus.exchange.model.SensitiveWord;
+import org.apache.ibatis.mapping.BoundSql;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchSqlInjectorTest {
+
+    private static MybatisConfiguration configuration;
+
+    @BeforeAll
+    static void injectMethods() {
+        configuration = new MybatisConfiguration();
+        GlobalConfig globalConfig = GlobalConfigUtils.defaults();
+        globalConfig.setSqlInjector(new BatchSqlInjector());
+        GlobalConfigUtils.setGlobalConfig(configuration, globalConfig);
+        configuration.addMapper(SensitiveWordMapper.class);
+    }
+
+    @Test
+    void insertIgnoreBatchSkipsConflictsWithoutOverwriting() {
+        String sql = render("insertIgnoreBatch");
+
+        assertTrue(sql.startsWith("INSERT IGNORE INTO sensitive_word ("), sql);
+        assertEquals(2, count(sql, "(?,"));
+        assertFalse(sql.contains("ON DUPLICATE KEY"));
+    }
+
+    @Test
+    void upsertBatchKeepsInsertOnlyColumns() {
+        String sql = render("upsertBatch");
+
+        assertTrue(sql.startsWith("INSERT INTO sensitive_word ("), sql);
+        assertEquals(2, count(sql, "(?,"));
+        assertTrue(sql.contains("ON DUPLICATE KEY UPDATE word = VALUES(word)"), sql);
+    }
+
+    private static String render(String method) {
+        List<SensitiveWord> rows = Arrays.asList(word("foo"), word("bar"));
+        Map<String, Object> param = new HashMap<>();
+        param.put(Constants.LIST, rows);
+        BoundSql boundSql = configuration.getMappedStatement(SensitiveWordMapper.class.getName() + "." + method)
+                .getBoundSql(param);
+        return boundSql.getSql().replaceAll("\\s+", " ").trim();
+    }
+
+    private static SensitiveWord word(String text) {
+        SensitiveWord word = new SensitiveWord();
+        word.setWord(text);
+        word.setLevel(2);
+        word.setAction("REPLACE");
+        return word;
+    }
+
+    private static int count(String sql, String token) {
+        int count = 0;
+        for (int at = sql.indexOf(token); at >= 0; at = sql.indexOf(token, at + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
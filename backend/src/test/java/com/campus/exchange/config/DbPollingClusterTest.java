@@ -0,0 +1,176 @@
+package com.campus.exchange.config;
+
+import com.campus.exchange.mapper.ConversationMapper;
+import com.campus.exchange.mapper.SystemMessageMapper;
+import com.campus.exchange.mapper.WsBusFrameMapper;
+import com.campus.exchange.model.WsBusFrame;
+import com.campus.exchange.service.UnreadCounterService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 两个节点经数据库轮询总线互通：共享的 ws_bus_frame 表用内存列表代替，其余组件（发送队列、推送路由、
+ * 轮询总线、未读计数）都是真实实现，每个节点一套，相当于同一个库上的两个服务端。
+ * 用真实服务端验证时，以相同数据库启动两个实例即可：
+ * --websocket.bus=db --websocket.node-id=node-a --server.port=8080 与 --websocket.node-id=node-b --server.port=8081
+ */
+class DbPollingClusterTest {
+
+    private static final long INTERVAL_MS = 20;
+
+    private final List<WsBusFrame> table = new CopyOnWriteArrayList<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Node> nodes = new ArrayList<>();
+
+    private SystemMessageMapper systemMessageMapper;
+
+    @BeforeEach
+    void setUp() {
+        systemMessageMapper = mock(SystemMessageMapper.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (Node node : nodes) {
+            node.router.stop();
+            node.registry.shutdown();
+        }
+    }
+
+    @Test
+    void unreadCountReachesUserConnectedToOtherNode() throws Exception {
+        Node a = startNode("node-a");
+        Node b = startNode("node-b");
+        BlockingQueue<String> received = connect(b, "7");
+        when(systemMessageMapper.countUnreadPersonal(7L)).thenReturn(3L);
+
+        // 用户只连接在 node-b，node-a 上产生的变化也要送达
+        a.unread.onSystemMessage(7L, 1);
+
+        String frame = received.poll(5, TimeUnit.SECONDS);
+        assertNotNull(frame, "node-b 未收到 node-a 推送的未读数");
+        assertEquals("UNREAD_COUNT", objectMapper.readTree(frame).get("type").asText());
+        assertEquals(3, objectMapper.readTree(frame).get("system").asInt());
+    }
+
+    @Test
+    void counterChangeInvalidatesOtherNodesCache() {
+        Node a = startNode("node-a");
+        Node b = startNode("node-b");
+        assertEquals(0, b.unread.getSystemUnread(9L));
+
+        when(systemMessageMapper.countUnreadPersonal(9L)).thenReturn(2L);
+        a.unread.onSystemMessage(9L, 2);
+
+        await(() -> b.unread.getSystemUnread(9L) == 2);
+    }
+
+    @Test
+    void eventsAreNotDeliveredBackToPublisher() {
+        Node a = startNode("node-a");
+        Node b = startNode("node-b");
+        List<String> onA = new CopyOnWriteArrayList<>();
+        List<String> onB = new CopyOnWriteArrayList<>();
+        a.router.subscribe("test", onA::add);
+        b.router.subscribe("test", onB::add);
+
+        a.router.publishEvent("test", "hello");
+
+        await(() -> onB.contains("hello"));
+        assertTrue(onA.isEmpty());
+    }
+
+    private Node startNode(String nodeId) {
+        Node node = new Node(nodeId, sharedMapper(), systemMessageMapper, objectMapper);
+        nodes.add(node);
+        return node;
+    }
+
+    private BlockingQueue<String> connect(Node node, String userId) throws Exception {
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(node.router.getNodeId() + "-" + userId);
+        when(session.isOpen()).thenReturn(true);
+        doAnswer(inv -> received.add(((TextMessage) inv.getArgument(0)).getPayload()))
+                .when(session).sendMessage(any());
+        node.registry.register(userId, session);
+        return received;
+    }
+
+    /**
+     * 两个节点共用的 ws_bus_frame 表
+     */
+    private WsBusFrameMapper sharedMapper() {
+        WsBusFrameMapper mapper = mock(WsBusFrameMapper.class);
+        when(mapper.insert(any(WsBusFrame.class))).thenAnswer(inv -> {
+            WsBusFrame row = inv.getArgument(0);
+            row.setId(ids.incrementAndGet());
+            table.add(row);
+            return 1;
+        });
+        when(mapper.findAfter(anyLong(), anyInt())).thenAnswer(inv -> {
+            long afterId = inv.getArgument(0);
+            int limit = inv.getArgument(1);
+            return table.stream().filter(row -> row.getId() > afterId).limit(limit).collect(Collectors.toList());
+        });
+        when(mapper.findMaxId()).thenAnswer(inv -> ids.get());
+        return mapper;
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待跨节点同步超时");
+            try {
+                Thread.sleep(INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static class Node {
+        final WebSocketSessionRegistry registry;
+        final PushRouter router;
+        final UnreadCounterService unread;
+
+        Node(String nodeId, WsBusFrameMapper busMapper, SystemMessageMapper systemMessageMapper,
+             ObjectMapper objectMapper) {
+            registry = new WebSocketSessionRegistry(256, WebSocketSessionRegistry.OVERFLOW_DROP_OLDEST, 2, 10000);
+            router = new PushRouter(registry, new DbPollingPushBusTransport(busMapper, objectMapper, INTERVAL_MS),
+                    nodeId, INTERVAL_MS);
+            router.start();
+            ConversationMapper conversationMapper = mock(ConversationMapper.class);
+            when(conversationMapper.findUnreadByUser(any())).thenReturn(Collections.emptyList());
+            unread = new UnreadCounterService(conversationMapper, systemMessageMapper, objectMapper, router);
+            unread.init();
+        }
+    }
+}
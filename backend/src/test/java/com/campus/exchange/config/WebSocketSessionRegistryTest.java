@@ -0,0 +1,130 @@
+package com.campus.exchange.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WebSocketSessionRegistryTest {
+
+    private static final long SEND_TIME_LIMIT_MS = 200;
+
+    /** 单个写线程，卡住的会话不释放就会饿死其他会话 */
+    private final WebSocketSessionRegistry registry = new WebSocketSessionRegistry(16,
+            WebSocketSessionRegistry.OVERFLOW_DROP_OLDEST, 1, SEND_TIME_LIMIT_MS);
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void stalledSendIsAbortedAndWriterFreed() throws Exception {
+        CountDownLatch sendStarted = new CountDownLatch(1);
+        WebSocketSession hung = hungSession(sendStarted);
+        registry.register("1", hung);
+        BlockingQueue<String> healthy = new LinkedBlockingQueue<>();
+        registry.register("2", recordingSession("s2", healthy));
+
+        registry.sendToUser("1", "first");
+        assertTrue(sendStarted.await(2, TimeUnit.SECONDS));
+        Thread.sleep(SEND_TIME_LIMIT_MS + 50);
+
+        // 发送已超时：入队时拒绝，并关闭会话使阻塞的发送失败
+        assertEquals(0, registry.sendToUser("1", "second"));
+        verify(hung, timeout(2000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+
+        registry.sendToUser("2", "hello");
+        assertNotNull(healthy.poll(2, TimeUnit.SECONDS), "写线程没有被释放");
+        assertEquals(1L, registry.getStats().get("stalledTotal"));
+    }
+
+    @Test
+    void watchdogAbortsStalledSendWithoutNewMessages() throws Exception {
+        CountDownLatch sendStarted = new CountDownLatch(1);
+        WebSocketSession hung = hungSession(sendStarted);
+        registry.register("1", hung);
+
+        registry.sendToUser("1", "only");
+        assertTrue(sendStarted.await(2, TimeUnit.SECONDS));
+
+        verify(hung, timeout(3000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    @Test
+    void overflowDisconnectClosesOnWatchdogThread() throws Exception {
+        WebSocketSessionRegistry disconnecting = new WebSocketSessionRegistry(1,
+                WebSocketSessionRegistry.OVERFLOW_DISCONNECT, 1, 10000);
+        try {
+            CountDownLatch sendStarted = new CountDownLatch(1);
+            WebSocketSession hung = hungSession(sendStarted);
+            BlockingQueue<String> closedBy = new LinkedBlockingQueue<>();
+            doAnswer(inv -> {
+                closedBy.add(Thread.currentThread().getName());
+                return null;
+            }).when(hung).close(any());
+            disconnecting.register("1", hung);
+
+            disconnecting.sendToUser("1", "first");
+            assertTrue(sendStarted.await(2, TimeUnit.SECONDS));
+            assertEquals(1, disconnecting.sendToUser("1", "second"));
+
+            // 队列已满：调用方只负责标记关闭，真正的 close 在巡检线程执行
+            assertEquals(0, disconnecting.sendToUser("1", "third"));
+            assertEquals(0, disconnecting.sendToUser("1", "fourth"));
+            assertEquals("ws-send-watchdog", closedBy.poll(2, TimeUnit.SECONDS));
+            assertEquals(1L, disconnecting.getStats().get("disconnectedTotal"));
+        } finally {
+            disconnecting.shutdown();
+        }
+    }
+
+    /**
+     * 客户端不读：发送一直阻塞，直到会话被关闭（与容器关闭底层连接时的表现一致）
+     */
+    private static WebSocketSession hungSession(CountDownLatch sendStarted) throws IOException {
+        WebSocketSession session = mock(WebSocketSession.class);
+        AtomicBoolean open = new AtomicBoolean(true);
+        CountDownLatch closed = new CountDownLatch(1);
+        when(session.getId()).thenReturn("hung");
+        when(session.isOpen()).thenAnswer(inv -> open.get());
+        doAnswer(inv -> {
+            sendStarted.countDown();
+            closed.await(10, TimeUnit.SECONDS);
+            throw new IOException("连接已关闭");
+        }).when(session).sendMessage(any());
+        doAnswer(inv -> {
+            open.set(false);
+            closed.countDown();
+            return null;
+        }).when(session).close(any());
+        return session;
+    }
+
+    private static WebSocketSession recordingSession(String id, BlockingQueue<String> received) throws IOException {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(true);
+        doAnswer(inv -> received.add(((TextMessage) inv.getArgument(0)).getPayload()))
+                .when(session).sendMessage(any());
+        return session;
+    }
+}
@@ -0,0 +1,98 @@
+package com.campus.exchange.controller;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.campus.exchange.dto.ProductReportVO;
+import com.campus.exchange.mapper.ProductMapper;
+import com.campus.exchange.mapper.ProductReportMapper;
+import com.campus.exchange.mapper.UserMapper;
+import com.campus.exchange.model.Product;
+import com.campus.exchange.model.ProductReport;
+import com.campus.exchange.model.User;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AdminControllerTest {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Mock
+    private UserMapper userMapper;
+    @Mock
+    private ProductMapper productMapper;
+    @Mock
+    private ProductReportMapper productReportMapper;
+    @InjectMocks
+    private AdminController adminController;
+
+    @BeforeAll
+    static void initTableInfo() {
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), ProductReport.class);
+    }
+
+    @Test
+    void reportPageLoadsEachEntityTypeOnce() {
+        List<ProductReport> reports = new ArrayList<>();
+        for (long i = 1; i <= PAGE_SIZE; i++) {
+            ProductReport report = new ProductReport();
+            report.setId(i);
+            report.setProductId(100 + i);
+            report.setReporterId(200 + i % 3);
+            report.setStatus("PENDING");
+            reports.add(report);
+        }
+        Page<ProductReport> page = new Page<>(1, PAGE_SIZE, PAGE_SIZE);
+        page.setRecords(reports);
+        when(productReportMapper.selectPage(any(), any())).thenReturn(page);
+        when(productMapper.selectBatchIds(anyCollection())).thenAnswer(inv -> ids(inv.getArgument(0)).stream()
+                .map(id -> {
+                    Product product = new Product();
+                    product.setId(id);
+                    product.setTitle("商品" + id);
+                    return product;
+                }).collect(Collectors.toList()));
+        when(userMapper.selectBatchIds(anyCollection())).thenAnswer(inv -> ids(inv.getArgument(0)).stream()
+                .map(id -> {
+                    User user = new User();
+                    user.setId(id);
+                    user.setUsername("user" + id);
+                    return user;
+                }).collect(Collectors.toList()));
+
+        Page<ProductReportVO> result = adminController.getReportList(1, PAGE_SIZE, "PENDING").getData();
+
+        assertEquals(PAGE_SIZE, result.getRecords().size());
+        ProductReportVO first = result.getRecords().get(0);
+        assertEquals("商品101", first.getProductTitle());
+        assertEquals("user201", first.getReporterUsername());
+        verify(productMapper, times(1)).selectBatchIds(anyCollection());
+        verify(userMapper, times(1)).selectBatchIds(anyCollection());
+        verify(productMapper, never()).selectById(any());
+        verify(userMapper, never()).selectById(any());
+    }
+
+    private static List<Long> ids(Collection<? extends Serializable> ids) {
+        return ids.stream().map(id -> (Long) id).collect(Collectors.toList());
+    }
+}
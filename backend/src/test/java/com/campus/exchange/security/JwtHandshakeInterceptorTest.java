@@ -0,0 +1,61 @@
+package com.campus.exchange.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class JwtHandshakeInterceptorTest {
+
+    private JwtTokenProvider tokenProvider;
+    private JwtHandshakeInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        tokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(tokenProvider, "secret", "test-secret-key-must-be-at-least-256-bits-long-for-hs256");
+        ReflectionTestUtils.setField(tokenProvider, "expiration", 60000L);
+        tokenProvider.init();
+        interceptor = new JwtHandshakeInterceptor(tokenProvider);
+    }
+
+    @Test
+    void userIdComesFromTokenNotFromQuery() throws Exception {
+        String token = tokenProvider.generateToken(7L, "alice", "USER");
+        Map<String, Object> attributes = new HashMap<>();
+
+        assertEquals(HttpStatus.OK.value(), handshake("userId=99&token=" + token, attributes).getStatus());
+        assertEquals(7L, attributes.get(JwtHandshakeInterceptor.ATTR_USER_ID));
+    }
+
+    @Test
+    void rejectsMissingOrInvalidToken() throws Exception {
+        Map<String, Object> attributes = new HashMap<>();
+
+        assertEquals(HttpStatus.UNAUTHORIZED.value(), handshake("userId=7", attributes).getStatus());
+        assertEquals(HttpStatus.UNAUTHORIZED.value(), handshake("userId=7&token=forged", attributes).getStatus());
+        assertFalse(attributes.containsKey(JwtHandshakeInterceptor.ATTR_USER_ID));
+    }
+
+    private MockHttpServletResponse handshake(String query, Map<String, Object> attributes) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/ws/message");
+        request.setQueryString(query);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ServletServerHttpResponse serverResponse = new ServletServerHttpResponse(response);
+        boolean accepted = interceptor.beforeHandshake(new ServletServerHttpRequest(request), serverResponse,
+                null, attributes);
+        serverResponse.flush();
+        assertEquals(response.getStatus() == HttpStatus.OK.value(), accepted);
+        return response;
+    }
+}
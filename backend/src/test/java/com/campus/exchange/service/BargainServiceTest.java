@@ -0,0 +1,94 @@
+package com.campus.exchange.service;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.campus.exchange.dto.BargainVO;
+import com.campus.exchange.mapper.BargainMapper;
+import com.campus.exchange.mapper.ProductMapper;
+import com.campus.exchange.mapper.UserMapper;
+import com.campus.exchange.model.Bargain;
+import com.campus.exchange.model.Product;
+import com.campus.exchange.model.User;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BargainServiceTest {
+
+    private static final int PAGE_SIZE = 20;
+
+    @BeforeAll
+    static void initTableInfo() {
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), Bargain.class);
+    }
+
+    @Test
+    void bargainPageLoadsEachEntityTypeOnce() {
+        BargainMapper bargainMapper = mock(BargainMapper.class);
+        ProductMapper productMapper = mock(ProductMapper.class);
+        UserMapper userMapper = mock(UserMapper.class);
+
+        List<Bargain> bargains = new ArrayList<>();
+        for (long i = 1; i <= PAGE_SIZE; i++) {
+            Bargain bargain = new Bargain();
+            bargain.setId(i);
+            bargain.setProductId(100 + i % 5);
+            bargain.setBargainerId(200 + i);
+            bargain.setTargetUserId(1L);
+            bargain.setStatus("PENDING");
+            bargains.add(bargain);
+        }
+        Page<Bargain> page = new Page<>(1, PAGE_SIZE, PAGE_SIZE);
+        page.setRecords(bargains);
+        when(bargainMapper.selectPage(any(), any())).thenReturn(page);
+        when(productMapper.selectBatchIds(anyCollection())).thenAnswer(inv -> ids(inv.getArgument(0)).stream()
+                .map(id -> {
+                    Product product = new Product();
+                    product.setId(id);
+                    product.setTitle("商品" + id);
+                    product.setImages("[\"p.png\",\"q.png\"]");
+                    return product;
+                }).collect(Collectors.toList()));
+        when(userMapper.selectBatchIds(anyCollection())).thenAnswer(inv -> ids(inv.getArgument(0)).stream()
+                .map(id -> {
+                    User user = new User();
+                    user.setId(id);
+                    user.setNickname("nick" + id);
+                    return user;
+                }).collect(Collectors.toList()));
+
+        BargainService bargainService = new BargainService(bargainMapper, productMapper, userMapper);
+        IPage<BargainVO> result = bargainService.getUserBargains(1L, 1, PAGE_SIZE);
+
+        assertEquals(PAGE_SIZE, result.getRecords().size());
+        BargainVO first = result.getRecords().get(0);
+        assertEquals("商品101", first.getProductTitle());
+        assertEquals("p.png", first.getProductImage());
+        assertEquals("nick201", first.getBargainerNickname());
+        verify(productMapper, times(1)).selectBatchIds(anyCollection());
+        verify(userMapper, times(1)).selectBatchIds(anyCollection());
+        verify(productMapper, never()).selectById(any());
+        verify(userMapper, never()).selectById(any());
+    }
+
+    private static List<Long> ids(Collection<? extends Serializable> ids) {
+        return ids.stream().map(id -> (Long) id).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,97 @@
+package com.campus.exchange.service;
+
+import com.campus.exchange.dto.ExportJobRequest;
+import com.campus.exchange.mapper.ExportJobMapper;
+import com.campus.exchange.model.ExportJob;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ExportJobServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private final CountDownLatch exportGate = new CountDownLatch(1);
+    private ExportJobMapper exportJobMapper;
+    private DataExportService dataExportService;
+    private ExportJobService service;
+
+    @BeforeEach
+    void setUp() {
+        exportJobMapper = mock(ExportJobMapper.class);
+        dataExportService = mock(DataExportService.class);
+        service = new ExportJobService(exportJobMapper, dataExportService, new ObjectMapper(),
+                mock(PlatformTransactionManager.class), dir.toString(), 24, "node-a", 8081);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        exportGate.countDown();
+        // 等导出线程清理完临时文件，再由 @TempDir 删除目录
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!((Collection<?>) service.getStats().get("activeTypes")).isEmpty()
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        service.shutdown();
+    }
+
+    @Test
+    void initFailsOnlyThisNodesOrStaleJobs() throws Exception {
+        service.init();
+
+        verify(exportJobMapper).failInterrupted(eq("node-a"),
+                argThat(staleBefore -> staleBefore.isBefore(LocalDateTime.now().minusSeconds(60))),
+                anyString(), any(LocalDateTime.class));
+        verify(exportJobMapper, never()).failStale(any(), anyString(), any());
+    }
+
+    @Test
+    void submitRecordsOwnerAndHeartbeatRenewsRunningJobs() throws Exception {
+        doAnswer(inv -> {
+            // 模拟导出很慢：等测试放行后才完成
+            exportGate.await(5, TimeUnit.SECONDS);
+            return 0L;
+        }).when(dataExportService).exportUsers(any(), any(), any(), eq(true), any());
+        doAnswer(inv -> {
+            inv.<ExportJob>getArgument(0).setId(7L);
+            return 1;
+        }).when(exportJobMapper).insert(any(ExportJob.class));
+        // 提交后导出线程会调用同一个 mock，所有打桩都在提交前完成
+        when(exportJobMapper.heartbeat(eq("node-a"), any(), any())).thenReturn(1);
+
+        ExportJobRequest request = new ExportJobRequest();
+        request.setType("users");
+        ExportJob job = service.submit(request, 1L);
+
+        assertEquals("node-a", job.getOwnerNode());
+        assertNotNull(job.getHeartbeatAt());
+
+        assertEquals(1, service.heartbeat());
+        verify(exportJobMapper).heartbeat(eq("node-a"),
+                argThat((Collection<Long> ids) -> ids.equals(Collections.singletonList(7L))), any());
+    }
+}
@@ -0,0 +1,175 @@
+package com.campus.exchange.service;
+
+import com.campus.exchange.config.PushRouter;
+import com.campus.exchange.model.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class MessageSearchIndexTest {
+
+    private static final long MB = 1L << 20;
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void readsAcrossMappedChunkBoundaries() throws Exception {
+        // 64 字节一块，词典项和倒排项大量跨越块边界
+        MessageSearchIndex index = open(MB, 64);
+        for (long id = 1; id <= 200; id++) {
+            index.index(message(id, 1L, 1 + id, id % 2 == 0 ? "出售二手自行车" : "求购二手教材"));
+        }
+        index.flush();
+
+        long[] ids = index.search(1L, "自行车", null, 500);
+        assertEquals(100, ids.length);
+        assertEquals(200, ids[0]);
+        assertEquals(2, ids[99]);
+
+        MessageSearchIndex reopened = open(MB, 64);
+        assertArrayEquals(ids, reopened.search(1L, "自行车", null, 500));
+    }
+
+    @Test
+    void rejectsSegmentsWithUnknownVersion() throws Exception {
+        MessageSearchIndex index = open(MB, 1 << 20);
+        index.index(message(1L, 1L, 2L, "出售二手自行车"));
+        index.flush();
+
+        File segment = dir.toFile().listFiles((d, name) -> name.endsWith(".idx"))[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.seek(4);
+            file.writeInt(1);
+        }
+        assertEquals(0, open(MB, 1 << 20).getStats().get("segments"));
+    }
+
+    @Test
+    void purgeHidesPostingsAndExpungeDropsThem() throws Exception {
+        MessageSearchIndex index = open(MB, 1 << 20);
+        for (long id = 1; id <= 10; id++) {
+            index.index(message(id, 1L, id <= 5 ? 2L : 3L, "出售二手自行车"));
+        }
+        index.flush();
+
+        index.purge(1L, 2L);
+        assertArrayEquals(new long[]{10, 9, 8, 7, 6}, index.search(1L, "自行车", null, 20));
+        // 对方的索引不受影响
+        assertEquals(5, index.search(2L, "自行车", null, 20).length);
+        assertTrue((Long) index.getStats().get("deletedPostings") > 0);
+
+        // 已清除的比例超过阈值，单独重写后不再保留
+        index.mergeIfNeeded();
+        assertEquals(0L, index.getStats().get("deletedPostings"));
+        assertEquals(1L, index.getStats().get("expungedTotal"));
+        assertArrayEquals(new long[]{10, 9, 8, 7, 6}, index.search(1L, "自行车", null, 20));
+
+        index.persistDeletes();
+        assertEquals(0, index.getStats().get("tombstones"));
+        assertArrayEquals(new long[]{10, 9, 8, 7, 6}, open(MB, 1 << 20).search(1L, "自行车", null, 20));
+    }
+
+    @Test
+    void persistedDeletesSurviveRestartAfterLogCompaction() throws Exception {
+        MessageSearchIndex index = open(MB, 1 << 20);
+        for (long id = 1; id <= 20; id++) {
+            index.index(message(id, 1L, id == 1 ? 2L : 3L, "出售二手自行车"));
+        }
+        index.flush();
+        index.purge(1L, 2L);
+
+        // 比例未到重写阈值：只写删除位图，清除日志随之删除
+        index.mergeIfNeeded();
+        index.persistDeletes();
+        assertEquals(0L, index.getStats().get("expungedTotal"));
+        assertEquals(0, index.getStats().get("tombstones"));
+
+        MessageSearchIndex reopened = open(MB, 1 << 20);
+        long[] ids = reopened.search(1L, "自行车", null, 50);
+        assertEquals(19, ids.length);
+        assertEquals(2, ids[18]);
+    }
+
+    @Test
+    void tieredMergeKeepsSegmentsUnderCap() throws Exception {
+        long cap = 4096;
+        MessageSearchIndex index = open(cap, 1 << 20);
+        for (long id = 1; id <= 32; id++) {
+            index.index(message(id, 1L, 2L, "出售二手自行车" + id));
+            index.flush();
+        }
+        for (int i = 0; i < 32; i++) {
+            index.mergeIfNeeded();
+        }
+
+        File[] files = dir.toFile().listFiles((d, name) -> name.endsWith(".idx"));
+        assertTrue(files.length < 32, "segments=" + files.length);
+        for (File file : files) {
+            assertTrue(file.length() <= cap, file.getName() + " " + file.length());
+        }
+        assertTrue((Long) index.getStats().get("mergedTotal") > 0);
+        assertEquals(32, index.search(1L, "自行车", null, 100).length);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void otherNodesIndexAndPurgeFromBusEvents() throws Exception {
+        PushRouter routerA = mock(PushRouter.class);
+        PushRouter routerB = mock(PushRouter.class);
+        MessageSearchIndex nodeA = new MessageSearchIndex(routerA, objectMapper, dir.resolve("a").toString(), MB, 1 << 20);
+        MessageSearchIndex nodeB = new MessageSearchIndex(routerB, objectMapper, dir.resolve("b").toString(), MB, 1 << 20);
+        nodeA.open();
+        nodeB.open();
+        ArgumentCaptor<Consumer<String>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(routerB).subscribe(eq(MessageSearchIndex.TOPIC), listener.capture());
+
+        nodeA.index(message(1L, 1L, 2L, "出售二手自行车"));
+        nodeA.purge(2L, 1L);
+        ArgumentCaptor<String> events = ArgumentCaptor.forClass(String.class);
+        verify(routerA, times(2)).publishEvent(eq(MessageSearchIndex.TOPIC), events.capture());
+
+        List<String> payloads = events.getAllValues();
+        listener.getValue().accept(payloads.get(0));
+        assertArrayEquals(new long[]{1}, nodeB.search(1L, "自行车", null, 10));
+        assertArrayEquals(new long[]{1}, nodeB.search(2L, "自行车", null, 10));
+
+        listener.getValue().accept(payloads.get(1));
+        assertArrayEquals(new long[]{1}, nodeB.search(1L, "自行车", null, 10));
+        assertEquals(0, nodeB.search(2L, "自行车", null, 10).length);
+    }
+
+    private MessageSearchIndex open(long maxSegmentBytes, int mapChunkBytes) throws Exception {
+        MessageSearchIndex index = new MessageSearchIndex(mock(PushRouter.class), objectMapper, dir.toString(),
+                maxSegmentBytes, mapChunkBytes);
+        index.open();
+        return index;
+    }
+
+    private static Message message(long id, long senderId, long receiverId, String content) {
+        Message message = new Message();
+        message.setId(id);
+        message.setSenderId(senderId);
+        message.setReceiverId(receiverId);
+        message.setType("TEXT");
+        message.setContent(content);
+        return message;
+    }
+}
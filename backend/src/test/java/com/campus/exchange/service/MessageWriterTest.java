@@ -0,0 +1,93 @@
+package com.campus.exchange.service;
+
+import com.campus.exchange.mapper.ConversationMapper;
+import com.campus.exchange.mapper.MessageMapper;
+import com.campus.exchange.mapper.UserDeliverySeqMapper;
+import com.campus.exchange.model.Message;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MessageWriterTest {
+
+    private final CountDownLatch commitGate = new CountDownLatch(1);
+    private MessageWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        MessageMapper messageMapper = mock(MessageMapper.class);
+        UserDeliverySeqMapper seqMapper = mock(UserDeliverySeqMapper.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        when(seqMapper.allocate(any(), anyInt())).thenReturn(1);
+        when(seqMapper.findLastSeq(any())).thenReturn(1L);
+        when(messageMapper.insertBatch(anyList())).thenAnswer(inv -> {
+            // 模拟提交很慢：等测试放行后才完成
+            commitGate.await(5, TimeUnit.SECONDS);
+            return 1;
+        });
+        writer = new MessageWriter(messageMapper, mock(ConversationMapper.class), seqMapper, transactionManager,
+                mock(MetricRollupService.class), true, 10, 1, 100, 100);
+        writer.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        commitGate.countDown();
+        writer.stop();
+    }
+
+    @Test
+    void afterPersistedRunsOnCallbackThreadEvenWhenCallerTimesOut() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<String> thread = new AtomicReference<>();
+        AtomicReference<Long> seq = new AtomicReference<>();
+
+        RuntimeException timeout = assertThrows(RuntimeException.class, () -> writer.write(message(), m -> {
+            thread.set(Thread.currentThread().getName());
+            seq.set(m.getReceiverSeq());
+            done.countDown();
+            return m;
+        }));
+        assertTrue(timeout.getMessage().contains("超时"));
+
+        commitGate.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS), "消息提交后未执行落库后处理");
+        assertEquals(1L, seq.get());
+        assertNotEquals("message-writer", thread.get());
+    }
+
+    @Test
+    void writeReturnsCallbackResult() {
+        commitGate.countDown();
+
+        assertEquals("ok:1", writer.write(message(), m -> "ok:" + m.getReceiverSeq()));
+    }
+
+    private static Message message() {
+        Message message = new Message();
+        message.setSenderId(1L);
+        message.setReceiverId(2L);
+        message.setType("TEXT");
+        message.setContent("hello");
+        message.setCreatedAt(LocalDateTime.now().withNano(0));
+        return message;
+    }
+}
@@ -0,0 +1,69 @@
+package com.campus.exchange.service;
+
+import com.campus.exchange.mapper.ConversationMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PresenceServiceTest {
+
+    private final ConversationMapper conversationMapper = mock(ConversationMapper.class);
+    private PresenceService service;
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void transitionQueryAndIdleCloseRunOffTheWheelThread() throws Exception {
+        // 空闲超时 1ms：第一次检查即断开；不防抖：上线后下一个刻度即推送
+        service = new PresenceService(conversationMapper, new ObjectMapper(), 1, 0);
+
+        CountDownLatch queried = new CountDownLatch(1);
+        AtomicReference<String> queryThread = new AtomicReference<>();
+        when(conversationMapper.findByUser(eq(1L), any(), any(), anyInt())).thenAnswer(inv -> {
+            queryThread.set(Thread.currentThread().getName());
+            queried.countDown();
+            return Collections.emptyList();
+        });
+
+        CountDownLatch closed = new CountDownLatch(1);
+        AtomicReference<String> closeThread = new AtomicReference<>();
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("s1");
+        doAnswer(inv -> {
+            closeThread.set(Thread.currentThread().getName());
+            closed.countDown();
+            return null;
+        }).when(session).close(any());
+
+        service.onConnect(1L, session);
+
+        assertTrue(queried.await(5, TimeUnit.SECONDS));
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+        assertTrue(queryThread.get().startsWith("presence-worker-"), queryThread.get());
+        assertTrue(closeThread.get().startsWith("presence-worker-"), closeThread.get());
+        // 关闭后在同一任务中清理会话
+        long deadline = System.currentTimeMillis() + 5000;
+        while (service.isOnline(1L) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(service.isOnline(1L));
+    }
+}
@@ -0,0 +1,109 @@
+package com.campus.exchange.service;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.campus.exchange.dto.ReviewVO;
+import com.campus.exchange.mapper.OrderMapper;
+import com.campus.exchange.mapper.ProductMapper;
+import com.campus.exchange.mapper.ReviewMapper;
+import com.campus.exchange.mapper.UserMapper;
+import com.campus.exchange.model.Order;
+import com.campus.exchange.model.Product;
+import com.campus.exchange.model.Review;
+import com.campus.exchange.model.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReviewServiceTest {
+
+    private static final int PAGE_SIZE = 20;
+
+    @BeforeAll
+    static void initTableInfo() {
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), Review.class);
+    }
+
+    @Test
+    void reviewPageLoadsEachEntityTypeOnce() {
+        ReviewMapper reviewMapper = mock(ReviewMapper.class);
+        OrderMapper orderMapper = mock(OrderMapper.class);
+        ProductMapper productMapper = mock(ProductMapper.class);
+        UserMapper userMapper = mock(UserMapper.class);
+
+        List<Review> reviews = new ArrayList<>();
+        for (long i = 1; i <= PAGE_SIZE; i++) {
+            Review review = new Review();
+            review.setId(i);
+            review.setOrderId(100 + i);
+            review.setReviewerId(200 + i);
+            review.setTargetUserId(1L);
+            review.setRating(5);
+            review.setImages("[\"a.png\"]");
+            reviews.add(review);
+        }
+        Page<Review> page = new Page<>(1, PAGE_SIZE, PAGE_SIZE);
+        page.setRecords(reviews);
+        when(reviewMapper.selectPage(any(), any())).thenReturn(page);
+        when(orderMapper.selectBatchIds(anyCollection())).thenAnswer(inv -> ids(inv.getArgument(0)).stream()
+                .map(id -> {
+                    Order order = new Order();
+                    order.setId(id);
+                    order.setProductId(id + 1000);
+                    return order;
+                }).collect(Collectors.toList()));
+        when(productMapper.selectBatchIds(anyCollection())).thenAnswer(inv -> ids(inv.getArgument(0)).stream()
+                .map(id -> {
+                    Product product = new Product();
+                    product.setId(id);
+                    product.setTitle("商品" + id);
+                    product.setImages("[\"p.png\"]");
+                    return product;
+                }).collect(Collectors.toList()));
+        when(userMapper.selectBatchIds(anyCollection())).thenAnswer(inv -> ids(inv.getArgument(0)).stream()
+                .map(id -> {
+                    User user = new User();
+                    user.setId(id);
+                    user.setUsername("user" + id);
+                    return user;
+                }).collect(Collectors.toList()));
+
+        ReviewService reviewService = new ReviewService(reviewMapper, null, null, orderMapper, productMapper,
+                userMapper, null, new ObjectMapper(), null);
+        IPage<ReviewVO> result = reviewService.getUserReviews(1L, 1, PAGE_SIZE);
+
+        assertEquals(PAGE_SIZE, result.getRecords().size());
+        ReviewVO first = result.getRecords().get(0);
+        assertEquals("user201", first.getReviewerUsername());
+        assertEquals("user1", first.getTargetUsername());
+        assertEquals("商品1101", first.getProductTitle());
+        verify(userMapper, times(1)).selectBatchIds(anyCollection());
+        verify(orderMapper, times(1)).selectBatchIds(anyCollection());
+        verify(productMapper, times(1)).selectBatchIds(anyCollection());
+        verify(userMapper, never()).selectById(any());
+        verify(orderMapper, never()).selectById(any());
+        verify(productMapper, never()).selectById(any());
+    }
+
+    private static List<Long> ids(Collection<? extends Serializable> ids) {
+        return ids.stream().map(id -> (Long) id).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,105 @@
+package com.campus.exchange.service;
+
+import com.campus.exchange.model.SensitiveWord;
+import com.campus.exchange.util.DoubleArrayAhoCorasick;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 敏感词过滤基准
+ * filter：单次过滤耗时，应只随文本长度增长，与词表规模无关；build：词表编译耗时（管理员修改后的重建代价）。
+ * 运行：mvn -P benchmark test-compile exec:exec -Dbenchmark=SensitiveWordFilterBenchmark
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SensitiveWordFilterBenchmark {
+
+    @Param({"10000", "100000"})
+    public int wordCount;
+
+    @Param({"200", "5000"})
+    public int textLength;
+
+    private SensitiveWordFilter filter;
+    private List<String> patterns;
+    private String text;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        List<SensitiveWord> words = new ArrayList<>(wordCount);
+        patterns = new ArrayList<>(wordCount);
+        String[] actions = {SensitiveWordFilter.ACTION_REPLACE, SensitiveWordFilter.ACTION_FLAG,
+                SensitiveWordFilter.ACTION_BLOCK};
+        for (int i = 0; i < wordCount; i++) {
+            SensitiveWord word = new SensitiveWord();
+            word.setId((long) i + 1);
+            word.setWord(randomWord(random, 2 + random.nextInt(7)));
+            // 大部分为替换词，少量拦截词，避免文本几乎总被拦截而跳过替换
+            word.setAction(actions[random.nextInt(100) < 90 ? 0 : random.nextInt(100) < 80 ? 1 : 2]);
+            word.setReplaceWord("***");
+            words.add(word);
+            patterns.add(SensitiveWordFilter.normalize(word.getWord()));
+        }
+
+        filter = new SensitiveWordFilter(null);
+        filter.load(words, "benchmark");
+
+        // 文本与词表同字母表，大量部分匹配走失败指针；约每 100 个字符插入一个词表中的词，夹杂干扰符号
+        StringBuilder sb = new StringBuilder(textLength);
+        while (sb.length() < textLength) {
+            if (random.nextInt(100) == 0) {
+                String word = words.get(random.nextInt(words.size())).getWord();
+                sb.append(word.charAt(0)).append('-').append(word, 1, word.length());
+            } else {
+                sb.append(randomWord(random, 1));
+                if (random.nextInt(10) == 0) {
+                    sb.append(' ');
+                }
+            }
+        }
+        text = sb.substring(0, textLength);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public SensitiveWordFilter.FilterResult filter() {
+        return filter.filter(text);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public DoubleArrayAhoCorasick build() {
+        return DoubleArrayAhoCorasick.build(patterns);
+    }
+
+    /**
+     * 一半中文（常用字区间）一半小写字母
+     */
+    private static String randomWord(Random random, int length) {
+        boolean cjk = random.nextBoolean();
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(cjk ? (char) (0x4E00 + random.nextInt(3000)) : (char) ('a' + random.nextInt(26)));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,75 @@
+package com.campus.exchange.service;
+
+import com.campus.exchange.model.SensitiveWord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SensitiveWordFilterTest {
+
+    private SensitiveWordFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new SensitiveWordFilter(null);
+    }
+
+    @Test
+    void normalizesWidthCaseAndNoise() {
+        filter.load(Collections.singletonList(word(1, "cheat", SensitiveWordFilter.ACTION_BLOCK, null)), "v1");
+
+        assertTrue(filter.filter("ＣＨ-E.a T now").isBlocked());
+        assertTrue(filter.filter("cheap cheats").isBlocked());
+        assertFalse(filter.filter("cheap").isBlocked());
+        assertThrows(IllegalArgumentException.class, () -> filter.check("c h e a t", "测试"));
+    }
+
+    @Test
+    void replacesOriginalSpanAndMergesOverlaps() {
+        filter.load(Arrays.asList(
+                word(1, "微信", SensitiveWordFilter.ACTION_REPLACE, "**"),
+                word(2, "加微信", SensitiveWordFilter.ACTION_REPLACE, "[x]"),
+                word(3, "abc", SensitiveWordFilter.ACTION_REPLACE, "#"),
+                word(4, "bcd", SensitiveWordFilter.ACTION_REPLACE, "$")), "v1");
+
+        assertEquals("请[x] 聊", filter.filter("请加 微-信 聊").getText());
+        assertEquals("x#x", filter.filter("xabcdx").getText());
+    }
+
+    @Test
+    void duplicateNormalizedWordsTakeStrictestAction() {
+        filter.load(Arrays.asList(
+                word(1, "c-heat", SensitiveWordFilter.ACTION_REPLACE, "***"),
+                word(2, "CHEAT", SensitiveWordFilter.ACTION_BLOCK, null),
+                word(3, "spam", SensitiveWordFilter.ACTION_BLOCK, null),
+                word(4, "s p a m", SensitiveWordFilter.ACTION_FLAG, null)), "v1");
+
+        assertTrue(filter.filter("cheat").isBlocked());
+        assertTrue(filter.filter("spam").isBlocked());
+    }
+
+    @Test
+    void flaggedWordsPassThrough() {
+        filter.load(Collections.singletonList(word(1, "Spam", SensitiveWordFilter.ACTION_FLAG, null)), "v1");
+
+        SensitiveWordFilter.FilterResult result = filter.check("S p A m here", "测试");
+        assertTrue(result.isFlagged());
+        assertEquals("S p A m here", result.getText());
+    }
+
+    private static SensitiveWord word(long id, String text, String action, String replaceWord) {
+        SensitiveWord word = new SensitiveWord();
+        word.setId(id);
+        word.setWord(text);
+        word.setAction(action);
+        word.setReplaceWord(replaceWord);
+        return word;
+    }
+}
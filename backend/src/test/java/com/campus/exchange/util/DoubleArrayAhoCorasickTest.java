@@ -0,0 +1,84 @@
+package com.campus.exchange.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DoubleArrayAhoCorasickTest {
+
+    @Test
+    void findsAllOverlappingMatches() {
+        List<String> patterns = Arrays.asList("he", "she", "his", "hers");
+        DoubleArrayAhoCorasick automaton = DoubleArrayAhoCorasick.build(patterns);
+
+        assertEquals(Arrays.asList("she@3", "he@3", "hers@5"), scan(automaton, patterns, "ushers"));
+    }
+
+    @Test
+    void duplicatePatternKeepsFirstIndex() {
+        List<String> patterns = Arrays.asList("cheat", "abc", "cheat");
+        DoubleArrayAhoCorasick automaton = DoubleArrayAhoCorasick.build(patterns);
+
+        int state = DoubleArrayAhoCorasick.ROOT;
+        for (char c : "cheat".toCharArray()) {
+            state = automaton.step(state, c);
+        }
+        assertEquals(0, automaton.patternOf(automaton.firstMatch(state)));
+    }
+
+    @Test
+    void matchesNaiveScanOnRandomInput() {
+        Random random = new Random(7);
+        for (int round = 0; round < 20; round++) {
+            List<String> patterns = new ArrayList<>();
+            int count = 1 + random.nextInt(2000);
+            for (int i = 0; i < count; i++) {
+                patterns.add(randomString(random, 1 + random.nextInt(6)));
+            }
+            String text = randomString(random, 3000);
+            DoubleArrayAhoCorasick automaton = DoubleArrayAhoCorasick.build(patterns);
+
+            assertEquals(naive(patterns, text), new HashSet<>(scan(automaton, patterns, text)));
+        }
+    }
+
+    private static List<String> scan(DoubleArrayAhoCorasick automaton, List<String> patterns, String text) {
+        List<String> matches = new ArrayList<>();
+        int state = DoubleArrayAhoCorasick.ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            state = automaton.step(state, text.charAt(i));
+            for (int m = automaton.firstMatch(state); m != -1; m = automaton.nextMatch(m)) {
+                matches.add(patterns.get(automaton.patternOf(m)) + "@" + i);
+            }
+        }
+        return matches;
+    }
+
+    private static Set<String> naive(List<String> patterns, String text) {
+        Set<String> matches = new HashSet<>();
+        for (String pattern : new HashSet<>(patterns)) {
+            for (int at = text.indexOf(pattern); at >= 0; at = text.indexOf(pattern, at + 1)) {
+                matches.add(pattern + "@" + (at + pattern.length() - 1));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * 小字母表，制造大量公共前缀和部分匹配；混入少量中文覆盖大编码
+     */
+    private static String randomString(Random random, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(random.nextInt(20) == 0 ? (char) (0x4E00 + random.nextInt(4)) : (char) ('a' + random.nextInt(4)));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,51 @@
+package com.campus.exchange.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashedTimingWheelTest {
+
+    /** 1ms 一个刻度、4096 个槽：转一圈要 4 秒多，错过槽的任务会明显超时 */
+    private final HashedTimingWheel wheel = new HashedTimingWheel("timing-wheel-test", 1, TimeUnit.MILLISECONDS, 4096);
+
+    @AfterEach
+    void tearDown() {
+        wheel.stop();
+    }
+
+    @Test
+    void timeoutsScheduledWhileTickingNeverWaitAFullRotation() throws Exception {
+        int count = 2000;
+        CountDownLatch fired = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            wheel.schedule(fired::countDown, 0, TimeUnit.MILLISECONDS);
+            if (i % 50 == 0) {
+                Thread.sleep(1);
+            }
+        }
+
+        assertTrue(fired.await(2, TimeUnit.SECONDS), "未触发: " + fired.getCount());
+        assertEquals(0, wheel.pendingCount());
+    }
+
+    @Test
+    void cancelledTimeoutDoesNotRun() throws Exception {
+        AtomicBoolean ran = new AtomicBoolean();
+        HashedTimingWheel.Timeout timeout = wheel.schedule(() -> ran.set(true), 20, TimeUnit.MILLISECONDS);
+        timeout.cancel();
+        CountDownLatch later = new CountDownLatch(1);
+        wheel.schedule(later::countDown, 50, TimeUnit.MILLISECONDS);
+
+        assertTrue(later.await(2, TimeUnit.SECONDS));
+        assertFalse(ran.get());
+        assertEquals(0, wheel.pendingCount());
+    }
+}
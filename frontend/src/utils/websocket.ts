@@ -9,6 +9,15 @@ class WebSocketClient {
   private reconnectTimer: any = null;
   private heartbeatTimer: any = null;
   private isManualClose: boolean = false;
+  private userId: number = 0;
+  // 已连续收到的最大投递序号（不大于它的都已收到），重连和补洞时上报以补发缺失的私信
+  private lastSeq: number = 0;
+  // 大于 lastSeq、已先于前面的序号到达的消息（推送可能乱序）
+  private pendingSeqs: Set<number> = new Set();
+  private ackTimer: any = null;
+  private gapTimer: any = null;
+  // 出现空洞后等待迟到推送的时间，超时则向服务端补要
+  private gapTimeout: number = 3000;
 
   // 连接 WebSocket
   connect(userId: number) {
@@ -17,8 +26,12 @@ class WebSocketClient {
     }
 
     this.isManualClose = false;
+    this.userId = userId;
+    this.lastSeq = Number(localStorage.getItem(this.seqKey()) || 0);
+    this.pendingSeqs.clear();
     const token = localStorage.getItem('token');
-    const wsUrl = `ws://localhost:8080/ws/message?userId=${userId}&token=${token || ''}`;
+    // 服务端只按 token 识别用户
+    const wsUrl = `ws://localhost:8080/ws/message?token=${encodeURIComponent(token || '')}`;
 
     try {
       this.ws = new WebSocket(wsUrl);
@@ -26,6 +39,9 @@ class WebSocketClient {
       this.ws.onopen = () => {
         console.log('WebSocket connected');
         this.startHeartbeat();
+        if (this.lastSeq > 0) {
+          this.send({ type: 'RESUME', lastSeq: this.lastSeq });
+        }
         this.emit('connect', null);
       };
 
@@ -38,6 +54,22 @@ class WebSocketClient {
             return;
           }
 
+          if (data.type === 'RESUME_DONE') {
+            // 序号只随实际收到的消息推进，这里不采用服务端的 lastSeq
+            if (data.truncated) {
+              // 断线太久，补发不全，由页面重新加载
+              this.emit('resync', null);
+            }
+            return;
+          }
+
+          if (data.receiverSeq && data.receiverId === this.userId) {
+            if (!this.acceptSeq(data.receiverSeq)) {
+              // 补发与实时推送重复
+              return;
+            }
+          }
+
           this.emit('message', data);
         } catch (e) {
           console.error('Parse message error:', e);
@@ -47,6 +79,7 @@ class WebSocketClient {
       this.ws.onclose = () => {
         console.log('WebSocket disconnected');
         this.stopHeartbeat();
+        this.clearGapTimer();
         this.emit('disconnect', null);
 
         if (!this.isManualClose) {
@@ -69,6 +102,7 @@ class WebSocketClient {
   disconnect() {
     this.isManualClose = true;
     this.stopHeartbeat();
+    this.clearGapTimer();
     if (this.reconnectTimer) {
       clearTimeout(this.reconnectTimer);
       this.reconnectTimer = null;
@@ -86,6 +120,72 @@ class WebSocketClient {
     }
   }
 
+  private seqKey(): string {
+    return `ws_last_seq_${this.userId}`;
+  }
+
+  // 记录收到的序号，重复时返回 false；连续部分推进 lastSeq，中间有空洞时等待或补要
+  private acceptSeq(seq: number): boolean {
+    if (seq <= this.lastSeq || this.pendingSeqs.has(seq)) {
+      return false;
+    }
+    if (this.lastSeq === 0) {
+      // 首次连接没有基准序号，从收到的第一条开始计
+      this.updateSeq(seq);
+      return true;
+    }
+    if (seq !== this.lastSeq + 1) {
+      this.pendingSeqs.add(seq);
+      this.scheduleGapCheck();
+      return true;
+    }
+    let next = seq;
+    while (this.pendingSeqs.delete(next + 1)) {
+      next++;
+    }
+    this.updateSeq(next);
+    if (this.pendingSeqs.size === 0) {
+      this.clearGapTimer();
+    }
+    return true;
+  }
+
+  // 空洞在等待时间内没有补上，按连续序号重新请求补发（已收到的由 acceptSeq 去重）
+  private scheduleGapCheck() {
+    if (this.gapTimer) {
+      return;
+    }
+    this.gapTimer = setTimeout(() => {
+      this.gapTimer = null;
+      if (this.pendingSeqs.size > 0) {
+        this.send({ type: 'RESUME', lastSeq: this.lastSeq });
+        this.scheduleGapCheck();
+      }
+    }, this.gapTimeout);
+  }
+
+  private clearGapTimer() {
+    if (this.gapTimer) {
+      clearTimeout(this.gapTimer);
+      this.gapTimer = null;
+    }
+  }
+
+  // 记录已连续收到的序号，合并后确认给服务端
+  private updateSeq(seq: number) {
+    if (!seq || seq <= this.lastSeq) {
+      return;
+    }
+    this.lastSeq = seq;
+    localStorage.setItem(this.seqKey(), String(seq));
+    if (!this.ackTimer) {
+      this.ackTimer = setTimeout(() => {
+        this.ackTimer = null;
+        this.send({ type: 'ACK', seq: this.lastSeq });
+      }, 1000);
+    }
+  }
+
   // 心跳
   private startHeartbeat() {
     this.heartbeatTimer = setInterval(() => {
@@ -0,0 +1,30 @@
+-- 广播系统消息：群发只写一行，用户读取时与个人系统消息合并（读扩散）
+-- segment 为空表示全体用户（只对发送时已注册的用户可见）；指定分群时由后台任务分批写入 system_message
+CREATE TABLE IF NOT EXISTS `broadcast_message` (
+    `id` BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    `title` VARCHAR(100) NOT NULL COMMENT '消息标题',
+    `content` TEXT NOT NULL COMMENT '消息内容',
+    `type` VARCHAR(50) NOT NULL COMMENT '消息类型',
+    `segment` VARCHAR(32) DEFAULT NULL COMMENT '目标分群: 空-全体用户, VERIFIED-已认证用户, UNVERIFIED-未认证用户',
+    `materialized_up_to` BIGINT NOT NULL DEFAULT 0 COMMENT '分群消息已写入到的用户ID',
+    `status` VARCHAR(20) NOT NULL DEFAULT 'DONE' COMMENT '分群写入状态: PENDING-写入中, DONE-完成',
+    `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+    INDEX `idx_status` (`status`),
+    INDEX `idx_created_at` (`created_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='广播系统消息表';
+
+-- 用户对单条广播的已读/删除回执
+CREATE TABLE IF NOT EXISTS `broadcast_receipt` (
+    `user_id` BIGINT NOT NULL COMMENT '用户ID',
+    `broadcast_id` BIGINT NOT NULL COMMENT '广播ID',
+    `read_time` DATETIME DEFAULT NULL COMMENT '阅读时间',
+    `deleted` TINYINT(1) NOT NULL DEFAULT 0 COMMENT '是否已删除',
+    PRIMARY KEY (`user_id`, `broadcast_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='广播回执表';
+
+-- 用户的广播已读水位：ID 不大于该值的广播均视为已读（全部已读时更新）
+CREATE TABLE IF NOT EXISTS `broadcast_read_watermark` (
+    `user_id` BIGINT NOT NULL PRIMARY KEY COMMENT '用户ID',
+    `read_up_to` BIGINT NOT NULL DEFAULT 0 COMMENT '已读到的广播ID'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='广播已读水位表';
+
@@ -0,0 +1,31 @@
+-- 会话摘要表：每对用户一行，保存最后一条消息预览和双方各自的未读数
+-- 依赖 add_message_pair_index.sql 中的 user_low / user_high 列
+CREATE TABLE IF NOT EXISTS `conversation` (
+    `id` BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    `user_low` BIGINT NOT NULL COMMENT '会话双方中较小的用户ID',
+    `user_high` BIGINT NOT NULL COMMENT '会话双方中较大的用户ID',
+    `last_message_preview` VARCHAR(200) DEFAULT NULL COMMENT '最后一条消息预览',
+    `last_message_type` VARCHAR(20) DEFAULT NULL COMMENT '最后一条消息类型',
+    `last_sender_id` BIGINT DEFAULT NULL COMMENT '最后一条消息发送者ID',
+    `last_message_at` DATETIME NOT NULL COMMENT '最后一条消息时间',
+    `unread_low` INT NOT NULL DEFAULT 0 COMMENT 'user_low 的未读数',
+    `unread_high` INT NOT NULL DEFAULT 0 COMMENT 'user_high 的未读数',
+    `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+    `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY `uk_pair` (`user_low`, `user_high`),
+    INDEX `idx_low_time` (`user_low`, `last_message_at`, `id`),
+    INDEX `idx_high_time` (`user_high`, `last_message_at`, `id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='会话摘要表';
+
+-- 由已有消息初始化会话摘要
+INSERT INTO `conversation` (`user_low`, `user_high`, `last_message_preview`, `last_message_type`, `last_sender_id`,
+                            `last_message_at`, `unread_low`, `unread_high`)
+SELECT m.`user_low`, m.`user_high`, LEFT(m.`content`, 200), m.`type`, m.`sender_id`, m.`created_at`,
+       (SELECT COUNT(*) FROM `message` u WHERE u.`user_low` = m.`user_low` AND u.`user_high` = m.`user_high`
+            AND u.`receiver_id` = m.`user_low` AND u.`read` = 0),
+       (SELECT COUNT(*) FROM `message` u WHERE u.`user_low` = m.`user_low` AND u.`user_high` = m.`user_high`
+            AND u.`receiver_id` = m.`user_high` AND u.`read` = 0)
+FROM `message` m
+JOIN (SELECT `user_low`, `user_high`, MAX(`id`) AS `max_id` FROM `message` GROUP BY `user_low`, `user_high`) t
+    ON m.`id` = t.`max_id`
+ON DUPLICATE KEY UPDATE `last_message_at` = VALUES(`last_message_at`);
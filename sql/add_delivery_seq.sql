@@ -0,0 +1,9 @@
+-- 私信投递序号：每个接收方单调递增，客户端重连时上报最后确认的序号，服务端补发缺失的消息
+ALTER TABLE `message`
+ADD COLUMN `receiver_seq` BIGINT DEFAULT NULL COMMENT '接收方投递序号（此前的历史消息为空）',
+ADD INDEX `idx_receiver_seq` (`receiver_id`, `receiver_seq`);
+
+CREATE TABLE IF NOT EXISTS `user_delivery_seq` (
+    `user_id` BIGINT NOT NULL PRIMARY KEY COMMENT '接收方用户ID',
+    `last_seq` BIGINT NOT NULL DEFAULT 0 COMMENT '已分配的最大投递序号'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='用户投递序号表';
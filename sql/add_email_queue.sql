@@ -0,0 +1,31 @@
+-- 邮件发送队列：业务方只写入队列，由后台任务按收件域名限速、分批复用 SMTP 连接发送
+CREATE TABLE IF NOT EXISTS `email_queue` (
+    `id` BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    `recipient` VARCHAR(255) NOT NULL COMMENT '收件人邮箱',
+    `domain` VARCHAR(255) NOT NULL COMMENT '收件人域名（小写），用于限速',
+    `subject` VARCHAR(255) NOT NULL COMMENT '邮件标题',
+    `content` TEXT NOT NULL COMMENT '邮件正文',
+    `priority` INT NOT NULL DEFAULT 0 COMMENT '优先级，越大越先发送（验证码 > 订单通知 > 公告）',
+    `status` VARCHAR(20) NOT NULL DEFAULT 'NEW' COMMENT '状态: NEW-待发送, SENDING-发送中, SENT-已发送',
+    `attempts` INT NOT NULL DEFAULT 0 COMMENT '已尝试次数',
+    `next_attempt_at` DATETIME NOT NULL COMMENT '下次发送时间',
+    `locked_at` DATETIME NULL COMMENT '被发送任务占用的时间',
+    `last_error` VARCHAR(500) NULL COMMENT '最近一次失败原因',
+    `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+    `sent_at` DATETIME NULL COMMENT '发送成功时间',
+    INDEX `idx_status_priority` (`status`, `priority`, `id`),
+    INDEX `idx_status_sent_at` (`status`, `sent_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='邮件发送队列表';
+
+-- 死信：超过最大重试次数或地址无效的邮件，从队列移到此表供人工排查
+CREATE TABLE IF NOT EXISTS `email_dead_letter` (
+    `id` BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    `email_id` BIGINT NOT NULL COMMENT '原队列ID',
+    `recipient` VARCHAR(255) NOT NULL COMMENT '收件人邮箱',
+    `subject` VARCHAR(255) NOT NULL COMMENT '邮件标题',
+    `content` TEXT NOT NULL COMMENT '邮件正文',
+    `attempts` INT NOT NULL DEFAULT 0 COMMENT '已尝试次数',
+    `last_error` VARCHAR(500) NULL COMMENT '最后一次失败原因',
+    `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '进入死信的时间',
+    UNIQUE KEY `uk_email_id` (`email_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='邮件死信表';
@@ -0,0 +1,18 @@
+-- 后台导出任务：提交后在后台线程中流式导出为 gzip 压缩的 CSV 文件，完成后可下载，过期后删除文件
+CREATE TABLE IF NOT EXISTS `export_job` (
+    `id` BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    `type` VARCHAR(20) NOT NULL COMMENT '导出类型: ORDERS-订单, USERS-用户, PRODUCTS-商品',
+    `params` VARCHAR(1000) DEFAULT NULL COMMENT '筛选条件JSON',
+    `status` VARCHAR(20) NOT NULL DEFAULT 'PENDING' COMMENT '状态: PENDING-排队中, RUNNING-导出中, DONE-完成, FAILED-失败, EXPIRED-文件已过期',
+    `rows_processed` BIGINT NOT NULL DEFAULT 0 COMMENT '已导出行数',
+    `file_path` VARCHAR(500) DEFAULT NULL COMMENT '导出文件路径（本机磁盘）',
+    `file_size` BIGINT DEFAULT NULL COMMENT '文件大小(字节)',
+    `error` VARCHAR(500) DEFAULT NULL COMMENT '失败原因',
+    `created_by` BIGINT DEFAULT NULL COMMENT '提交的管理员ID',
+    `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+    `started_at` DATETIME DEFAULT NULL COMMENT '开始时间',
+    `finished_at` DATETIME DEFAULT NULL COMMENT '结束时间',
+    `expires_at` DATETIME DEFAULT NULL COMMENT '文件过期时间',
+    INDEX `idx_type_status` (`type`, `status`),
+    INDEX `idx_status_expires` (`status`, `expires_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='后台导出任务表';
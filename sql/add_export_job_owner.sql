@@ -0,0 +1,5 @@
+-- 导出任务归属节点与心跳：启动时只把本节点的任务或心跳超时的任务标记为失败，不影响其他节点正在执行的任务
+ALTER TABLE `export_job`
+    ADD COLUMN `owner_node` VARCHAR(100) NULL COMMENT '执行任务的节点' AFTER `status`,
+    ADD COLUMN `heartbeat_at` DATETIME NULL COMMENT '执行节点最近一次心跳时间，排队中和导出中的任务定期更新' AFTER `owner_node`,
+    ADD INDEX `idx_status_heartbeat` (`status`, `heartbeat_at`);
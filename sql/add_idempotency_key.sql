@@ -0,0 +1,14 @@
+-- 幂等键表：记录带 Idempotency-Key 请求的首次响应，供重试请求直接返回
+CREATE TABLE IF NOT EXISTS `idempotency_key` (
+    `id` BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    `user_id` BIGINT NOT NULL COMMENT '请求用户ID',
+    `idem_key` VARCHAR(64) NOT NULL COMMENT '客户端提供的幂等键',
+    `scope` VARCHAR(100) NOT NULL COMMENT '请求范围，如 orders:create、orders:12:pay',
+    `status` VARCHAR(20) NOT NULL DEFAULT 'PROCESSING' COMMENT '状态: PROCESSING-处理中, COMPLETED-已完成',
+    `response_body` MEDIUMTEXT NULL COMMENT '首次响应JSON',
+    `expire_at` DATETIME NOT NULL COMMENT '过期时间',
+    `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+    `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY `uk_user_key` (`user_id`, `idem_key`),
+    INDEX `idx_expire_at` (`expire_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='请求幂等键表';
@@ -0,0 +1,4 @@
+-- 幂等键处理租约：PROCESSING 记录由持有者定期占用，持有节点崩溃后租约到期即可被重试请求接管
+ALTER TABLE `idempotency_key`
+    ADD COLUMN `owner_token` VARCHAR(36) NULL COMMENT '当前处理者标识' AFTER `status`,
+    ADD COLUMN `lease_until` DATETIME NULL COMMENT '处理租约到期时间，PROCESSING 记录超过此时间可被接管' AFTER `owner_token`;
@@ -0,0 +1,7 @@
+-- 消息表添加会话双方的规范化用户对（较小ID、较大ID），两个方向的消息落在同一索引范围内
+ALTER TABLE `message`
+ADD COLUMN `user_low` BIGINT AS (LEAST(`sender_id`, `receiver_id`)) STORED COMMENT '会话双方中较小的用户ID',
+ADD COLUMN `user_high` BIGINT AS (GREATEST(`sender_id`, `receiver_id`)) STORED COMMENT '会话双方中较大的用户ID';
+
+-- 聊天记录按 (created_at, id) 游标分页
+ALTER TABLE `message` ADD INDEX `idx_pair_time` (`user_low`, `user_high`, `created_at`, `id`);
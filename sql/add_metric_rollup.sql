@@ -0,0 +1,12 @@
+-- 指标汇总表：按小时、按天累计业务事件数（注册、发布商品、订单各状态、私信）及金额
+-- 事件提交后在内存中合并，定期批量累加；回填任务按业务表和订单事件重建已结束的时间段
+CREATE TABLE IF NOT EXISTS `metric_rollup` (
+    `id` BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    `metric` VARCHAR(32) NOT NULL COMMENT '指标: USER_REGISTERED, PRODUCT_CREATED, ORDER_CREATED, ORDER_PAID, ORDER_SHIPPED, ORDER_COMPLETED, ORDER_CANCELLED, MESSAGE_SENT',
+    `granularity` VARCHAR(8) NOT NULL COMMENT '粒度: HOUR-小时, DAY-天',
+    `bucket_start` DATETIME NOT NULL COMMENT '时间段起点（整点或零点）',
+    `cnt` BIGINT NOT NULL DEFAULT 0 COMMENT '事件数',
+    `amount` DECIMAL(14,2) NOT NULL DEFAULT 0.00 COMMENT '金额（ORDER_COMPLETED 为成交额，其余为0）',
+    `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY `uk_metric_bucket` (`metric`, `granularity`, `bucket_start`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='指标汇总表';
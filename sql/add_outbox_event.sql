@@ -0,0 +1,28 @@
+-- 事务发件箱：订单领域事件与业务数据在同一事务中写入，由后台任务异步投递
+CREATE TABLE IF NOT EXISTS `outbox_event` (
+    `id` BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    `event_id` VARCHAR(36) NOT NULL COMMENT '事件唯一ID(UUID)，用于消费端去重',
+    `event_type` VARCHAR(50) NOT NULL COMMENT '事件类型: ORDER_CREATED, ORDER_PAID, ORDER_SHIPPED, REFUND_APPLIED 等',
+    `aggregate_type` VARCHAR(30) NOT NULL COMMENT '聚合类型，如 ORDER',
+    `aggregate_id` BIGINT NOT NULL COMMENT '聚合ID，如订单ID',
+    `payload` TEXT NOT NULL COMMENT '事件内容JSON',
+    `status` VARCHAR(20) NOT NULL DEFAULT 'NEW' COMMENT '状态: NEW-待投递, PROCESSING-投递中, DONE-已投递, FAILED-投递失败',
+    `attempts` INT NOT NULL DEFAULT 0 COMMENT '已尝试次数',
+    `next_attempt_at` DATETIME NOT NULL COMMENT '下次投递时间',
+    `locked_at` DATETIME NULL COMMENT '被投递任务占用的时间',
+    `last_error` VARCHAR(500) NULL COMMENT '最近一次失败原因',
+    `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+    `processed_at` DATETIME NULL COMMENT '投递完成时间',
+    UNIQUE KEY `uk_event_id` (`event_id`),
+    INDEX `idx_status_next_attempt` (`status`, `next_attempt_at`, `id`),
+    INDEX `idx_aggregate` (`aggregate_type`, `aggregate_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='事务发件箱表';
+
+-- 事件投递记录：按 (事件ID, 渠道) 去重，保证重投时同一渠道不重复通知
+CREATE TABLE IF NOT EXISTS `outbox_delivery` (
+    `id` BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    `event_id` VARCHAR(36) NOT NULL COMMENT '事件唯一ID',
+    `channel` VARCHAR(50) NOT NULL COMMENT '投递渠道，如 SYSTEM_MESSAGE:12、WEBSOCKET:12、EMAIL:12',
+    `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY `uk_event_channel` (`event_id`, `channel`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='事件投递记录表';
@@ -0,0 +1,3 @@
+-- 发件箱清理：按投递完成时间删除超过保留期的已投递事件，按创建时间删除对应的投递记录
+ALTER TABLE `outbox_event` ADD INDEX `idx_status_processed` (`status`, `processed_at`);
+ALTER TABLE `outbox_delivery` ADD INDEX `idx_created_at` (`created_at`);
@@ -0,0 +1,22 @@
+-- 已读水位：标记全部已读只更新水位，不再逐条更新消息
+-- 私信按会话记录接收方已读到的投递序号（receiver_seq），序号不大于水位的消息视为已读；
+-- 水位大于 0 后，此前没有序号的历史消息也视为已读
+ALTER TABLE `conversation`
+ADD COLUMN `read_seq_low` BIGINT NOT NULL DEFAULT 0 COMMENT 'user_low 已读到的投递序号',
+ADD COLUMN `read_seq_high` BIGINT NOT NULL DEFAULT 0 COMMENT 'user_high 已读到的投递序号';
+
+-- 系统消息按用户、按消息流记录已读到的ID，ID 不大于水位的消息视为已读，其余以单条已读标记为准
+CREATE TABLE IF NOT EXISTS `read_watermark` (
+    `user_id` BIGINT NOT NULL COMMENT '用户ID',
+    `stream` VARCHAR(20) NOT NULL COMMENT '消息流: SYSTEM-个人系统消息, BROADCAST-全体广播',
+    `read_up_to` BIGINT NOT NULL DEFAULT 0 COMMENT '已读到的消息ID',
+    `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (`user_id`, `stream`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='已读水位表';
+
+-- 迁移原广播已读水位
+INSERT INTO `read_watermark` (`user_id`, `stream`, `read_up_to`)
+SELECT `user_id`, 'BROADCAST', `read_up_to` FROM `broadcast_read_watermark`
+ON DUPLICATE KEY UPDATE `read_up_to` = GREATEST(`read_up_to`, VALUES(`read_up_to`));
+
+DROP TABLE IF EXISTS `broadcast_read_watermark`;
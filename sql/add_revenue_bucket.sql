@@ -0,0 +1,18 @@
+-- 订单表添加完成时间，用于按完成日期归集成交额
+ALTER TABLE `order`
+ADD COLUMN `completed_at` DATETIME DEFAULT NULL COMMENT '完成时间（确认收货时间）';
+
+UPDATE `order` SET `completed_at` = `updated_at` WHERE `status` = 'COMPLETED' AND `completed_at` IS NULL;
+
+-- 成交额汇总表：已完成订单的累计、按日、按周、按月成交额，可按分类拆分
+-- 订单完成时增量累加，完成后被取消时冲减，定时对账任务按订单表重建
+CREATE TABLE IF NOT EXISTS `revenue_bucket` (
+    `id` BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    `period_type` VARCHAR(10) NOT NULL COMMENT '周期类型: TOTAL-累计, DAY-日, WEEK-周, MONTH-月',
+    `period_start` DATE NOT NULL COMMENT '周期起始日（周以周一开始，累计固定为1970-01-01）',
+    `category_id` BIGINT NOT NULL DEFAULT 0 COMMENT '商品分类ID，0表示全部分类',
+    `order_count` BIGINT NOT NULL DEFAULT 0 COMMENT '完成订单数',
+    `gmv` DECIMAL(14,2) NOT NULL DEFAULT 0.00 COMMENT '成交额',
+    `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY `uk_period_category` (`period_type`, `period_start`, `category_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='成交额汇总表';
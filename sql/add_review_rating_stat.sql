@@ -0,0 +1,24 @@
+-- 评分汇总表：每个被评价用户一行评分分布，target_user_id = 0 为全站汇总
+-- 创建评价、管理员删除评价时在同一事务中增减，定时对账任务按评价表重建
+CREATE TABLE IF NOT EXISTS `review_rating_stat` (
+    `target_user_id` BIGINT NOT NULL PRIMARY KEY COMMENT '被评价用户ID，0表示全站',
+    `total` BIGINT NOT NULL DEFAULT 0 COMMENT '评价数',
+    `rating_sum` BIGINT NOT NULL DEFAULT 0 COMMENT '评分之和，平均分 = rating_sum / total',
+    `rating_1` BIGINT NOT NULL DEFAULT 0 COMMENT '1星评价数',
+    `rating_2` BIGINT NOT NULL DEFAULT 0 COMMENT '2星评价数',
+    `rating_3` BIGINT NOT NULL DEFAULT 0 COMMENT '3星评价数',
+    `rating_4` BIGINT NOT NULL DEFAULT 0 COMMENT '4星评价数',
+    `rating_5` BIGINT NOT NULL DEFAULT 0 COMMENT '5星评价数',
+    `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='评分汇总表';
+
+INSERT INTO `review_rating_stat` (target_user_id, total, rating_sum, rating_1, rating_2, rating_3, rating_4, rating_5)
+SELECT target_user_id, COUNT(*), COALESCE(SUM(rating), 0),
+       SUM(rating = 1), SUM(rating = 2), SUM(rating = 3), SUM(rating = 4), SUM(rating = 5)
+FROM `review` WHERE target_user_id IS NOT NULL GROUP BY target_user_id;
+
+INSERT INTO `review_rating_stat` (target_user_id, total, rating_sum, rating_1, rating_2, rating_3, rating_4, rating_5)
+SELECT 0, COUNT(*), COALESCE(SUM(rating), 0),
+       COALESCE(SUM(rating = 1), 0), COALESCE(SUM(rating = 2), 0), COALESCE(SUM(rating = 3), 0),
+       COALESCE(SUM(rating = 4), 0), COALESCE(SUM(rating = 5), 0)
+FROM `review`;
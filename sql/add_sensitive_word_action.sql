@@ -0,0 +1,8 @@
+-- 敏感词命中动作
+-- BLOCK：拒绝提交；REPLACE：替换为 replace_word；FLAG：放行但记录，商品转人工审核
+
+ALTER TABLE campus_exchange.sensitive_word
+  ADD COLUMN action VARCHAR(10) NOT NULL DEFAULT 'REPLACE' COMMENT '命中动作：BLOCK/REPLACE/FLAG' AFTER replace_word;
+
+-- 已有的高危词（level = 3）直接拦截
+UPDATE campus_exchange.sensitive_word SET action = 'BLOCK' WHERE level = 3;
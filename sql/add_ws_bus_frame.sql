@@ -0,0 +1,10 @@
+-- 多节点 WebSocket 推送总线（数据库轮询实现，websocket.bus=db 时使用）
+-- 每行是某个节点发布的一批推送帧，其他节点轮询后投递给本机连接的用户，过期数据定期清理
+CREATE TABLE IF NOT EXISTS `ws_bus_frame` (
+    `id` BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    `origin_node` VARCHAR(64) NOT NULL COMMENT '发布节点ID',
+    `frames` MEDIUMTEXT NOT NULL COMMENT '推送帧JSON数组',
+    `frame_count` INT NOT NULL DEFAULT 0 COMMENT '帧数量',
+    `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+    INDEX `idx_created_at` (`created_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='WebSocket推送总线表';